@@ -1,14 +1,49 @@
 package com.backend.demo.Config;
 
+import com.backend.demo.upstream.UpstreamBulkheadInterceptor;
+import com.backend.demo.upstream.UpstreamProvider;
+import com.backend.demo.upstream.UpstreamQuota;
+import com.backend.demo.upstream.UpstreamQuotaInterceptor;
+import com.backend.demo.upstream.UpstreamRequestFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.util.List;
+
 @Configuration
 public class RestTemplateConfig {
 
+    /**
+     * Client des API météo : connexions persistantes partagées, délais de connexion et de lecture bornés,
+     * quotas des clés API partagés par priorité puis cloison de concurrence par fournisseur
+     * (voir upstream.* dans application.properties)
+     */
+    @Bean
+    public RestTemplate restTemplate(Environment environment, MeterRegistry meterRegistry,
+                                     UpstreamQuotaInterceptor upstreamQuotaInterceptor,
+                                     @Value("${upstream.connect-timeout:1000}") long connectTimeoutMs,
+                                     @Value("${upstream.read-timeout:5000}") long defaultReadTimeoutMs) {
+        List<UpstreamProvider> providers = UpstreamProvider.fromEnvironment(environment);
+        RestTemplate restTemplate = new RestTemplate(new UpstreamRequestFactory(
+                UpstreamRequestFactory.httpClient(Duration.ofMillis(connectTimeoutMs)),
+                providers, Duration.ofMillis(defaultReadTimeoutMs)));
+        restTemplate.getInterceptors().add(upstreamQuotaInterceptor);
+        restTemplate.getInterceptors().add(new UpstreamBulkheadInterceptor(providers, meterRegistry));
+        return restTemplate;
+    }
+
+    /**
+     * Quotas des clés API, partagés avec QuotaUsageFile qui conserve le compte du jour
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public UpstreamQuotaInterceptor upstreamQuotaInterceptor(Environment environment, MeterRegistry meterRegistry,
+                                                             @Value("${upstream.quota.scheduled-reserve:0.2}") double scheduledReserve) {
+        return new UpstreamQuotaInterceptor(UpstreamQuota.fromEnvironment(environment, UpstreamProvider.fromEnvironment(environment)),
+                UpstreamQuota.maxWaits(environment), scheduledReserve, meterRegistry);
     }
 }
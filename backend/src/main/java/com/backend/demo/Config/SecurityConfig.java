@@ -56,11 +56,13 @@ public class SecurityConfig {
                     "/api/public/**",
                     "/api/capteurs/current",
                     "/ws-mqtt/**", 
+                    "/ws-mqtt-binary/**",
                     "/ws/**",
                     "/topic/**",
                     "/app/**",
                     "/api/users/**",
                     "/api/alerts",
+                    "/api/alerts/stream",
                     "/api/alerts/recalculate",         
                     "/api/alerts/thresholds/**",
                     "/ws-notifications/**",
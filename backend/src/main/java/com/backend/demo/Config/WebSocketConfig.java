@@ -3,6 +3,7 @@ package com.backend.demo.Config;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
@@ -17,21 +18,88 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import com.backend.demo.security.JwtTokenProvider;
+import com.backend.demo.service.FeedConflationInterceptor;
+import com.backend.demo.service.PayloadEncodingInterceptor;
+import com.backend.demo.service.SlowConsumerMonitor;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    // En-tête SUBSCRIBE portant l'expression de filtrage évaluée par le broker simple
+    public static final String SELECTOR_HEADER = "selector";
+
     @Autowired
     private JwtTokenProvider tokenProvider;
 
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private FeedConflationInterceptor feedConflationInterceptor;
+
+    @Autowired
+    private SlowConsumerMonitor slowConsumerMonitor;
+
+    @Autowired
+    private PayloadEncodingInterceptor payloadEncodingInterceptor;
+
+    // Au-delà, la session est fermée par Spring (envoi bloqué trop longtemps ou tampon plein)
+    @Value("${websocket.send-time-limit:10000}")
+    private int sendTimeLimit;
+
+    @Value("${websocket.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${websocket.outbound.pool-size:8}")
+    private int outboundPoolSize;
+
+    // simple : broker en mémoire (une seule instance) ; relay : broker STOMP externe partagé par toutes les instances
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${websocket.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${websocket.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${websocket.broker.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${websocket.broker.relay.passcode:guest}")
+    private String relayPasscode;
+
+    @Value("${websocket.broker.relay.virtual-host:}")
+    private String relayVirtualHost;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue", "/user");
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            // Les abonnements vivent dans le broker externe : toute instance peut publier
+            // vers tous les abonnés. Les destinations utilisateur non résolues localement
+            // et le registre des utilisateurs sont diffusés entre instances via le broker,
+            // ce qui permet convertAndSendToUser vers une session ouverte sur un autre nœud.
+            StompBrokerRelayRegistration relay = config.enableStompBrokerRelay("/topic", "/queue")
+                .setRelayHost(relayHost)
+                .setRelayPort(relayPort)
+                .setClientLogin(relayLogin)
+                .setClientPasscode(relayPasscode)
+                .setSystemLogin(relayLogin)
+                .setSystemPasscode(relayPasscode)
+                .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                .setUserRegistryBroadcast("/topic/simp-user-registry");
+            if (!relayVirtualHost.isBlank()) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+        } else {
+            // Filtrage côté serveur : SUBSCRIBE /topic/alerts avec l'en-tête selector: headers.type == 'air'
+            config.enableSimpleBroker("/topic", "/queue", "/user")
+                .setSelectorHeaderName(SELECTOR_HEADER);
+        }
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
     }
@@ -42,6 +110,12 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
             .setAllowedOriginPatterns("http://localhost:4200")
             .withSockJS();
             
+        // WebSocket direct (sans SockJS) : seul transport capable de trames binaires,
+        // les messages y sont encodés en CBOR sauf en-tête payload-encoding: json au CONNECT
+        registry.addEndpoint("/ws-mqtt-binary")
+            .setAllowedOriginPatterns("http://localhost:4200")
+            .addInterceptors(payloadEncodingInterceptor);
+
         registry.addEndpoint("/ws-notifications")
             .setAllowedOriginPatterns("http://localhost:4200")
             .withSockJS();
@@ -73,7 +147,25 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 }
                 return message;
             }
-        });
+        }, payloadEncodingInterceptor);
+    }
+    
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Limite le débit du flux /topic/airquality par session et par capteur,
+        // encode en CBOR pour les sessions qui l'ont négocié,
+        // puis mesure le retard et le temps d'écriture de chaque session (consommateurs lents)
+        registration.interceptors(feedConflationInterceptor, payloadEncodingInterceptor, slowConsumerMonitor);
+        registration.taskExecutor()
+            .corePoolSize(outboundPoolSize)
+            .maxPoolSize(outboundPoolSize);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimit)
+            .setSendBufferSizeLimit(sendBufferSizeLimit)
+            .addDecoratorFactory(slowConsumerMonitor);
     }
     
     @Bean
@@ -5,6 +5,8 @@ import com.backend.demo.entity.Role;
 import com.backend.demo.entity.User;
 import com.backend.demo.repository.LoginLogRepository;
 import com.backend.demo.service.AdminService;
+import com.backend.demo.service.HeavyHitters;
+import com.backend.demo.service.WeatherPrewarmer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -36,6 +38,9 @@ public class AdminController {
     @Autowired
     private LoginLogRepository loginLogRepository;
 
+    @Autowired
+    private WeatherPrewarmer weatherPrewarmer;
+
     @Autowired
     public AdminController(AdminService adminService) {
         this.adminService = adminService;
@@ -399,6 +404,22 @@ public ResponseEntity<Map<String, Object>> deleteLog(@PathVariable Long id) {
         }
     }
 
+    // ===============================
+    // CACHE MÉTÉO
+    // ===============================
+
+    /**
+     * Recherches météo les plus populaires (estimations du sketch), préchargées en arrière-plan
+     */
+    @GetMapping("/weather/popular")
+    public ResponseEntity<Map<String, Object>> getPopularWeatherLookups() {
+        List<HeavyHitters.Item> top = weatherPrewarmer.getTop();
+        Map<String, Object> result = new HashMap<>();
+        result.put("top", top);
+        result.put("intervalMs", weatherPrewarmer.getIntervalMs());
+        return ResponseEntity.ok(result);
+    }
+
     // Utilitaire pour échapper les virgules dans le CSV
     private String escapeCsv(String value) {
         if (value == null) return "";
@@ -1,18 +1,31 @@
 package com.backend.demo.controller;
 
+import com.backend.demo.mqtt.AirQualityBroadcaster;
 import com.backend.demo.mqtt.AirQualityData;
 import com.backend.demo.mqtt.AirQualityDataService;
+import com.backend.demo.service.SseFeedService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/airquality") 
 public class AirQualityController {
 
     private final AirQualityDataService airQualityDataService;
+    private final AirQualityBroadcaster airQualityBroadcaster;
+    private final SseFeedService sseFeeds;
 
-    public AirQualityController(AirQualityDataService airQualityDataService) {
+    public AirQualityController(AirQualityDataService airQualityDataService,
+                                AirQualityBroadcaster airQualityBroadcaster,
+                                SseFeedService sseFeeds) {
         this.airQualityDataService = airQualityDataService;
+        this.airQualityBroadcaster = airQualityBroadcaster;
+        this.sseFeeds = sseFeeds;
     }
 
     @GetMapping
@@ -24,4 +37,21 @@ public class AirQualityController {
     public ResponseEntity<AirQualityData> getCurrentAirQuality() {
         return ResponseEntity.ok(airQualityDataService.getLatestData());
     }
+
+    /**
+     * Flux SSE des lectures (même contenu que /topic/airquality), optionnellement pour un seul capteur.
+     * Une nouvelle connexion reçoit d'abord la dernière lecture de chaque capteur ;
+     * une reconnexion avec Last-Event-ID reçoit les lectures manquées
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAirQuality(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @RequestParam(required = false) String sensor) {
+        Map<String, String> filter = sensor != null ? Map.of(AirQualityBroadcaster.SENSOR_HEADER, sensor) : Map.of();
+        List<SseFeedService.Event> snapshot = airQualityBroadcaster.getLatest().entrySet().stream()
+                .map(entry -> new SseFeedService.Event(0, entry.getValue().bytes(), entry.getValue().contentType(),
+                        Map.of(AirQualityBroadcaster.SENSOR_HEADER, entry.getKey())))
+                .toList();
+        return sseFeeds.subscribe(SseFeedService.AIRQUALITY, lastEventId, filter, snapshot);
+    }
 }
\ No newline at end of file
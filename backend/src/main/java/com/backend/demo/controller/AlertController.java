@@ -1,16 +1,24 @@
 package com.backend.demo.controller;
 
+import com.backend.demo.dto.AlertPageResponse;
 import com.backend.demo.entity.Alert;
+import com.backend.demo.entity.AlertRule;
 import com.backend.demo.entity.AlertThreshold;
+import com.backend.demo.entity.AlertThresholdOverride;
 import com.backend.demo.service.AlertNotificationService;
+import com.backend.demo.service.AlertRuleService;
 import com.backend.demo.service.AlertService;
 import com.backend.demo.service.AlertThresholdService;
+import com.backend.demo.service.SseFeedService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -26,6 +34,12 @@ public class AlertController {
     
     @Autowired
     private AlertNotificationService notificationService;
+    
+    @Autowired
+    private AlertRuleService ruleService;
+
+    @Autowired
+    private SseFeedService sseFeeds;
 
     /**
      * Récupère toutes les alertes, triées par date décroissante
@@ -81,6 +95,44 @@ public class AlertController {
         return alertService.searchAlerts(parameter, severity, type, startDate, endDate);
     }
     
+    /**
+     * Recherche paginée par curseur : passer le nextCursor de la page précédente
+     */
+    @GetMapping("/search/page")
+    public ResponseEntity<?> searchAlertsPage(
+            @RequestParam(required = false) String parameter,
+            @RequestParam(required = false) String severity,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            AlertPageResponse page = alertService.searchAlertsPage(
+                parameter, severity, type, startDate, endDate, cursor, size);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Flux SSE des nouvelles alertes, filtrable par type, paramètre et sévérité ;
+     * après une coupure, le navigateur renvoie Last-Event-ID et les alertes manquées sont rejouées
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAlerts(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String parameter,
+            @RequestParam(required = false) String severity) {
+        Map<String, String> filter = new HashMap<>();
+        if (type != null) filter.put("type", type);
+        if (parameter != null) filter.put("parameter", parameter);
+        if (severity != null) filter.put("severity", severity);
+        return sseFeeds.subscribe(SseFeedService.ALERTS, lastEventId, filter, List.of());
+    }
+    
     /**
      * Récupère tous les seuils d'alerte
      */
@@ -102,6 +154,78 @@ public class AlertController {
         return updated;
     }
     
+    /**
+     * Récupère les surcharges de seuil par zone et par capteur
+     */
+    @GetMapping("/thresholds/overrides")
+    public List<AlertThresholdOverride> getAllThresholdOverrides() {
+        return thresholdService.getAllOverrides();
+    }
+    
+    /**
+     * Crée ou remplace une surcharge de seuil (zone ou capteur)
+     */
+    @PostMapping("/thresholds/overrides")
+    public ResponseEntity<?> saveThresholdOverride(@RequestBody AlertThresholdOverride override) {
+        try {
+            AlertThresholdOverride saved = thresholdService.saveOverride(override);
+            notificationService.sendThresholdUpdate(saved.getParameter());
+            return ResponseEntity.ok(saved);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Supprime une surcharge de seuil ; le niveau inférieur s'applique de nouveau
+     */
+    @DeleteMapping("/thresholds/overrides/{id}")
+    public ResponseEntity<?> deleteThresholdOverride(@PathVariable Long id) {
+        thresholdService.deleteOverride(id);
+        return ResponseEntity.ok().build();
+    }
+    
+    /**
+     * Récupère toutes les règles d'alerte composées
+     */
+    @GetMapping("/rules")
+    public List<AlertRule> getAllRules() {
+        return ruleService.getAllRules();
+    }
+    
+    /**
+     * Crée une règle composée, par exemple "pm25 > 35 for 10m AND no2 rising 20%/h"
+     */
+    @PostMapping("/rules")
+    public ResponseEntity<?> createRule(@RequestBody AlertRule rule) {
+        try {
+            return ResponseEntity.ok(ruleService.createRule(rule));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Met à jour une règle composée
+     */
+    @PutMapping("/rules/{id}")
+    public ResponseEntity<?> updateRule(@PathVariable Long id, @RequestBody AlertRule rule) {
+        try {
+            return ResponseEntity.ok(ruleService.updateRule(id, rule));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Supprime une règle composée
+     */
+    @DeleteMapping("/rules/{id}")
+    public ResponseEntity<?> deleteRule(@PathVariable Long id) {
+        ruleService.deleteRule(id);
+        return ResponseEntity.ok().build();
+    }
+    
     /**
      * Supprime une alerte spécifique
      */
@@ -0,0 +1,30 @@
+package com.backend.demo.controller;
+
+import com.backend.demo.service.DashboardStateService;
+import com.backend.demo.service.StateSync;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.stereotype.Controller;
+
+/**
+ * Instantanés des états synchronisés par deltas, renvoyés directement à l'abonné
+ * (SUBSCRIBE /app/airquality/state ou /app/alert-summary/state)
+ */
+@Controller
+public class DashboardStateController {
+
+    private final DashboardStateService dashboardStateService;
+
+    public DashboardStateController(DashboardStateService dashboardStateService) {
+        this.dashboardStateService = dashboardStateService;
+    }
+
+    @SubscribeMapping("/airquality/state")
+    public StateSync.StateMessage airQualitySnapshot() {
+        return dashboardStateService.getAirQualitySnapshot();
+    }
+
+    @SubscribeMapping("/alert-summary/state")
+    public StateSync.StateMessage alertSummarySnapshot() {
+        return dashboardStateService.getAlertSummarySnapshot();
+    }
+}
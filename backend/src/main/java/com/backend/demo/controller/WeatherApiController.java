@@ -1,5 +1,8 @@
 package com.backend.demo.controller;
 
+import com.backend.demo.service.UpstreamFanOut;
+import com.backend.demo.service.WeatherResponseCache;
+import com.backend.demo.upstream.WeatherApiForecast;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -23,9 +26,13 @@ public class WeatherApiController {
     private String openWeatherApiKey;
 
     private final RestTemplate restTemplate;
+    private final WeatherResponseCache responseCache;
+    private final UpstreamFanOut fanOut;
 
-    public WeatherApiController(RestTemplate restTemplate) {
+    public WeatherApiController(RestTemplate restTemplate, WeatherResponseCache responseCache, UpstreamFanOut fanOut) {
         this.restTemplate = restTemplate;
+        this.responseCache = responseCache;
+        this.fanOut = fanOut;
     }
 
     @GetMapping("/{city}")
@@ -36,14 +43,11 @@ public class WeatherApiController {
             String url = "https://api.weatherapi.com/v1/current.json?key=" + weatherApiKey + 
                          "&q=" + city;
             
-            logger.debug("Calling WeatherAPI with key: {}", weatherApiKey);
-            logger.debug("Full URL: {}", url);
-            
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
-            
-            if (response == null) {
-                throw new RuntimeException("Null response from WeatherAPI");
-            }
+            Map<String, Object> response = responseCache.get(WeatherResponseCache.Endpoint.WEATHERAPI_CURRENT,
+                    WeatherResponseCache.key(city), () -> {
+                        logger.debug("Calling WeatherAPI: {}", url.replace(weatherApiKey, "API_KEY"));
+                        return restTemplate.getForObject(url, Map.class);
+                    });
             
             logger.debug("WeatherAPI response: {}", response);
             
@@ -75,11 +79,31 @@ public ResponseEntity<Map<String, Object>> compareWeatherApis(@PathVariable Stri
         String weatherApiUrl = "https://api.weatherapi.com/v1/current.json?key=" + 
                               weatherApiKey + "&q=" + city;
         
-        // Get OpenWeatherMap data
-        Map<String, Object> openWeatherData = restTemplate.getForObject(openWeatherUrl, Map.class);
+        // Les deux fournisseurs sont interrogés en parallèle, chacun avec son échéance
+        // OpenWeatherMap sans lang : descriptions en anglais, clé de cache distincte
+        UpstreamFanOut.Call<Map<String, Object>> openWeatherCall = fanOut.start("openweather-current",
+                () -> responseCache.get(WeatherResponseCache.Endpoint.OPENWEATHER_CURRENT,
+                        WeatherResponseCache.key(city), () -> restTemplate.getForObject(openWeatherUrl, Map.class)));
+        // WeatherAPI : même entrée de cache que /api/weather-api/{city}
+        UpstreamFanOut.Call<Map<String, Object>> weatherApiCall = fanOut.start("weatherapi-current",
+                () -> responseCache.get(WeatherResponseCache.Endpoint.WEATHERAPI_CURRENT,
+                        WeatherResponseCache.key(city), () -> restTemplate.getForObject(weatherApiUrl, Map.class)));
+        Map<String, Object> openWeatherData = openWeatherCall.get();
+        Map<String, Object> weatherApiData = weatherApiCall.get();
         
-        // Get WeatherAPI data
-        Map<String, Object> weatherApiData = restTemplate.getForObject(weatherApiUrl, Map.class);
+        // Comparaison impossible sans aucun fournisseur ; avec un seul, résultat partiel
+        List<String> unavailable = new ArrayList<>();
+        if (openWeatherData == null) {
+            logger.warn("OpenWeatherMap unavailable for comparison: {}", openWeatherCall.getFailure().getMessage());
+            unavailable.add("openWeatherMap");
+        }
+        if (weatherApiData == null) {
+            logger.warn("WeatherAPI unavailable for comparison: {}", weatherApiCall.getFailure().getMessage());
+            unavailable.add("weatherAPI");
+        }
+        if (unavailable.size() == 2) {
+            throw new RuntimeException(openWeatherCall.getFailure().getMessage(), openWeatherCall.getFailure());
+        }
         
         // Ajoutez des logs pour déboguer
         logger.debug("OpenWeather response: {}", openWeatherData);
@@ -135,6 +159,9 @@ public ResponseEntity<Map<String, Object>> compareWeatherApis(@PathVariable Stri
         // Generate analysis
         String analysis = generateAnalysis(openWeatherResult, weatherApiResult);
         result.put("analysis", analysis);
+        if (!unavailable.isEmpty()) {
+            result.put("unavailable", unavailable);
+        }
         
         return ResponseEntity.ok(result);
         
@@ -158,60 +185,44 @@ public ResponseEntity<Map<String, Object>> compareWeatherApis(@PathVariable Stri
             String url = "https://api.weatherapi.com/v1/forecast.json?key=" + weatherApiKey + 
                          "&q=" + city + "&days=6&lang=fr";
             
-            logger.debug("Calling WeatherAPI forecast: {}", url.replace(weatherApiKey, "API_KEY"));
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
-            
-            if (response == null) {
-                throw new RuntimeException("Null response from WeatherAPI");
-            }
+            // Lecture directe dans un modèle typé (voir WeatherApiForecast), mis en cache tel quel
+            WeatherApiForecast response = responseCache.get(WeatherResponseCache.Endpoint.WEATHERAPI_FORECAST,
+                    WeatherResponseCache.key(city, "6", "fr"), () -> {
+                        logger.debug("Calling WeatherAPI forecast: {}", url.replace(weatherApiKey, "API_KEY"));
+                        return restTemplate.getForObject(url, WeatherApiForecast.class);
+                    });
             
             // Process and return the data
             Map<String, Object> result = new HashMap<>();
             
-            if (response.containsKey("forecast")) {
-                Map<String, Object> forecast = (Map<String, Object>) response.get("forecast");
-                List<Map<String, Object>> forecastdays = (List<Map<String, Object>>) forecast.get("forecastday");
-                
+            if (response != null && response.forecast() != null) {
                 List<Map<String, Object>> daily = new ArrayList<>();
                 List<Map<String, Object>> hourly = new ArrayList<>();
                 
-                for (Map<String, Object> day : forecastdays) {
+                for (WeatherApiForecast.Day day : response.days()) {
                     // Process daily forecast
                     Map<String, Object> dayForecast = new HashMap<>();
-                    dayForecast.put("date", day.get("date"));
+                    dayForecast.put("date", day.date());
                     
-                    Map<String, Object> dayData = (Map<String, Object>) day.get("day");
+                    WeatherApiForecast.Summary dayData = day.day();
                     dayForecast.put("temp", Map.of(
-                        "max", dayData.get("maxtemp_c"),
-                        "min", dayData.get("mintemp_c")
-                    ));
-                    dayForecast.put("humidity", dayData.get("avghumidity"));
-                    dayForecast.put("wind_speed", dayData.get("maxwind_kph"));
-                    
-                    Map<String, Object> condition = (Map<String, Object>) dayData.get("condition");
-                    dayForecast.put("weather", Map.of(
-                        "description", condition.get("text"),
-                        "icon", condition.get("icon"),
-                        "main", condition.get("text")
+                        "max", dayData.maxTempC(),
+                        "min", dayData.minTempC()
                     ));
+                    dayForecast.put("humidity", dayData.avgHumidity());
+                    dayForecast.put("wind_speed", dayData.maxWindKph());
+                    dayForecast.put("weather", weather(dayData.condition()));
                     
                     daily.add(dayForecast);
                     
                     // Process hourly forecast
-                    List<Map<String, Object>> hours = (List<Map<String, Object>>) day.get("hour");
-                    for (Map<String, Object> hour : hours) {
+                    for (WeatherApiForecast.Hour hour : day.hours()) {
                         Map<String, Object> hourForecast = new HashMap<>();
-                        hourForecast.put("time", hour.get("time"));
-                        hourForecast.put("temp", hour.get("temp_c"));
-                        hourForecast.put("humidity", hour.get("humidity"));
-                        hourForecast.put("wind_speed", hour.get("wind_kph"));
-                        
-                        Map<String, Object> hourCondition = (Map<String, Object>) hour.get("condition");
-                        hourForecast.put("weather", Map.of(
-                            "description", hourCondition.get("text"),
-                            "icon", hourCondition.get("icon"),
-                            "main", hourCondition.get("text")
-                        ));
+                        hourForecast.put("time", hour.time());
+                        hourForecast.put("temp", hour.tempC());
+                        hourForecast.put("humidity", hour.humidity());
+                        hourForecast.put("wind_speed", hour.windKph());
+                        hourForecast.put("weather", weather(hour.condition()));
                         
                         hourly.add(hourForecast);
                     }
@@ -238,6 +249,15 @@ public ResponseEntity<Map<String, Object>> compareWeatherApis(@PathVariable Stri
         }
     }
     
+    private static Map<String, Object> weather(WeatherApiForecast.Condition condition) {
+        WeatherApiForecast.Condition known = condition != null ? condition : WeatherApiForecast.Condition.UNKNOWN;
+        return Map.of(
+            "description", known.text(),
+            "icon", known.icon(),
+            "main", known.text()
+        );
+    }
+    
     @GetMapping("/test-config")
     public ResponseEntity<Map<String, Object>> testConfig() {
         Map<String, Object> config = new HashMap<>();
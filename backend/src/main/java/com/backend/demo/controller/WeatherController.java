@@ -1,5 +1,13 @@
 package com.backend.demo.controller;
 
+import com.backend.demo.service.GeoHash;
+import com.backend.demo.service.LocationIndex;
+import com.backend.demo.service.UpstreamFanOut;
+import com.backend.demo.service.WeatherPrewarmer;
+import com.backend.demo.service.WeatherResponseCache;
+import com.backend.demo.upstream.CurrentWeather;
+import com.backend.demo.upstream.OpenWeatherForecast;
+import com.backend.demo.upstream.WeatherProviders;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -21,10 +29,25 @@ public class WeatherController {
     @Value("${openweather.api.key}")
     private String openWeatherKey;
 
+    // Cellule géohash partagée par les points proches (précision 5 : environ 5 km, la résolution des modèles amont)
+    @Value("${weather.coordinates.geohash-precision:5}")
+    private int geohashPrecision;
+
     private final RestTemplate restTemplate;
+    private final WeatherResponseCache responseCache;
+    private final UpstreamFanOut fanOut;
+    private final WeatherProviders providers;
+    private final LocationIndex locationIndex;
+    private final WeatherPrewarmer prewarmer;
 
-    public WeatherController(RestTemplate restTemplate) {
+    public WeatherController(RestTemplate restTemplate, WeatherResponseCache responseCache, UpstreamFanOut fanOut,
+                             WeatherProviders providers, LocationIndex locationIndex, WeatherPrewarmer prewarmer) {
         this.restTemplate = restTemplate;
+        this.responseCache = responseCache;
+        this.fanOut = fanOut;
+        this.providers = providers;
+        this.locationIndex = locationIndex;
+        this.prewarmer = prewarmer;
     }
 
     @GetMapping("/{city}")
@@ -34,35 +57,16 @@ public class WeatherController {
         try {
             logger.debug("Fetching weather data for city: {}", city);
             
-            // 1. Get current weather
-            Map<String, Object> currentWeather = getOpenWeatherData("weather", city);
-            if (currentWeather.containsKey("error")) {
-                throw new RuntimeException((String) currentWeather.get("error"));
-            }
-            
-            // Extract coordinates for forecast
-            Map<String, Object> coord = (Map<String, Object>) currentWeather.get("coord");
-            if (coord == null) {
-                throw new RuntimeException("Could not find coordinates for city: " + city);
-            }
-            
-            double lat = convertToDouble(coord.get("lat"));
-            double lon = convertToDouble(coord.get("lon"));
-            
-            // 2. Get forecast using coordinates
-            Map<String, Object> forecast = getOpenWeatherData("forecast", lat, lon);
-            if (forecast.containsKey("error")) {
-                throw new RuntimeException((String) forecast.get("error"));
-            }
-            
-            // 3. Process data
-            response.put("current", processCurrentWeather(currentWeather));
-            response.put("forecast", processForecastData(forecast));
-            response.put("coord", currentWeather.get("coord"));
-            response.put("sys", currentWeather.get("sys"));
-            response.put("name", currentWeather.get("name"));
+            // Météo courante (premier fournisseur disponible, voir WeatherProviders) et prévision
+            // demandées en parallèle (la prévision par nom de ville, sans attendre les coordonnées)
+            String key = WeatherResponseCache.key(city, "fr");
+            prewarmer.record(key);
+            UpstreamFanOut.Call<CurrentWeather> currentCall = fanOut.start("weather-current",
+                    () -> providers.current(city));
+            UpstreamFanOut.Call<OpenWeatherForecast> forecastCall = fanOut.start("openweather-forecast",
+                    () -> fetchForecast(key, cityUrl("forecast", city)));
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(combine(currentCall, forecastCall));
             
         } catch (Exception e) {
             logger.error("Failed to fetch weather data for city: {}", city, e);
@@ -85,9 +89,20 @@ public class WeatherController {
                     "&limit=5&appid=" + openWeatherKey;
         
         try {
+            // Autocomplétion servie par l'index local s'il suffit à répondre (nom exact ou page complète)
+            List<LocationIndex.Location> indexed = locationIndex.lookup(q, 5);
+            if (!indexed.isEmpty()) {
+                return ResponseEntity.ok(Map.of("locations", indexed));
+            }
+            
             logger.debug("Searching locations for query: {}", q);
-            Object[] locations = restTemplate.getForObject(url, Object[].class);
-            return ResponseEntity.ok(Map.of("locations", locations != null ? locations : new Object[0]));
+            Object[] locations = responseCache.get(WeatherResponseCache.Endpoint.OPENWEATHER_GEO,
+                    WeatherResponseCache.key(q), () -> {
+                        Object[] found = restTemplate.getForObject(url, Object[].class);
+                        return found != null ? found : new Object[0];
+                    });
+            locationIndex.addAll(locations);
+            return ResponseEntity.ok(Map.of("locations", locations));
         } catch (Exception e) {
             logger.error("Location search failed for query: {}", q, e);
             return ResponseEntity.status(500)
@@ -101,39 +116,18 @@ public class WeatherController {
             @RequestParam double lon) {
         
         try {
-            logger.debug("Fetching weather data for coordinates: lat={}, lon={}", lat, lon);
-            
-            // 1. Get current weather data
-            String weatherUrl = "https://api.openweathermap.org/data/2.5/weather?lat=" + lat + 
-                      "&lon=" + lon + "&appid=" + openWeatherKey + "&units=metric&lang=fr";
-            
-            logger.debug("Calling current weather API: {}", weatherUrl.replace(openWeatherKey, "API_KEY"));
-            Map<String, Object> weatherData = restTemplate.getForObject(weatherUrl, Map.class);
-            
-            if (weatherData == null) {
-                throw new RuntimeException("Null response from weather API");
-            }
-            
-            // 2. Get forecast data - using direct approach instead of helper method
-            String forecastUrl = "https://api.openweathermap.org/data/2.5/forecast?lat=" + lat + 
-                      "&lon=" + lon + "&appid=" + openWeatherKey + "&units=metric&lang=fr";
-            
-            logger.debug("Calling forecast API: {}", forecastUrl.replace(openWeatherKey, "API_KEY"));
-            Map<String, Object> forecastData = restTemplate.getForObject(forecastUrl, Map.class);
-            
-            if (forecastData == null) {
-                throw new RuntimeException("Null response from forecast API");
-            }
-            
-            logger.debug("Processing weather and forecast data");
-            Map<String, Object> response = new LinkedHashMap<>();
-            response.put("current", processCurrentWeather(weatherData));
-            response.put("forecast", processForecastData(forecastData));
-            response.put("coord", weatherData.get("coord"));
-            response.put("sys", weatherData.get("sys"));
-            response.put("name", weatherData.get("name"));
-            
-            return ResponseEntity.ok(response);
+            // Les amonts sont interrogés au centre de la cellule : deux clics voisins partagent les mêmes entrées de cache
+            GeoHash.Cell cell = GeoHash.snap(lat, lon, geohashPrecision);
+            logger.debug("Fetching weather data for coordinates: lat={}, lon={} (cell {})", lat, lon, cell.hash());
+            
+            String key = WeatherResponseCache.key(cell.lat(), cell.lon(), "fr");
+            prewarmer.record(key);
+            UpstreamFanOut.Call<CurrentWeather> currentCall = fanOut.start("weather-current",
+                    () -> providers.current(cell.lat(), cell.lon()));
+            UpstreamFanOut.Call<OpenWeatherForecast> forecastCall = fanOut.start("openweather-forecast",
+                    () -> fetchForecast(key, coordinatesUrl("forecast", cell.lat(), cell.lon())));
+            
+            return ResponseEntity.ok(combine(currentCall, forecastCall));
         } catch (Exception e) {
             logger.error("Weather by coordinates failed: lat={}, lon={}", lat, lon, e);
             
@@ -156,11 +150,7 @@ public class WeatherController {
         try {
             logger.debug("Fetching forecast data for city: {}", city);
             
-            // Get forecast using coordinates
-            Map<String, Object> forecast = getOpenWeatherData("forecast", city);
-            if (forecast.containsKey("error")) {
-                throw new RuntimeException((String) forecast.get("error"));
-            }
+            OpenWeatherForecast forecast = fetchForecast(WeatherResponseCache.key(city, "fr"), cityUrl("forecast", city));
             
             // Process and return the data
             return ResponseEntity.ok(processForecastData(forecast));
@@ -177,31 +167,59 @@ public class WeatherController {
         }
     }
 
-    private Map<String, Object> getOpenWeatherData(String endpoint, String city) {
-        String url = "https://api.openweathermap.org/data/2.5/" + endpoint + 
-                    "?q=" + city + "&appid=" + openWeatherKey + "&units=metric&lang=fr";
-        return fetchWeatherData(url);
+    /**
+     * Réponse composite : la météo courante est indispensable, la prévision non.
+     * Si la prévision échoue ou dépasse son échéance, une prévision vide est renvoyée
+     * et la section est listée dans "unavailable". "source" indique le fournisseur
+     * de la météo courante (WeatherAPI si OpenWeather est indisponible).
+     */
+    private Map<String, Object> combine(UpstreamFanOut.Call<CurrentWeather> currentCall,
+                                        UpstreamFanOut.Call<OpenWeatherForecast> forecastCall) {
+        CurrentWeather currentWeather = currentCall.get();
+        if (currentWeather == null) {
+            throw new RuntimeException(currentCall.getFailure().getMessage(), currentCall.getFailure());
+        }
+        OpenWeatherForecast forecast = forecastCall.get();
+        
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("current", processCurrentWeather(currentWeather));
+        if (forecast != null) {
+            response.put("forecast", processForecastData(forecast));
+        } else {
+            logger.warn("Forecast unavailable, returning partial weather data: {}", forecastCall.getFailure().getMessage());
+            response.put("forecast", getDefaultForecast());
+            response.put("unavailable", List.of("forecast"));
+        }
+        response.put("coord", Map.of("lat", currentWeather.lat(), "lon", currentWeather.lon()));
+        response.put("sys", Map.of(
+            "country", currentWeather.country(),
+            "sunrise", currentWeather.sunrise(),
+            "sunset", currentWeather.sunset()
+        ));
+        response.put("name", currentWeather.name());
+        response.put("source", currentWeather.source());
+        return response;
+    }
+
+    private String cityUrl(String endpoint, String city) {
+        return "https://api.openweathermap.org/data/2.5/" + endpoint + 
+                "?q=" + city + "&appid=" + openWeatherKey + "&units=metric&lang=fr";
     }
 
-    private Map<String, Object> getOpenWeatherData(String endpoint, double lat, double lon) {
-        String url = "https://api.openweathermap.org/data/2.5/" + endpoint + 
-                    "?lat=" + lat + "&lon=" + lon + "&appid=" + openWeatherKey + 
-                    "&units=metric&lang=fr";
-        return fetchWeatherData(url);
+    private String coordinatesUrl(String endpoint, double lat, double lon) {
+        return "https://api.openweathermap.org/data/2.5/" + endpoint + 
+                "?lat=" + lat + "&lon=" + lon + "&appid=" + openWeatherKey + 
+                "&units=metric&lang=fr";
     }
 
-    private Map<String, Object> fetchWeatherData(String url) {
-        try {
+    /**
+     * Prévision lue directement dans un modèle typé (voir OpenWeatherForecast), mise en cache telle quelle
+     */
+    private OpenWeatherForecast fetchForecast(String key, String url) {
+        return responseCache.get(WeatherResponseCache.Endpoint.OPENWEATHER_FORECAST, key, () -> {
             logger.debug("Fetching data from: {}", url.replace(openWeatherKey, "API_KEY"));
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
-            if (response == null) {
-                return Map.of("error", "Null response from weather API");
-            }
-            return response;
-        } catch (Exception e) {
-            logger.error("Error fetching weather data", e);
-            return Map.of("error", "Error fetching weather data: " + e.getMessage());
-        }
+            return restTemplate.getForObject(url, OpenWeatherForecast.class);
+        });
     }
 
     private Map<String, Object> getDefaultCurrentWeather() {
@@ -229,44 +247,28 @@ public class WeatherController {
         );
     }
 
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> processCurrentWeather(Map<String, Object> data) {
-        try {
-            Map<String, Object> main = (Map<String, Object>) data.get("main");
-            Map<String, Object> wind = (Map<String, Object>) data.get("wind");
-            List<Map<String, Object>> weather = (List<Map<String, Object>>) data.get("weather");
-            
-            if (main == null) main = new HashMap<>();
-            if (wind == null) wind = new HashMap<>();
-            if (weather == null || weather.isEmpty()) {
-                weather = Collections.singletonList(Map.of(
-                    "description", "Inconnu",
-                    "icon", "01d"
-                ));
-            }
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("temp", convertToDouble(main.getOrDefault("temp", 0)));
-            result.put("feels_like", convertToDouble(main.getOrDefault("feels_like", 0)));
-            result.put("humidity", convertToDouble(main.getOrDefault("humidity", 0)));
-            result.put("pressure", convertToDouble(main.getOrDefault("pressure", 0)));
-            result.put("visibility", data.containsKey("visibility") ? 
-                    convertToDouble(data.get("visibility")) / 1000 : 0);
-            result.put("weather", weather.get(0));
-            result.put("wind", wind);
-            
-            return result;
-        } catch (Exception e) {
-            logger.error("Error processing current weather data", e);
-            // Return a valid object even in case of error
-            return getDefaultCurrentWeather();
-        }
+    private Map<String, Object> processCurrentWeather(CurrentWeather data) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("temp", data.temperature());
+        result.put("feels_like", data.feelsLike());
+        result.put("humidity", data.humidity());
+        result.put("pressure", data.pressure());
+        result.put("visibility", data.visibilityKm());
+        result.put("weather", Map.of(
+            "description", data.description(),
+            "icon", data.icon()
+        ));
+        result.put("wind", Map.of(
+            "speed", data.windSpeed(),
+            "deg", data.windDeg()
+        ));
+        
+        return result;
     }
 
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> processForecastData(Map<String, Object> forecast) {
+    private Map<String, Object> processForecastData(OpenWeatherForecast forecast) {
         try {
-            List<Map<String, Object>> list = (List<Map<String, Object>>) forecast.get("list");
+            List<OpenWeatherForecast.Item> list = forecast != null ? forecast.list() : null;
             if (list == null || list.isEmpty()) {
                 return getDefaultForecast();
             }
@@ -277,110 +279,52 @@ public class WeatherController {
             List<Map<String, Object>> hourly = list.stream()
                 .limit(24)
                 .map(item -> {
-                    try {
-                        Map<String, Object> main = (Map<String, Object>) item.get("main");
-                        List<Map<String, Object>> weather = (List<Map<String, Object>>) item.get("weather");
-                        Map<String, Object> wind = (Map<String, Object>) item.get("wind");
-                        
-                        if (main == null) main = new HashMap<>();
-                        if (weather == null || weather.isEmpty()) {
-                            weather = Collections.singletonList(Map.of(
-                                "description", "Inconnu",
-                                "icon", "01d"
-                            ));
-                        }
-                        if (wind == null) wind = Map.of("speed", 0, "deg", 0);
-                        
-                        Map<String, Object> result = new HashMap<>();
-                        result.put("dt", item.get("dt"));
-                        result.put("temp", convertToDouble(main.getOrDefault("temp", 0)));
-                        result.put("icon", weather.get(0).get("icon"));
-                        result.put("description", weather.get(0).get("description"));
-                        result.put("pop", convertToDouble(item.getOrDefault("pop", 0)));
-                        result.put("wind", wind);
-                        
-                        return result;
-                    } catch (Exception e) {
-                        logger.error("Error processing hourly forecast item", e);
-                        // Return a valid object in case of error
-                        return Map.of(
-                            "dt", System.currentTimeMillis() / 1000,
-                            "temp", 0,
-                            "icon", "01d",
-                            "description", "Inconnu",
-                            "pop", 0,
-                            "wind", Map.of("speed", 0, "deg", 0)
-                        );
-                    }
+                    OpenWeatherForecast.Condition condition = item.condition();
+                    
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("dt", item.dt());
+                    result.put("temp", item.temp());
+                    result.put("icon", condition.icon());
+                    result.put("description", condition.description());
+                    result.put("pop", item.pop());
+                    result.put("wind", item.windOrCalm());
+                    
+                    return result;
                 })
                 .collect(Collectors.toList());
             
             // Daily forecast (next 5 days)
-            Map<String, List<Map<String, Object>>> dailyMap = new LinkedHashMap<>();
+            Map<String, List<OpenWeatherForecast.Item>> dailyMap = new LinkedHashMap<>();
             
             list.forEach(item -> {
-                try {
-                    Object dtObj = item.get("dt");
-                    long dt = 0;
-                    if (dtObj instanceof Integer) {
-                        dt = ((Integer) dtObj).longValue() * 1000L;
-                    } else if (dtObj instanceof Long) {
-                        dt = (Long) dtObj * 1000L;
-                    }
-                    
-                    String date = sdf.format(new Date(dt));
-                    dailyMap.computeIfAbsent(date, k -> new ArrayList<>()).add(item);
-                } catch (Exception e) {
-                    logger.error("Error processing daily forecast grouping", e);
-                    // Ignore items with errors
-                }
+                String date = sdf.format(new Date(item.dt() * 1000L));
+                dailyMap.computeIfAbsent(date, k -> new ArrayList<>()).add(item);
             });
             
-            List<Map<String, Object>> daily = dailyMap.entrySet().stream()
+            List<Map<String, Object>> daily = dailyMap.values().stream()
                 .limit(7) // Get the first 5 days
-                .map(entry -> {
-                    try {
-                        List<Map<String, Object>> dayItems = entry.getValue();
-                        List<Double> temps = dayItems.stream()
-                            .map(i -> {
-                                Map<String, Object> main = (Map<String, Object>) i.get("main");
-                                return main != null ? convertToDouble(main.getOrDefault("temp", 0)) : 0.0;
-                            })
-                            .collect(Collectors.toList());
-                        
-                        Map<String, Object> firstItem = dayItems.get(0);
-                        List<Map<String, Object>> weather = (List<Map<String, Object>>) firstItem.get("weather");
-                        
-                        if (weather == null || weather.isEmpty()) {
-                            weather = Collections.singletonList(Map.of(
-                                "description", "Inconnu",
-                                "icon", "01d"
-                            ));
-                        }
-                        
-                        Map<String, Object> result = new HashMap<>();
-                        result.put("dt", firstItem.get("dt"));
-                        result.put("temp", Map.of(
-                            "min", temps.isEmpty() ? 0 : Collections.min(temps),
-                            "max", temps.isEmpty() ? 0 : Collections.max(temps)
-                        ));
-                        result.put("weather", weather.get(0));
-                        result.put("pop", dayItems.stream()
-                            .mapToDouble(i -> convertToDouble(i.getOrDefault("pop", 0d)))
-                            .max()
-                            .orElse(0d));
-                        
-                        return result;
-                    } catch (Exception e) {
-                        logger.error("Error processing daily forecast item", e);
-                        // Return a valid object in case of error
-                        return Map.of(
-                            "dt", System.currentTimeMillis() / 1000,
-                            "temp", Map.of("min", 0, "max", 0),
-                            "weather", Map.of("description", "Inconnu", "icon", "01d"),
-                            "pop", 0
-                        );
+                .map(dayItems -> {
+                    double min = Double.MAX_VALUE;
+                    double max = -Double.MAX_VALUE;
+                    double pop = 0;
+                    for (OpenWeatherForecast.Item item : dayItems) {
+                        min = Math.min(min, item.temp());
+                        max = Math.max(max, item.temp());
+                        pop = Math.max(pop, item.pop());
                     }
+                    
+                    OpenWeatherForecast.Item firstItem = dayItems.get(0);
+                    
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("dt", firstItem.dt());
+                    result.put("temp", Map.of(
+                        "min", min,
+                        "max", max
+                    ));
+                    result.put("weather", firstItem.condition());
+                    result.put("pop", pop);
+                    
+                    return result;
                 })
                 .collect(Collectors.toList());
             
@@ -394,24 +338,4 @@ public class WeatherController {
             return getDefaultForecast();
         }
     }
-
-    private double convertToDouble(Object number) {
-        if (number instanceof Integer) {
-            return ((Integer) number).doubleValue();
-        } else if (number instanceof Long) {
-            return ((Long) number).doubleValue();
-        } else if (number instanceof Double) {
-            return (Double) number;
-        }
-        return 0.0;
-    }
-
-    private long convertTimestamp(Object timestamp) {
-        if (timestamp instanceof Integer) {
-            return ((Integer) timestamp).longValue() * 1000L;
-        } else if (timestamp instanceof Long) {
-            return (Long) timestamp * 1000L;
-        }
-        return 0L;
-    }
 }
\ No newline at end of file
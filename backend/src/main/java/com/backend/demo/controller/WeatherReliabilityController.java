@@ -2,6 +2,7 @@ package com.backend.demo.controller;
 
 import com.backend.demo.entity.WeatherComparison;
 import com.backend.demo.service.WeatherComparisonService;
+import com.backend.demo.upstream.UpstreamPriority;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -33,7 +34,16 @@ public class WeatherReliabilityController {
     public ResponseEntity<Map<String, Object>> recordForecasts(@PathVariable String city) {
         try {
             logger.info("Enregistrement des prévisions pour {}", city);
-            comparisonService.recordForecasts(city);
+            // Appel manuel : après les requêtes des utilisateurs sur les quotas des API
+            List<String> pending = UpstreamPriority.call(UpstreamPriority.MANUAL, () -> comparisonService.recordForecasts(city));
+            if (!pending.isEmpty()) {
+                // Échéance dépassée : l'enregistrement se poursuit en arrière-plan
+                return ResponseEntity.accepted().body(Map.of(
+                    "status", "pending",
+                    "message", "Enregistrement en cours pour " + city,
+                    "pending", pending
+                ));
+            }
             return ResponseEntity.ok(Map.of(
                 "status", "success",
                 "message", "Prévisions enregistrées pour " + city
@@ -117,7 +127,7 @@ public class WeatherReliabilityController {
     public ResponseEntity<Map<String, Object>> updateForecastsManually() {
         try {
             logger.info("Mise à jour manuelle des prévisions avec les données réelles");
-            comparisonService.updateForecastsWithActualData();
+            UpstreamPriority.run(UpstreamPriority.MANUAL, comparisonService::updateForecastsWithActualData);
             return ResponseEntity.ok(Map.of(
                 "status", "success",
                 "message", "Prévisions mises à jour avec les données réelles"
@@ -0,0 +1,37 @@
+package com.backend.demo.dto;
+
+import com.backend.demo.entity.Alert;
+import java.util.List;
+
+/**
+ * Page d'alertes pour la recherche par curseur.
+ * nextCursor vaut null quand il n'y a plus de résultats.
+ */
+public class AlertPageResponse {
+    private List<Alert> items;
+    private String nextCursor;
+    
+    public AlertPageResponse() {
+    }
+    
+    public AlertPageResponse(List<Alert> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+    
+    public List<Alert> getItems() {
+        return items;
+    }
+    
+    public void setItems(List<Alert> items) {
+        this.items = items;
+    }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
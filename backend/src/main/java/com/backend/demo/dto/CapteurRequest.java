@@ -4,6 +4,7 @@ public class CapteurRequest {
     private String nom;
     private String type;
     private String localisation;
+    private String zone;
     private String statut;
     private String commentaire;
     
@@ -17,6 +18,9 @@ public class CapteurRequest {
     public String getLocalisation() { return localisation; }
     public void setLocalisation(String localisation) { this.localisation = localisation; }
     
+    public String getZone() { return zone; }
+    public void setZone(String zone) { this.zone = zone; }
+    
     public String getStatut() { return statut; }
     public void setStatut(String statut) { this.statut = statut; }
     
@@ -8,6 +8,7 @@ public class CapteurResponse {
     private String nom;
     private String type;
     private String localisation;
+    private String zone;
     private String statut;
     private LocalDateTime dateCreation;
     private LocalDateTime derniereModification;
@@ -23,6 +24,7 @@ public class CapteurResponse {
         response.nom = capteur.getNom();
         response.type = capteur.getType();
         response.localisation = capteur.getLocalisation();
+        response.zone = capteur.getZone();
         response.statut = capteur.getStatut();
         response.dateCreation = capteur.getDateCreation();
         response.derniereModification = capteur.getDerniereModification();
@@ -62,6 +64,14 @@ public class CapteurResponse {
         this.localisation = localisation;
     }
     
+    public String getZone() {
+        return zone;
+    }
+    
+    public void setZone(String zone) {
+        this.zone = zone;
+    }
+    
     public String getStatut() {
         return statut;
     }
@@ -1,12 +1,22 @@
 package com.backend.demo.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
 import java.util.Date;
 
 @Entity
-public class Alert {
+@Table(name = "alert", indexes = {
+    // Index composites pour la recherche paginée par curseur (timestamp, id)
+    @Index(name = "idx_alert_parameter_timestamp", columnList = "parameter, timestamp"),
+    @Index(name = "idx_alert_severity_timestamp", columnList = "severity, timestamp"),
+    @Index(name = "idx_alert_type_timestamp", columnList = "type, timestamp"),
+    @Index(name = "idx_alert_timestamp", columnList = "timestamp")
+})
+public class Alert implements Persistable<Long> {
+    // Identifiant attribué avant l'insertion par AlertIdAllocator (blocs issus de alert_seq),
+    // ce qui permet de diffuser l'alerte tout de suite et de grouper les INSERT en batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
     private String parameter;
@@ -17,6 +27,9 @@ public class Alert {
     
     @Temporal(TemporalType.TIMESTAMP)
     private Date timestamp = new Date();
+    
+    @Transient
+    private boolean newAlert = true;
 
     // Getters et Setters
     public Long getId() {
@@ -27,6 +40,18 @@ public class Alert {
         this.id = id;
     }
 
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return newAlert;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newAlert = false;
+    }
+
     public String getParameter() {
         return parameter;
     }
@@ -0,0 +1,79 @@
+package com.backend.demo.entity;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+/**
+ * Règle d'alerte composée, par exemple "pm25 > 35 for 10m AND no2 > 40"
+ * ou "no2 rising 20%/h". L'expression est compilée par RuleCompiler.
+ */
+@Entity
+@Table(name = "alert_rules")
+public class AlertRule {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(unique = true)
+    private String name;
+    
+    @Column(length = 1000)
+    private String expression;
+    
+    // warning ou danger
+    private String severity;
+    
+    private boolean enabled = true;
+    
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date updatedAt = new Date();
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    public void setExpression(String expression) {
+        this.expression = expression;
+    }
+
+    public String getSeverity() {
+        return severity;
+    }
+
+    public void setSeverity(String severity) {
+        this.severity = severity;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
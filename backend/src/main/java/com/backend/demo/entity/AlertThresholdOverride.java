@@ -0,0 +1,91 @@
+package com.backend.demo.entity;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+/**
+ * Seuil propre à une zone ou à un capteur, prioritaire sur le seuil global (AlertThreshold)
+ * du même paramètre. Une valeur nulle reprend celle du niveau inférieur.
+ */
+@Entity
+@Table(name = "alert_threshold_overrides",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"scope", "scope_key", "parameter"}))
+public class AlertThresholdOverride {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ThresholdScope scope;
+
+    // Nom de la zone, ou identifiant du capteur
+    @Column(name = "scope_key", nullable = false)
+    private String scopeKey;
+
+    @Column(nullable = false)
+    private String parameter;
+
+    private Double warningThreshold;
+    private Double criticalThreshold;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date updatedAt = new Date();
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public ThresholdScope getScope() {
+        return scope;
+    }
+
+    public void setScope(ThresholdScope scope) {
+        this.scope = scope;
+    }
+
+    public String getScopeKey() {
+        return scopeKey;
+    }
+
+    public void setScopeKey(String scopeKey) {
+        this.scopeKey = scopeKey;
+    }
+
+    public String getParameter() {
+        return parameter;
+    }
+
+    public void setParameter(String parameter) {
+        this.parameter = parameter;
+    }
+
+    public Double getWarningThreshold() {
+        return warningThreshold;
+    }
+
+    public void setWarningThreshold(Double warningThreshold) {
+        this.warningThreshold = warningThreshold;
+    }
+
+    public Double getCriticalThreshold() {
+        return criticalThreshold;
+    }
+
+    public void setCriticalThreshold(Double criticalThreshold) {
+        this.criticalThreshold = criticalThreshold;
+    }
+
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
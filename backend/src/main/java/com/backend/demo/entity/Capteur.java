@@ -13,6 +13,8 @@ public class Capteur {
     private String nom;
     private String type;
     private String localisation;
+    // Zone de seuils (industrielle, résidentielle...), null = seuils globaux
+    private String zone;
     private String statut;
     private LocalDateTime dateCreation;
     private LocalDateTime derniereModification;
@@ -38,6 +40,9 @@ public class Capteur {
     public String getLocalisation() { return localisation; }
     public void setLocalisation(String localisation) { this.localisation = localisation; }
     
+    public String getZone() { return zone; }
+    public void setZone(String zone) { this.zone = zone; }
+    
     public String getStatut() { return statut; }
     public void setStatut(String statut) { this.statut = statut; }
     
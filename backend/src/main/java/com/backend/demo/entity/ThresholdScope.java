@@ -0,0 +1,9 @@
+package com.backend.demo.entity;
+
+/**
+ * Niveau d'une surcharge de seuil. Ordre de résolution : capteur, puis zone, puis seuil global.
+ */
+public enum ThresholdScope {
+    ZONE,
+    SENSOR
+}
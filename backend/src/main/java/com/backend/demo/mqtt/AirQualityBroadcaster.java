@@ -0,0 +1,88 @@
+package com.backend.demo.mqtt;
+
+import com.backend.demo.service.PreEncodedBroadcaster;
+import com.backend.demo.service.SseFeedService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Diffusion du flux temps réel /topic/airquality hors du thread MQTT.
+ * Chaque lecture est encodée une seule fois en JSON ; le broker ne fait ensuite
+ * que partager ce tableau d'octets entre les sessions abonnées.
+ * Un seul thread conserve l'ordre des lectures ; si la file déborde,
+ * les lectures les plus anciennes sont abandonnées (seule la dernière compte pour un flux live).
+ * La dernière lecture encodée de chaque capteur est conservée pour l'instantané
+ * envoyé à l'abonnement (voir SubscriptionSnapshotService).
+ * Le même contenu alimente le flux SSE /api/airquality/stream.
+ */
+@Component
+public class AirQualityBroadcaster {
+    private static final Logger logger = LoggerFactory.getLogger(AirQualityBroadcaster.class);
+
+    public static final String DESTINATION = "/topic/airquality";
+    // En-tête natif identifiant le capteur (topic MQTT) de la lecture
+    public static final String SENSOR_HEADER = "sensor";
+
+    private final PreEncodedBroadcaster broadcaster;
+    private final SseFeedService sseFeeds;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, PreEncodedBroadcaster.EncodedPayload> latest = new ConcurrentHashMap<>();
+
+    public AirQualityBroadcaster(PreEncodedBroadcaster broadcaster,
+                                 SseFeedService sseFeeds,
+                                 @Value("${airquality.broadcast.queue-capacity:1000}") int queueCapacity) {
+        this.broadcaster = broadcaster;
+        this.sseFeeds = sseFeeds;
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "airquality-broadcast");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardOldestPolicy());
+    }
+
+    public void broadcast(String sensorKey, AirQualityData data) {
+        executor.execute(() -> {
+            try {
+                PreEncodedBroadcaster.EncodedPayload payload = broadcaster.encode(data);
+                latest.put(sensorKey, payload);
+                Map<String, String> headers = Map.of(SENSOR_HEADER, sensorKey);
+                broadcaster.send(DESTINATION, payload, headers);
+                sseFeeds.publish(SseFeedService.AIRQUALITY, payload, headers);
+            } catch (Exception e) {
+                logger.error("Erreur de diffusion des données de qualité d'air: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Dernière lecture encodée par capteur
+     */
+    public Map<String, PreEncodedBroadcaster.EncodedPayload> getLatest() {
+        return Map.copyOf(latest);
+    }
+
+    /**
+     * Lectures en attente ou en cours de diffusion
+     */
+    public int getPendingCount() {
+        return executor.getQueue().size() + executor.getActiveCount();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(2, TimeUnit.SECONDS);
+    }
+}
@@ -1,17 +1,45 @@
 package com.backend.demo.mqtt;
 
 import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class AirQualityDataService {
     private final AtomicReference<AirQualityData> latestData = new AtomicReference<>();
+    // Dernière lecture de chaque capteur, pour appliquer ses seuils (capteur, zone) au recalcul
+    private final Map<String, AirQualityData> latestBySensor = new ConcurrentHashMap<>();
 
     public synchronized void updateData(AirQualityData newData) {
         latestData.set(newData);
     }
 
+    public synchronized void updateData(String sensorKey, AirQualityData newData) {
+        latestData.set(newData);
+        if (sensorKey != null) {
+            latestBySensor.put(sensorKey, newData);
+        }
+    }
+
     public synchronized AirQualityData getLatestData() {
         return latestData.get() != null ? latestData.get() : new AirQualityData();
     }
-}
\ No newline at end of file
+
+    public Map<String, AirQualityData> getLatestBySensor() {
+        return Map.copyOf(latestBySensor);
+    }
+
+    /**
+     * Clé de seuils d'un topic MQTT : l'id du capteur quand le topic se termine par
+     * "/{id}" (ex. capteurs/qualite_air/12), sinon le topic lui-même
+     */
+    public static String sensorKeyOf(String topic) {
+        if (topic == null) {
+            return null;
+        }
+        String last = topic.substring(topic.lastIndexOf('/') + 1);
+        return !last.isEmpty() && last.chars().allMatch(Character::isDigit) ? last : topic;
+    }
+}
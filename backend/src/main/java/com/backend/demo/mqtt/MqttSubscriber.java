@@ -1,12 +1,13 @@
 package com.backend.demo.mqtt;
 
+import com.backend.demo.service.AlertRuleService;
+import com.backend.demo.service.DashboardStateService;
 import org.eclipse.paho.client.mqttv3.*;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
@@ -28,13 +29,19 @@ public class MqttSubscriber {
     
     private MqttClient mqttClient;
     private final AirQualityDataService airQualityDataService;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final AirQualityBroadcaster airQualityBroadcaster;
+    private final AlertRuleService alertRuleService;
+    private final DashboardStateService dashboardStateService;
 
     @Autowired
     public MqttSubscriber(AirQualityDataService airQualityDataService, 
-                         SimpMessagingTemplate messagingTemplate) {
+                         AirQualityBroadcaster airQualityBroadcaster,
+                         AlertRuleService alertRuleService,
+                         DashboardStateService dashboardStateService) {
         this.airQualityDataService = airQualityDataService;
-        this.messagingTemplate = messagingTemplate;
+        this.airQualityBroadcaster = airQualityBroadcaster;
+        this.alertRuleService = alertRuleService;
+        this.dashboardStateService = dashboardStateService;
     }
 
     @PostConstruct
@@ -101,10 +108,14 @@ public class MqttSubscriber {
                 );
                 
                 logger.info("Données parsées: {}", data);
-                airQualityDataService.updateData(data);
+                airQualityDataService.updateData(AirQualityDataService.sensorKeyOf(topic), data);
                 
-                // Envoi immédiat via WebSocket
-                messagingTemplate.convertAndSend("/topic/airquality", data);
+                // Envoi immédiat via WebSocket (encodé une fois, diffusé hors du thread MQTT)
+                airQualityBroadcaster.broadcast(topic, data);
+                dashboardStateService.onReading(topic, data);
+                
+                // Évaluation des règles composées, sous la même clé de capteur que les seuils
+                alertRuleService.onReading(AirQualityDataService.sensorKeyOf(topic), data, System.currentTimeMillis());
             } else {
                 logger.warn("Format de message invalide. Attendu 6 valeurs, reçu {}", values.length);
             }
@@ -2,15 +2,18 @@ package com.backend.demo.repository;
 
 import com.backend.demo.entity.Alert;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Date;
 import java.util.List;
 
 @Repository
-public interface AlertRepository extends JpaRepository<Alert, Long> {
+public interface AlertRepository extends JpaRepository<Alert, Long>, JpaSpecificationExecutor<Alert> {
     
     // Récupération des alertes par ordre décroissant de date
     List<Alert> findByOrderByTimestampDesc();
@@ -27,26 +30,19 @@ public interface AlertRepository extends JpaRepository<Alert, Long> {
     // Récupération des alertes entre deux dates
     List<Alert> findByTimestampBetweenOrderByTimestampDesc(Date startDate, Date endDate);
     
-    // Recherche avancée combinant plusieurs critères
-    @Query("SELECT a FROM Alert a WHERE " +
-           "(:parameter IS NULL OR a.parameter = :parameter) AND " +
-           "(:severity IS NULL OR a.severity = :severity) AND " +
-           "(:type IS NULL OR a.type = :type) AND " +
-           "(:startDate IS NULL OR a.timestamp >= :startDate) AND " +
-           "(:endDate IS NULL OR a.timestamp <= :endDate) " +
-           "ORDER BY a.timestamp DESC")
-    List<Alert> findAlertsByFilters(
-        @Param("parameter") String parameter,
-        @Param("severity") String severity,
-        @Param("type") String type,
-        @Param("startDate") Date startDate,
-        @Param("endDate") Date endDate
-    );
+    // Recherche avancée : voir AlertSpecifications (seuls les critères fournis sont ajoutés)
     
     // Récupérer les alertes des dernières 24 heures
     @Query("SELECT a FROM Alert a WHERE a.timestamp >= :yesterday ORDER BY a.timestamp DESC")
     List<Alert> findAlertsFromLast24Hours(@Param("yesterday") Date yesterday);
     
-    // Supprimer les alertes plus anciennes qu'une certaine date
-    void deleteByTimestampBefore(Date date);
+    // Colonnes nécessaires aux compteurs de résumé (timestamp, severity, type, parameter)
+    @Query("SELECT a.timestamp, a.severity, a.type, a.parameter FROM Alert a WHERE a.timestamp >= :since")
+    List<Object[]> findSummaryRowsSince(@Param("since") Date since);
+    
+    // Supprimer au plus :limit alertes plus anciennes qu'une date (une transaction courte par lot)
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM alert WHERE timestamp < :before LIMIT :limit", nativeQuery = true)
+    int deleteChunkByTimestampBefore(@Param("before") Date before, @Param("limit") int limit);
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.backend.demo.repository;
+
+import com.backend.demo.entity.AlertRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface AlertRuleRepository extends JpaRepository<AlertRule, Long> {
+    List<AlertRule> findByEnabledTrue();
+}
@@ -0,0 +1,62 @@
+package com.backend.demo.repository;
+
+import com.backend.demo.entity.Alert;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Critères de recherche des alertes.
+ * Seuls les filtres renseignés produisent un prédicat, pour que MariaDB
+ * puisse utiliser les index (parameter|severity|type, timestamp).
+ */
+public final class AlertSpecifications {
+
+    // Ordre stable utilisé par la pagination par curseur
+    public static final Sort KEYSET_ORDER = Sort.by(Sort.Order.desc("timestamp"), Sort.Order.desc("id"));
+
+    private AlertSpecifications() {
+    }
+
+    public static Specification<Alert> filters(String parameter, String severity, String type,
+                                               Date startDate, Date endDate) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (parameter != null) {
+                predicates.add(cb.equal(root.get("parameter"), parameter));
+            }
+            if (severity != null) {
+                predicates.add(cb.equal(root.get("severity"), severity));
+            }
+            if (type != null) {
+                predicates.add(cb.equal(root.get("type"), type));
+            }
+            if (startDate != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("timestamp"), startDate));
+            }
+            if (endDate != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("timestamp"), endDate));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Alertes situées après le curseur (timestamp, id) dans l'ordre décroissant.
+     * Écrit sous la forme "timestamp <= :ts AND (timestamp < :ts OR id < :id)"
+     * pour garder une borne de plage simple sur l'index.
+     */
+    public static Specification<Alert> before(Date timestamp, Long id) {
+        return (root, query, cb) -> cb.and(
+            cb.lessThanOrEqualTo(root.get("timestamp"), timestamp),
+            cb.or(
+                cb.lessThan(root.get("timestamp"), timestamp),
+                cb.lessThan(root.get("id"), id)
+            )
+        );
+    }
+}
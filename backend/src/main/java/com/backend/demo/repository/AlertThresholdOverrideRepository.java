@@ -0,0 +1,18 @@
+package com.backend.demo.repository;
+
+import com.backend.demo.entity.AlertThresholdOverride;
+import com.backend.demo.entity.ThresholdScope;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Optional;
+
+public interface AlertThresholdOverrideRepository extends JpaRepository<AlertThresholdOverride, Long> {
+    Optional<AlertThresholdOverride> findByScopeAndScopeKeyAndParameter(ThresholdScope scope, String scopeKey, String parameter);
+
+    // Supprimer toutes les surcharges d'un capteur ou d'une zone
+    @Modifying
+    @Query("DELETE FROM AlertThresholdOverride o WHERE o.scope = :scope AND o.scopeKey = :scopeKey")
+    void deleteByScopeAndScopeKey(@Param("scope") ThresholdScope scope, @Param("scopeKey") String scopeKey);
+}
@@ -0,0 +1,14 @@
+package com.backend.demo.rules;
+
+/**
+ * Règle prête à être évaluée. parameterIndex désigne le premier paramètre de l'expression,
+ * dont la valeur est reportée dans l'alerte générée.
+ */
+public record CompiledRule(Long id,
+                           String name,
+                           String expression,
+                           String severity,
+                           String parameter,
+                           int parameterIndex,
+                           RuleCondition condition) {
+}
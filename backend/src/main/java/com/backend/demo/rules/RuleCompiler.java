@@ -0,0 +1,382 @@
+package com.backend.demo.rules;
+
+import com.backend.demo.entity.AlertRule;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compile les expressions de règles en conditions (lambdas) sur l'état glissant d'un capteur.
+ *
+ * Grammaire (mots-clés insensibles à la casse) :
+ * <pre>
+ * expr      := and ( OR and )*
+ * and       := unary ( AND unary )*
+ * unary     := NOT unary | '(' expr ')' | condition
+ * condition := param op nombre [ FOR durée ]          (nombre : signe '-' accepté)
+ *            | param ( RISING | FALLING ) nombre '%' '/' [nombre] unité
+ * op        := &gt; | &gt;= | &lt; | &lt;= | = | == | !=
+ * durée     := nombre unité           (unité : s, m, min, h)
+ * </pre>
+ * Exemples : "pm25 &gt; 35 for 10m AND no2 &gt; 40", "no2 rising 20%/h".
+ * Les paramètres sont ceux d'une lecture de capteur ({@link #PARAMETERS}) ;
+ * un paramètre inconnu est refusé plutôt que de produire une règle qui ne se déclenche jamais.
+ * Les capteurs ne mesurent pas le vent : "wind &lt; 2" est refusé.
+ * Une condition sur une donnée absente n'est jamais vraie, y compris sous NOT.
+ */
+public final class RuleCompiler {
+
+    /**
+     * Paramètres fournis par une lecture de capteur
+     */
+    public static final List<String> PARAMETERS = List.of("pm25", "pm10", "no2", "o3", "co", "aqi");
+
+    public enum Operator {
+        GT, GE, LT, LE, EQ, NE;
+
+        boolean apply(double value, double threshold) {
+            switch (this) {
+                case GT: return value > threshold;
+                case GE: return value >= threshold;
+                case LT: return value < threshold;
+                case LE: return value <= threshold;
+                case EQ: return value == threshold;
+                default: return value != threshold;
+            }
+        }
+    }
+
+    private final Map<String, Integer> parameterIndex = new HashMap<>();
+    private final List<RuleProgram.SustainedSlot> sustainedSlots = new ArrayList<>();
+    private final Map<String, Integer> sustainedSlotByKey = new HashMap<>();
+    private final List<RuleProgram.RateSlot> rateSlots = new ArrayList<>();
+    private final Map<String, Integer> rateSlotByKey = new HashMap<>();
+    private final List<CompiledRule> rules = new ArrayList<>();
+
+    private RuleCompiler() {
+    }
+
+    /**
+     * Compile toutes les règles actives en un seul programme.
+     * Les fenêtres identiques sont partagées entre les règles.
+     */
+    public static RuleProgram compile(List<AlertRule> alertRules) {
+        RuleCompiler compiler = new RuleCompiler();
+        for (AlertRule alertRule : alertRules) {
+            if (alertRule.isEnabled()) {
+                compiler.add(alertRule);
+            }
+        }
+        return new RuleProgram(compiler.parameterIndex, compiler.sustainedSlots,
+                compiler.rateSlots, compiler.rules);
+    }
+
+    /**
+     * Vérifie une expression sans l'enregistrer
+     *
+     * @throws IllegalArgumentException si l'expression est invalide
+     */
+    public static void validate(String expression) {
+        new Parser(new RuleCompiler(), expression).parse();
+    }
+
+    private void add(AlertRule alertRule) {
+        Parser parser = new Parser(this, alertRule.getExpression());
+        RuleCondition condition;
+        try {
+            condition = parser.parse();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Règle '" + alertRule.getName() + "': " + e.getMessage(), e);
+        }
+        rules.add(new CompiledRule(alertRule.getId(), alertRule.getName(), alertRule.getExpression(),
+                alertRule.getSeverity(), parser.firstParameter, indexOf(parser.firstParameter), condition));
+    }
+
+    private int indexOf(String parameter) {
+        return parameterIndex.computeIfAbsent(parameter, p -> parameterIndex.size());
+    }
+
+    private int sustainedSlot(String parameter, Operator operator, double threshold) {
+        String key = parameter + ":" + operator + ":" + threshold;
+        return sustainedSlotByKey.computeIfAbsent(key, k -> {
+            int slot = sustainedSlots.size();
+            sustainedSlots.add(new RuleProgram.SustainedSlot(slot, key, indexOf(parameter), operator, threshold));
+            return slot;
+        });
+    }
+
+    private RuleProgram.RateSlot rateSlot(String parameter, long windowMs) {
+        String key = parameter + ":" + windowMs;
+        int index = rateSlotByKey.computeIfAbsent(key, k -> {
+            int slot = rateSlots.size();
+            rateSlots.add(new RuleProgram.RateSlot(slot, key, indexOf(parameter), windowMs));
+            return slot;
+        });
+        return rateSlots.get(index);
+    }
+
+    private static RuleCondition comparison(int index, Operator operator, double threshold) {
+        switch (operator) {
+            case GT: return (state, now) -> truth(state.values[index], state.values[index] > threshold);
+            case GE: return (state, now) -> truth(state.values[index], state.values[index] >= threshold);
+            case LT: return (state, now) -> truth(state.values[index], state.values[index] < threshold);
+            case LE: return (state, now) -> truth(state.values[index], state.values[index] <= threshold);
+            case EQ: return (state, now) -> truth(state.values[index], state.values[index] == threshold);
+            default: return (state, now) -> truth(state.values[index], state.values[index] != threshold);
+        }
+    }
+
+    private static int truth(double value, boolean result) {
+        return Double.isNaN(value) ? RuleCondition.UNKNOWN : RuleCondition.of(result);
+    }
+
+    /**
+     * Analyseur récursif descendant, une instance par expression
+     */
+    private static final class Parser {
+        private final RuleCompiler compiler;
+        private final List<String> tokens;
+        private int position;
+        private String firstParameter;
+
+        Parser(RuleCompiler compiler, String expression) {
+            if (expression == null || expression.isBlank()) {
+                throw new IllegalArgumentException("Expression vide");
+            }
+            this.compiler = compiler;
+            this.tokens = tokenize(expression);
+        }
+
+        RuleCondition parse() {
+            RuleCondition condition = parseOr();
+            if (position < tokens.size()) {
+                throw error("Jeton inattendu '" + tokens.get(position) + "'");
+            }
+            return condition;
+        }
+
+        private RuleCondition parseOr() {
+            RuleCondition left = parseAnd();
+            while (acceptKeyword("or")) {
+                RuleCondition a = left;
+                RuleCondition b = parseAnd();
+                left = (state, now) -> {
+                    int first = a.evaluate(state, now);
+                    return first == RuleCondition.TRUE ? first : Math.max(first, b.evaluate(state, now));
+                };
+            }
+            return left;
+        }
+
+        private RuleCondition parseAnd() {
+            RuleCondition left = parseUnary();
+            while (acceptKeyword("and")) {
+                RuleCondition a = left;
+                RuleCondition b = parseUnary();
+                left = (state, now) -> {
+                    int first = a.evaluate(state, now);
+                    return first == RuleCondition.FALSE ? first : Math.min(first, b.evaluate(state, now));
+                };
+            }
+            return left;
+        }
+
+        private RuleCondition parseUnary() {
+            if (acceptKeyword("not")) {
+                RuleCondition inner = parseUnary();
+                return (state, now) -> RuleCondition.TRUE - inner.evaluate(state, now);
+            }
+            if (accept("(")) {
+                RuleCondition inner = parseOr();
+                expect(")");
+                return inner;
+            }
+            return parseCondition();
+        }
+
+        private RuleCondition parseCondition() {
+            String parameter = nextToken().toLowerCase(Locale.ROOT);
+            if (!Character.isLetter(parameter.charAt(0))) {
+                throw error("Paramètre attendu, trouvé '" + parameter + "'");
+            }
+            if (!PARAMETERS.contains(parameter)) {
+                throw error("Paramètre inconnu '" + parameter + "' (attendus : " + String.join(", ", PARAMETERS) + ")");
+            }
+            if (firstParameter == null) {
+                firstParameter = parameter;
+            }
+            int index = compiler.indexOf(parameter);
+
+            if (acceptKeyword("rising") || acceptKeyword("falling")) {
+                boolean rising = tokens.get(position - 1).equalsIgnoreCase("rising");
+                double percent = parseNumber();
+                expect("%");
+                if (!accept("/")) {
+                    expectKeyword("per");
+                }
+                long windowMs = parseDuration();
+                RuleProgram.RateSlot slot = compiler.rateSlot(parameter, windowMs);
+                if (rising) {
+                    return (state, now) -> {
+                        double change = slot.changePercent(state, now);
+                        return truth(change, change >= percent);
+                    };
+                }
+                return (state, now) -> {
+                    double change = slot.changePercent(state, now);
+                    return truth(change, change <= -percent);
+                };
+            }
+
+            Operator operator = parseOperator();
+            double threshold = parseNumber();
+            if (acceptKeyword("for")) {
+                long durationMs = parseDuration();
+                int slot = compiler.sustainedSlot(parameter, operator, threshold);
+                return (state, now) -> truth(state.values[index], state.since[slot] != SensorRuleState.NOT_SINCE
+                        && now - state.since[slot] >= durationMs);
+            }
+            return comparison(index, operator, threshold);
+        }
+
+        private Operator parseOperator() {
+            String token = nextToken();
+            switch (token) {
+                case ">": return Operator.GT;
+                case ">=": return Operator.GE;
+                case "<": return Operator.LT;
+                case "<=": return Operator.LE;
+                case "=":
+                case "==": return Operator.EQ;
+                case "!=": return Operator.NE;
+                default: throw error("Opérateur attendu, trouvé '" + token + "'");
+            }
+        }
+
+        private double parseNumber() {
+            String token = nextToken();
+            try {
+                return Double.parseDouble(token);
+            } catch (NumberFormatException e) {
+                throw error("Nombre attendu, trouvé '" + token + "'");
+            }
+        }
+
+        /**
+         * "10m", "10 min", "h" (= 1h), "30s"
+         */
+        private long parseDuration() {
+            double amount = 1;
+            if (position < tokens.size() && isNumber(tokens.get(position))) {
+                amount = parseNumber();
+            }
+            String unit = nextToken().toLowerCase(Locale.ROOT);
+            long unitMs;
+            switch (unit) {
+                case "s": case "sec": case "secs": case "second": case "seconds":
+                    unitMs = 1_000L;
+                    break;
+                case "m": case "min": case "mins": case "minute": case "minutes":
+                    unitMs = 60_000L;
+                    break;
+                case "h": case "hr": case "hour": case "hours":
+                    unitMs = 3_600_000L;
+                    break;
+                default:
+                    throw error("Unité de durée inconnue '" + unit + "'");
+            }
+            long durationMs = (long) (amount * unitMs);
+            if (durationMs <= 0) {
+                throw error("Durée invalide");
+            }
+            return durationMs;
+        }
+
+        private static boolean isNumber(String token) {
+            char first = token.charAt(0);
+            return Character.isDigit(first) || first == '.' || first == '-';
+        }
+
+        private boolean accept(String symbol) {
+            if (position < tokens.size() && tokens.get(position).equals(symbol)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean acceptKeyword(String keyword) {
+            if (position < tokens.size() && tokens.get(position).equalsIgnoreCase(keyword)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String symbol) {
+            if (!accept(symbol)) {
+                throw error("'" + symbol + "' attendu");
+            }
+        }
+
+        private void expectKeyword(String keyword) {
+            if (!acceptKeyword(keyword)) {
+                throw error("'" + keyword + "' attendu");
+            }
+        }
+
+        private String nextToken() {
+            if (position >= tokens.size()) {
+                throw error("Fin d'expression inattendue");
+            }
+            return tokens.get(position++);
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " (position " + position + ")");
+        }
+
+        private static List<String> tokenize(String expression) {
+            List<String> tokens = new ArrayList<>();
+            int i = 0;
+            while (i < expression.length()) {
+                char c = expression.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (Character.isLetter(c) || c == '_') {
+                    int start = i;
+                    while (i < expression.length()
+                            && (Character.isLetterOrDigit(expression.charAt(i)) || expression.charAt(i) == '_')) {
+                        i++;
+                    }
+                    tokens.add(expression.substring(start, i));
+                } else if (Character.isDigit(c) || c == '.' || (c == '-' && startsNumber(expression, i + 1))) {
+                    // Pas de soustraction dans la grammaire : un '-' devant un chiffre est un signe
+                    int start = i++;
+                    while (i < expression.length()
+                            && (Character.isDigit(expression.charAt(i)) || expression.charAt(i) == '.')) {
+                        i++;
+                    }
+                    tokens.add(expression.substring(start, i));
+                } else if ((c == '>' || c == '<' || c == '=' || c == '!')
+                        && i + 1 < expression.length() && expression.charAt(i + 1) == '=') {
+                    tokens.add(expression.substring(i, i + 2));
+                    i += 2;
+                } else if ("><=()%/".indexOf(c) >= 0) {
+                    tokens.add(String.valueOf(c));
+                    i++;
+                } else {
+                    throw new IllegalArgumentException("Caractère inattendu '" + c + "' (index " + i + ")");
+                }
+            }
+            return tokens;
+        }
+
+        private static boolean startsNumber(String expression, int i) {
+            return i < expression.length() && (Character.isDigit(expression.charAt(i)) || expression.charAt(i) == '.');
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.backend.demo.rules;
+
+/**
+ * Condition compilée d'une règle, évaluée sur l'état glissant d'un capteur.
+ * Logique à trois valeurs : une donnée manquante (ou un historique insuffisant)
+ * rend la condition INCONNUE, et NOT d'une inconnue reste inconnu.
+ * Les valeurs sont ordonnées FAUX &lt; INCONNU &lt; VRAI : AND est le minimum, OR le maximum.
+ */
+@FunctionalInterface
+public interface RuleCondition {
+
+    int FALSE = 0;
+    int UNKNOWN = 1;
+    int TRUE = 2;
+
+    int evaluate(SensorRuleState state, long now);
+
+    static int of(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+}
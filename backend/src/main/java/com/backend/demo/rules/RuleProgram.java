@@ -0,0 +1,229 @@
+package com.backend.demo.rules;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ensemble de règles compilées, partagé par tous les capteurs.
+ * L'évaluation d'une lecture est une boucle plate : mise à jour des fenêtres
+ * (conditions soutenues, variations), puis test de chaque règle.
+ * Un programme est immuable ; il est reconstruit quand les règles changent.
+ */
+public final class RuleProgram {
+
+    // Tranches d'historique par fenêtre de variation (une de plus que la fenêtre
+    // pour que la tranche de référence ne soit jamais écrasée par la tranche courante)
+    static final int RATE_BUCKETS = 61;
+
+    private final Map<String, Integer> parameterIndex;
+    private final SustainedSlot[] sustainedSlots;
+    private final RateSlot[] rateSlots;
+    private final CompiledRule[] rules;
+
+    RuleProgram(Map<String, Integer> parameterIndex, List<SustainedSlot> sustainedSlots,
+                List<RateSlot> rateSlots, List<CompiledRule> rules) {
+        this.parameterIndex = Collections.unmodifiableMap(parameterIndex);
+        this.sustainedSlots = sustainedSlots.toArray(new SustainedSlot[0]);
+        this.rateSlots = rateSlots.toArray(new RateSlot[0]);
+        this.rules = rules.toArray(new CompiledRule[0]);
+    }
+
+    public static RuleProgram empty() {
+        return new RuleProgram(Map.of(), List.of(), List.of(), List.of());
+    }
+
+    /**
+     * Index du paramètre dans l'état d'un capteur, -1 si aucune règle ne l'utilise
+     */
+    public int indexOf(String parameter) {
+        Integer index = parameterIndex.get(parameter);
+        return index != null ? index : -1;
+    }
+
+    public int getRuleCount() {
+        return rules.length;
+    }
+
+    public SensorRuleState newState() {
+        return new SensorRuleState(this, parameterIndex.size(), sustainedSlots.length, rateSlots.length, rules.length);
+    }
+
+    /**
+     * Avance les fenêtres glissantes puis évalue toutes les règles.
+     * Le listener n'est appelé que lorsqu'une règle passe de faux à vrai.
+     */
+    public void evaluate(SensorRuleState state, long now, RuleMatchListener listener) {
+        for (SustainedSlot slot : sustainedSlots) {
+            slot.update(state, now);
+        }
+        for (RateSlot slot : rateSlots) {
+            slot.update(state, now);
+        }
+        for (int i = 0; i < rules.length; i++) {
+            CompiledRule rule = rules[i];
+            boolean matched = rule.condition().evaluate(state, now) == RuleCondition.TRUE;
+            if (matched && !state.firing[i] && listener != null) {
+                listener.onMatch(rule, state.values[rule.parameterIndex()]);
+            }
+            state.firing[i] = matched;
+        }
+    }
+
+    /**
+     * Reprend l'état d'un capteur construit pour un autre programme :
+     * valeurs, fenêtres identiques (même paramètre, opérateur, seuil ou durée)
+     * et règles déclenchées inchangées (même id et même expression).
+     * Les fenêtres et règles nouvelles repartent de zéro.
+     */
+    public SensorRuleState adopt(SensorRuleState previous) {
+        SensorRuleState state = newState();
+        RuleProgram source = previous.program;
+        synchronized (previous) {
+            for (Map.Entry<String, Integer> entry : parameterIndex.entrySet()) {
+                int index = source.indexOf(entry.getKey());
+                if (index >= 0) {
+                    state.values[entry.getValue()] = previous.values[index];
+                }
+            }
+
+            Map<String, Integer> sustainedByKey = new HashMap<>();
+            for (SustainedSlot slot : source.sustainedSlots) {
+                sustainedByKey.put(slot.key, slot.slot);
+            }
+            for (SustainedSlot slot : sustainedSlots) {
+                Integer index = sustainedByKey.get(slot.key);
+                if (index != null) {
+                    state.since[slot.slot] = previous.since[index];
+                }
+            }
+
+            Map<String, Integer> rateByKey = new HashMap<>();
+            for (RateSlot slot : source.rateSlots) {
+                rateByKey.put(slot.key, slot.slot);
+            }
+            for (RateSlot slot : rateSlots) {
+                Integer index = rateByKey.get(slot.key);
+                if (index != null) {
+                    state.rateTimes[slot.slot] = previous.rateTimes[index].clone();
+                    state.rateValues[slot.slot] = previous.rateValues[index].clone();
+                }
+            }
+
+            Set<String> firing = new HashSet<>();
+            for (int i = 0; i < source.rules.length; i++) {
+                if (previous.firing[i]) {
+                    firing.add(ruleKey(source.rules[i]));
+                }
+            }
+            for (int i = 0; i < rules.length && !firing.isEmpty(); i++) {
+                state.firing[i] = firing.contains(ruleKey(rules[i]));
+            }
+        }
+        return state;
+    }
+
+    private static String ruleKey(CompiledRule rule) {
+        return rule.id() + ":" + rule.expression();
+    }
+
+    @FunctionalInterface
+    public interface RuleMatchListener {
+        void onMatch(CompiledRule rule, double value);
+    }
+
+    /**
+     * Mémorise depuis quand "paramètre op seuil" est vrai sans interruption
+     */
+    static final class SustainedSlot {
+        final int slot;
+        final String key;
+        final int parameterIndex;
+        final RuleCompiler.Operator operator;
+        final double threshold;
+
+        SustainedSlot(int slot, String key, int parameterIndex, RuleCompiler.Operator operator, double threshold) {
+            this.slot = slot;
+            this.key = key;
+            this.parameterIndex = parameterIndex;
+            this.operator = operator;
+            this.threshold = threshold;
+        }
+
+        void update(SensorRuleState state, long now) {
+            double value = state.values[parameterIndex];
+            if (!Double.isNaN(value) && operator.apply(value, threshold)) {
+                if (state.since[slot] == SensorRuleState.NOT_SINCE) {
+                    state.since[slot] = now;
+                }
+            } else {
+                state.since[slot] = SensorRuleState.NOT_SINCE;
+            }
+        }
+    }
+
+    /**
+     * Historique par tranches d'un paramètre sur une fenêtre donnée,
+     * pour calculer sa variation en pourcentage ramenée à la fenêtre
+     */
+    static final class RateSlot {
+        final int slot;
+        final String key;
+        final int parameterIndex;
+        final long windowMs;
+        final long bucketMs;
+
+        RateSlot(int slot, String key, int parameterIndex, long windowMs) {
+            this.slot = slot;
+            this.key = key;
+            this.parameterIndex = parameterIndex;
+            this.windowMs = windowMs;
+            this.bucketMs = Math.max(1, windowMs / (RATE_BUCKETS - 1));
+        }
+
+        void update(SensorRuleState state, long now) {
+            double value = state.values[parameterIndex];
+            if (Double.isNaN(value)) {
+                return;
+            }
+            long bucket = now / bucketMs;
+            int position = (int) (bucket % RATE_BUCKETS);
+            long[] times = state.rateTimes[slot];
+            // On garde la première valeur de chaque tranche
+            if (times[position] == SensorRuleState.NOT_SINCE || times[position] / bucketMs != bucket) {
+                times[position] = now;
+                state.rateValues[slot][position] = value;
+            }
+        }
+
+        /**
+         * Variation en % par fenêtre depuis la plus ancienne valeur encore dans la fenêtre,
+         * NaN s'il n'y a pas assez d'historique
+         */
+        double changePercent(SensorRuleState state, long now) {
+            double current = state.values[parameterIndex];
+            if (Double.isNaN(current)) {
+                return Double.NaN;
+            }
+            long[] times = state.rateTimes[slot];
+            long currentBucket = now / bucketMs;
+            for (long bucket = Math.max(0, currentBucket - (RATE_BUCKETS - 1)); bucket < currentBucket; bucket++) {
+                int position = (int) (bucket % RATE_BUCKETS);
+                long time = times[position];
+                if (time != SensorRuleState.NOT_SINCE && time / bucketMs == bucket) {
+                    double reference = state.rateValues[slot][position];
+                    long elapsed = now - time;
+                    // Moins d'une demi-fenêtre d'historique : variation non significative
+                    if (reference == 0 || elapsed < windowMs / 2) {
+                        return Double.NaN;
+                    }
+                    return (current - reference) / Math.abs(reference) * 100.0 * windowMs / elapsed;
+                }
+            }
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.backend.demo.rules;
+
+import java.util.Arrays;
+
+/**
+ * État glissant d'un capteur pour un RuleProgram donné :
+ * dernières valeurs, début des conditions soutenues ("for"),
+ * historique par tranches pour les variations ("rising"/"falling"),
+ * et règles actuellement déclenchées.
+ */
+public final class SensorRuleState {
+
+    static final long NOT_SINCE = Long.MIN_VALUE;
+
+    final RuleProgram program;
+    final double[] values;
+    final long[] since;
+    final long[][] rateTimes;
+    final double[][] rateValues;
+    final boolean[] firing;
+
+    SensorRuleState(RuleProgram program, int parameters, int sustainedSlots, int rateSlots, int rules) {
+        this.program = program;
+        this.values = new double[parameters];
+        Arrays.fill(values, Double.NaN);
+        this.since = new long[sustainedSlots];
+        Arrays.fill(since, NOT_SINCE);
+        this.rateTimes = new long[rateSlots][RuleProgram.RATE_BUCKETS];
+        this.rateValues = new double[rateSlots][RuleProgram.RATE_BUCKETS];
+        for (long[] times : rateTimes) {
+            Arrays.fill(times, NOT_SINCE);
+        }
+        this.firing = new boolean[rules];
+    }
+
+    public boolean belongsTo(RuleProgram program) {
+        return this.program == program;
+    }
+
+    public void setValue(int parameterIndex, double value) {
+        values[parameterIndex] = value;
+    }
+
+    public double getValue(int parameterIndex) {
+        return values[parameterIndex];
+    }
+}
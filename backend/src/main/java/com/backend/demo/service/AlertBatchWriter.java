@@ -0,0 +1,330 @@
+package com.backend.demo.service;
+
+import com.backend.demo.entity.Alert;
+import com.backend.demo.repository.AlertRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Stream;
+
+/**
+ * Écriture différée (write-behind) des alertes.
+ * Les alertes sont mises en file puis insérées par lots via saveAll et le batching JDBC.
+ * La file est bornée : si elle est pleine, l'alerte est écrite de façon synchrone.
+ * La file est vidée à l'arrêt normal, et avant chaque lecture des alertes (AlertService).
+ *
+ * Journal : avant d'entrer dans la file, chaque alerte est ajoutée (une ligne JSON) au segment
+ * courant de journal-dir. Chaque flush ferme le segment et en ouvre un nouveau ; les segments fermés
+ * sont supprimés une fois toutes leurs alertes en base. Au démarrage, les segments restants
+ * sont relus et leurs alertes réécrites, sauf celles déjà en base (les identifiants sont attribués
+ * avant la mise en file). Une ligne incomplète en fin de segment (arrêt pendant l'ajout) est ignorée :
+ * l'alerte correspondante n'avait pas été acceptée.
+ * Sans journal-sync, l'ajout s'arrête au cache du système : le journal survit à l'arrêt brutal
+ * du processus (crash, kill -9), pas à celui de la machine. Avec journal-sync, chaque ajout est
+ * forcé sur disque, au prix d'un fsync par alerte.
+ * Si le journal ne peut pas être écrit, l'alerte est écrite de façon synchrone.
+ *
+ * Lot en échec : si la base est indisponible, le lot entier est conservé et réessayé au cycle suivant.
+ * Si une ligne est refusée (violation de contrainte), le lot est coupé en deux jusqu'à isoler
+ * cette ligne, qui est écartée et journalisée ; elle ne bloque pas les lots suivants.
+ */
+@Service
+public class AlertBatchWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertBatchWriter.class);
+
+    private static final String SEGMENT_PREFIX = "alerts-";
+    private static final String SEGMENT_SUFFIX = ".jsonl";
+
+    private final AlertRepository alertRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${alert.write-behind.capacity:10000}")
+    private int capacity;
+
+    @Value("${alert.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${alert.write-behind.journal-dir:data/alert-journal}")
+    private String journalDir;
+
+    @Value("${alert.write-behind.journal-sync:false}")
+    private boolean journalSync;
+
+    private BlockingQueue<Alert> queue;
+
+    // Lot dont l'écriture a échoué faute de base, réessayé avant la file (accès sous le verrou de flush)
+    private final List<Alert> retry = new ArrayList<>();
+
+    // Ajout au journal et entrée dans la file, rotation du segment
+    private final Object journalLock = new Object();
+    private Path journal;
+    private FileChannel segment;
+    private Path segmentPath;
+    private long segmentNumber;
+
+    // Segments fermés dont les alertes ne sont pas toutes en base (accès sous le verrou de flush)
+    private final List<Path> closedSegments = new ArrayList<>();
+
+    public AlertBatchWriter(AlertRepository alertRepository, PlatformTransactionManager transactionManager) {
+        this.alertRepository = alertRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        queue = new ArrayBlockingQueue<>(capacity);
+        journal = Paths.get(journalDir);
+        Files.createDirectories(journal);
+        for (Path path : segments()) {
+            retry.addAll(replay(path));
+            closedSegments.add(path);
+            segmentNumber = Math.max(segmentNumber, numberOf(path));
+        }
+        skipAlreadyWritten();
+        if (!closedSegments.isEmpty()) {
+            logger.info("{} alertes reprises depuis le journal ({} segments)", retry.size(), closedSegments.size());
+        }
+        openSegment();
+    }
+
+    public void enqueue(Alert alert) {
+        synchronized (journalLock) {
+            // Seuls les producteurs remplissent la file, et ils passent tous par ce verrou
+            if (queue.remainingCapacity() > 0 && append(alert)) {
+                queue.add(alert);
+                return;
+            }
+        }
+        if (queue.remainingCapacity() == 0) {
+            // File pleine : on ralentit le producteur plutôt que de perdre l'alerte
+            logger.warn("File d'écriture des alertes pleine ({}), écriture synchrone de l'alerte {}",
+                    capacity, alert.getId());
+        }
+        transactionTemplate.executeWithoutResult(status -> alertRepository.save(alert));
+    }
+
+    public synchronized int getPendingCount() {
+        return queue.size() + retry.size();
+    }
+
+    /**
+     * Vide la file par lots de batchSize ; s'arrête au premier lot que la base ne peut pas recevoir.
+     * Les segments fermés sont supprimés quand plus rien n'attend de nouvel essai.
+     */
+    @Scheduled(fixedDelayString = "${alert.write-behind.flush-interval:200}")
+    public synchronized void flush() {
+        List<Alert> pending = new ArrayList<>(retry);
+        retry.clear();
+        synchronized (journalLock) {
+            if (!queue.isEmpty()) {
+                // Le segment courant contient exactement les alertes de la file
+                queue.drainTo(pending);
+                rotateSegment();
+            } else if (segment == null) {
+                // Segment perdu après une erreur d'ajout : il ne contient aucune alerte de la file
+                delete(segmentPath);
+                openSegment();
+            }
+        }
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<Alert> batch = new ArrayList<>(pending.subList(from, Math.min(from + batchSize, pending.size())));
+            if (!writeBatch(batch)) {
+                retry.addAll(pending.subList(from + batch.size(), pending.size()));
+                return;
+            }
+        }
+        deleteClosedSegments();
+    }
+
+    /**
+     * Faux si la base est indisponible : le reste du lot est alors gardé pour le prochain cycle
+     */
+    private boolean writeBatch(List<Alert> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> alertRepository.saveAll(batch));
+            logger.debug("{} alertes écrites en lot", batch.size());
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            if (batch.size() == 1) {
+                Alert alert = batch.get(0);
+                logger.error("Alerte {} ({} {} {}) refusée par la base et écartée: {}", alert.getId(),
+                        alert.getParameter(), alert.getSeverity(), alert.getTimestamp(), e.getMessage());
+                return true;
+            }
+            // Une ligne refusée : on coupe le lot en deux pour l'isoler
+            int middle = batch.size() / 2;
+            List<Alert> second = new ArrayList<>(batch.subList(middle, batch.size()));
+            if (!writeBatch(new ArrayList<>(batch.subList(0, middle)))) {
+                retry.addAll(second);
+                return false;
+            }
+            return writeBatch(second);
+        } catch (Exception e) {
+            logger.error("Échec de l'écriture d'un lot de {} alertes, nouvel essai au prochain cycle: {}",
+                    batch.size(), e.getMessage());
+            retry.addAll(batch);
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        logger.info("Arrêt: écriture des {} alertes en attente", queue.size());
+        flush();
+        synchronized (journalLock) {
+            closeSegment();
+            // Segment vide : rien à rejouer au prochain démarrage
+            if (queue.isEmpty()) {
+                delete(segmentPath);
+            }
+        }
+    }
+
+    /**
+     * Faux si l'alerte n'a pas pu être ajoutée au journal
+     */
+    private boolean append(Alert alert) {
+        if (segment == null) {
+            return false;
+        }
+        try {
+            byte[] line = (objectMapper.writeValueAsString(alert) + "\n").getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                segment.write(buffer);
+            }
+            if (journalSync) {
+                segment.force(false);
+            }
+            return true;
+        } catch (IOException e) {
+            logger.error("Ajout de l'alerte {} au journal impossible ({}), écriture synchrone: {}",
+                    alert.getId(), segmentPath, e.getMessage());
+            // Plus d'ajout derrière une ligne peut-être incomplète ; un nouveau segment est ouvert au flush
+            closeSegment();
+            return false;
+        }
+    }
+
+    private void openSegment() {
+        segmentNumber++;
+        segmentPath = journal.resolve(SEGMENT_PREFIX + segmentNumber + SEGMENT_SUFFIX);
+        try {
+            segment = FileChannel.open(segmentPath,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            logger.error("Ouverture du segment de journal {} impossible, écritures synchrones: {}",
+                    segmentPath, e.getMessage());
+            segment = null;
+        }
+    }
+
+    private void rotateSegment() {
+        closeSegment();
+        closedSegments.add(segmentPath);
+        openSegment();
+    }
+
+    private void closeSegment() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.close();
+        } catch (IOException e) {
+            logger.warn("Fermeture du segment de journal {} impossible: {}", segmentPath, e.getMessage());
+        }
+        segment = null;
+    }
+
+    private void deleteClosedSegments() {
+        for (Path path : closedSegments) {
+            delete(path);
+        }
+        closedSegments.clear();
+    }
+
+    private void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Suppression du segment de journal {} impossible: {}", path, e.getMessage());
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(journal)) {
+            return files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(AlertBatchWriter::numberOf))
+                    .toList();
+        }
+    }
+
+    private static long numberOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private List<Alert> replay(Path path) throws IOException {
+        List<Alert> alerts = new ArrayList<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                alerts.add(objectMapper.readValue(line, Alert.class));
+            } catch (IOException e) {
+                logger.warn("Ligne illisible ignorée dans le segment de journal {}: {}", path, e.getMessage());
+            }
+        }
+        return alerts;
+    }
+
+    /**
+     * Retire des alertes reprises celles déjà écrites avant l'arrêt ;
+     * si la base ne répond pas, elles seront refusées une à une à l'écriture
+     */
+    private void skipAlreadyWritten() {
+        if (retry.isEmpty()) {
+            return;
+        }
+        try {
+            Set<Long> written = new HashSet<>();
+            List<Long> ids = retry.stream().map(Alert::getId).toList();
+            alertRepository.findAllById(ids).forEach(alert -> written.add(alert.getId()));
+            retry.removeIf(alert -> written.contains(alert.getId()));
+        } catch (Exception e) {
+            logger.warn("Alertes déjà écrites non vérifiées au démarrage: {}", e.getMessage());
+        }
+    }
+}
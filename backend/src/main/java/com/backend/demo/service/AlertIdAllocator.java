@@ -0,0 +1,53 @@
+package com.backend.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Attribue les identifiants des alertes par blocs (pooled) à partir de la séquence alert_seq.
+ * Un seul aller-retour vers la base tous les BLOCK_SIZE identifiants, et l'identifiant
+ * est connu avant l'insertion.
+ */
+@Component
+public class AlertIdAllocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertIdAllocator.class);
+
+    static final int BLOCK_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private boolean initialized;
+    private long next;
+    private long limit;
+
+    public AlertIdAllocator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public synchronized long nextId() {
+        if (next >= limit) {
+            ensureSequence();
+            next = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR alert_seq", Long.class);
+            limit = next + BLOCK_SIZE;
+        }
+        return next++;
+    }
+
+    /**
+     * Crée la séquence au premier besoin, en démarrant après les identifiants déjà
+     * générés par l'ancienne colonne AUTO_INCREMENT
+     */
+    private void ensureSequence() {
+        if (initialized) {
+            return;
+        }
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM alert", Long.class);
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS alert_seq START WITH " + (maxId + 1)
+                + " INCREMENT BY " + BLOCK_SIZE);
+        logger.info("Séquence alert_seq prête (dernier identifiant existant: {})", maxId);
+        initialized = true;
+    }
+}
@@ -16,22 +16,38 @@ public class AlertNotificationService {
 
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
+    
+    @Autowired
+    private PreEncodedBroadcaster broadcaster;
+
+    @Autowired
+    private SseFeedService sseFeeds;
 
     public void sendNewAlert(Alert alert) {
         logger.info("Sending new alert - ID: {}, Parameter: {}, Severity: {}", 
                    alert.getId(), alert.getParameter(), alert.getSeverity());
         
         try {
-            // Envoi standard
-            messagingTemplate.convertAndSend("/topic/alerts", alert);
+            // Sérialisé une seule fois puis réutilisé pour chaque destination
+            PreEncodedBroadcaster.EncodedPayload payload = broadcaster.encode(alert);
+            
+            // Envoi standard, avec en-têtes de filtrage : un client peut s'abonner une seule fois
+            // à /topic/alerts avec par exemple selector: headers.severity == 'danger'
+            Map<String, String> selectorHeaders = new HashMap<>();
+            selectorHeaders.put("type", alert.getType());
+            selectorHeaders.put("parameter", alert.getParameter());
+            selectorHeaders.put("severity", alert.getSeverity());
+            broadcaster.send("/topic/alerts", payload, selectorHeaders);
+            // Même contenu pour le flux SSE /api/alerts/stream (mêmes attributs de filtrage)
+            sseFeeds.publish(SseFeedService.ALERTS, payload, selectorHeaders);
             
-            // Envois spécifiques
-            messagingTemplate.convertAndSend("/topic/alerts/" + alert.getType(), alert);
-            messagingTemplate.convertAndSend("/topic/alerts/parameter/" + alert.getParameter(), alert);
+            // Envois spécifiques (conservés pour les clients existants)
+            broadcaster.send("/topic/alerts/" + alert.getType(), payload);
+            broadcaster.send("/topic/alerts/parameter/" + alert.getParameter(), payload);
             
             // Envoi par sévérité
             String severityTopic = "/topic/alerts/severity/" + alert.getSeverity();
-            messagingTemplate.convertAndSend(severityTopic, alert);
+            broadcaster.send(severityTopic, payload);
             
             // Notification UI
             Map<String, Object> notification = createNotification(alert);
@@ -0,0 +1,126 @@
+package com.backend.demo.service;
+
+import com.backend.demo.repository.AlertRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Purge des alertes expirées par lots bornés (DELETE ... LIMIT).
+ * Chaque lot est validé dans sa propre transaction et suivi d'une courte pause,
+ * pour ne jamais charger les alertes en mémoire ni verrouiller la table longtemps.
+ * La purge planifiée tourne sur son propre thread : ses pauses ne retardent pas
+ * les autres tâches @Scheduled (écriture des alertes, conflation, résumés).
+ */
+@Service
+public class AlertRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertRetentionService.class);
+
+    private final AlertRepository alertRepository;
+    private final Counter purgedCounter;
+    private final Timer purgeTimer;
+    private final AtomicLong lastPurged = new AtomicLong();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService purger = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "alert-retention");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${alert.retention.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${alert.retention.pause-ms:100}")
+    private long pauseMs;
+
+    public AlertRetentionService(AlertRepository alertRepository, MeterRegistry meterRegistry) {
+        this.alertRepository = alertRepository;
+        this.purgedCounter = Counter.builder("alerts.retention.purged")
+                .description("Alertes supprimées par la purge de rétention")
+                .register(meterRegistry);
+        this.purgeTimer = Timer.builder("alerts.retention.duration")
+                .description("Durée d'une purge de rétention complète")
+                .register(meterRegistry);
+        meterRegistry.gauge("alerts.retention.last.purged", lastPurged);
+    }
+
+    /**
+     * Lance la purge en arrière-plan, sauf si une purge est déjà en cours
+     *
+     * @return false si la purge précédente n'est pas terminée
+     */
+    public boolean purgeBeforeAsync(Date cutoff) {
+        if (!running.compareAndSet(false, true)) {
+            logger.warn("Purge des alertes déjà en cours, celle du {} est ignorée", cutoff);
+            return false;
+        }
+        purger.execute(() -> {
+            try {
+                purgeBefore(cutoff);
+            } catch (RuntimeException e) {
+                logger.error("Purge des alertes antérieures au {} échouée: {}", cutoff, e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Supprime toutes les alertes antérieures à la date donnée, lot par lot
+     *
+     * @return le nombre d'alertes supprimées
+     */
+    public long purgeBefore(Date cutoff) {
+        long start = System.nanoTime();
+        long purged = 0;
+        while (true) {
+            int deleted = alertRepository.deleteChunkByTimestampBefore(cutoff, chunkSize);
+            purged += deleted;
+            purgedCounter.increment(deleted);
+            // Un lot incomplet signifie qu'il ne reste plus rien à purger
+            if (deleted < chunkSize || !pause()) {
+                break;
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        purgeTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        lastPurged.set(purged);
+        logger.info("Purge des alertes antérieures au {} : {} supprimées en {} ms",
+                cutoff, purged, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        return purged;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        purger.shutdownNow();
+    }
+
+    private boolean pause() {
+        if (pauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Purge des alertes interrompue");
+            return false;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.backend.demo.service;
+
+import com.backend.demo.entity.AlertRule;
+import com.backend.demo.mqtt.AirQualityData;
+import com.backend.demo.repository.AlertRuleRepository;
+import com.backend.demo.rules.RuleCompiler;
+import com.backend.demo.rules.RuleProgram;
+import com.backend.demo.rules.SensorRuleState;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gestion et évaluation des règles d'alerte composées.
+ * Les règles actives sont compilées une fois en RuleProgram, puis chaque lecture
+ * d'un capteur est évaluée sur son état glissant sans accès à la base.
+ */
+@Service
+public class AlertRuleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertRuleService.class);
+
+    @Autowired
+    private AlertRuleRepository repository;
+
+    @Autowired
+    private AlertService alertService;
+
+    private volatile RuleProgram program = RuleProgram.empty();
+    private final Map<String, SensorRuleState> states = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * Recompile les règles actives. L'état des capteurs est repris à leur prochaine lecture :
+     * les fenêtres des règles inchangées sont conservées, seules les nouvelles repartent de zéro.
+     */
+    public synchronized void reload() {
+        try {
+            program = RuleCompiler.compile(repository.findByEnabledTrue());
+            logger.info("{} règles d'alerte compilées", program.getRuleCount());
+        } catch (IllegalArgumentException e) {
+            logger.error("Compilation des règles d'alerte impossible, programme précédent conservé: {}", e.getMessage());
+        }
+    }
+
+    public List<AlertRule> getAllRules() {
+        return repository.findAll();
+    }
+
+    public AlertRule createRule(AlertRule rule) {
+        RuleCompiler.validate(rule.getExpression());
+        rule.setId(null);
+        if (rule.getSeverity() == null) {
+            rule.setSeverity("warning");
+        }
+        rule.setUpdatedAt(new Date());
+        AlertRule saved = repository.save(rule);
+        reload();
+        return saved;
+    }
+
+    public AlertRule updateRule(Long id, AlertRule rule) {
+        AlertRule existing = repository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Règle non trouvée"));
+        RuleCompiler.validate(rule.getExpression());
+
+        existing.setName(rule.getName());
+        existing.setExpression(rule.getExpression());
+        if (rule.getSeverity() != null) {
+            existing.setSeverity(rule.getSeverity());
+        }
+        existing.setEnabled(rule.isEnabled());
+        existing.setUpdatedAt(new Date());
+
+        AlertRule saved = repository.save(existing);
+        reload();
+        return saved;
+    }
+
+    public void deleteRule(Long id) {
+        repository.deleteById(id);
+        reload();
+    }
+
+    public void onReading(String sensorId, AirQualityData data, long now) {
+        onReading(sensorId, Map.of(
+            "pm25", (double) data.getPm25(),
+            "pm10", (double) data.getPm10(),
+            "no2", (double) data.getNo2(),
+            "o3", (double) data.getO3(),
+            "co", (double) data.getCo(),
+            "aqi", (double) data.getAqi()
+        ), now);
+    }
+
+    /**
+     * Met à jour l'état du capteur avec la lecture et crée une alerte
+     * pour chaque règle qui vient de se déclencher
+     */
+    public void onReading(String sensorId, Map<String, Double> reading, long now) {
+        RuleProgram current = program;
+        if (current.getRuleCount() == 0) {
+            return;
+        }
+
+        SensorRuleState state = states.compute(sensorId,
+            (id, existing) -> existing == null ? current.newState()
+                : existing.belongsTo(current) ? existing : current.adopt(existing));
+
+        synchronized (state) {
+            for (Map.Entry<String, Double> entry : reading.entrySet()) {
+                int index = current.indexOf(entry.getKey());
+                if (index >= 0 && entry.getValue() != null) {
+                    state.setValue(index, entry.getValue());
+                }
+            }
+            current.evaluate(state, now, (rule, value) -> {
+                logger.info("Règle '{}' déclenchée pour le capteur {}", rule.name(), sensorId);
+                alertService.createRuleAlert(rule, value);
+            });
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package com.backend.demo.service;
 
+import com.backend.demo.dto.AlertPageResponse;
 import com.backend.demo.entity.Alert;
-import com.backend.demo.entity.AlertThreshold;
 import com.backend.demo.mqtt.AirQualityData;
 import com.backend.demo.mqtt.AirQualityDataService;
 import com.backend.demo.repository.AlertRepository;
-import com.backend.demo.repository.AlertThresholdRepository;
+import com.backend.demo.repository.AlertSpecifications;
+import com.backend.demo.rules.CompiledRule;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -14,18 +18,20 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Calendar;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 public class AlertService {
+    
+    private static final int MAX_PAGE_SIZE = 500;
 
     @Autowired
     private AlertRepository alertRepository;
     
     @Autowired
-    private AlertThresholdRepository thresholdRepository;
+    private ThresholdTable thresholdTable;
     
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
@@ -35,86 +41,212 @@ public class AlertService {
     
     @Autowired
     private AirQualityDataService airQualityDataService;
+    
+    @Autowired
+    private AlertSummaryCounter summaryCounter;
+    
+    @Autowired
+    private AlertIdAllocator alertIdAllocator;
+    
+    @Autowired
+    private AlertBatchWriter alertBatchWriter;
+    
+    @Autowired
+    private AlertRetentionService alertRetentionService;
+    
+    @Autowired
+    private DashboardStateService dashboardStateService;
+    
+    @Value("${alert.retention.days:30}")
+    private int retentionDays;
+    
+    // Indique qu'un résumé doit être publié au prochain tick
+    private final AtomicBoolean summaryDirty = new AtomicBoolean(false);
 
+    /**
+     * Reconstruit les compteurs glissants à partir des alertes des dernières 24 heures.
+     * Seules les colonnes utiles sont chargées, une seule fois au démarrage.
+     */
+    @PostConstruct
+    public void initAlertSummary() {
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.DAY_OF_MONTH, -1);
+        
+        summaryCounter.clear();
+        for (Object[] row : alertRepository.findSummaryRowsSince(cal.getTime())) {
+            summaryCounter.record((String) row[1], (String) row[2], (String) row[3], (Date) row[0]);
+        }
+    }
+
+    // Les lectures vident d'abord la file d'écriture différée : une alerte créée est visible aussitôt
     public List<Alert> getAllAlerts() {
+        alertBatchWriter.flush();
         return alertRepository.findByOrderByTimestampDesc();
     }
     
     public List<Alert> getRecentAlerts() {
+        alertBatchWriter.flush();
         Calendar cal = Calendar.getInstance();
         cal.add(Calendar.DAY_OF_MONTH, -1); // 24 heures en arrière
         return alertRepository.findAlertsFromLast24Hours(cal.getTime());
     }
     
     public List<Alert> getAlertsByType(String type) {
+        alertBatchWriter.flush();
         return alertRepository.findByTypeOrderByTimestampDesc(type);
     }
     
     public List<Alert> getAlertsBySeverity(String severity) {
+        alertBatchWriter.flush();
         return alertRepository.findBySeverityOrderByTimestampDesc(severity);
     }
     
     public List<Alert> getAlertsByParameter(String parameter) {
+        alertBatchWriter.flush();
         return alertRepository.findByParameterOrderByTimestampDesc(parameter);
     }
     
     public List<Alert> getAlertsByDateRange(Date startDate, Date endDate) {
+        alertBatchWriter.flush();
         return alertRepository.findByTimestampBetweenOrderByTimestampDesc(startDate, endDate);
     }
     
     public List<Alert> searchAlerts(String parameter, String severity, String type, Date startDate, Date endDate) {
-        return alertRepository.findAlertsByFilters(parameter, severity, type, startDate, endDate);
+        alertBatchWriter.flush();
+        return alertRepository.findAll(AlertSpecifications.filters(parameter, severity, type, startDate, endDate),
+                AlertSpecifications.KEYSET_ORDER);
+    }
+    
+    /**
+     * Recherche paginée par curseur "timestamp:id" (ordre décroissant).
+     * Une page coûte une lecture d'index bornée, quelle que soit sa profondeur.
+     */
+    public AlertPageResponse searchAlertsPage(String parameter, String severity, String type,
+                                              Date startDate, Date endDate, String cursor, int size) {
+        alertBatchWriter.flush();
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        
+        Specification<Alert> spec = AlertSpecifications.filters(parameter, severity, type, startDate, endDate);
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = cursor.split(":", -1);
+            long timestamp;
+            long id;
+            try {
+                if (parts.length != 2) {
+                    throw new NumberFormatException();
+                }
+                timestamp = Long.parseLong(parts[0]);
+                id = Long.parseLong(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Curseur invalide: " + cursor);
+            }
+            if (timestamp < 0 || id <= 0) {
+                throw new IllegalArgumentException("Curseur invalide: " + cursor);
+            }
+            spec = spec.and(AlertSpecifications.before(new Date(timestamp), id));
+        }
+        
+        // Une ligne de plus pour savoir s'il existe une page suivante
+        List<Alert> rows = alertRepository.findBy(spec,
+                query -> query.sortBy(AlertSpecifications.KEYSET_ORDER).limit(pageSize + 1).all());
+        
+        if (rows.size() <= pageSize) {
+            return new AlertPageResponse(rows, null);
+        }
+        List<Alert> items = rows.subList(0, pageSize);
+        Alert last = items.get(pageSize - 1);
+        return new AlertPageResponse(items, last.getTimestamp().getTime() + ":" + last.getId());
     }
 
-    @Transactional
+    /**
+     * Crée une alerte et la diffuse immédiatement.
+     * L'identifiant est attribué avant l'insertion, l'écriture en base est différée
+     * et groupée par AlertBatchWriter.
+     */
     public Alert createAlert(String parameter, Double value, String severity) {
+        return publishAlert(parameter, value, severity, generateAlertMessage(parameter, value, severity));
+    }
+    
+    /**
+     * Crée l'alerte d'une règle composée qui vient de se déclencher
+     */
+    public Alert createRuleAlert(CompiledRule rule, double value) {
+        String message = String.format("Règle %s: %s", rule.name(), rule.expression());
+        return publishAlert(rule.parameter(), Double.isNaN(value) ? null : value, rule.severity(), message);
+    }
+    
+    private Alert publishAlert(String parameter, Double value, String severity, String message) {
         Alert alert = new Alert();
+        alert.setId(alertIdAllocator.nextId());
         alert.setParameter(parameter);
         alert.setValue(value);
         alert.setSeverity(severity);
-        alert.setMessage(generateAlertMessage(parameter, value, severity));
+        alert.setMessage(message);
         alert.setType(getAlertType(parameter));
         alert.setTimestamp(new Date());
         
-        Alert savedAlert = alertRepository.save(alert);
+        alertBatchWriter.enqueue(alert);
+        summaryCounter.record(alert.getSeverity(), alert.getType(),
+                alert.getParameter(), alert.getTimestamp());
         
         // Notifier via WebSocket
-        notificationService.sendNewAlert(savedAlert);
+        notificationService.sendNewAlert(alert);
         
         // Envoyer également une notification de résumé des alertes actives
         sendAlertSummary();
         
-        return savedAlert;
+        return alert;
     }
 
     public void checkAndCreateAlerts(String parameter, Double value) {
-        AlertThreshold threshold = thresholdRepository.findByParameter(parameter)
-            .orElseThrow(() -> new RuntimeException("Threshold not found for parameter: " + parameter));
+        checkAndCreateAlerts(null, parameter, value);
+    }
+    
+    /**
+     * Compare une mesure aux seuils résolus pour son capteur (capteur, zone, puis global)
+     */
+    public void checkAndCreateAlerts(String sensorKey, String parameter, Double value) {
+        int parameterIndex = thresholdTable.indexOfParameter(parameter);
+        if (parameterIndex < 0) {
+            throw new RuntimeException("Threshold not found for parameter: " + parameter);
+        }
+        int sensorIndex = thresholdTable.indexOfSensor(sensorKey);
             
-        if (value >= threshold.getCriticalThreshold()) {
-            createAlert(parameter, value, "danger");
-        } else if (value >= threshold.getWarningThreshold()) {
-            createAlert(parameter, value, "warning");
+        String level = thresholdTable.level(sensorIndex, parameterIndex, value);
+        if (level != null) {
+            createAlert(parameter, value, level);
         }
     }
 
+    /**
+     * Compare chaque paramètre d'une lecture aux seuils résolus pour son capteur
+     */
+    public void checkReading(String sensorKey, AirQualityData data) {
+        checkAndCreateAlerts(sensorKey, "pm25", (double) data.getPm25());
+        checkAndCreateAlerts(sensorKey, "pm10", (double) data.getPm10());
+        checkAndCreateAlerts(sensorKey, "no2", (double) data.getNo2());
+        checkAndCreateAlerts(sensorKey, "o3", (double) data.getO3());
+        checkAndCreateAlerts(sensorKey, "co", (double) data.getCo());
+        checkAndCreateAlerts(sensorKey, "aqi", (double) data.getAqi());
+    }
+
     /**
      * Recalcule les alertes basées sur les données actuelles et les seuils configurés
      * Cette méthode est appelée après la mise à jour d'un seuil pour générer de nouvelles alertes si nécessaire
      */
     @Transactional
     public void recalculateAlerts() {
-        // Récupère les dernières données de qualité d'air
+        // Récupère les dernières données de qualité d'air, capteur par capteur
+        Map<String, AirQualityData> latestBySensor = airQualityDataService.getLatestBySensor();
         AirQualityData latestData = airQualityDataService.getLatestData();
         
         if (latestData != null) {
-            // Vérifie chaque paramètre par rapport à son seuil
-            checkAndCreateAlerts("pm25", (double) latestData.getPm25());
-            checkAndCreateAlerts("pm10", (double) latestData.getPm10());
-            checkAndCreateAlerts("no2", (double) latestData.getNo2());
-            checkAndCreateAlerts("o3", (double) latestData.getO3());
-            checkAndCreateAlerts("co", (double) latestData.getCo());
-            checkAndCreateAlerts("aqi", (double) latestData.getAqi());
+            // Vérifie chaque paramètre par rapport aux seuils du capteur (surcharges, zone, global)
+            if (latestBySensor.isEmpty()) {
+                checkReading(null, latestData);
+            } else {
+                latestBySensor.forEach(this::checkReading);
+            }
             
             // Envoie un message pour indiquer que le recalcul est terminé
             messagingTemplate.convertAndSend("/topic/alerts-recalculated", true);
@@ -126,14 +258,14 @@ public class AlertService {
     
     /**
      * Nettoie périodiquement les anciennes alertes
-     * Par défaut, supprime les alertes de plus de 30 jours
+     * Par défaut, supprime les alertes de plus de 30 jours, par lots (voir AlertRetentionService),
+     * sur le thread de purge pour ne pas bloquer le planificateur
      */
     @Scheduled(cron = "0 0 0 * * ?") // Tous les jours à minuit
-    @Transactional
     public void cleanupOldAlerts() {
         Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, -30);
-        alertRepository.deleteByTimestampBefore(cal.getTime());
+        cal.add(Calendar.DAY_OF_MONTH, -retentionDays);
+        alertRetentionService.purgeBeforeAsync(cal.getTime());
     }
     
     /**
@@ -141,7 +273,13 @@ public class AlertService {
      */
     @Transactional
     public void deleteAlert(Long id) {
-        alertRepository.deleteById(id);
+        alertBatchWriter.flush();
+        alertRepository.findById(id).ifPresent(alert -> {
+            alertRepository.delete(alert);
+            summaryCounter.remove(alert.getSeverity(), alert.getType(),
+                    alert.getParameter(), alert.getTimestamp());
+            sendAlertSummary();
+        });
     }
     
     /**
@@ -149,27 +287,37 @@ public class AlertService {
      */
     @Transactional
     public void deleteAllAlerts() {
+        alertBatchWriter.flush();
         alertRepository.deleteAll();
+        summaryCounter.clear();
+        sendAlertSummary();
     }
     
     /**
-     * Envoie un résumé des alertes actuelles pour l'affichage dans l'UI
+     * Demande l'envoi d'un résumé des alertes actuelles pour l'affichage dans l'UI.
+     * L'envoi effectif est regroupé par publishAlertSummary pour limiter le débit.
      */
     public void sendAlertSummary() {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, -1);
-        
-        List<Alert> recentAlerts = alertRepository.findAlertsFromLast24Hours(cal.getTime());
-        
-        Map<String, Long> alertSummary = new HashMap<>();
-        long dangerCount = recentAlerts.stream().filter(a -> "danger".equals(a.getSeverity())).count();
-        long warningCount = recentAlerts.stream().filter(a -> "warning".equals(a.getSeverity())).count();
-        
-        alertSummary.put("danger", dangerCount);
-        alertSummary.put("warning", warningCount);
-        alertSummary.put("total", (long) recentAlerts.size());
-        
-        messagingTemplate.convertAndSend("/topic/alert-summary", alertSummary);
+        summaryDirty.set(true);
+    }
+    
+    /**
+     * Résumé des dernières 24 heures, lu depuis les compteurs en mémoire
+     */
+    public AlertSummaryCounter.AlertSummary getAlertSummary() {
+        return summaryCounter.summarize(System.currentTimeMillis());
+    }
+    
+    /**
+     * Publie au plus un résumé par intervalle, seulement si des alertes ont changé
+     */
+    @Scheduled(fixedDelayString = "${alert.summary.push-interval:1000}")
+    public void publishAlertSummary() {
+        if (summaryDirty.getAndSet(false)) {
+            Map<String, Long> summary = getAlertSummary().toMessage();
+            messagingTemplate.convertAndSend("/topic/alert-summary", summary);
+            dashboardStateService.onAlertSummary(summary);
+        }
     }
 
     private String generateAlertMessage(String parameter, Double value, String severity) {
@@ -0,0 +1,143 @@
+package com.backend.demo.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compteurs d'alertes sur une fenêtre glissante de 24 heures.
+ * Les alertes sont agrégées par minute dans un anneau de 1440 cases,
+ * par sévérité, type et paramètre. Le résumé se lit en parcourant les cases
+ * sans jamais interroger la base de données.
+ */
+@Component
+public class AlertSummaryCounter {
+
+    static final int BUCKETS = 1440;
+    private static final long MINUTE_MS = 60_000L;
+
+    private static final String SEVERITY = "severity:";
+    private static final String TYPE = "type:";
+    private static final String PARAMETER = "parameter:";
+
+    // Minute (epoch) actuellement stockée dans chaque case, -1 si vide
+    private final long[] bucketMinute = new long[BUCKETS];
+    private final long[] totals = new long[BUCKETS];
+    private final Map<String, long[]> countersByKey = new HashMap<>();
+
+    public AlertSummaryCounter() {
+        Arrays.fill(bucketMinute, -1L);
+    }
+
+    public void record(String severity, String type, String parameter, Date timestamp) {
+        add(severity, type, parameter, timestamp, 1);
+    }
+
+    /**
+     * Retire une alerte supprimée, si elle se trouve encore dans la fenêtre
+     */
+    public void remove(String severity, String type, String parameter, Date timestamp) {
+        add(severity, type, parameter, timestamp, -1);
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(bucketMinute, -1L);
+        Arrays.fill(totals, 0L);
+        countersByKey.clear();
+    }
+
+    private synchronized void add(String severity, String type, String parameter, Date timestamp, int delta) {
+        long minute = (timestamp != null ? timestamp.getTime() : System.currentTimeMillis()) / MINUTE_MS;
+        int index = (int) (minute % BUCKETS);
+
+        if (bucketMinute[index] != minute) {
+            if (bucketMinute[index] > minute || delta < 0) {
+                // Alerte plus ancienne que la fenêtre : rien à compter
+                return;
+            }
+            resetBucket(index, minute);
+        }
+
+        totals[index] = Math.max(0, totals[index] + delta);
+        increment(SEVERITY + severity, index, delta);
+        increment(TYPE + type, index, delta);
+        increment(PARAMETER + parameter, index, delta);
+    }
+
+    private void resetBucket(int index, long minute) {
+        bucketMinute[index] = minute;
+        totals[index] = 0;
+        for (long[] counters : countersByKey.values()) {
+            counters[index] = 0;
+        }
+    }
+
+    private void increment(String key, int index, int delta) {
+        long[] counters = countersByKey.computeIfAbsent(key, k -> new long[BUCKETS]);
+        counters[index] = Math.max(0, counters[index] + delta);
+    }
+
+    /**
+     * Résumé des dernières 24 heures : danger, warning et total,
+     * plus le détail par type et par paramètre
+     */
+    public synchronized AlertSummary summarize(long nowMillis) {
+        long oldestMinute = nowMillis / MINUTE_MS - BUCKETS + 1;
+
+        long total = 0;
+        Map<String, Long> bySeverity = new HashMap<>();
+        Map<String, Long> byType = new HashMap<>();
+        Map<String, Long> byParameter = new HashMap<>();
+
+        for (int i = 0; i < BUCKETS; i++) {
+            if (bucketMinute[i] < oldestMinute) {
+                continue;
+            }
+            total += totals[i];
+            for (Map.Entry<String, long[]> entry : countersByKey.entrySet()) {
+                long count = entry.getValue()[i];
+                if (count == 0) {
+                    continue;
+                }
+                String key = entry.getKey();
+                if (key.startsWith(SEVERITY)) {
+                    bySeverity.merge(key.substring(SEVERITY.length()), count, Long::sum);
+                } else if (key.startsWith(TYPE)) {
+                    byType.merge(key.substring(TYPE.length()), count, Long::sum);
+                } else {
+                    byParameter.merge(key.substring(PARAMETER.length()), count, Long::sum);
+                }
+            }
+        }
+
+        return new AlertSummary(total, bySeverity, byType, byParameter);
+    }
+
+    public record AlertSummary(long total,
+                               Map<String, Long> bySeverity,
+                               Map<String, Long> byType,
+                               Map<String, Long> byParameter) {
+
+        public long danger() {
+            return bySeverity.getOrDefault("danger", 0L);
+        }
+
+        public long warning() {
+            return bySeverity.getOrDefault("warning", 0L);
+        }
+
+        /**
+         * Format historique publié sur /topic/alert-summary
+         */
+        public Map<String, Long> toMessage() {
+            Map<String, Long> message = new HashMap<>();
+            message.put("danger", danger());
+            message.put("warning", warning());
+            message.put("total", total);
+            return message;
+        }
+    }
+}
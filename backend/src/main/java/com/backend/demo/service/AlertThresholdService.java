@@ -1,21 +1,58 @@
 package com.backend.demo.service;
 
 import com.backend.demo.entity.AlertThreshold;
+import com.backend.demo.entity.AlertThresholdOverride;
+import com.backend.demo.entity.Capteur;
+import com.backend.demo.repository.AlertThresholdOverrideRepository;
 import com.backend.demo.repository.AlertThresholdRepository;
+import com.backend.demo.repository.CapteurRepository;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Service;
 import java.util.Date;
 import java.util.List;
 
 @Service
+@DependsOn("alertThresholdConfig") // les seuils par défaut doivent exister avant le chargement de la table
 public class AlertThresholdService {
 
     @Autowired
     private AlertThresholdRepository repository;
     
+    @Autowired
+    private AlertThresholdOverrideRepository overrideRepository;
+    
+    @Autowired
+    private CapteurRepository capteurRepository;
+    
+    @Autowired
+    private ThresholdTable thresholdTable;
+    
     @Autowired
     private AlertService alertService;
 
+    /**
+     * Construit la table des seuils résolus : seuils globaux, zones des capteurs, puis surcharges
+     */
+    @PostConstruct
+    public void loadThresholdTable() {
+        thresholdTable.clear();
+        for (AlertThreshold threshold : repository.findAll()) {
+            thresholdTable.setGlobal(threshold.getParameter(),
+                threshold.getWarningThreshold(), threshold.getCriticalThreshold());
+        }
+        for (Capteur capteur : capteurRepository.findAll()) {
+            if (capteur.getZone() != null) {
+                thresholdTable.assignZone(String.valueOf(capteur.getId()), capteur.getZone());
+            }
+        }
+        for (AlertThresholdOverride override : overrideRepository.findAll()) {
+            thresholdTable.setOverride(override.getScope(), override.getScopeKey(), override.getParameter(),
+                override.getWarningThreshold(), override.getCriticalThreshold());
+        }
+    }
+
     public List<AlertThreshold> getAllThresholds() {
         return repository.findAll();
     }
@@ -29,6 +66,8 @@ public class AlertThresholdService {
         existing.setUpdatedAt(new Date());
         
         AlertThreshold updated = repository.save(existing);
+        thresholdTable.setGlobal(updated.getParameter(),
+            updated.getWarningThreshold(), updated.getCriticalThreshold());
         
         // Recalcul des alertes après mise à jour du seuil
         alertService.recalculateAlerts();
@@ -40,4 +79,45 @@ public class AlertThresholdService {
         return repository.findByParameter(parameter)
             .orElseThrow(() -> new RuntimeException("Seuil non trouvé pour le paramètre: " + parameter));
     }
-}
\ No newline at end of file
+    
+    public List<AlertThresholdOverride> getAllOverrides() {
+        return overrideRepository.findAll();
+    }
+    
+    /**
+     * Crée ou remplace la surcharge (zone ou capteur) d'un paramètre
+     *
+     * @throws IllegalArgumentException si la surcharge est incomplète
+     */
+    public AlertThresholdOverride saveOverride(AlertThresholdOverride override) {
+        if (override.getScope() == null || override.getScopeKey() == null || override.getScopeKey().isBlank()
+                || override.getParameter() == null || override.getParameter().isBlank()) {
+            throw new IllegalArgumentException("scope, scopeKey et parameter sont obligatoires");
+        }
+        if (override.getWarningThreshold() == null && override.getCriticalThreshold() == null) {
+            throw new IllegalArgumentException("Au moins un seuil (warning ou critical) est requis");
+        }
+        
+        AlertThresholdOverride existing = overrideRepository.findByScopeAndScopeKeyAndParameter(
+                override.getScope(), override.getScopeKey(), override.getParameter())
+            .orElseGet(AlertThresholdOverride::new);
+        existing.setScope(override.getScope());
+        existing.setScopeKey(override.getScopeKey());
+        existing.setParameter(override.getParameter());
+        existing.setWarningThreshold(override.getWarningThreshold());
+        existing.setCriticalThreshold(override.getCriticalThreshold());
+        existing.setUpdatedAt(new Date());
+        
+        AlertThresholdOverride saved = overrideRepository.save(existing);
+        thresholdTable.setOverride(saved.getScope(), saved.getScopeKey(), saved.getParameter(),
+            saved.getWarningThreshold(), saved.getCriticalThreshold());
+        return saved;
+    }
+    
+    public void deleteOverride(Long id) {
+        AlertThresholdOverride existing = overrideRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Surcharge de seuil non trouvée"));
+        overrideRepository.delete(existing);
+        thresholdTable.removeOverride(existing.getScope(), existing.getScopeKey(), existing.getParameter());
+    }
+}
@@ -3,9 +3,12 @@ package com.backend.demo.service;
 import com.backend.demo.dto.CapteurRequest;
 import com.backend.demo.dto.CapteurResponse;
 import com.backend.demo.entity.Capteur;
+import com.backend.demo.entity.ThresholdScope;
+import com.backend.demo.repository.AlertThresholdOverrideRepository;
 import com.backend.demo.repository.CapteurRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -18,14 +21,22 @@ public class CapteurService {
     @Autowired
     private CapteurRepository capteurRepository;
     
+    @Autowired
+    private AlertThresholdOverrideRepository overrideRepository;
+    
+    @Autowired
+    private ThresholdTable thresholdTable;
+    
     public CapteurResponse createCapteur(CapteurRequest request) {
         Capteur capteur = new Capteur();
         capteur.setNom(request.getNom());
         capteur.setType(request.getType());
         capteur.setLocalisation(request.getLocalisation());
+        capteur.setZone(request.getZone());
         capteur.setStatut(request.getStatut());
         
         capteur = capteurRepository.save(capteur);
+        thresholdTable.assignZone(String.valueOf(capteur.getId()), capteur.getZone());
         return CapteurResponse.fromCapteur(capteur);
     }
     
@@ -48,18 +59,27 @@ public class CapteurService {
         capteur.setNom(request.getNom());
         capteur.setType(request.getType());
         capteur.setLocalisation(request.getLocalisation());
+        capteur.setZone(request.getZone());
         capteur.setStatut(request.getStatut());
         capteur.setDerniereModification(LocalDateTime.now());
         
         capteur = capteurRepository.save(capteur);
+        thresholdTable.assignZone(String.valueOf(capteur.getId()), capteur.getZone());
         return CapteurResponse.fromCapteur(capteur);
     }
     
+    /**
+     * Supprime le capteur avec ses surcharges de seuils : un capteur qui reprendrait l'ID n'en hérite pas
+     */
+    @Transactional
     public void deleteCapteur(Long id) {
         if (!capteurRepository.existsById(id)) {
             throw new RuntimeException("Capteur non trouvé avec l'ID: " + id);
         }
+        String sensorKey = String.valueOf(id);
+        overrideRepository.deleteByScopeAndScopeKey(ThresholdScope.SENSOR, sensorKey);
         capteurRepository.deleteById(id);
+        thresholdTable.removeSensor(sensorKey);
     }
     
     public void generateRandomData(Long capteurId) {
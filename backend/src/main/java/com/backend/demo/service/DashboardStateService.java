@@ -0,0 +1,75 @@
+package com.backend.demo.service;
+
+import com.backend.demo.mqtt.AirQualityData;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Synchronisation par deltas de l'état des tableaux de bord sur STOMP.
+ *
+ * Protocole : le client s'abonne à la destination de deltas (/topic/.../state), puis à
+ * /app/.../state qui lui renvoie un instantané complet avec son numéro de séquence.
+ * Il ignore les deltas de séquence inférieure ou égale à l'instantané et se
+ * resynchronise (nouvel abonnement à /app/.../state) s'il manque une séquence.
+ * Les flux complets existants (/topic/airquality, /topic/alert-summary) sont conservés.
+ */
+@Service
+public class DashboardStateService {
+
+    public static final String AIR_QUALITY_DELTAS = "/topic/airquality/state";
+    public static final String ALERT_SUMMARY_DELTAS = "/topic/alert-summary/state";
+    static final String SUMMARY_KEY = "summary";
+
+    private final PreEncodedBroadcaster broadcaster;
+    private final StateSync airQualityState = new StateSync();
+    private final StateSync alertSummaryState = new StateSync();
+
+    public DashboardStateService(PreEncodedBroadcaster broadcaster) {
+        this.broadcaster = broadcaster;
+    }
+
+    public void onReading(String sensorKey, AirQualityData data) {
+        airQualityState.update(sensorKey, fieldsOf(data));
+    }
+
+    public void onAlertSummary(Map<String, Long> summary) {
+        alertSummaryState.update(SUMMARY_KEY, summary);
+    }
+
+    public StateSync.StateMessage getAirQualitySnapshot() {
+        return airQualityState.snapshot();
+    }
+
+    public StateSync.StateMessage getAlertSummarySnapshot() {
+        return alertSummaryState.snapshot();
+    }
+
+    /**
+     * Publie un delta par état modifié depuis le dernier tick
+     */
+    @Scheduled(fixedDelayString = "${dashboard.state.flush-interval:500}")
+    public void publishDeltas() {
+        publish(AIR_QUALITY_DELTAS, airQualityState.drainDelta());
+        publish(ALERT_SUMMARY_DELTAS, alertSummaryState.drainDelta());
+    }
+
+    private void publish(String destination, StateSync.StateMessage delta) {
+        if (delta != null) {
+            broadcaster.send(destination, broadcaster.encode(delta));
+        }
+    }
+
+    static Map<String, Object> fieldsOf(AirQualityData data) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("pm25", data.getPm25());
+        fields.put("pm10", data.getPm10());
+        fields.put("no2", data.getNo2());
+        fields.put("o3", data.getO3());
+        fields.put("co", data.getCo());
+        fields.put("aqi", data.getAqi());
+        return fields;
+    }
+}
@@ -0,0 +1,218 @@
+package com.backend.demo.service;
+
+import com.backend.demo.mqtt.AirQualityBroadcaster;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Conflation par session du flux /topic/airquality, sur le canal sortant vers les clients.
+ * Chaque session reçoit au plus max-rate mises à jour par seconde et par capteur :
+ * une lecture arrivée trop tôt remplace la précédente en attente, et les sessions
+ * ayant des lectures en attente sont vidées par un timer. La file d'une session est donc
+ * bornée par son nombre d'abonnements × capteurs, quelle que soit sa lenteur.
+ * Les sessions signalées lentes par SlowConsumerMonitor passent à degraded-rate.
+ */
+@Component
+public class FeedConflationInterceptor implements ChannelInterceptor {
+
+    private final long minIntervalMs;
+    private final long degradedIntervalMs;
+    private final SlowConsumerMonitor slowConsumerMonitor;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, SessionFeed> sessions = new ConcurrentHashMap<>();
+    private final Set<String> dirtySessions = ConcurrentHashMap.newKeySet();
+    // Les envois du timer repassent par ce canal sans être interceptés
+    private final ThreadLocal<Boolean> flushing = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    private final Counter deliveredCounter;
+    private final Counter conflatedCounter;
+
+    private volatile MessageChannel outboundChannel;
+
+    /**
+     * Dernier envoi et lecture en attente par clé (abonnement + capteur) d'une session
+     */
+    private static final class SessionFeed {
+        final Map<String, Long> lastSent = new HashMap<>();
+        final Map<String, Message<?>> pending = new LinkedHashMap<>();
+    }
+
+    public FeedConflationInterceptor(MeterRegistry meterRegistry,
+                                     SlowConsumerMonitor slowConsumerMonitor,
+                                     @Value("${airquality.feed.max-rate:2}") double maxRatePerSecond,
+                                     @Value("${airquality.feed.degraded-rate:0.2}") double degradedRatePerSecond) {
+        this.slowConsumerMonitor = slowConsumerMonitor;
+        this.meterRegistry = meterRegistry;
+        this.minIntervalMs = (long) Math.ceil(1000.0 / maxRatePerSecond);
+        this.degradedIntervalMs = Math.max(minIntervalMs, (long) Math.ceil(1000.0 / degradedRatePerSecond));
+        this.deliveredCounter = Counter.builder("airquality.feed.delivered")
+                .description("Lectures envoyées aux sessions WebSocket")
+                .register(meterRegistry);
+        this.conflatedCounter = Counter.builder("airquality.feed.conflated")
+                .description("Lectures remplacées par une plus récente avant envoi")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void registerMeters() {
+        meterRegistry.gauge("airquality.feed.pending", this, FeedConflationInterceptor::getPendingCount);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (flushing.get()
+                || SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE
+                || !AirQualityBroadcaster.DESTINATION.equals(SimpMessageHeaderAccessor.getDestination(message.getHeaders()))) {
+            return message;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null) {
+            return message;
+        }
+        outboundChannel = channel;
+
+        String key = SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders()) + "|" + sensorOf(message);
+        SessionFeed feed = sessions.computeIfAbsent(sessionId, id -> new SessionFeed());
+        long now = System.currentTimeMillis();
+        long interval = intervalFor(sessionId);
+        synchronized (feed) {
+            Long last = feed.lastSent.get(key);
+            if (!feed.pending.containsKey(key) && (last == null || now - last >= interval)) {
+                feed.lastSent.put(key, now);
+                deliveredCounter.increment();
+                return message;
+            }
+            if (feed.pending.put(key, message) != null) {
+                conflatedCounter.increment();
+            }
+        }
+        dirtySessions.add(sessionId);
+        return null;
+    }
+
+    /**
+     * Envoie, pour chaque session en attente, les dernières lectures dont l'intervalle est écoulé
+     */
+    @Scheduled(fixedDelayString = "${airquality.feed.flush-interval:100}")
+    public void flush() {
+        MessageChannel channel = outboundChannel;
+        if (channel == null || dirtySessions.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (String sessionId : new ArrayList<>(dirtySessions)) {
+            dirtySessions.remove(sessionId);
+            SessionFeed feed = sessions.get(sessionId);
+            if (feed == null) {
+                continue;
+            }
+            List<Message<?>> ready = new ArrayList<>();
+            long interval = intervalFor(sessionId);
+            boolean stillPending;
+            synchronized (feed) {
+                Iterator<Map.Entry<String, Message<?>>> it = feed.pending.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<String, Message<?>> entry = it.next();
+                    Long last = feed.lastSent.get(entry.getKey());
+                    if (last == null || now - last >= interval) {
+                        ready.add(entry.getValue());
+                        feed.lastSent.put(entry.getKey(), now);
+                        it.remove();
+                    }
+                }
+                stillPending = !feed.pending.isEmpty();
+            }
+            if (stillPending) {
+                dirtySessions.add(sessionId);
+            }
+            send(channel, ready);
+        }
+    }
+
+    private long intervalFor(String sessionId) {
+        return slowConsumerMonitor.isDegraded(sessionId) ? degradedIntervalMs : minIntervalMs;
+    }
+
+    private void send(MessageChannel channel, List<Message<?>> messages) {
+        flushing.set(Boolean.TRUE);
+        try {
+            for (Message<?> message : messages) {
+                channel.send(message);
+                deliveredCounter.increment();
+            }
+        } finally {
+            flushing.set(Boolean.FALSE);
+        }
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        sessions.remove(event.getSessionId());
+        dirtySessions.remove(event.getSessionId());
+    }
+
+    /**
+     * Oublie les lectures en attente et les derniers envois d'un abonnement résilié
+     */
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        unsubscribe(accessor.getSessionId(), accessor.getSubscriptionId());
+    }
+
+    void unsubscribe(String sessionId, String subscriptionId) {
+        if (sessionId == null || subscriptionId == null) {
+            return;
+        }
+        SessionFeed feed = sessions.get(sessionId);
+        if (feed == null) {
+            return;
+        }
+        String prefix = subscriptionId + "|";
+        synchronized (feed) {
+            feed.pending.keySet().removeIf(key -> key.startsWith(prefix));
+            feed.lastSent.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    public int getPendingCount() {
+        int count = 0;
+        for (SessionFeed feed : sessions.values()) {
+            synchronized (feed) {
+                count += feed.pending.size();
+            }
+        }
+        return count;
+    }
+
+    private static String sensorOf(Message<?> message) {
+        SimpMessageHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, SimpMessageHeaderAccessor.class);
+        if (accessor == null) {
+            accessor = SimpMessageHeaderAccessor.wrap(message);
+        }
+        String sensor = accessor.getFirstNativeHeader(AirQualityBroadcaster.SENSOR_HEADER);
+        return sensor != null ? sensor : "";
+    }
+}
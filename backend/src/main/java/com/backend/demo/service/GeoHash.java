@@ -0,0 +1,61 @@
+package com.backend.demo.service;
+
+/**
+ * Géohash des coordonnées : la cellule de précision donnée qui contient un point, et son centre.
+ * Précision 5 : cellule d'environ 4,9 × 4,9 km, 6 : 1,2 × 0,6 km, 7 : 153 × 153 m.
+ */
+public final class GeoHash {
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    /**
+     * Cellule géohash : son code et les coordonnées de son centre
+     */
+    public record Cell(String hash, double lat, double lon) {
+    }
+
+    private GeoHash() {
+    }
+
+    public static Cell snap(double lat, double lon, int precision) {
+        if (precision < 1 || precision > 12) {
+            throw new IllegalArgumentException("Précision géohash hors limites (1 à 12) : " + precision);
+        }
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+            throw new IllegalArgumentException("Coordonnées invalides : " + lat + ", " + lon);
+        }
+        double minLat = -90, maxLat = 90, minLon = -180, maxLon = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean even = true;
+        int bits = 0, value = 0;
+        // Bits alternés longitude / latitude, regroupés par 5 en caractères base 32
+        while (hash.length() < precision) {
+            if (even) {
+                double mid = (minLon + maxLon) / 2;
+                if (lon >= mid) {
+                    value = value << 1 | 1;
+                    minLon = mid;
+                } else {
+                    value <<= 1;
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (lat >= mid) {
+                    value = value << 1 | 1;
+                    minLat = mid;
+                } else {
+                    value <<= 1;
+                    maxLat = mid;
+                }
+            }
+            even = !even;
+            if (++bits == 5) {
+                hash.append(BASE32[value]);
+                bits = 0;
+                value = 0;
+            }
+        }
+        return new Cell(hash.toString(), (minLat + maxLat) / 2, (minLon + maxLon) / 2);
+    }
+}
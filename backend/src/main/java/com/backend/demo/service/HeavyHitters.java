@@ -0,0 +1,91 @@
+package com.backend.demo.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Éléments les plus fréquents d'un flux, en mémoire bornée : sketch count-min (depth × width compteurs,
+ * estimation jamais inférieure au vrai nombre) et top-K des estimations les plus élevées.
+ * decay() divise tous les compteurs par deux, pour suivre la popularité récente.
+ */
+public class HeavyHitters {
+
+    /**
+     * Élément du top-K et son nombre d'occurrences estimé
+     */
+    public record Item(String key, long count) {
+    }
+
+    private final long[][] counts;
+    private final int width;
+    private final int capacity;
+    private final Map<String, Long> top = new HashMap<>();
+
+    public HeavyHitters(int capacity, int depth, int width) {
+        if (capacity < 1 || depth < 1 || width < 1) {
+            throw new IllegalArgumentException("Dimensions du sketch invalides");
+        }
+        this.capacity = capacity;
+        this.width = width;
+        this.counts = new long[depth][width];
+    }
+
+    public synchronized void add(String key) {
+        long hash = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < counts.length; row++) {
+            int column = column(hash, row);
+            estimate = Math.min(estimate, ++counts[row][column]);
+        }
+        if (top.containsKey(key) || top.size() < capacity) {
+            top.put(key, estimate);
+            return;
+        }
+        Map.Entry<String, Long> weakest = top.entrySet().stream().min(Map.Entry.comparingByValue()).orElseThrow();
+        if (estimate > weakest.getValue()) {
+            top.remove(weakest.getKey());
+            top.put(key, estimate);
+        }
+    }
+
+    public synchronized long estimate(String key) {
+        long hash = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < counts.length; row++) {
+            estimate = Math.min(estimate, counts[row][column(hash, row)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Top-K par estimation décroissante
+     */
+    public synchronized List<Item> top() {
+        List<Item> items = new ArrayList<>(top.size());
+        top.forEach((key, count) -> items.add(new Item(key, count)));
+        items.sort(Comparator.comparingLong(Item::count).reversed().thenComparing(Item::key));
+        return items;
+    }
+
+    public synchronized void decay() {
+        for (long[] row : counts) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>= 1;
+            }
+        }
+        top.replaceAll((key, count) -> count >> 1);
+        top.values().removeIf(count -> count == 0);
+    }
+
+    // Une fonction de hachage par ligne : hachage de la clé mélangé avec un multiplicateur propre à la ligne
+    private int column(long hash, int row) {
+        long mixed = (hash + row) * 0x9E3779B97F4A7C15L;
+        mixed ^= mixed >>> 31;
+        mixed *= 0xBF58476D1CE4E5B9L;
+        mixed ^= mixed >>> 29;
+        return (int) Math.floorMod(mixed, (long) width);
+    }
+}
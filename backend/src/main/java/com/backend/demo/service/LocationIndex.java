@@ -0,0 +1,197 @@
+package com.backend.demo.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Index local des lieux déjà résolus par le géocodage OpenWeather, pour l'autocomplétion :
+ * une recherche est servie depuis l'index quand il connaît un lieu de ce nom exact ou remplit
+ * une page entière ; sinon l'API est appelée et ses lieux sont indexés. Clés triées (nom replié : sans accents, minuscules, tirets en espaces),
+ * chaque lieu est indexé sous son nom et sous son nom français s'il diffère.
+ * L'index est enregistré sur disque (weather.geocoding.index-file) et rechargé au démarrage.
+ */
+@Component
+public class LocationIndex {
+    private static final Logger logger = LoggerFactory.getLogger(LocationIndex.class);
+    private static final char SEPARATOR = '\u0000';
+
+    /**
+     * Lieu renvoyé par /api/weather/search, mêmes champs que la réponse de géocodage OpenWeather
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Location(String name, double lat, double lon, String country, String state) {
+    }
+
+    // Clé : nom replié + séparateur + coordonnées, pour distinguer les homonymes
+    private final ConcurrentSkipListMap<String, Location> entries = new ConcurrentSkipListMap<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final AtomicBoolean fullLogged = new AtomicBoolean();
+    private final Path file;
+    private final int maxEntries;
+    private final Counter hits;
+    private final Counter misses;
+
+    public LocationIndex(MeterRegistry meterRegistry,
+                         @Value("${weather.geocoding.index-file:data/location-index.json}") String file,
+                         @Value("${weather.geocoding.max-entries:50000}") int maxEntries) {
+        this.file = Paths.get(file);
+        this.maxEntries = maxEntries;
+        this.hits = Counter.builder("weather.geocoding.lookups")
+                .description("Recherches de lieux servies par l'index local ou par l'API")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("weather.geocoding.lookups")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("weather.geocoding.index.size", entries, Map::size)
+                .description("Entrées de l'index local des lieux")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            entries.putAll(objectMapper.readValue(file.toFile(), new TypeReference<Map<String, Location>>() {
+            }));
+            logger.info("Index des lieux chargé : {} entrées depuis {}", entries.size(), file);
+        } catch (IOException e) {
+            logger.warn("Index des lieux illisible ({}), démarrage à vide : {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Lieux pour l'autocomplétion si l'index suffit à répondre : un lieu porte exactement ce nom,
+     * ou la recherche par préfixe remplit limit lieux. Sinon liste vide et l'appelant interroge l'API :
+     * un préfixe déjà indexé ("Par" pour Paris) ne doit pas masquer "Parma" ou "Paramaribo".
+     */
+    public List<Location> lookup(String query, int limit) {
+        List<Location> result = search(query, limit);
+        String prefix = fold(query) + SEPARATOR;
+        String first = entries.ceilingKey(prefix);
+        boolean exact = first != null && first.startsWith(prefix);
+        if (result.isEmpty() || (!exact && result.size() < limit)) {
+            misses.increment();
+            return List.of();
+        }
+        hits.increment();
+        return result;
+    }
+
+    /**
+     * Lieux dont le nom commence par la requête : correspondances exactes d'abord, puis ordre alphabétique
+     */
+    public List<Location> search(String query, int limit) {
+        String prefix = fold(query);
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        // Le séparateur précède tout caractère : les correspondances exactes viennent en tête de la plage
+        NavigableMap<String, Location> range = entries.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        List<Location> result = new ArrayList<>(limit);
+        Set<Location> seen = new HashSet<>();
+        for (Location location : range.values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (seen.add(location)) {
+                result.add(location);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Ajoute les lieux d'une réponse de géocodage OpenWeather (/geo/1.0/direct)
+     */
+    @SuppressWarnings("unchecked")
+    public void addAll(Object[] locations) {
+        for (Object item : locations) {
+            if (!(item instanceof Map<?, ?> map) || !(map.get("name") instanceof String name)
+                    || !(map.get("lat") instanceof Number lat) || !(map.get("lon") instanceof Number lon)) {
+                continue;
+            }
+            Location location = new Location(name, lat.doubleValue(), lon.doubleValue(),
+                    (String) map.get("country"), (String) map.get("state"));
+            add(name, location);
+            Map<String, Object> localNames = (Map<String, Object>) map.get("local_names");
+            if (localNames != null && localNames.get("fr") instanceof String frenchName) {
+                add(frenchName, location);
+            }
+        }
+    }
+
+    private void add(String term, Location location) {
+        if (entries.size() >= maxEntries) {
+            if (fullLogged.compareAndSet(false, true)) {
+                logger.warn("Index des lieux plein ({} entrées), nouveaux lieux non indexés", maxEntries);
+            }
+            return;
+        }
+        String key = fold(term) + SEPARATOR + WeatherResponseCache.key(location.lat(), location.lon());
+        if (entries.putIfAbsent(key, location) == null) {
+            dirty.set(true);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Enregistre l'index s'il a changé (écriture dans un fichier temporaire puis remplacement)
+     */
+    @Scheduled(fixedDelayString = "${weather.geocoding.flush-interval:60000}")
+    public void flush() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tmp = Files.createTempFile(parent, "location-index", ".tmp");
+            objectMapper.writeValue(tmp.toFile(), entries);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty.set(true);
+            logger.warn("Enregistrement de l'index des lieux impossible ({}) : {}", file, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static String fold(String term) {
+        return WeatherResponseCache.key(term.replace('-', ' '));
+    }
+}
@@ -0,0 +1,151 @@
+package com.backend.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Négociation d'un encodage binaire (CBOR) des messages STOMP.
+ *
+ * Seules les connexions WebSocket directes (endpoint /ws-mqtt-binary, sans SockJS) peuvent
+ * recevoir des trames binaires. Sur cet endpoint, CBOR est l'encodage par défaut ; le client
+ * peut demander JSON avec l'en-tête payload-encoding: json au CONNECT.
+ * Les contenus diffusés par PreEncodedBroadcaster portent leur version CBOR, encodée une
+ * seule fois pour toutes les sessions ; les autres messages (réponses d'abonnement,
+ * notifications) sont transcodés depuis le JSON pour chaque session CBOR.
+ * Les trames CBOR sont envoyées en application/octet-stream (condition de Spring pour
+ * une trame binaire) avec l'en-tête payload-encoding: cbor.
+ * Les deux encodages partent du Jackson2ObjectMapperBuilder de Spring Boot, pour suivre
+ * la configuration spring.jackson.* (dates ISO-8601, fuseau UTC) comme les réponses HTTP.
+ */
+@Component
+public class PayloadEncodingInterceptor implements ChannelInterceptor, HandshakeInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayloadEncodingInterceptor.class);
+
+    public static final String ENCODING_HEADER = "payload-encoding";
+    public static final String CBOR = "cbor";
+    public static final String JSON = "json";
+    // Attribut de session posé à la poignée de main de l'endpoint binaire
+    public static final String BINARY_ENDPOINT_ATTRIBUTE = "binaryEndpoint";
+    // En-tête interne (non transmis aux clients) portant la version CBOR du contenu
+    public static final String CBOR_PAYLOAD_HEADER = "cborPayload";
+
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper cborMapper;
+    private final Set<String> cborSessions = ConcurrentHashMap.newKeySet();
+
+    public PayloadEncodingInterceptor(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        this.jsonMapper = objectMapperBuilder.build();
+        this.cborMapper = objectMapperBuilder.factory(new CBORFactory()).build();
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        attributes.put(BINARY_ENDPOINT_ATTRIBUTE, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        if (type == SimpMessageType.CONNECT) {
+            negotiate(message);
+            return message;
+        }
+        if (type != SimpMessageType.MESSAGE || !isCbor(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()))) {
+            return message;
+        }
+        try {
+            byte[] cbor = message.getHeaders().get(CBOR_PAYLOAD_HEADER, byte[].class);
+            if (cbor == null) {
+                cbor = transcode(message);
+            }
+            if (cbor == null) {
+                return message;
+            }
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+            accessor.removeHeader(CBOR_PAYLOAD_HEADER);
+            accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+            accessor.setNativeHeader(ENCODING_HEADER, CBOR);
+            return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+        } catch (IOException e) {
+            logger.warn("Transcodage CBOR impossible, envoi en JSON: {}", e.getMessage());
+            return message;
+        }
+    }
+
+    private void negotiate(Message<?> message) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        boolean binaryEndpoint = attributes != null && Boolean.TRUE.equals(attributes.get(BINARY_ENDPOINT_ATTRIBUTE));
+        String requested = accessor.getFirstNativeHeader(ENCODING_HEADER);
+        if (binaryEndpoint && !JSON.equalsIgnoreCase(requested)) {
+            cborSessions.add(accessor.getSessionId());
+        } else if (CBOR.equalsIgnoreCase(requested)) {
+            logger.debug("Encodage CBOR refusé pour la session {} : endpoint sans trames binaires", accessor.getSessionId());
+        }
+    }
+
+    /**
+     * Version CBOR d'un message JSON (contenus non pré-encodés)
+     */
+    private byte[] transcode(Message<?> message) throws IOException {
+        MimeType contentType = message.getHeaders().get(MessageHeaders.CONTENT_TYPE, MimeType.class);
+        if (!(message.getPayload() instanceof byte[] json) || json.length == 0
+                || contentType == null || !MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(contentType)) {
+            return null;
+        }
+        return cborMapper.writeValueAsBytes(jsonMapper.readTree(json));
+    }
+
+    public byte[] toCbor(Object payload) {
+        try {
+            return cborMapper.writeValueAsBytes(payload);
+        } catch (IOException e) {
+            throw new IllegalStateException("Impossible d'encoder " + payload.getClass().getSimpleName() + " en CBOR", e);
+        }
+    }
+
+    public boolean hasCborSessions() {
+        return !cborSessions.isEmpty();
+    }
+
+    public boolean isCbor(String sessionId) {
+        return sessionId != null && cborSessions.contains(sessionId);
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        cborSessions.remove(event.getSessionId());
+    }
+}
@@ -0,0 +1,92 @@
+package com.backend.demo.service;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.util.Map;
+
+/**
+ * Diffusion STOMP d'un contenu sérialisé une seule fois.
+ * L'objet passe une fois par le convertisseur du broker (même JSON que convertAndSend),
+ * puis le tableau d'octets obtenu est réutilisé tel quel pour chaque destination.
+ * Si des sessions ont négocié CBOR, la version CBOR est encodée une fois elle aussi
+ * et accompagne le message (voir PayloadEncodingInterceptor).
+ */
+@Component
+public class PreEncodedBroadcaster {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PayloadEncodingInterceptor payloadEncodings;
+
+    public PreEncodedBroadcaster(SimpMessagingTemplate messagingTemplate, PayloadEncodingInterceptor payloadEncodings) {
+        this.messagingTemplate = messagingTemplate;
+        this.payloadEncodings = payloadEncodings;
+    }
+
+    /**
+     * Contenu déjà encodé, réutilisable pour plusieurs envois ; cbor est null
+     * si aucune session ne l'a négocié au moment de l'encodage
+     */
+    public record EncodedPayload(byte[] bytes, MimeType contentType, byte[] cbor) {
+        public EncodedPayload(byte[] bytes, MimeType contentType) {
+            this(bytes, contentType, null);
+        }
+    }
+
+    public EncodedPayload encode(Object payload) {
+        Message<?> message = messagingTemplate.getMessageConverter().toMessage(payload, null);
+        if (message == null || !(message.getPayload() instanceof byte[] bytes)) {
+            throw new IllegalStateException("Impossible d'encoder " + payload.getClass().getSimpleName());
+        }
+        byte[] cbor = payloadEncodings.hasCborSessions() ? payloadEncodings.toCbor(payload) : null;
+        return new EncodedPayload(bytes, message.getHeaders().get(MessageHeaders.CONTENT_TYPE, MimeType.class), cbor);
+    }
+
+    public void send(String destination, EncodedPayload payload) {
+        send(destination, payload, Map.of());
+    }
+
+    /**
+     * Envoie le contenu encodé ; les en-têtes natifs sont transmis aux clients
+     * et peuvent servir de filtre côté broker (en-tête "selector" à l'abonnement)
+     */
+    public void send(String destination, EncodedPayload payload, Map<String, String> nativeHeaders) {
+        SimpMessageHeaderAccessor accessor = createHeaders(payload, nativeHeaders);
+        accessor.setLeaveMutable(true);
+        messagingTemplate.send(destination, MessageBuilder.createMessage(payload.bytes(), accessor.getMessageHeaders()));
+    }
+
+    /**
+     * Envoie le contenu encodé à un seul abonnement, directement sur le canal sortant
+     * (sans passer par le broker), comme une trame MESSAGE de cet abonnement
+     */
+    public void sendToSubscriber(MessageChannel clientOutboundChannel, String sessionId, String subscriptionId,
+                                 String destination, EncodedPayload payload, Map<String, String> nativeHeaders) {
+        SimpMessageHeaderAccessor accessor = createHeaders(payload, nativeHeaders);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        clientOutboundChannel.send(MessageBuilder.createMessage(payload.bytes(), accessor.getMessageHeaders()));
+    }
+
+    private static SimpMessageHeaderAccessor createHeaders(EncodedPayload payload, Map<String, String> nativeHeaders) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(payload.contentType());
+        if (payload.cbor() != null) {
+            accessor.setHeader(PayloadEncodingInterceptor.CBOR_PAYLOAD_HEADER, payload.cbor());
+        }
+        nativeHeaders.forEach((name, value) -> {
+            if (value != null) {
+                accessor.setNativeHeader(name, value);
+            }
+        });
+        return accessor;
+    }
+}
@@ -0,0 +1,263 @@
+package com.backend.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Détection des consommateurs lents sur les sessions STOMP.
+ *
+ * Une session est lente si son retard (messages remis à son émetteur par le canal sortant
+ * mais pas encore écrits sur sa connexion) dépasse degrade-backlog, ou si l'écriture de ses
+ * trames occupe plus de max-write-share du temps d'un thread du canal sortant, partagé par
+ * toutes les sessions. Une session lente est d'abord dégradée (flux temps réel conflaté
+ * à un débit réduit, voir FeedConflationInterceptor), puis fermée si elle l'est encore après
+ * evict-after ou si son retard atteint evict-backlog. Les limites de Spring (temps d'envoi,
+ * taille du tampon) restent le dernier garde-fou.
+ */
+@Component
+public class SlowConsumerMonitor implements ExecutorChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowConsumerMonitor.class);
+    private static final byte[] MESSAGE_COMMAND = "MESSAGE".getBytes(StandardCharsets.US_ASCII);
+
+    private final Map<String, TrackedSession> sessions = new ConcurrentHashMap<>();
+    private final ObjectProvider<ThreadPoolTaskExecutor> outboundExecutor;
+    private final MeterRegistry meterRegistry;
+    private final Counter evictedCounter;
+    private final int degradeBacklog;
+    private final double maxWriteShare;
+    private final int evictBacklog;
+    private final long evictAfterMs;
+
+    public SlowConsumerMonitor(MeterRegistry meterRegistry,
+                               @Qualifier("clientOutboundChannelExecutor") ObjectProvider<ThreadPoolTaskExecutor> outboundExecutor,
+                               @Value("${websocket.slow-consumer.degrade-backlog:50}") int degradeBacklog,
+                               @Value("${websocket.slow-consumer.max-write-share:0.5}") double maxWriteShare,
+                               @Value("${websocket.slow-consumer.evict-backlog:500}") int evictBacklog,
+                               @Value("${websocket.slow-consumer.evict-after:5000}") long evictAfterMs) {
+        this.outboundExecutor = outboundExecutor;
+        this.meterRegistry = meterRegistry;
+        this.degradeBacklog = degradeBacklog;
+        this.maxWriteShare = maxWriteShare;
+        this.evictBacklog = evictBacklog;
+        this.evictAfterMs = evictAfterMs;
+        this.evictedCounter = Counter.builder("websocket.sessions.evicted")
+                .description("Sessions fermées parce qu'elles ne suivaient pas le débit")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void registerMeters() {
+        meterRegistry.gauge("websocket.sessions.backlog.total", this, m -> m.getBacklogStats()[0]);
+        meterRegistry.gauge("websocket.sessions.backlog.max", this, m -> m.getBacklogStats()[1]);
+        meterRegistry.gauge("websocket.sessions.degraded", this, SlowConsumerMonitor::getDegradedCount);
+        meterRegistry.gauge("websocket.outbound.utilization", this, SlowConsumerMonitor::getOutboundUtilization);
+        meterRegistry.gauge("websocket.outbound.queued", this, SlowConsumerMonitor::getOutboundQueued);
+    }
+
+    /**
+     * Session suivie : messages remis et écrits, temps cumulé d'écriture, état de dégradation
+     */
+    static final class TrackedSession extends WebSocketSessionDecorator {
+        final AtomicLong dispatched = new AtomicLong();
+        final AtomicLong sent = new AtomicLong();
+        final AtomicLong writeNanos = new AtomicLong();
+        // Accédés uniquement par checkSessions
+        long lastCheckNanos = System.nanoTime();
+        long lastWriteNanos;
+        long degradedSince;
+        volatile boolean degraded;
+        volatile boolean evicting;
+
+        TrackedSession(WebSocketSession session) {
+            super(session);
+        }
+
+        long getBacklog() {
+            return Math.max(0, dispatched.get() - sent.get());
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            long start = System.nanoTime();
+            try {
+                super.sendMessage(message);
+            } finally {
+                writeNanos.addAndGet(System.nanoTime() - start);
+                // Seules les trames MESSAGE (texte ou binaires) correspondent aux messages comptés à la remise
+                if (isMessageFrame(message)) {
+                    sent.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static boolean isMessageFrame(WebSocketMessage<?> message) {
+        if (message instanceof TextMessage text) {
+            return text.getPayload().startsWith("MESSAGE");
+        }
+        if (message instanceof BinaryMessage binary) {
+            ByteBuffer frame = binary.getPayload();
+            return frame.remaining() >= MESSAGE_COMMAND.length
+                    && frame.slice(frame.position(), MESSAGE_COMMAND.length).equals(ByteBuffer.wrap(MESSAGE_COMMAND));
+        }
+        return false;
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                TrackedSession tracked = new TrackedSession(session);
+                sessions.put(session.getId(), tracked);
+                super.afterConnectionEstablished(tracked);
+            }
+
+            @Override
+            public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+                TrackedSession tracked = sessions.get(session.getId());
+                super.handleMessage(tracked != null ? tracked : session, message);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                TrackedSession tracked = sessions.remove(session.getId());
+                if (tracked != null && (tracked.evicting || CloseStatus.SESSION_NOT_RELIABLE.equals(closeStatus))) {
+                    evictedCounter.increment();
+                }
+                super.afterConnectionClosed(tracked != null ? tracked : session, closeStatus);
+            }
+        };
+    }
+
+    /**
+     * Compté sur le thread du canal sortant, juste avant la remise à la session :
+     * la file de l'exécuteur n'entre pas dans le retard de la session
+     */
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId != null && SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+            TrackedSession tracked = sessions.get(sessionId);
+            if (tracked != null) {
+                tracked.dispatched.incrementAndGet();
+            }
+        }
+        return message;
+    }
+
+    public boolean isDegraded(String sessionId) {
+        TrackedSession tracked = sessionId != null ? sessions.get(sessionId) : null;
+        return tracked != null && tracked.degraded;
+    }
+
+    /**
+     * Dégrade, rétablit ou ferme les sessions selon leur retard et leur temps d'écriture
+     */
+    @Scheduled(fixedDelayString = "${websocket.slow-consumer.check-interval:500}")
+    public synchronized void checkSessions() {
+        long now = System.nanoTime();
+        for (TrackedSession tracked : sessions.values()) {
+            long backlog = tracked.getBacklog();
+            long writeNanos = tracked.writeNanos.get();
+            // Une écriture est comptée à sa fin, éventuellement sur l'intervalle suivant
+            double writeShare = Math.min(1.0,
+                    (double) (writeNanos - tracked.lastWriteNanos) / Math.max(1, now - tracked.lastCheckNanos));
+            tracked.lastWriteNanos = writeNanos;
+            tracked.lastCheckNanos = now;
+            boolean slow = backlog >= degradeBacklog || writeShare >= maxWriteShare;
+
+            if (tracked.evicting) {
+                continue;
+            }
+            if (backlog >= evictBacklog
+                    || (slow && tracked.degraded && now - tracked.degradedSince >= evictAfterMs * 1_000_000)) {
+                evict(tracked, backlog, writeShare);
+            } else if (slow && !tracked.degraded) {
+                tracked.degraded = true;
+                tracked.degradedSince = now;
+                logger.info("Session WebSocket {} lente ({} messages en retard, écriture {}% du temps), flux conflaté",
+                        tracked.getId(), backlog, Math.round(writeShare * 100));
+            } else if (tracked.degraded && backlog <= degradeBacklog / 4 && writeShare < maxWriteShare / 2) {
+                tracked.degraded = false;
+            }
+        }
+    }
+
+    private void evict(TrackedSession tracked, long backlog, double writeShare) {
+        tracked.evicting = true;
+        logger.warn("Session WebSocket {} fermée : {} messages en retard, écriture {}% du temps",
+                tracked.getId(), backlog, Math.round(writeShare * 100));
+        try {
+            tracked.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            logger.debug("Erreur à la fermeture de la session {}: {}", tracked.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * {retard total, retard maximal} sur l'ensemble des sessions
+     */
+    public long[] getBacklogStats() {
+        long total = 0;
+        long max = 0;
+        for (TrackedSession tracked : sessions.values()) {
+            long backlog = tracked.getBacklog();
+            total += backlog;
+            max = Math.max(max, backlog);
+        }
+        return new long[] {total, max};
+    }
+
+    public int getDegradedCount() {
+        return (int) sessions.values().stream().filter(t -> t.degraded).count();
+    }
+
+    /**
+     * Part des threads du canal sortant en cours d'exécution
+     */
+    public double getOutboundUtilization() {
+        ThreadPoolTaskExecutor executor = outboundExecutor.getIfAvailable();
+        if (executor == null || executor.getMaxPoolSize() == 0) {
+            return 0;
+        }
+        return (double) executor.getActiveCount() / executor.getMaxPoolSize();
+    }
+
+    public int getOutboundQueued() {
+        ThreadPoolTaskExecutor executor = outboundExecutor.getIfAvailable();
+        return executor != null ? executor.getThreadPoolExecutor().getQueue().size() : 0;
+    }
+}
@@ -0,0 +1,350 @@
+package com.backend.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Flux Server-Sent Events en lecture seule (/api/airquality/stream, /api/alerts/stream),
+ * alternative légère à SockJS + STOMP pour les écrans d'affichage et les scripts.
+ * Les événements sont les contenus déjà encodés du flux STOMP (voir PreEncodedBroadcaster).
+ *
+ * Chaque connexion n'a qu'une file bornée : une connexion inactive ne coûte presque rien.
+ * Les écritures sont faites par un pool borné de threads plateforme (sse.writer-threads),
+ * une connexion à la fois par thread et jamais deux threads pour la même connexion.
+ * SseEmitter.send est synchronized : sur un thread virtuel, une écriture bloquée par un
+ * lecteur lent épinglerait son porteur et retarderait tous les autres threads virtuels.
+ * Un lecteur lent n'occupe ainsi qu'un écrivain, jusqu'au délai d'écriture du conteneur
+ * (server.tomcat.connection-timeout). Une connexion dont la file déborde est fermée ;
+ * le client se reconnecte avec Last-Event-ID et reprend depuis l'anneau des derniers
+ * événements de son flux.
+ */
+@Service
+public class SseFeedService {
+    private static final Logger logger = LoggerFactory.getLogger(SseFeedService.class);
+
+    public static final String AIRQUALITY = "airquality";
+    public static final String ALERTS = "alerts";
+
+    // Marque de fin de connexion déposée dans la file d'un client
+    private static final Event END = new Event(0, null, null, Map.of());
+    // Commentaire keep-alive déposé par le timer dans la file d'un client inactif
+    private static final Event PING = new Event(0, null, null, Map.of());
+    // Événements écrits par passage avant de rendre l'écrivain aux autres connexions
+    private static final int WRITE_BATCH = 64;
+
+    private final Map<String, Feed> feeds = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final int replayCapacity;
+    private final int clientQueueCapacity;
+    private final long heartbeatIntervalMs;
+    private final long timeoutMs;
+    // Préfixe des identifiants : un Last-Event-ID d'une instance précédente n'est pas confondu
+    private final String epoch = Long.toString(System.currentTimeMillis());
+    // Une tâche au plus par connexion en attente : la file du pool est bornée par le nombre de connexions
+    private final ThreadPoolExecutor writers;
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sse-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SseFeedService(MeterRegistry meterRegistry,
+                          @Value("${sse.replay-capacity:1000}") int replayCapacity,
+                          @Value("${sse.client-queue-capacity:256}") int clientQueueCapacity,
+                          @Value("${sse.heartbeat-interval:15000}") long heartbeatIntervalMs,
+                          @Value("${sse.timeout:1800000}") long timeoutMs,
+                          @Value("${sse.writer-threads:16}") int writerThreads) {
+        this.meterRegistry = meterRegistry;
+        this.replayCapacity = replayCapacity;
+        this.clientQueueCapacity = clientQueueCapacity;
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        this.timeoutMs = timeoutMs;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.writers = new ThreadPoolExecutor(writerThreads, writerThreads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "sse-writer-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // Pas de thread écrivain tant qu'aucune connexion n'a rien à recevoir
+        this.writers.allowCoreThreadTimeOut(true);
+    }
+
+    @PostConstruct
+    public void startHeartbeat() {
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeats, heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Événement d'un flux ; seq vaut 0 pour un événement d'instantané, envoyé sans identifiant.
+     * Les attributs sont les en-têtes de filtrage du flux STOMP (sensor, type, severity...).
+     */
+    public record Event(long seq, byte[] data, MimeType contentType, Map<String, String> attributes) {
+    }
+
+    /**
+     * Publie un contenu déjà encodé sur un flux : ajouté à l'anneau de reprise,
+     * puis déposé dans la file de chaque connexion dont le filtre correspond
+     */
+    public void publish(String feedName, PreEncodedBroadcaster.EncodedPayload payload, Map<String, String> attributes) {
+        feed(feedName).publish(payload.bytes(), payload.contentType(), attributes);
+    }
+
+    /**
+     * Ouvre une connexion. Avec un Last-Event-ID connu, les événements manqués encore
+     * dans l'anneau sont renvoyés ; sans, l'instantané fourni est envoyé d'abord.
+     */
+    public SseEmitter subscribe(String feedName, String lastEventId, Map<String, String> filter, List<Event> snapshot) {
+        return feed(feedName).subscribe(lastEventId, filter, snapshot);
+    }
+
+    public int getConnectionCount(String feedName) {
+        return feed(feedName).clients.size();
+    }
+
+    private Feed feed(String name) {
+        return feeds.computeIfAbsent(name, Feed::new);
+    }
+
+    /**
+     * Filtre par égalité sur les attributs, ex. sensor=capteurs/qualite_air
+     */
+    private static boolean matches(Map<String, String> filter, Event event) {
+        for (Map.Entry<String, String> entry : filter.entrySet()) {
+            if (!entry.getValue().equals(event.attributes().get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Commentaire keep-alive pour les connexions sans écriture depuis heartbeat-interval
+     */
+    void sendHeartbeats() {
+        long now = System.currentTimeMillis();
+        for (Feed feed : feeds.values()) {
+            for (Client client : feed.clients) {
+                if (now - client.lastWrite >= heartbeatIntervalMs && client.queue.isEmpty() && client.queue.offer(PING)) {
+                    client.schedule();
+                }
+            }
+        }
+    }
+
+    /**
+     * Ferme les connexions ouvertes ; les écrivains finissent de leur envoyer la fin de flux
+     * puis s'arrêtent d'eux-mêmes une fois inactifs
+     */
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        feeds.values().forEach(feed -> feed.clients.forEach(Client::close));
+    }
+
+    private final class Feed {
+        private final String name;
+        private final Event[] ring = new Event[replayCapacity];
+        private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+        private final Counter sentCounter;
+        private final Counter droppedCounter;
+        private long lastSeq;
+
+        Feed(String name) {
+            this.name = name;
+            this.sentCounter = Counter.builder("sse.events.sent")
+                    .description("Événements SSE écrits vers les clients")
+                    .tag("feed", name)
+                    .register(meterRegistry);
+            this.droppedCounter = Counter.builder("sse.clients.dropped")
+                    .description("Connexions SSE fermées car trop en retard")
+                    .tag("feed", name)
+                    .register(meterRegistry);
+            Gauge.builder("sse.connections", clients, Set::size)
+                    .description("Connexions SSE ouvertes")
+                    .tag("feed", name)
+                    .register(meterRegistry);
+        }
+
+        synchronized void publish(byte[] data, MimeType contentType, Map<String, String> attributes) {
+            Event event = new Event(++lastSeq, data, contentType, attributes);
+            ring[(int) (event.seq() % ring.length)] = event;
+            for (Client client : clients) {
+                if (matches(client.filter, event)) {
+                    if (client.queue.offer(event)) {
+                        client.schedule();
+                    } else {
+                        client.overflow();
+                    }
+                }
+            }
+        }
+
+        SseEmitter subscribe(String lastEventId, Map<String, String> filter, List<Event> snapshot) {
+            SseEmitter emitter = new SseEmitter(timeoutMs);
+            Client client;
+            synchronized (this) {
+                // Reprise et enregistrement sous le même verrou que publish : ni trou ni doublon
+                List<Event> initial = new ArrayList<>();
+                for (Event event : lastEventId == null ? snapshot : replaySince(lastEventId)) {
+                    if (matches(filter, event)) {
+                        initial.add(event);
+                    }
+                }
+                // La reprise tient toujours dans la file, en plus de la marge du flux live
+                client = new Client(this, emitter, filter, clientQueueCapacity + initial.size());
+                client.queue.addAll(initial);
+                clients.add(client);
+            }
+            emitter.onCompletion(client::close);
+            emitter.onTimeout(client::close);
+            emitter.onError(e -> client.close());
+            client.schedule();
+            return emitter;
+        }
+
+        /**
+         * Événements postérieurs à lastEventId encore dans l'anneau ; tout l'anneau si
+         * l'identifiant vient d'une autre instance ou est trop ancien
+         */
+        private List<Event> replaySince(String lastEventId) {
+            long oldest = Math.max(1, lastSeq - ring.length + 1);
+            long from = oldest;
+            int separator = lastEventId.lastIndexOf('-');
+            if (separator > 0 && epoch.equals(lastEventId.substring(0, separator))) {
+                try {
+                    from = Math.max(oldest, Long.parseLong(lastEventId.substring(separator + 1)) + 1);
+                } catch (NumberFormatException e) {
+                    logger.debug("Last-Event-ID invalide sur le flux {}: {}", name, lastEventId);
+                }
+            }
+            List<Event> events = new ArrayList<>();
+            for (long seq = from; seq <= lastSeq; seq++) {
+                events.add(ring[(int) (seq % ring.length)]);
+            }
+            return events;
+        }
+    }
+
+    private final class Client {
+        private final Feed feed;
+        private final SseEmitter emitter;
+        private final Map<String, String> filter;
+        private final BlockingQueue<Event> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+        private volatile long lastWrite = System.currentTimeMillis();
+
+        Client(Feed feed, SseEmitter emitter, Map<String, String> filter, int queueCapacity) {
+            this.feed = feed;
+            this.emitter = emitter;
+            this.filter = filter;
+            // Bornée mais allouée à la demande : une connexion inactive ne réserve pas sa capacité
+            this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        }
+
+        /**
+         * Confie la connexion à un écrivain si elle a des événements en attente et n'en a pas déjà un
+         */
+        void schedule() {
+            if (queue.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                writers.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                logger.warn("Écrivains SSE arrêtés, connexion {} fermée", feed.name);
+                close();
+            }
+        }
+
+        /**
+         * Écrit au plus WRITE_BATCH événements de la file, sur un thread écrivain,
+         * puis se replanifie s'il en reste
+         */
+        private void drain() {
+            try {
+                for (int written = 0; written < WRITE_BATCH; written++) {
+                    Event event = queue.poll();
+                    if (event == null) {
+                        break;
+                    }
+                    if (event == END) {
+                        emitter.complete();
+                        return;
+                    }
+                    write(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client parti : le conteneur signale l'erreur, rien à renvoyer
+                logger.debug("Connexion SSE {} fermée: {}", feed.name, e.getMessage());
+                close();
+            } finally {
+                scheduled.set(false);
+            }
+            schedule();
+        }
+
+        private void write(Event event) throws IOException {
+            if (event == PING) {
+                emitter.send(SseEmitter.event().comment("ping"));
+            } else {
+                SseEmitter.SseEventBuilder builder = SseEmitter.event();
+                if (event.seq() > 0) {
+                    builder.id(epoch + "-" + event.seq());
+                }
+                emitter.send(builder.data(event.data(), event.contentType() != null
+                        ? MediaType.asMediaType(event.contentType()) : MediaType.APPLICATION_JSON));
+                feed.sentCounter.increment();
+            }
+            lastWrite = System.currentTimeMillis();
+        }
+
+        /**
+         * File pleine : la connexion est fermée, le client reprendra avec Last-Event-ID
+         */
+        void overflow() {
+            if (!closed) {
+                feed.droppedCounter.increment();
+                close();
+            }
+        }
+
+        void close() {
+            if (feed.clients.remove(this)) {
+                closed = true;
+                queue.clear();
+                queue.offer(END);
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.backend.demo.service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * État versionné d'un tableau de bord, synchronisé par deltas.
+ * L'état est une table clé (capteur, résumé...) → champs. Les mises à jour n'enregistrent
+ * que les champs dont la valeur change ; chaque delta publié porte un numéro de séquence
+ * strictement croissant. Un client applique un instantané (seq N) puis les deltas N+1, N+2...
+ * et redemande un instantané s'il détecte un trou dans la séquence.
+ */
+public class StateSync {
+
+    private final Map<String, Map<String, Object>> state = new HashMap<>();
+    private Map<String, Map<String, Object>> pending = new LinkedHashMap<>();
+    private long sequence;
+
+    /**
+     * Message publié : un instantané complet ou un delta des champs modifiés
+     */
+    public record StateMessage(long seq, boolean snapshot, Map<String, Map<String, Object>> entries) {
+    }
+
+    /**
+     * Fusionne les champs d'une entrée ; seuls les champs modifiés seront publiés
+     */
+    public synchronized void update(String key, Map<String, ?> fields) {
+        Map<String, Object> current = state.computeIfAbsent(key, k -> new HashMap<>());
+        for (Map.Entry<String, ?> field : fields.entrySet()) {
+            if (!Objects.equals(current.get(field.getKey()), field.getValue())) {
+                current.put(field.getKey(), field.getValue());
+                pending.computeIfAbsent(key, k -> new LinkedHashMap<>()).put(field.getKey(), field.getValue());
+            }
+        }
+    }
+
+    public synchronized void remove(String key) {
+        if (state.remove(key) != null) {
+            // Une entrée nulle dans un delta signifie la suppression de la clé
+            pending.put(key, null);
+        }
+    }
+
+    /**
+     * Prend les changements accumulés depuis le dernier delta, null s'il n'y en a aucun
+     */
+    public synchronized StateMessage drainDelta() {
+        if (pending.isEmpty()) {
+            return null;
+        }
+        Map<String, Map<String, Object>> changes = pending;
+        pending = new LinkedHashMap<>();
+        return new StateMessage(++sequence, false, changes);
+    }
+
+    /**
+     * Instantané cohérent avec la séquence : il inclut les changements encore en attente,
+     * qui seront aussi dans le prochain delta (seq + 1) et s'y appliquent sans effet
+     */
+    public synchronized StateMessage snapshot() {
+        Map<String, Map<String, Object>> entries = new HashMap<>();
+        state.forEach((key, fields) -> entries.put(key, new HashMap<>(fields)));
+        return new StateMessage(sequence, true, entries);
+    }
+
+    public synchronized long getSequence() {
+        return sequence;
+    }
+}
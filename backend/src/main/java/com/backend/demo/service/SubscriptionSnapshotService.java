@@ -0,0 +1,102 @@
+package com.backend.demo.service;
+
+import com.backend.demo.Config.WebSocketConfig;
+import com.backend.demo.mqtt.AirQualityBroadcaster;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.context.expression.MapAccessor;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.SimpleEvaluationContext;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.util.Map;
+
+/**
+ * Instantané envoyé dès l'abonnement aux flux temps réel, à la seule session abonnée :
+ * dernière lecture de chaque capteur pour /topic/airquality, résumé courant pour
+ * /topic/alert-summary. Les messages ont le même format que le flux live, le premier
+ * rendu n'attend donc ni la prochaine lecture MQTT ni un appel REST.
+ * Un filtre selector posé à l'abonnement est appliqué comme le fait le broker.
+ */
+@Service
+public class SubscriptionSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubscriptionSnapshotService.class);
+
+    public static final String ALERT_SUMMARY_DESTINATION = "/topic/alert-summary";
+
+    private final MessageChannel clientOutboundChannel;
+    private final PreEncodedBroadcaster broadcaster;
+    private final AirQualityBroadcaster airQualityBroadcaster;
+    private final AlertSummaryCounter alertSummaryCounter;
+    private final SpelExpressionParser selectorParser = new SpelExpressionParser();
+    private final EvaluationContext selectorContext = SimpleEvaluationContext.forPropertyAccessors(new MapAccessor()).build();
+
+    public SubscriptionSnapshotService(@Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+                                       PreEncodedBroadcaster broadcaster,
+                                       AirQualityBroadcaster airQualityBroadcaster,
+                                       AlertSummaryCounter alertSummaryCounter) {
+        this.clientOutboundChannel = clientOutboundChannel;
+        this.broadcaster = broadcaster;
+        this.airQualityBroadcaster = airQualityBroadcaster;
+        this.alertSummaryCounter = alertSummaryCounter;
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        String sessionId = accessor.getSessionId();
+        String subscriptionId = accessor.getSubscriptionId();
+        if (destination == null || sessionId == null || subscriptionId == null) {
+            return;
+        }
+        Expression selector = parseSelector(accessor.getFirstNativeHeader(WebSocketConfig.SELECTOR_HEADER));
+
+        if (AirQualityBroadcaster.DESTINATION.equals(destination)) {
+            airQualityBroadcaster.getLatest().forEach((sensorKey, payload) -> {
+                Map<String, String> headers = Map.of(AirQualityBroadcaster.SENSOR_HEADER, sensorKey);
+                if (matches(selector, headers)) {
+                    broadcaster.sendToSubscriber(clientOutboundChannel, sessionId, subscriptionId, destination, payload, headers);
+                }
+            });
+        } else if (ALERT_SUMMARY_DESTINATION.equals(destination) && matches(selector, Map.of())) {
+            Map<String, Long> summary = alertSummaryCounter.summarize(System.currentTimeMillis()).toMessage();
+            broadcaster.sendToSubscriber(clientOutboundChannel, sessionId, subscriptionId, destination,
+                    broadcaster.encode(summary), Map.of());
+        }
+    }
+
+    private Expression parseSelector(String selector) {
+        if (selector == null || selector.isBlank()) {
+            return null;
+        }
+        try {
+            return selectorParser.parseExpression(selector);
+        } catch (Exception e) {
+            logger.debug("Selector invalide ignoré pour l'instantané: {}", selector);
+            return null;
+        }
+    }
+
+    /**
+     * Évalue le selector sur les en-têtes natifs du message, comme headers.sensor == '...'
+     */
+    private boolean matches(Expression selector, Map<String, String> headers) {
+        if (selector == null) {
+            return true;
+        }
+        try {
+            return Boolean.TRUE.equals(selector.getValue(selectorContext, Map.of("headers", headers), Boolean.class));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
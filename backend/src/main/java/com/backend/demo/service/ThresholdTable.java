@@ -0,0 +1,300 @@
+package com.backend.demo.service;
+
+import com.backend.demo.entity.ThresholdScope;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Seuils résolus par capteur et par paramètre, dans un tableau dense.
+ * Ordre de résolution : surcharge du capteur, puis de sa zone, puis seuil global,
+ * indépendamment pour le seuil d'avertissement et le seuil critique.
+ *
+ * La lecture est un simple accès au tableau, sans verrou ; les écritures (rares) recalculent
+ * uniquement les cases touchées : une colonne pour un seuil global, les capteurs
+ * de la zone pour une surcharge de zone, une case pour une surcharge de capteur.
+ * Chaque case référence une paire immuable, remplacée d'une seule écriture :
+ * un lecteur voit l'ancienne paire ou la nouvelle, jamais un mélange des deux.
+ * La ligne 0 est réservée aux lectures sans capteur (seuils globaux seuls).
+ */
+@Component
+public class ThresholdTable {
+
+    public static final int NO_SENSOR = 0;
+
+    private static final int INITIAL_SENSORS = 1024;
+    private static final int INITIAL_PARAMETERS = 8;
+    private static final int WARNING = 0;
+    private static final int CRITICAL = 1;
+
+    private final Map<String, Integer> sensorIndex = new ConcurrentHashMap<>();
+    private final Map<String, Integer> parameterIndex = new ConcurrentHashMap<>();
+
+    // Niveaux saisis, par index de paramètre, NaN = hérité
+    private final Map<Integer, Levels> globalLevels = new HashMap<>();
+    private final Map<String, Map<Integer, Levels>> zoneLevels = new HashMap<>();
+    private final Map<Integer, Map<Integer, Levels>> sensorLevels = new HashMap<>();
+
+    private final Map<String, Set<Integer>> sensorsByZone = new HashMap<>();
+    private String[] sensorZone = new String[INITIAL_SENSORS];
+    private int sensorCount = 1;
+
+    private volatile Cells cells = new Cells(INITIAL_SENSORS, INITIAL_PARAMETERS);
+
+    /**
+     * Seuils d'avertissement et critique, NaN si aucun
+     */
+    private record Levels(double warning, double critical) {
+        static final Levels NONE = new Levels(Double.NaN, Double.NaN);
+
+        double get(int level) {
+            return level == WARNING ? warning : critical;
+        }
+
+        boolean sameAs(double otherWarning, double otherCritical) {
+            return Double.compare(warning, otherWarning) == 0 && Double.compare(critical, otherCritical) == 0;
+        }
+    }
+
+    /**
+     * Tableau résolu : une paire par (capteur, paramètre)
+     */
+    private static final class Cells {
+        final int sensorCapacity;
+        final int stride;
+        final Levels[] values;
+
+        Cells(int sensorCapacity, int stride) {
+            this.sensorCapacity = sensorCapacity;
+            this.stride = stride;
+            this.values = new Levels[sensorCapacity * stride];
+            Arrays.fill(values, Levels.NONE);
+        }
+    }
+
+    /**
+     * Index du capteur, créé à la première lecture ; NO_SENSOR si la clé est nulle
+     */
+    public int indexOfSensor(String sensorKey) {
+        if (sensorKey == null) {
+            return NO_SENSOR;
+        }
+        Integer index = sensorIndex.get(sensorKey);
+        return index != null ? index : registerSensor(sensorKey);
+    }
+
+    /**
+     * Index du paramètre, -1 si aucun seuil n'existe pour lui
+     */
+    public int indexOfParameter(String parameter) {
+        Integer index = parameterIndex.get(parameter);
+        return index != null ? index : -1;
+    }
+
+    public double warning(int sensor, int parameter) {
+        Cells c = cells;
+        return c.values[sensor * c.stride + parameter].warning();
+    }
+
+    public double critical(int sensor, int parameter) {
+        Cells c = cells;
+        return c.values[sensor * c.stride + parameter].critical();
+    }
+
+    /**
+     * Niveau atteint par une mesure ("danger" ou "warning"), null sous les seuils ;
+     * les deux seuils viennent de la même paire
+     */
+    public String level(int sensor, int parameter, double value) {
+        Cells c = cells;
+        Levels levels = c.values[sensor * c.stride + parameter];
+        if (value >= levels.critical()) {
+            return "danger";
+        }
+        return value >= levels.warning() ? "warning" : null;
+    }
+
+    public int getSensorCount() {
+        return sensorCount - 1;
+    }
+
+    public synchronized void clear() {
+        sensorIndex.clear();
+        parameterIndex.clear();
+        globalLevels.clear();
+        zoneLevels.clear();
+        sensorLevels.clear();
+        sensorsByZone.clear();
+        sensorZone = new String[INITIAL_SENSORS];
+        sensorCount = 1;
+        cells = new Cells(INITIAL_SENSORS, INITIAL_PARAMETERS);
+    }
+
+    public synchronized void setGlobal(String parameter, Double warning, Double critical) {
+        int p = registerParameter(parameter);
+        globalLevels.put(p, levels(warning, critical));
+        for (int s = 0; s < sensorCount; s++) {
+            resolve(s, p);
+        }
+    }
+
+    /**
+     * Enregistre (ou remplace) une surcharge ; des seuils nuls la suppriment
+     */
+    public synchronized void setOverride(ThresholdScope scope, String key, String parameter,
+                                         Double warning, Double critical) {
+        int p = registerParameter(parameter);
+        boolean remove = warning == null && critical == null;
+        if (scope == ThresholdScope.SENSOR) {
+            int s = indexOfSensor(key);
+            Map<Integer, Levels> levels = sensorLevels.computeIfAbsent(s, k -> new HashMap<>());
+            if (remove) {
+                levels.remove(p);
+            } else {
+                levels.put(p, levels(warning, critical));
+            }
+            resolve(s, p);
+        } else {
+            Map<Integer, Levels> levels = zoneLevels.computeIfAbsent(key, k -> new HashMap<>());
+            if (remove) {
+                levels.remove(p);
+            } else {
+                levels.put(p, levels(warning, critical));
+            }
+            for (int s : sensorsByZone.getOrDefault(key, Set.of())) {
+                resolve(s, p);
+            }
+        }
+    }
+
+    public void removeOverride(ThresholdScope scope, String key, String parameter) {
+        setOverride(scope, key, parameter, null, null);
+    }
+
+    /**
+     * Rattache un capteur à une zone (null pour aucune) et recalcule sa ligne
+     */
+    public synchronized void assignZone(String sensorKey, String zone) {
+        int s = indexOfSensor(sensorKey);
+        String previous = sensorZone[s];
+        if (previous != null) {
+            sensorsByZone.get(previous).remove(s);
+        }
+        sensorZone[s] = zone;
+        if (zone != null) {
+            sensorsByZone.computeIfAbsent(zone, k -> new HashSet<>()).add(s);
+        }
+        resolveRow(s);
+    }
+
+    /**
+     * Oublie la zone et les surcharges d'un capteur supprimé ; sa ligne revient aux seuils globaux
+     */
+    public synchronized void removeSensor(String sensorKey) {
+        Integer index = sensorIndex.get(sensorKey);
+        if (index == null) {
+            return;
+        }
+        int s = index;
+        sensorLevels.remove(s);
+        String previous = sensorZone[s];
+        if (previous != null) {
+            sensorsByZone.get(previous).remove(s);
+            sensorZone[s] = null;
+        }
+        resolveRow(s);
+    }
+
+    private synchronized int registerSensor(String sensorKey) {
+        Integer existing = sensorIndex.get(sensorKey);
+        if (existing != null) {
+            return existing;
+        }
+        int s = sensorCount;
+        if (s == cells.sensorCapacity) {
+            grow(cells.sensorCapacity * 2, cells.stride);
+        }
+        sensorCount++;
+        resolveRow(s);
+        // Publié après le remplissage de la ligne
+        sensorIndex.put(sensorKey, s);
+        return s;
+    }
+
+    private int registerParameter(String parameter) {
+        Integer existing = parameterIndex.get(parameter);
+        if (existing != null) {
+            return existing;
+        }
+        int p = parameterIndex.size();
+        if (p == cells.stride) {
+            grow(cells.sensorCapacity, cells.stride * 2);
+        }
+        parameterIndex.put(parameter, p);
+        return p;
+    }
+
+    private void grow(int sensorCapacity, int stride) {
+        Cells previous = cells;
+        Cells next = new Cells(sensorCapacity, stride);
+        for (int s = 0; s < sensorCount; s++) {
+            System.arraycopy(previous.values, s * previous.stride,
+                    next.values, s * stride, previous.stride);
+        }
+        if (sensorCapacity > sensorZone.length) {
+            sensorZone = Arrays.copyOf(sensorZone, sensorCapacity);
+        }
+        cells = next;
+    }
+
+    private void resolveRow(int s) {
+        for (int p = 0; p < parameterIndex.size(); p++) {
+            resolve(s, p);
+        }
+    }
+
+    private void resolve(int s, int p) {
+        Levels sensor = s != NO_SENSOR ? sensorLevels.getOrDefault(s, Map.of()).get(p) : null;
+        String zone = sensorZone[s];
+        Levels zoneValues = zone != null ? zoneLevels.getOrDefault(zone, Map.of()).get(p) : null;
+        Levels global = globalLevels.get(p);
+
+        double warning = pick(WARNING, sensor, zoneValues, global);
+        double critical = pick(CRITICAL, sensor, zoneValues, global);
+        Cells c = cells;
+        c.values[s * c.stride + p] = shared(warning, critical, sensor, zoneValues, global);
+    }
+
+    private static double pick(int level, Levels sensor, Levels zone, Levels global) {
+        if (sensor != null && !Double.isNaN(sensor.get(level))) {
+            return sensor.get(level);
+        }
+        if (zone != null && !Double.isNaN(zone.get(level))) {
+            return zone.get(level);
+        }
+        return global != null ? global.get(level) : Double.NaN;
+    }
+
+    /**
+     * Réutilise la paire saisie quand la case en reprend les deux valeurs
+     */
+    private static Levels shared(double warning, double critical, Levels... candidates) {
+        for (Levels candidate : candidates) {
+            if (candidate != null && candidate.sameAs(warning, critical)) {
+                return candidate;
+            }
+        }
+        return Levels.NONE.sameAs(warning, critical) ? Levels.NONE : new Levels(warning, critical);
+    }
+
+    private static Levels levels(Double warning, Double critical) {
+        return new Levels(
+                warning != null ? warning : Double.NaN,
+                critical != null ? critical : Double.NaN);
+    }
+}
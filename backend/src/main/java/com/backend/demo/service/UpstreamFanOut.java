@@ -0,0 +1,100 @@
+package com.backend.demo.service;
+
+import com.backend.demo.upstream.UpstreamPriority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Appels amont indépendants lancés en parallèle, chacun sur un thread virtuel et avec sa propre échéance :
+ * la latence d'un endpoint composite est celle de l'appel le plus lent, pas leur somme.
+ * Un appel en retard ou en échec ne fait pas échouer les autres ; l'appelant reçoit un résultat
+ * partiel. Un appel qui dépasse son échéance n'est pas interrompu : sa réponse alimente
+ * quand même le cache (voir WeatherResponseCache). La priorité de quota de l'appelant est conservée.
+ */
+@Component
+public class UpstreamFanOut {
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("weather-upstream-", 0).factory());
+    private final MeterRegistry meterRegistry;
+    private final long defaultDeadlineMs;
+
+    public UpstreamFanOut(MeterRegistry meterRegistry,
+                          @Value("${weather.upstream.deadline:3000}") long defaultDeadlineMs) {
+        this.meterRegistry = meterRegistry;
+        this.defaultDeadlineMs = defaultDeadlineMs;
+    }
+
+    /**
+     * Appel amont en cours, à récupérer avec get() avant son échéance
+     */
+    public final class Call<T> {
+        private final String name;
+        private final CompletableFuture<T> future;
+        private final long deadlineNanos;
+        private volatile Exception failure;
+
+        private Call(String name, CompletableFuture<T> future, long deadlineNanos) {
+            this.name = name;
+            this.future = future;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Résultat de l'appel, ou null s'il a échoué ou dépassé son échéance (voir getFailure())
+         */
+        public T get() {
+            try {
+                long remaining = deadlineNanos - System.nanoTime();
+                return future.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                Counter.builder("weather.upstream.deadline.exceeded")
+                        .description("Appels amont abandonnés à leur échéance")
+                        .tag("call", name)
+                        .register(meterRegistry)
+                        .increment();
+                failure = new IllegalStateException("Échéance dépassée pour " + name);
+            } catch (ExecutionException e) {
+                failure = e.getCause() instanceof Exception cause ? cause : e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = e;
+            }
+            return null;
+        }
+
+        public Exception getFailure() {
+            return failure;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public <T> Call<T> start(String name, Supplier<T> call) {
+        return start(name, call, defaultDeadlineMs);
+    }
+
+    public <T> Call<T> start(String name, Supplier<T> call, long deadlineMs) {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        UpstreamPriority priority = UpstreamPriority.current();
+        return new Call<>(name, CompletableFuture.supplyAsync(() -> UpstreamPriority.call(priority, call), executor), deadlineNanos);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -1,6 +1,10 @@
 package com.backend.demo.service;
 import com.backend.demo.entity.WeatherComparison;
 import com.backend.demo.repository.WeatherComparisonRepository;
+import com.backend.demo.upstream.OpenWeatherForecast;
+import com.backend.demo.upstream.UpstreamPriority;
+import com.backend.demo.upstream.WeatherApiForecast;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +16,9 @@ import org.springframework.web.client.RestTemplate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 public class WeatherComparisonService {
@@ -26,11 +33,20 @@ public class WeatherComparisonService {
     
     private final WeatherComparisonRepository repository;
     private final RestTemplate restTemplate;
+    private final UpstreamFanOut fanOut;
+    private final AtomicBoolean updating = new AtomicBoolean();
+    private final ExecutorService updater = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "weather-comparison-update");
+        thread.setDaemon(true);
+        return thread;
+    });
     
     @Autowired
-    public WeatherComparisonService(WeatherComparisonRepository repository, RestTemplate restTemplate) {
+    public WeatherComparisonService(WeatherComparisonRepository repository, RestTemplate restTemplate,
+                                    UpstreamFanOut fanOut) {
         this.repository = repository;
         this.restTemplate = restTemplate;
+        this.fanOut = fanOut;
     }
     
     public List<WeatherComparison> getAllComparisons() {
@@ -54,22 +70,38 @@ public class WeatherComparisonService {
     }
     
     /**
-     * Enregistre les prévisions des deux API pour une ville donnée
+     * Enregistre les prévisions des deux API pour une ville donnée.
+     * Retourne les enregistrements non terminés à l'échéance : ils se poursuivent en arrière-plan.
      */
-    public void recordForecasts(String city) {
+    public List<String> recordForecasts(String city) {
         logger.info("Enregistrement des prévisions pour la ville : {}", city);
         
+        List<String> pending = new ArrayList<>();
         try {
-            // 1. Récupérer les prévisions d'OpenWeather
-            recordOpenWeatherForecasts(city);
-            
-            // 2. Récupérer les prévisions de WeatherAPI
-            recordWeatherApiForecasts(city);
+            // Les deux API sont interrogées en parallèle ; chacune gère ses propres erreurs.
+            List<UpstreamFanOut.Call<Boolean>> calls = List.of(
+                    fanOut.start("openweather-forecast", () -> {
+                        recordOpenWeatherForecasts(city);
+                        return true;
+                    }),
+                    fanOut.start("weatherapi-forecast", () -> {
+                        recordWeatherApiForecasts(city);
+                        return true;
+                    }));
+            for (UpstreamFanOut.Call<Boolean> call : calls) {
+                if (call.get() == null) {
+                    logger.warn("Enregistrement {} non terminé pour {} : {}", call.getName(), city, call.getFailure().getMessage());
+                    pending.add(call.getName());
+                }
+            }
             
-            logger.info("Prévisions enregistrées avec succès pour {}", city);
+            if (pending.isEmpty()) {
+                logger.info("Prévisions enregistrées avec succès pour {}", city);
+            }
         } catch (Exception e) {
             logger.error("Erreur lors de l'enregistrement des prévisions pour {} : {}", city, e.getMessage());
         }
+        return pending;
     }
     
     /**
@@ -81,32 +113,25 @@ public class WeatherComparisonService {
             String url = "https://api.openweathermap.org/data/2.5/forecast?q=" + city +
                          "&appid=" + openWeatherKey + "&units=metric&lang=fr";
             
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
+            OpenWeatherForecast response = restTemplate.getForObject(url, OpenWeatherForecast.class);
             
-            if (response != null && response.containsKey("list")) {
-                List<Map<String, Object>> forecastList = (List<Map<String, Object>>) response.get("list");
-                
-                for (Map<String, Object> forecast : forecastList) {
+            if (response != null && response.list() != null) {
+                for (OpenWeatherForecast.Item forecast : response.list()) {
                     WeatherComparison comparison = new WeatherComparison();
                     comparison.setCity(city);
                     comparison.setSource("OpenWeather");
                     comparison.setRecordedAt(LocalDateTime.now());
                     
                     // Convertir le timestamp en LocalDateTime
-                    Long timestamp = ((Number) forecast.get("dt")).longValue();
                     comparison.setForecastDate(LocalDateTime.now()
                         .withSecond(0).withNano(0)
-                        .plusSeconds(timestamp - System.currentTimeMillis()/1000));
+                        .plusSeconds(forecast.dt() - System.currentTimeMillis()/1000));
                     
                     // Extraire les données météo
-                    Map<String, Object> main = (Map<String, Object>) forecast.get("main");
-                    Map<String, Object> wind = (Map<String, Object>) forecast.get("wind");
-                    List<Map<String, Object>> weather = (List<Map<String, Object>>) forecast.get("weather");
-                    
-                    comparison.setForecastTemperature(convertToDouble(main.get("temp")));
-                    comparison.setForecastHumidity(convertToDouble(main.get("humidity")));
-                    comparison.setForecastWindSpeed(convertToDouble(wind.get("speed")));
-                    comparison.setForecastCondition((String) weather.get(0).get("description"));
+                    comparison.setForecastTemperature(forecast.temp());
+                    comparison.setForecastHumidity(forecast.humidity());
+                    comparison.setForecastWindSpeed(forecast.windOrCalm().speed());
+                    comparison.setForecastCondition(forecast.condition().description());
                     
                     repository.save(comparison);
                 }
@@ -125,33 +150,24 @@ public class WeatherComparisonService {
             String url = "https://api.weatherapi.com/v1/forecast.json?key=" + weatherApiKey +
                          "&q=" + city + "&days=3&lang=fr";
             
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
+            WeatherApiForecast response = restTemplate.getForObject(url, WeatherApiForecast.class);
             
-            if (response != null && response.containsKey("forecast")) {
-                Map<String, Object> forecast = (Map<String, Object>) response.get("forecast");
-                List<Map<String, Object>> forecastdays = (List<Map<String, Object>>) forecast.get("forecastday");
-                
-                for (Map<String, Object> day : forecastdays) {
-                    String date = (String) day.get("date");
-                    List<Map<String, Object>> hours = (List<Map<String, Object>>) ((Map<String, Object>) day.get("hour"));
-                    
-                    for (Map<String, Object> hour : hours) {
+            if (response != null) {
+                for (WeatherApiForecast.Day day : response.days()) {
+                    for (WeatherApiForecast.Hour hour : day.hours()) {
                         WeatherComparison comparison = new WeatherComparison();
                         comparison.setCity(city);
                         comparison.setSource("WeatherAPI");
                         comparison.setRecordedAt(LocalDateTime.now());
                         
-                        // Convertir le timestamp en LocalDateTime
-                        String timeEpoch = hour.get("time").toString();
-                        // Parse le timeEpoch au format approprié
-                        comparison.setForecastDate(LocalDateTime.parse(timeEpoch.replace(" ", "T")));
-                        
-                        comparison.setForecastTemperature(convertToDouble(hour.get("temp_c")));
-                        comparison.setForecastHumidity(convertToDouble(hour.get("humidity")));
-                        comparison.setForecastWindSpeed(convertToDouble(hour.get("wind_kph")));
+                        // Heure locale au format "yyyy-MM-dd HH:mm"
+                        comparison.setForecastDate(LocalDateTime.parse(hour.time().replace(" ", "T")));
                         
-                        Map<String, Object> condition = (Map<String, Object>) hour.get("condition");
-                        comparison.setForecastCondition((String) condition.get("text"));
+                        comparison.setForecastTemperature(hour.tempC());
+                        comparison.setForecastHumidity(hour.humidity());
+                        comparison.setForecastWindSpeed(hour.windKph());
+                        comparison.setForecastCondition(hour.condition() != null
+                                ? hour.condition().text() : WeatherApiForecast.Condition.UNKNOWN.text());
                         
                         repository.save(comparison);
                     }
@@ -163,10 +179,37 @@ public class WeatherComparisonService {
     }
     
     /**
-     * Met à jour les prévisions avec les observations réelles
-     * Cette méthode sera exécutée régulièrement via un @Scheduled
+     * Mise à jour horaire, en dernière priorité sur les quotas des API (voir UpstreamPriority).
+     * Lancée sur son propre thread : chaque appel peut attendre un jeton jusqu'à
+     * upstream.quota.wait.scheduled, attente qui occuperait sinon un thread du pool @Scheduled
+     * (spring.task.scheduling.pool.size) et retarderait les autres tâches planifiées.
+     * Ignorée si la mise à jour précédente n'est pas terminée.
      */
     @Scheduled(cron = "0 0 * * * *") // Toutes les heures
+    public void scheduledForecastUpdate() {
+        if (!updating.compareAndSet(false, true)) {
+            logger.warn("Mise à jour des prévisions déjà en cours, celle de cette heure est ignorée");
+            return;
+        }
+        updater.execute(() -> {
+            try {
+                UpstreamPriority.run(UpstreamPriority.SCHEDULED, this::updateForecastsWithActualData);
+            } catch (RuntimeException e) {
+                logger.error("Mise à jour planifiée des prévisions échouée : {}", e.getMessage());
+            } finally {
+                updating.set(false);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        updater.shutdownNow();
+    }
+    
+    /**
+     * Met à jour les prévisions avec les observations réelles
+     */
     public void updateForecastsWithActualData() {
         logger.info("Mise à jour des prévisions avec les données réelles");
         
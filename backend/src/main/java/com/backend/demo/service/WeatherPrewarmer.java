@@ -0,0 +1,101 @@
+package com.backend.demo.service;
+
+import com.backend.demo.upstream.UpstreamPriority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Préchargement des recherches météo populaires. Chaque recherche (/api/weather/{city},
+ * cellule de /api/weather/coordinates) est comptée dans un sketch HeavyHitters par sa clé de cache.
+ * À chaque intervalle, les entrées du top-K qui expireraient avant le passage suivant sont
+ * rechargées en arrière-plan (voir WeatherResponseCache.refreshAhead), étalées sur l'intervalle
+ * pour ne pas grouper les appels amont : les recherches populaires sont servies depuis le cache.
+ */
+@Component
+public class WeatherPrewarmer {
+    private static final Logger logger = LoggerFactory.getLogger(WeatherPrewarmer.class);
+
+    private final WeatherResponseCache cache;
+    private final HeavyHitters popularity;
+    private final long intervalMs;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "weather-prewarm");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Counter refreshed;
+
+    public WeatherPrewarmer(WeatherResponseCache cache, MeterRegistry meterRegistry,
+                            @Value("${weather.prewarm.top-k:20}") int topK,
+                            @Value("${weather.prewarm.interval:60000}") long intervalMs) {
+        this.cache = cache;
+        this.popularity = new HeavyHitters(topK, 4, 2048);
+        this.intervalMs = intervalMs;
+        this.refreshed = Counter.builder("weather.prewarm.refreshes")
+                .description("Entrées du cache météo rechargées avant expiration pour les recherches populaires")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Compte une recherche ; query est la clé de cache (WeatherResponseCache.key)
+     */
+    public void record(String query) {
+        popularity.add(query);
+    }
+
+    public List<HeavyHitters.Item> getTop() {
+        return popularity.top();
+    }
+
+    public long getIntervalMs() {
+        return intervalMs;
+    }
+
+    /**
+     * Planifie le préchargement du top-K courant, une requête tous les intervalle / K ms,
+     * puis divise les compteurs par deux (la popularité suit le trafic récent)
+     */
+    @Scheduled(fixedDelayString = "${weather.prewarm.interval:60000}")
+    public void schedulePrewarm() {
+        List<HeavyHitters.Item> top = popularity.top();
+        popularity.decay();
+        if (top.isEmpty()) {
+            return;
+        }
+        long spacingMs = intervalMs / top.size();
+        for (int i = 0; i < top.size(); i++) {
+            String query = top.get(i).key();
+            scheduler.schedule(() -> refresh(query), i * spacingMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Recharge les entrées de la requête qui expireraient avant le prochain passage,
+     * en priorité de quota la plus basse
+     */
+    int refresh(String query) {
+        // Marge de deux intervalles : le prochain passage peut tomber en fin d'intervalle
+        int count = UpstreamPriority.call(UpstreamPriority.SCHEDULED, () -> cache.refreshAhead(query, 2 * intervalMs));
+        if (count > 0) {
+            refreshed.increment(count);
+            logger.debug("Préchargement de {} : {} entrées rechargées", query, count);
+        }
+        return count;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,401 @@
+package com.backend.demo.service;
+
+import com.backend.demo.upstream.UpstreamPriority;
+import com.backend.demo.upstream.UpstreamQuotaExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Cache borné des réponses OpenWeather et WeatherAPI, par endpoint amont et par requête normalisée.
+ * Chaque endpoint a sa durée de fraîcheur (TTL), alignée sur la fréquence de mise à jour du fournisseur,
+ * puis une fenêtre de péremption : pendant celle-ci la valeur périmée est servie immédiatement
+ * et un seul rafraîchissement tourne en arrière-plan (stale-while-revalidate). Si ce rafraîchissement
+ * échoue, la valeur périmée reste servie jusqu'à la fin de la fenêtre. Au-delà, si l'appel amont est
+ * refusé faute de quota (voir UpstreamQuotaInterceptor), la dernière valeur connue est servie (dégradée).
+ * Au-delà du nombre max d'entrées, les moins récemment lues sont évincées.
+ * Les requêtes concurrentes pour une même clé partagent un seul appel amont en cours.
+ *
+ * Réglages : weather.cache.max-entries, weather.cache.wait-timeout,
+ * weather.cache.&lt;endpoint&gt;.ttl et .stale (ms).
+ */
+@Component
+public class WeatherResponseCache {
+    private static final Logger logger = LoggerFactory.getLogger(WeatherResponseCache.class);
+
+    /**
+     * Endpoints amont mis en cache, avec TTL et fenêtre de péremption par défaut (ms)
+     */
+    public enum Endpoint {
+        // OpenWeather recalcule la météo courante environ toutes les 10 min, la prévision 3 h toutes les 3 h
+        OPENWEATHER_CURRENT("openweather-current", 600_000, 600_000),
+        OPENWEATHER_FORECAST("openweather-forecast", 1_800_000, 3_600_000),
+        OPENWEATHER_GEO("openweather-geo", 86_400_000, 86_400_000),
+        // WeatherAPI met à jour la météo courante toutes les 15 min
+        WEATHERAPI_CURRENT("weatherapi-current", 900_000, 900_000),
+        WEATHERAPI_FORECAST("weatherapi-forecast", 1_800_000, 3_600_000);
+
+        private final String name;
+        private final long defaultTtlMs;
+        private final long defaultStaleMs;
+
+        Endpoint(String name, long defaultTtlMs, long defaultStaleMs) {
+            this.name = name;
+            this.defaultTtlMs = defaultTtlMs;
+            this.defaultStaleMs = defaultStaleMs;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private record Key(Endpoint endpoint, String query) {
+    }
+
+    private static final class Entry {
+        final Object value;
+        final long freshUntil;
+        final long staleUntil;
+        // Appel amont ayant produit la valeur, réutilisé par refreshAhead
+        final Supplier<?> loader;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(Object value, long freshUntil, long staleUntil, Supplier<?> loader) {
+            this.value = value;
+            this.freshUntil = freshUntil;
+            this.staleUntil = staleUntil;
+            this.loader = loader;
+        }
+    }
+
+    private static final class EndpointStats {
+        final long ttlNanos;
+        final long staleNanos;
+        final Counter hits;
+        final Counter staleHits;
+        final Counter misses;
+        final Counter degraded;
+        final Counter coalesced;
+        final Timer loadSuccess;
+        final Timer loadFailure;
+
+        EndpointStats(Endpoint endpoint, Environment environment, MeterRegistry meterRegistry) {
+            String prefix = "weather.cache." + endpoint.name + ".";
+            this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(
+                    environment.getProperty(prefix + "ttl", Long.class, endpoint.defaultTtlMs));
+            this.staleNanos = TimeUnit.MILLISECONDS.toNanos(
+                    environment.getProperty(prefix + "stale", Long.class, endpoint.defaultStaleMs));
+            this.hits = requests(meterRegistry, endpoint, "hit");
+            this.staleHits = requests(meterRegistry, endpoint, "stale");
+            this.misses = requests(meterRegistry, endpoint, "miss");
+            this.degraded = Counter.builder("weather.cache.degraded")
+                    .description("Valeurs expirées servies faute de quota amont")
+                    .tag("endpoint", endpoint.name)
+                    .register(meterRegistry);
+            this.coalesced = Counter.builder("weather.cache.coalesced")
+                    .description("Requêtes ayant rejoint un appel amont déjà en cours")
+                    .tag("endpoint", endpoint.name)
+                    .register(meterRegistry);
+            this.loadSuccess = loads(meterRegistry, endpoint, "success");
+            this.loadFailure = loads(meterRegistry, endpoint, "failure");
+        }
+
+        double hitRatio() {
+            double served = hits.count() + staleHits.count();
+            double total = served + misses.count();
+            return total == 0 ? 0 : served / total;
+        }
+
+        private static Counter requests(MeterRegistry meterRegistry, Endpoint endpoint, String result) {
+            return Counter.builder("weather.cache.requests")
+                    .description("Requêtes météo par résultat de cache")
+                    .tag("endpoint", endpoint.name)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+
+        private static Timer loads(MeterRegistry meterRegistry, Endpoint endpoint, String outcome) {
+            return Timer.builder("weather.cache.load")
+                    .description("Durée des appels amont (chargements et rafraîchissements)")
+                    .tag("endpoint", endpoint.name)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
+
+    private final Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+    private final Map<Key, Entry> entries;
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final long waitTimeoutMs;
+    private final ThreadPoolExecutor refresher;
+    private final LongSupplier nanoClock;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public WeatherResponseCache(MeterRegistry meterRegistry, Environment environment) {
+        this(meterRegistry, environment, System::nanoTime);
+    }
+
+    WeatherResponseCache(MeterRegistry meterRegistry, Environment environment, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.meterRegistry = meterRegistry;
+        int maxEntries = environment.getProperty("weather.cache.max-entries", Integer.class, 1000);
+        this.waitTimeoutMs = environment.getProperty("weather.cache.wait-timeout", Long.class, 10_000L);
+        // Ordre d'accès : l'entrée la moins récemment lue est évincée en premier
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new EndpointStats(endpoint, environment, meterRegistry));
+        }
+        int refreshThreads = environment.getProperty("weather.cache.refresh-threads", Integer.class, 4);
+        this.refresher = new ThreadPoolExecutor(refreshThreads, refreshThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(100),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "weather-cache-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PostConstruct
+    public void registerMeters() {
+        stats.forEach((endpoint, endpointStats) ->
+                Gauge.builder("weather.cache.hit.ratio", endpointStats, EndpointStats::hitRatio)
+                        .description("Part des requêtes servies depuis le cache (fraîches ou périmées)")
+                        .tag("endpoint", endpoint.name)
+                        .register(meterRegistry));
+        Gauge.builder("weather.cache.size", this, WeatherResponseCache::size)
+                .description("Entrées du cache météo")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Valeur en cache pour la requête, sinon chargée par loader (appel amont).
+     * Une exception du loader n'est jamais mise en cache et remonte à l'appelant ;
+     * loader ne doit pas renvoyer null.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Endpoint endpoint, String query, Supplier<T> loader) {
+        EndpointStats endpointStats = stats.get(endpoint);
+        Key key = new Key(endpoint, query);
+        long now = nanoClock.getAsLong();
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null && now - entry.freshUntil < 0) {
+            endpointStats.hits.increment();
+            return (T) entry.value;
+        }
+        if (entry != null && now - entry.staleUntil < 0) {
+            endpointStats.staleHits.increment();
+            refreshInBackground(key, entry, loader);
+            return (T) entry.value;
+        }
+        endpointStats.misses.increment();
+        if (entry == null) {
+            return load(key, null, loader);
+        }
+        try {
+            return load(key, entry, loader);
+        } catch (RuntimeException e) {
+            if (!UpstreamQuotaExceededException.isCause(e)) {
+                throw e;
+            }
+            endpointStats.degraded.increment();
+            logger.warn("Quota amont épuisé, valeur expirée servie pour {} {}", endpoint.name, query);
+            return (T) entry.value;
+        }
+    }
+
+    /**
+     * Chargement partagé (single-flight) : le premier appelant pour une clé fait l'appel amont,
+     * les appelants concurrents attendent le même résultat au plus wait-timeout ms.
+     * Un appelant qui abandonne n'annule pas l'appel partagé, dont le résultat est mis en cache.
+     * seen est l'entrée lue par l'appelant (ou null) : si un autre chargement s'est terminé depuis,
+     * sa valeur fraîche est rendue sans nouvel appel amont.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T load(Key key, Entry seen, Supplier<T> loader) {
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> inFlightCall = inFlight.putIfAbsent(key, call);
+        if (inFlightCall != null) {
+            stats.get(key.endpoint()).coalesced.increment();
+            return (T) await(key, inFlightCall);
+        }
+        try {
+            Entry current;
+            synchronized (entries) {
+                current = entries.get(key);
+            }
+            if (current != null && current != seen && nanoClock.getAsLong() - current.freshUntil < 0) {
+                call.complete(current.value);
+                return (T) current.value;
+            }
+            T value = fetch(key, loader);
+            call.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    private Object await(Key key, CompletableFuture<Object> call) {
+        try {
+            return call.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Délai dépassé en attente de " + key.endpoint().name + " pour " + key.query());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Attente interrompue pour " + key.endpoint().name, e);
+        }
+    }
+
+    private <T> T fetch(Key key, Supplier<T> loader) {
+        EndpointStats endpointStats = stats.get(key.endpoint());
+        long start = nanoClock.getAsLong();
+        T value;
+        try {
+            value = loader.get();
+            if (value == null) {
+                throw new IllegalStateException("Réponse vide de " + key.endpoint().name);
+            }
+        } catch (RuntimeException e) {
+            endpointStats.loadFailure.record(nanoClock.getAsLong() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        long loaded = nanoClock.getAsLong();
+        Entry entry = new Entry(value, loaded + endpointStats.ttlNanos, loaded + endpointStats.ttlNanos + endpointStats.staleNanos, loader);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+        endpointStats.loadSuccess.record(loaded - start, TimeUnit.NANOSECONDS);
+        return value;
+    }
+
+    /**
+     * Un seul rafraîchissement par entrée ; en cas d'échec l'entrée périmée est conservée.
+     * La valeur périmée a déjà été servie : le rafraîchissement passe après les requêtes interactives.
+     */
+    private <T> void refreshInBackground(Key key, Entry entry, Supplier<T> loader) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    UpstreamPriority.call(UpstreamPriority.SCHEDULED, () -> load(key, entry, loader));
+                } catch (RuntimeException e) {
+                    logger.warn("Rafraîchissement {} impossible pour {}: {}", key.endpoint().name, key.query(), e.getMessage());
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    /**
+     * Recharge, avec leur appel amont d'origine, les entrées de cette requête (tous endpoints confondus)
+     * qui ne seront plus fraîches dans aheadMs ms. Appel bloquant, sans effet sur les statistiques
+     * de succès du cache ; un échec est journalisé et l'entrée existante conservée.
+     * Renvoie le nombre d'entrées rechargées.
+     */
+    public int refreshAhead(String query, long aheadMs) {
+        long horizon = nanoClock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(aheadMs);
+        int refreshed = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            Key key = new Key(endpoint, query);
+            Entry entry;
+            synchronized (entries) {
+                entry = entries.get(key);
+            }
+            if (entry == null || entry.freshUntil - horizon > 0 || !entry.refreshing.compareAndSet(false, true)) {
+                continue;
+            }
+            try {
+                load(key, entry, entry.loader);
+                refreshed++;
+            } catch (RuntimeException e) {
+                logger.warn("Préchargement {} impossible pour {}: {}", endpoint.name, query, e.getMessage());
+            } finally {
+                entry.refreshing.set(false);
+            }
+        }
+        return refreshed;
+    }
+
+    /**
+     * Clé de requête normalisée : casse, accents et espaces ignorés, les autres
+     * paramètres (langue, nombre de jours...) ajoutés tels quels
+     */
+    public static String key(String location, String... options) {
+        String normalized = Normalizer.normalize(location.trim(), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .replaceAll("\\s+", " ")
+                .toLowerCase(Locale.ROOT);
+        return options.length == 0 ? normalized : normalized + "|" + String.join("|", options);
+    }
+
+    /**
+     * Clé de requête pour des coordonnées, arrondies à 4 décimales (environ 10 m)
+     */
+    public static String key(double lat, double lon, String... options) {
+        return key(String.format(Locale.ROOT, "%.4f,%.4f", lat, lon), options);
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public double getHitRatio(Endpoint endpoint) {
+        return stats.get(endpoint).hitRatio();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+}
@@ -0,0 +1,78 @@
+package com.backend.demo.upstream;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Disjoncteur d'un fournisseur : après failure-threshold échecs consécutifs il s'ouvre
+ * et les requêtes vont directement au fournisseur suivant. Après open-duration, un seul
+ * appel d'essai est autorisé (semi-ouvert) : s'il réussit le disjoncteur se referme,
+ * sinon il se rouvre pour une nouvelle durée. Seules les pannes du fournisseur comptent
+ * comme échecs (voir WeatherProviders.isProviderFailure).
+ */
+final class CircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    CircuitBreaker(int failureThreshold, long openMillis, LongSupplier nanoClock) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openMillis * 1_000_000L;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Vrai si un appel peut partir ; en fin d'ouverture, réserve l'appel d'essai
+     */
+    synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (nanoClock.getAsLong() - openedAt >= openNanos) {
+                    state = State.HALF_OPEN;
+                    return true;
+                }
+                return false;
+            default:
+                // Un essai est déjà en cours
+                return false;
+        }
+    }
+
+    synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = nanoClock.getAsLong();
+            consecutiveFailures = 0;
+        }
+    }
+
+    /**
+     * Appel terminé sans rien dire de la santé du fournisseur (erreur 4xx, quota épuisé...) :
+     * l'état est inchangé ; un appel d'essai est rendu, le suivant pourra le refaire
+     */
+    synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,25 @@
+package com.backend.demo.upstream;
+
+/**
+ * Météo courante normalisée, quel que soit le fournisseur : unités métriques (°C, hPa, m/s, km),
+ * icône au format OpenWeather (ex. "04d"), lever et coucher du soleil en secondes epoch (0 si inconnus).
+ *
+ * @param source nom du fournisseur qui a répondu (voir WeatherProvider.getName())
+ */
+public record CurrentWeather(String source,
+                             String name,
+                             String country,
+                             double lat,
+                             double lon,
+                             double temperature,
+                             double feelsLike,
+                             double humidity,
+                             double pressure,
+                             double visibilityKm,
+                             double windSpeed,
+                             double windDeg,
+                             String description,
+                             String icon,
+                             long sunrise,
+                             long sunset) {
+}
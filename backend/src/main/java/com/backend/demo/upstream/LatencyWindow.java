@@ -0,0 +1,46 @@
+package com.backend.demo.upstream;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Latences des derniers appels réussis d'un fournisseur (fenêtre glissante de taille fixe)
+ */
+final class LatencyWindow {
+
+    private static final int MIN_SAMPLES = 20;
+
+    private final long[] samples;
+    private int count;
+    private int next;
+
+    LatencyWindow(int size) {
+        this.samples = new long[size];
+    }
+
+    /**
+     * Exécute l'appel et enregistre sa durée s'il réussit
+     */
+    <T> T time(Supplier<T> call) {
+        long start = System.nanoTime();
+        T result = call.get();
+        record(System.nanoTime() - start);
+        return result;
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    synchronized Duration p95() {
+        if (count < MIN_SAMPLES) {
+            return null;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return Duration.ofNanos(sorted[(int) Math.ceil(0.95 * count) - 1]);
+    }
+}
@@ -0,0 +1,37 @@
+package com.backend.demo.upstream;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Météo courante OpenWeather (/data/2.5/weather), réduite aux champs lus par OpenWeatherProvider.
+ * Les autres champs de la réponse sont sautés pendant la lecture.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record OpenWeatherCurrent(String name, Coord coord, Main main, List<OpenWeatherForecast.Condition> weather,
+                                 OpenWeatherForecast.Wind wind, double visibility, Sys sys) {
+
+    public OpenWeatherForecast.Condition condition() {
+        return weather == null || weather.isEmpty() ? OpenWeatherForecast.Condition.UNKNOWN : weather.get(0);
+    }
+
+    public OpenWeatherForecast.Wind windOrCalm() {
+        return wind != null ? wind : OpenWeatherForecast.Wind.CALM;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Coord(double lat, double lon) {
+        public static final Coord UNKNOWN = new Coord(0, 0);
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Main(double temp, @JsonProperty("feels_like") double feelsLike, double humidity, double pressure) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Sys(String country, long sunrise, long sunset) {
+        public static final Sys UNKNOWN = new Sys("", 0, 0);
+    }
+}
@@ -0,0 +1,57 @@
+package com.backend.demo.upstream;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Prévision OpenWeather à 5 jours (/data/2.5/forecast), réduite aux champs lus par l'application.
+ * Les autres champs de la réponse sont sautés pendant la lecture, sans être matérialisés.
+ * Condition et Wind sont renvoyés tels quels au frontend : ils gardent tous les champs d'OpenWeather.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record OpenWeatherForecast(List<Item> list) {
+
+    /**
+     * Créneau de 3 h
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Item(long dt, Main main, List<Condition> weather, Wind wind, double pop) {
+
+        public double temp() {
+            return main != null ? main.temp() : 0;
+        }
+
+        public double humidity() {
+            return main != null ? main.humidity() : 0;
+        }
+
+        public Condition condition() {
+            return weather == null || weather.isEmpty() ? Condition.UNKNOWN : weather.get(0);
+        }
+
+        public Wind windOrCalm() {
+            return wind != null ? wind : Wind.CALM;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Main(double temp, double humidity) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Condition(Integer id, String main, String description, String icon) {
+        public static final Condition UNKNOWN = new Condition(null, null, "Inconnu", "01d");
+    }
+
+    /**
+     * gust est absent de la réponse quand il n'y a pas de rafales
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Wind(double speed, double deg, Double gust) {
+        public static final Wind CALM = new Wind(0, 0, null);
+    }
+}
@@ -0,0 +1,84 @@
+package com.backend.demo.upstream;
+
+import com.backend.demo.service.WeatherResponseCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+
+/**
+ * Météo courante OpenWeather (/data/2.5/weather), en français et en unités métriques.
+ * Partage les entrées du cache openweather-current avec /api/weather.
+ */
+@Component
+public class OpenWeatherProvider implements WeatherProvider {
+
+    public static final String NAME = "openweather";
+
+    @Value("${openweather.api.key}")
+    private String apiKey;
+
+    private final RestTemplate restTemplate;
+    private final WeatherResponseCache responseCache;
+    private final LatencyWindow latency = new LatencyWindow(100);
+
+    public OpenWeatherProvider(RestTemplate restTemplate, WeatherResponseCache responseCache) {
+        this.restTemplate = restTemplate;
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public CurrentWeather current(String city) {
+        return fetch(WeatherResponseCache.key(city, "fr"), "q=" + city);
+    }
+
+    @Override
+    public CurrentWeather current(double lat, double lon) {
+        return fetch(WeatherResponseCache.key(lat, lon, "fr"), "lat=" + lat + "&lon=" + lon);
+    }
+
+    @Override
+    public Duration getLatencyP95() {
+        return latency.p95();
+    }
+
+    private CurrentWeather fetch(String key, String query) {
+        String url = "https://api.openweathermap.org/data/2.5/weather?" + query
+                + "&appid=" + apiKey + "&units=metric&lang=fr";
+        OpenWeatherCurrent data = responseCache.get(WeatherResponseCache.Endpoint.OPENWEATHER_CURRENT, key,
+                () -> latency.time(() -> restTemplate.getForObject(url, OpenWeatherCurrent.class)));
+        if (data == null || data.main() == null) {
+            throw new IllegalStateException("Réponse OpenWeather sans données météo");
+        }
+        return normalize(data);
+    }
+
+    static CurrentWeather normalize(OpenWeatherCurrent data) {
+        OpenWeatherCurrent.Coord coord = data.coord() != null ? data.coord() : OpenWeatherCurrent.Coord.UNKNOWN;
+        OpenWeatherCurrent.Sys sys = data.sys() != null ? data.sys() : OpenWeatherCurrent.Sys.UNKNOWN;
+        OpenWeatherForecast.Condition condition = data.condition();
+
+        return new CurrentWeather(NAME,
+                data.name() != null ? data.name() : "",
+                sys.country() != null ? sys.country() : "",
+                coord.lat(),
+                coord.lon(),
+                data.main().temp(),
+                data.main().feelsLike(),
+                data.main().humidity(),
+                data.main().pressure(),
+                data.visibility() / 1000,
+                data.windOrCalm().speed(),
+                data.windOrCalm().deg(),
+                condition.description() != null ? condition.description() : "Inconnu",
+                condition.icon() != null ? condition.icon() : "01d",
+                sys.sunrise(),
+                sys.sunset());
+    }
+}
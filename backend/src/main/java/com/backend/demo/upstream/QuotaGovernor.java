@@ -0,0 +1,167 @@
+package com.backend.demo.upstream;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Seau de jetons et quota journalier d'un fournisseur. Sans jeton disponible, les appelants attendent
+ * dans une file ordonnée par priorité puis par arrivée : le prochain jeton va à la requête interactive
+ * la plus ancienne. Une attente au-delà du délai de sa priorité est rejetée. Les appels non interactifs
+ * laissent la part reserve du quota journalier aux utilisateurs.
+ * Le compte du jour est propre à l'instance ; QuotaUsageFile le conserve entre deux redémarrages.
+ * Verrou explicite plutôt que synchronized : les appelants sont souvent des threads virtuels.
+ */
+final class QuotaGovernor {
+
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private record Waiter(UpstreamPriority priority, long sequence) {
+    }
+
+    private final UpstreamQuota quota;
+    private final Map<UpstreamPriority, Duration> maxWaits;
+    private final long nonInteractiveDailyLimit;
+    private final double tokensPerNano;
+    private final LongSupplier nanoClock;
+    private final LongSupplier wallClock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(
+            Comparator.comparing(Waiter::priority).thenComparingLong(Waiter::sequence));
+
+    private double tokens;
+    private long refilledAt;
+    private long sequence;
+    private long day;
+    private long usedToday;
+
+    QuotaGovernor(UpstreamQuota quota, Map<UpstreamPriority, Duration> maxWaits, double reserve,
+                  LongSupplier nanoClock, LongSupplier wallClock) {
+        this.quota = quota;
+        this.maxWaits = maxWaits;
+        this.nonInteractiveDailyLimit = quota.perDay() == Long.MAX_VALUE ? Long.MAX_VALUE : (long) (quota.perDay() * (1 - reserve));
+        this.tokensPerNano = quota.perMinute() / (double) TimeUnit.MINUTES.toNanos(1);
+        this.nanoClock = nanoClock;
+        this.wallClock = wallClock;
+        this.tokens = quota.burst();
+        this.refilledAt = nanoClock.getAsLong();
+        this.day = wallClock.getAsLong() / DAY_MILLIS;
+    }
+
+    /**
+     * Prend un jeton pour un appel de cette priorité, en attendant au plus son délai
+     */
+    void acquire(UpstreamPriority priority) throws UpstreamQuotaExceededException, InterruptedException {
+        Duration maxWait = maxWaits.get(priority);
+        lock.lock();
+        try {
+            long deadline = nanoClock.getAsLong() + maxWait.toNanos();
+            Waiter waiter = new Waiter(priority, sequence++);
+            waiters.add(waiter);
+            try {
+                while (true) {
+                    long now = nanoClock.getAsLong();
+                    refill(now);
+                    if (usedToday >= dailyLimit(priority)) {
+                        throw new UpstreamQuotaExceededException("Quota journalier " + quota.provider() + " atteint pour les appels "
+                                + priority.getName() + " (" + usedToday + "/" + quota.perDay() + ")");
+                    }
+                    if (waiters.peek() == waiter && tokens >= 1) {
+                        tokens -= 1;
+                        usedToday++;
+                        return;
+                    }
+                    long remaining = deadline - now;
+                    if (remaining <= 0) {
+                        throw new UpstreamQuotaExceededException("Quota " + quota.provider() + " : pas de jeton en "
+                                + maxWait.toMillis() + " ms pour un appel " + priority.getName());
+                    }
+                    long untilToken = tokens >= 1 ? remaining : (long) Math.ceil((1 - tokens) / tokensPerNano);
+                    changed.awaitNanos(Math.max(1, Math.min(remaining, untilToken)));
+                }
+            } finally {
+                waiters.remove(waiter);
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long dailyLimit(UpstreamPriority priority) {
+        return priority == UpstreamPriority.INTERACTIVE ? quota.perDay() : nonInteractiveDailyLimit;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(quota.burst(), tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+        long today = wallClock.getAsLong() / DAY_MILLIS;
+        if (today != day) {
+            day = today;
+            usedToday = 0;
+        }
+    }
+
+    double availableTokens() {
+        lock.lock();
+        try {
+            refill(nanoClock.getAsLong());
+            return Math.floor(tokens);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    double remainingToday() {
+        lock.lock();
+        try {
+            refill(nanoClock.getAsLong());
+            return quota.perDay() == Long.MAX_VALUE ? Double.POSITIVE_INFINITY : quota.perDay() - usedToday;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Jour UTC en cours et appels déjà accordés ce jour-là
+     */
+    UpstreamQuotaInterceptor.DailyUsage dailyUsage() {
+        lock.lock();
+        try {
+            refill(nanoClock.getAsLong());
+            return new UpstreamQuotaInterceptor.DailyUsage(day, usedToday);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reprend le compte enregistré avant un redémarrage, s'il est du jour en cours
+     */
+    void seed(UpstreamQuotaInterceptor.DailyUsage usage) {
+        lock.lock();
+        try {
+            refill(nanoClock.getAsLong());
+            if (usage.day() == day) {
+                usedToday = Math.max(usedToday, usage.used());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int queued() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
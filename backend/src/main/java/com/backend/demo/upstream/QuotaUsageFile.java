@@ -0,0 +1,82 @@
+package com.backend.demo.upstream;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+
+/**
+ * Compte du jour des quotas amont conservé dans un fichier : un redémarrage ne rend pas
+ * le quota journalier déjà consommé. Rechargé au démarrage s'il est du jour UTC en cours,
+ * enregistré toutes les flush-interval ms et à l'arrêt. Un fichier par instance, comme les quotas.
+ */
+@Component
+public class QuotaUsageFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuotaUsageFile.class);
+
+    private final UpstreamQuotaInterceptor quotas;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path file;
+    private Map<String, UpstreamQuotaInterceptor.DailyUsage> saved = Map.of();
+
+    public QuotaUsageFile(UpstreamQuotaInterceptor quotas,
+                          @Value("${upstream.quota.usage-file:data/upstream-quota.json}") String file) {
+        this.quotas = quotas;
+        this.file = Paths.get(file);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            Map<String, UpstreamQuotaInterceptor.DailyUsage> usage = objectMapper.readValue(file.toFile(),
+                    new TypeReference<Map<String, UpstreamQuotaInterceptor.DailyUsage>>() {
+                    });
+            quotas.seedDailyUsage(usage);
+            logger.info("Quotas amont repris depuis {} : {}", file, quotas.getDailyUsage());
+        } catch (IOException e) {
+            logger.warn("Quotas amont illisibles ({}), compte du jour repris à zéro : {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Enregistre les comptes s'ils ont changé (écriture dans un fichier temporaire puis remplacement)
+     */
+    @Scheduled(fixedDelayString = "${upstream.quota.flush-interval:60000}")
+    public synchronized void flush() {
+        Map<String, UpstreamQuotaInterceptor.DailyUsage> usage = quotas.getDailyUsage();
+        if (usage.equals(saved)) {
+            return;
+        }
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tmp = Files.createTempFile(parent, "upstream-quota", ".tmp");
+            objectMapper.writeValue(tmp.toFile(), usage);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            saved = usage;
+        } catch (IOException e) {
+            logger.warn("Enregistrement des quotas amont impossible ({}) : {}", file, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,183 @@
+package com.backend.demo.upstream;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.http.HttpTimeoutException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cloison de concurrence par fournisseur amont : un fournisseur lent ne peut occuper
+ * que ses max-concurrent places, les requêtes vers les autres fournisseurs ne l'attendent pas.
+ * Une requête qui n'obtient pas de place dans queue-wait est rejetée (IOException,
+ * donc ResourceAccessException côté RestTemplate, comme un délai dépassé).
+ * La place est rendue à la fermeture de la réponse, une fois le corps lu.
+ *
+ * Métriques par fournisseur : upstream.http.active, upstream.http.queued, upstream.http.limit,
+ * upstream.http.queue.wait et upstream.http.requests{outcome=success|http_error|timeout|io_error|rejected}.
+ */
+public class UpstreamBulkheadInterceptor implements ClientHttpRequestInterceptor {
+
+    private final Map<String, Bulkhead> bulkheadsByHost = new HashMap<>();
+
+    public UpstreamBulkheadInterceptor(List<UpstreamProvider> providers, MeterRegistry meterRegistry) {
+        for (UpstreamProvider provider : providers) {
+            bulkheadsByHost.put(provider.host(), new Bulkhead(provider, meterRegistry));
+        }
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        Bulkhead bulkhead = bulkheadsByHost.get(request.getURI().getHost());
+        if (bulkhead == null) {
+            return execution.execute(request, body);
+        }
+        return bulkhead.execute(request, body, execution);
+    }
+
+    private static final class Bulkhead {
+        private final UpstreamProvider provider;
+        private final MeterRegistry meterRegistry;
+        private final Semaphore permits;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final Timer queueWait;
+
+        Bulkhead(UpstreamProvider provider, MeterRegistry meterRegistry) {
+            this.provider = provider;
+            this.meterRegistry = meterRegistry;
+            this.permits = new Semaphore(provider.maxConcurrent(), true);
+            Gauge.builder("upstream.http.active", permits, p -> provider.maxConcurrent() - p.availablePermits())
+                    .description("Requêtes amont en cours")
+                    .tag("provider", provider.name())
+                    .register(meterRegistry);
+            Gauge.builder("upstream.http.queued", queued, AtomicInteger::get)
+                    .description("Requêtes en attente d'une place dans la cloison")
+                    .tag("provider", provider.name())
+                    .register(meterRegistry);
+            Gauge.builder("upstream.http.limit", provider, UpstreamProvider::maxConcurrent)
+                    .description("Places de la cloison")
+                    .tag("provider", provider.name())
+                    .register(meterRegistry);
+            this.queueWait = Timer.builder("upstream.http.queue.wait")
+                    .description("Attente d'une place dans la cloison")
+                    .tag("provider", provider.name())
+                    .register(meterRegistry);
+        }
+
+        ClientHttpResponse execute(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+            long queuedAt = System.nanoTime();
+            boolean acquired;
+            queued.incrementAndGet();
+            try {
+                acquired = permits.tryAcquire(provider.queueWait().toNanos(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Attente interrompue pour " + provider.name());
+            } finally {
+                queued.decrementAndGet();
+            }
+            long startedAt = System.nanoTime();
+            queueWait.record(startedAt - queuedAt, TimeUnit.NANOSECONDS);
+            if (!acquired) {
+                record("rejected", 0);
+                throw new IOException("Cloison " + provider.name() + " saturée : "
+                        + provider.maxConcurrent() + " requêtes en cours depuis plus de " + provider.queueWait().toMillis() + " ms");
+            }
+
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                return new ReleasingResponse(response, this, startedAt,
+                        response.getStatusCode().isError() ? "http_error" : "success");
+            } catch (IOException | RuntimeException e) {
+                permits.release();
+                record(isTimeout(e) ? "timeout" : "io_error", System.nanoTime() - startedAt);
+                throw e;
+            }
+        }
+
+        void release(long startedAt, String outcome) {
+            permits.release();
+            record(outcome, System.nanoTime() - startedAt);
+        }
+
+        private void record(String outcome, long nanos) {
+            Timer.builder("upstream.http.requests")
+                    .description("Durée des requêtes amont, corps de réponse compris")
+                    .tag("provider", provider.name())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        private static boolean isTimeout(Exception e) {
+            return e instanceof HttpTimeoutException || e.getCause() instanceof TimeoutException
+                    || e.getCause() instanceof HttpTimeoutException;
+        }
+    }
+
+    /**
+     * Réponse qui rend la place de la cloison à sa fermeture
+     */
+    private static final class ReleasingResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final Bulkhead bulkhead;
+        private final long startedAt;
+        private final String outcome;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        ReleasingResponse(ClientHttpResponse delegate, Bulkhead bulkhead, long startedAt, String outcome) {
+            this.delegate = delegate;
+            this.bulkhead = bulkhead;
+            this.startedAt = startedAt;
+            this.outcome = outcome;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                if (closed.compareAndSet(false, true)) {
+                    bulkhead.release(startedAt, outcome);
+                }
+            }
+        }
+    }
+}
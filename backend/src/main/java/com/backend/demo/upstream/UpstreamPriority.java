@@ -0,0 +1,41 @@
+package com.backend.demo.upstream;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Classe de priorité des appels amont pour le partage des quotas (voir UpstreamQuotaInterceptor) :
+ * requêtes des utilisateurs d'abord, appels manuels ensuite, tâches planifiées en dernier.
+ * Portée par le thread courant (interactive par défaut) ; les exécuteurs qui lancent des appels amont
+ * pour le compte d'un appelant la propagent (UpstreamFanOut, WeatherProviders).
+ */
+public enum UpstreamPriority {
+    INTERACTIVE, MANUAL, SCHEDULED;
+
+    private static final ThreadLocal<UpstreamPriority> CURRENT = ThreadLocal.withInitial(() -> INTERACTIVE);
+
+    public static UpstreamPriority current() {
+        return CURRENT.get();
+    }
+
+    public static <T> T call(UpstreamPriority priority, Supplier<T> action) {
+        UpstreamPriority previous = CURRENT.get();
+        CURRENT.set(priority);
+        try {
+            return action.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    public static void run(UpstreamPriority priority, Runnable action) {
+        call(priority, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
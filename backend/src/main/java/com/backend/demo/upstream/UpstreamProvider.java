@@ -0,0 +1,37 @@
+package com.backend.demo.upstream;
+
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fournisseur amont reconnu par son hôte, avec sa cloison de concurrence et son échéance.
+ *
+ * @param maxConcurrent requêtes simultanées au plus vers ce fournisseur
+ * @param queueWait     attente maximale d'une place dans la cloison avant rejet
+ * @param readTimeout   délai maximal entre l'envoi de la requête et la réception des en-têtes de réponse
+ */
+public record UpstreamProvider(String name, String host, int maxConcurrent, Duration queueWait, Duration readTimeout) {
+
+    /**
+     * Fournisseurs déclarés dans upstream.providers, réglés par upstream.&lt;nom&gt;.host,
+     * .max-concurrent, .queue-wait et .read-timeout (ms)
+     */
+    public static List<UpstreamProvider> fromEnvironment(Environment environment) {
+        List<UpstreamProvider> providers = new ArrayList<>();
+        for (String name : environment.getProperty("upstream.providers", String[].class, new String[0])) {
+            String prefix = "upstream." + name.trim() + ".";
+            String host = environment.getProperty(prefix + "host");
+            if (host == null) {
+                throw new IllegalArgumentException("Hôte manquant pour le fournisseur amont " + name + " (" + prefix + "host)");
+            }
+            providers.add(new UpstreamProvider(name.trim(), host,
+                    environment.getProperty(prefix + "max-concurrent", Integer.class, 20),
+                    Duration.ofMillis(environment.getProperty(prefix + "queue-wait", Long.class, 250L)),
+                    Duration.ofMillis(environment.getProperty(prefix + "read-timeout", Long.class, 2_500L))));
+        }
+        return providers;
+    }
+}
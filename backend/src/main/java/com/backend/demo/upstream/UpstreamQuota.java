@@ -0,0 +1,56 @@
+package com.backend.demo.upstream;
+
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Quota de la clé API d'un fournisseur amont.
+ *
+ * @param perMinute débit soutenu (jetons rechargés par minute)
+ * @param burst     jetons accumulables au plus (rafale permise)
+ * @param perDay    appels par jour UTC
+ */
+public record UpstreamQuota(String provider, String host, int perMinute, int burst, long perDay) {
+
+    /**
+     * Quotas des fournisseurs de upstream.providers réglés par upstream.&lt;nom&gt;.quota.per-minute,
+     * .burst (per-minute par défaut) et .per-day (illimité par défaut) ; sans per-minute, pas de quota
+     */
+    public static List<UpstreamQuota> fromEnvironment(Environment environment, List<UpstreamProvider> providers) {
+        List<UpstreamQuota> quotas = new ArrayList<>();
+        for (UpstreamProvider provider : providers) {
+            String prefix = "upstream." + provider.name() + ".quota.";
+            Integer perMinute = environment.getProperty(prefix + "per-minute", Integer.class);
+            if (perMinute == null) {
+                continue;
+            }
+            if (perMinute < 1) {
+                throw new IllegalArgumentException("Quota invalide pour " + provider.name() + " : " + prefix + "per-minute=" + perMinute);
+            }
+            quotas.add(new UpstreamQuota(provider.name(), provider.host(), perMinute,
+                    environment.getProperty(prefix + "burst", Integer.class, perMinute),
+                    environment.getProperty(prefix + "per-day", Long.class, Long.MAX_VALUE)));
+        }
+        return quotas;
+    }
+
+    /**
+     * Attente maximale d'un jeton par priorité (upstream.quota.wait.&lt;priorité&gt;, ms)
+     */
+    public static Map<UpstreamPriority, Duration> maxWaits(Environment environment) {
+        Map<UpstreamPriority, Duration> waits = new EnumMap<>(UpstreamPriority.class);
+        waits.put(UpstreamPriority.INTERACTIVE, wait(environment, UpstreamPriority.INTERACTIVE, 1_000));
+        waits.put(UpstreamPriority.MANUAL, wait(environment, UpstreamPriority.MANUAL, 5_000));
+        waits.put(UpstreamPriority.SCHEDULED, wait(environment, UpstreamPriority.SCHEDULED, 30_000));
+        return waits;
+    }
+
+    private static Duration wait(Environment environment, UpstreamPriority priority, long defaultMs) {
+        return Duration.ofMillis(environment.getProperty("upstream.quota.wait." + priority.getName(), Long.class, defaultMs));
+    }
+}
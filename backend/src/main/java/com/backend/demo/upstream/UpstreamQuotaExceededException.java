@@ -0,0 +1,26 @@
+package com.backend.demo.upstream;
+
+import java.io.IOException;
+
+/**
+ * Appel amont refusé faute de quota (seau de jetons vide au-delà de l'attente permise, ou quota journalier atteint).
+ * IOException comme un rejet de cloison : RestTemplate la transmet en cause d'une ResourceAccessException.
+ */
+public class UpstreamQuotaExceededException extends IOException {
+
+    public UpstreamQuotaExceededException(String message) {
+        super(message);
+    }
+
+    /**
+     * Vrai si l'erreur est due, directement ou par une de ses causes, à un quota amont épuisé
+     */
+    public static boolean isCause(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UpstreamQuotaExceededException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
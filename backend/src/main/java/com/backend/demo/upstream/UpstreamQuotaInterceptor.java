@@ -0,0 +1,133 @@
+package com.backend.demo.upstream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Partage des quotas des clés API entre le trafic utilisateur, les appels manuels et les tâches planifiées
+ * (voir UpstreamPriority et QuotaGovernor). Placé avant la cloison de concurrence : une requête qui attend
+ * un jeton n'occupe pas de place. Une requête refusée lève UpstreamQuotaExceededException ;
+ * WeatherResponseCache sert alors la dernière valeur connue s'il en a une.
+ *
+ * Les seaux et le compte du jour sont propres à chaque instance : derrière une même clé API,
+ * chaque instance doit recevoir sa part du quota (upstream.&lt;nom&gt;.quota.* divisés par le nombre d'instances).
+ *
+ * Métriques par fournisseur : upstream.quota.remaining{window=minute|day}, upstream.quota.queued,
+ * upstream.quota.wait{priority} et upstream.quota.requests{priority,outcome=granted|rejected}.
+ */
+public class UpstreamQuotaInterceptor implements ClientHttpRequestInterceptor {
+
+    private final Map<String, Governed> governorsByHost = new HashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    private record Governed(UpstreamQuota quota, QuotaGovernor governor) {
+    }
+
+    /**
+     * Appels accordés un jour UTC (jours depuis l'epoch)
+     */
+    public record DailyUsage(long day, long used) {
+    }
+
+    public UpstreamQuotaInterceptor(List<UpstreamQuota> quotas, Map<UpstreamPriority, Duration> maxWaits,
+                                    double reserve, MeterRegistry meterRegistry) {
+        this(quotas, maxWaits, reserve, meterRegistry, System::nanoTime, System::currentTimeMillis);
+    }
+
+    UpstreamQuotaInterceptor(List<UpstreamQuota> quotas, Map<UpstreamPriority, Duration> maxWaits, double reserve,
+                             MeterRegistry meterRegistry, LongSupplier nanoClock, LongSupplier wallClock) {
+        this.meterRegistry = meterRegistry;
+        for (UpstreamQuota quota : quotas) {
+            QuotaGovernor governor = new QuotaGovernor(quota, maxWaits, reserve, nanoClock, wallClock);
+            governorsByHost.put(quota.host(), new Governed(quota, governor));
+            Gauge.builder("upstream.quota.remaining", governor, QuotaGovernor::availableTokens)
+                    .description("Budget d'appels amont restant : jetons du seau ou quota du jour")
+                    .tag("provider", quota.provider())
+                    .tag("window", "minute")
+                    .register(meterRegistry);
+            Gauge.builder("upstream.quota.remaining", governor, QuotaGovernor::remainingToday)
+                    .tag("provider", quota.provider())
+                    .tag("window", "day")
+                    .register(meterRegistry);
+            Gauge.builder("upstream.quota.queued", governor, QuotaGovernor::queued)
+                    .description("Requêtes en attente d'un jeton")
+                    .tag("provider", quota.provider())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Compte du jour par fournisseur
+     */
+    public Map<String, DailyUsage> getDailyUsage() {
+        Map<String, DailyUsage> usage = new HashMap<>();
+        for (Governed governed : governorsByHost.values()) {
+            usage.put(governed.quota().provider(), governed.governor().dailyUsage());
+        }
+        return usage;
+    }
+
+    /**
+     * Reprend les comptes enregistrés ; ceux d'un autre jour ou d'un fournisseur inconnu sont ignorés
+     */
+    public void seedDailyUsage(Map<String, DailyUsage> usage) {
+        for (Governed governed : governorsByHost.values()) {
+            DailyUsage saved = usage.get(governed.quota().provider());
+            if (saved != null) {
+                governed.governor().seed(saved);
+            }
+        }
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        Governed governed = governorsByHost.get(request.getURI().getHost());
+        if (governed == null) {
+            return execution.execute(request, body);
+        }
+        UpstreamPriority priority = UpstreamPriority.current();
+        long begin = System.nanoTime();
+        try {
+            governed.governor().acquire(priority);
+        } catch (UpstreamQuotaExceededException e) {
+            record(governed.quota(), priority, "rejected", begin);
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Attente de quota interrompue pour " + governed.quota().provider());
+        }
+        record(governed.quota(), priority, "granted", begin);
+        return execution.execute(request, body);
+    }
+
+    private void record(UpstreamQuota quota, UpstreamPriority priority, String outcome, long begin) {
+        Timer.builder("upstream.quota.wait")
+                .description("Attente d'un jeton de quota")
+                .tag("provider", quota.provider())
+                .tag("priority", priority.getName())
+                .register(meterRegistry)
+                .record(System.nanoTime() - begin, TimeUnit.NANOSECONDS);
+        Counter.builder("upstream.quota.requests")
+                .description("Requêtes amont par priorité et décision du quota")
+                .tag("provider", quota.provider())
+                .tag("priority", priority.getName())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
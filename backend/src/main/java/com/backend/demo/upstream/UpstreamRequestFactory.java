@@ -0,0 +1,55 @@
+package com.backend.demo.upstream;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Requêtes amont sur un client HTTP JDK partagé : connexions persistantes réutilisées entre requêtes,
+ * HTTP/2 négocié quand le serveur le propose (HTTP/1.1 sinon), délai de connexion borné.
+ * Chaque fournisseur a son propre délai de lecture ; les autres hôtes reçoivent le délai par défaut.
+ */
+public class UpstreamRequestFactory implements ClientHttpRequestFactory {
+
+    private final Map<String, ClientHttpRequestFactory> factoriesByHost = new HashMap<>();
+    private final ClientHttpRequestFactory defaultFactory;
+
+    public UpstreamRequestFactory(HttpClient httpClient, List<UpstreamProvider> providers, Duration defaultReadTimeout) {
+        for (UpstreamProvider provider : providers) {
+            factoriesByHost.put(provider.host(), factory(httpClient, provider.readTimeout()));
+        }
+        this.defaultFactory = factory(httpClient, defaultReadTimeout);
+    }
+
+    /**
+     * Client partagé par tous les fournisseurs ; la durée de vie des connexions inactives est celle du JDK,
+     * réglable au lancement de la JVM par -Djdk.httpclient.keepalive.timeout (en s)
+     */
+    public static HttpClient httpClient(Duration connectTimeout) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    private static ClientHttpRequestFactory factory(HttpClient httpClient, Duration readTimeout) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(readTimeout);
+        return factory;
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        return factoriesByHost.getOrDefault(uri.getHost(), defaultFactory).createRequest(uri, httpMethod);
+    }
+}
@@ -0,0 +1,38 @@
+package com.backend.demo.upstream;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Météo courante WeatherAPI (/v1/current.json), réduite aux champs lus par WeatherApiProvider.
+ * Les autres champs de la réponse sont sautés pendant la lecture.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record WeatherApiCurrent(Location location, Current current) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Location(String name, String country, double lat, double lon) {
+        public static final Location UNKNOWN = new Location("", "", 0, 0);
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Current(@JsonProperty("temp_c") double tempC,
+                          @JsonProperty("feelslike_c") double feelsLikeC,
+                          double humidity,
+                          @JsonProperty("pressure_mb") double pressureMb,
+                          @JsonProperty("vis_km") double visKm,
+                          @JsonProperty("wind_kph") double windKph,
+                          @JsonProperty("wind_degree") double windDegree,
+                          @JsonProperty("is_day") int isDay,
+                          Condition condition) {
+
+        public Condition conditionOrUnknown() {
+            return condition != null ? condition : Condition.UNKNOWN;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Condition(String text, int code) {
+        public static final Condition UNKNOWN = new Condition("Inconnu", 0);
+    }
+}
@@ -0,0 +1,52 @@
+package com.backend.demo.upstream;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Prévision WeatherAPI (/v1/forecast.json), réduite aux champs lus par l'application :
+ * synthèse journalière et relevés horaires. Les autres champs (location, current, astro,
+ * une trentaine de valeurs par heure) sont sautés pendant la lecture.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record WeatherApiForecast(Forecast forecast) {
+
+    public List<Day> days() {
+        return forecast != null && forecast.forecastday() != null ? forecast.forecastday() : List.of();
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Forecast(List<Day> forecastday) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Day(String date, Summary day, List<Hour> hour) {
+
+        public List<Hour> hours() {
+            return hour != null ? hour : List.of();
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Summary(@JsonProperty("maxtemp_c") double maxTempC,
+                          @JsonProperty("mintemp_c") double minTempC,
+                          @JsonProperty("avghumidity") double avgHumidity,
+                          @JsonProperty("maxwind_kph") double maxWindKph,
+                          Condition condition) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Hour(String time,
+                       @JsonProperty("temp_c") double tempC,
+                       double humidity,
+                       @JsonProperty("wind_kph") double windKph,
+                       Condition condition) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Condition(String text, String icon) {
+        public static final Condition UNKNOWN = new Condition("Inconnu", "");
+    }
+}
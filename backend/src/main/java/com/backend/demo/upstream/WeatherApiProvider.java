@@ -0,0 +1,121 @@
+package com.backend.demo.upstream;
+
+import com.backend.demo.service.WeatherResponseCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Météo courante WeatherAPI (/v1/current.json) en français, convertie au format normalisé :
+ * vent en m/s, icône OpenWeather déduite du code de condition WeatherAPI.
+ * Le lever et le coucher du soleil ne sont pas fournis par cet endpoint (0).
+ */
+@Component
+public class WeatherApiProvider implements WeatherProvider {
+
+    public static final String NAME = "weatherapi";
+
+    // Codes de condition WeatherAPI regroupés par icône OpenWeather
+    private static final Set<Integer> FOG = Set.of(1030, 1135, 1147);
+    private static final Set<Integer> THUNDER = Set.of(1087, 1273, 1276, 1279, 1282);
+    private static final Set<Integer> SNOW = Set.of(1066, 1069, 1072, 1114, 1117, 1204, 1207, 1210, 1213, 1216,
+            1219, 1222, 1225, 1237, 1249, 1252, 1255, 1258, 1261, 1264);
+    private static final Set<Integer> SHOWERS = Set.of(1150, 1153, 1168, 1171, 1240, 1243, 1246);
+
+    @Value("${weatherapi.api.key}")
+    private String apiKey;
+
+    private final RestTemplate restTemplate;
+    private final WeatherResponseCache responseCache;
+    private final LatencyWindow latency = new LatencyWindow(100);
+
+    public WeatherApiProvider(RestTemplate restTemplate, WeatherResponseCache responseCache) {
+        this.restTemplate = restTemplate;
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public CurrentWeather current(String city) {
+        return fetch(WeatherResponseCache.key(city, "fr"), city);
+    }
+
+    @Override
+    public CurrentWeather current(double lat, double lon) {
+        return fetch(WeatherResponseCache.key(lat, lon, "fr"), lat + "," + lon);
+    }
+
+    @Override
+    public Duration getLatencyP95() {
+        return latency.p95();
+    }
+
+    private CurrentWeather fetch(String key, String query) {
+        String url = "https://api.weatherapi.com/v1/current.json?key=" + apiKey + "&q=" + query + "&lang=fr";
+        WeatherApiCurrent data = responseCache.get(WeatherResponseCache.Endpoint.WEATHERAPI_CURRENT, key,
+                () -> latency.time(() -> restTemplate.getForObject(url, WeatherApiCurrent.class)));
+        if (data == null || data.current() == null) {
+            throw new IllegalStateException("Réponse WeatherAPI sans données météo");
+        }
+        return normalize(data);
+    }
+
+    static CurrentWeather normalize(WeatherApiCurrent data) {
+        WeatherApiCurrent.Location location = data.location() != null ? data.location() : WeatherApiCurrent.Location.UNKNOWN;
+        WeatherApiCurrent.Current current = data.current();
+        WeatherApiCurrent.Condition condition = current.conditionOrUnknown();
+
+        return new CurrentWeather(NAME,
+                location.name() != null ? location.name() : "",
+                location.country() != null ? location.country() : "",
+                location.lat(),
+                location.lon(),
+                current.tempC(),
+                current.feelsLikeC(),
+                current.humidity(),
+                current.pressureMb(),
+                current.visKm(),
+                current.windKph() / 3.6,
+                current.windDegree(),
+                condition.text() != null ? condition.text() : "Inconnu",
+                icon(condition.code(), current.isDay() != 0),
+                0,
+                0);
+    }
+
+    /**
+     * Icône OpenWeather équivalente à un code de condition WeatherAPI
+     */
+    static String icon(int code, boolean day) {
+        String icon;
+        if (code == 1000) {
+            icon = "01";
+        } else if (code == 1003) {
+            icon = "02";
+        } else if (code == 1006) {
+            icon = "03";
+        } else if (code == 1009) {
+            icon = "04";
+        } else if (FOG.contains(code)) {
+            icon = "50";
+        } else if (THUNDER.contains(code)) {
+            icon = "11";
+        } else if (SNOW.contains(code)) {
+            icon = "13";
+        } else if (SHOWERS.contains(code)) {
+            icon = "09";
+        } else if (code >= 1063) {
+            icon = "10";
+        } else {
+            icon = "01";
+        }
+        return icon + (day ? "d" : "n");
+    }
+}
@@ -0,0 +1,27 @@
+package com.backend.demo.upstream;
+
+import java.time.Duration;
+
+/**
+ * Fournisseur de météo courante interchangeable : chaque implémentation construit ses URL,
+ * lit sa réponse et la convertit en CurrentWeather. Le choix du fournisseur, le disjoncteur,
+ * la bascule et les requêtes de couverture sont gérés par WeatherProviders.
+ * Les méthodes lèvent une exception si le fournisseur ne répond pas ou répond sans données.
+ */
+public interface WeatherProvider {
+
+    /**
+     * Nom court, identique à celui du fournisseur dans upstream.providers (ex. "openweather")
+     */
+    String getName();
+
+    CurrentWeather current(String city);
+
+    CurrentWeather current(double lat, double lon);
+
+    /**
+     * Latence p95 des derniers appels réellement envoyés au fournisseur (réponses servies
+     * par le cache exclues), ou null tant qu'il n'y a pas assez d'échantillons
+     */
+    Duration getLatencyP95();
+}
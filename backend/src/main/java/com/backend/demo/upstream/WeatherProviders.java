@@ -0,0 +1,254 @@
+package com.backend.demo.upstream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Météo courante servie par le premier fournisseur disponible, dans l'ordre weather.providers.order.
+ * - Disjoncteur par fournisseur (voir CircuitBreaker) : un fournisseur en panne n'est plus appelé.
+ * - Bascule : si le fournisseur appelé échoue, le suivant est appelé aussitôt. Une erreur 4xx
+ *   (ville inconnue, requête invalide) est renvoyée telle quelle : les autres fournisseurs
+ *   refuseraient la même requête, et le disjoncteur n'en tient pas compte.
+ * - Couverture : si le fournisseur appelé n'a pas répondu après sa latence p95, le suivant est
+ *   appelé en parallèle et la première réponse gagne. Seuls les ~5 % d'appels les plus lents
+ *   partent en double, le quota consommé reste proche d'un appel par requête.
+ */
+@Component
+public class WeatherProviders {
+    private static final Logger logger = LoggerFactory.getLogger(WeatherProviders.class);
+
+    private final List<Route> routes = new ArrayList<>();
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("weather-provider-", 0).factory());
+    private final MeterRegistry meterRegistry;
+    private final long hedgeMinDelayMs;
+    private final long hedgeInitialDelayMs;
+    private final long deadlineMs;
+
+    private final class Route {
+        final WeatherProvider provider;
+        final CircuitBreaker breaker;
+
+        Route(WeatherProvider provider, CircuitBreaker breaker) {
+            this.provider = provider;
+            this.breaker = breaker;
+        }
+
+        String name() {
+            return provider.getName();
+        }
+
+        long hedgeDelayMs() {
+            Duration p95 = provider.getLatencyP95();
+            return p95 == null ? hedgeInitialDelayMs : Math.max(hedgeMinDelayMs, p95.toMillis());
+        }
+    }
+
+    @Autowired
+    public WeatherProviders(List<WeatherProvider> providers, MeterRegistry meterRegistry,
+                            @Value("${weather.providers.order:openweather,weatherapi}") List<String> order,
+                            @Value("${weather.providers.failure-threshold:5}") int failureThreshold,
+                            @Value("${weather.providers.open-duration:30000}") long openDurationMs,
+                            @Value("${weather.providers.hedge.min-delay:100}") long hedgeMinDelayMs,
+                            @Value("${weather.providers.hedge.initial-delay:1000}") long hedgeInitialDelayMs,
+                            @Value("${weather.upstream.deadline:3000}") long deadlineMs) {
+        this(providers, meterRegistry, order, failureThreshold, openDurationMs,
+                hedgeMinDelayMs, hedgeInitialDelayMs, deadlineMs, System::nanoTime);
+    }
+
+    WeatherProviders(List<WeatherProvider> providers, MeterRegistry meterRegistry, List<String> order,
+                     int failureThreshold, long openDurationMs, long hedgeMinDelayMs, long hedgeInitialDelayMs,
+                     long deadlineMs, LongSupplier nanoClock) {
+        this.meterRegistry = meterRegistry;
+        this.hedgeMinDelayMs = hedgeMinDelayMs;
+        this.hedgeInitialDelayMs = hedgeInitialDelayMs;
+        this.deadlineMs = deadlineMs;
+
+        // Fournisseurs absents de la liste : après les autres
+        List<WeatherProvider> ordered = new ArrayList<>(providers);
+        ordered.sort(Comparator.comparingInt(p -> order.contains(p.getName()) ? order.indexOf(p.getName()) : order.size()));
+        for (WeatherProvider provider : ordered) {
+            Route route = new Route(provider, new CircuitBreaker(failureThreshold, openDurationMs, nanoClock));
+            routes.add(route);
+            Gauge.builder("weather.provider.circuit.state", route.breaker, b -> b.getState().ordinal())
+                    .description("État du disjoncteur : 0 fermé, 1 ouvert, 2 semi-ouvert")
+                    .tag("provider", route.name())
+                    .register(meterRegistry);
+            Gauge.builder("weather.provider.hedge.delay", route, Route::hedgeDelayMs)
+                    .description("Délai avant requête de couverture vers le fournisseur suivant (ms)")
+                    .tag("provider", route.name())
+                    .register(meterRegistry);
+        }
+        logger.info("Fournisseurs météo par ordre de préférence : {}", routes.stream().map(Route::name).toList());
+    }
+
+    public CurrentWeather current(String city) {
+        return call(provider -> provider.current(city));
+    }
+
+    public CurrentWeather current(double lat, double lon) {
+        return call(provider -> provider.current(lat, lon));
+    }
+
+    public List<String> getProviderNames() {
+        return routes.stream().map(Route::name).toList();
+    }
+
+    private CurrentWeather call(Function<WeatherProvider, CurrentWeather> request) {
+        Attempt attempt = new Attempt(request);
+        Route primary = attempt.launchNext(null);
+        if (primary == null) {
+            throw new IllegalStateException("Aucun fournisseur météo disponible (disjoncteurs ouverts)");
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        try {
+            try {
+                return attempt.winner.get(primary.hedgeDelayMs(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                attempt.launchNext("hedge");
+            }
+            return attempt.winner.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Délai dépassé : aucun fournisseur météo n'a répondu en " + deadlineMs + " ms");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Appel fournisseur interrompu", e);
+        }
+    }
+
+    /**
+     * Une requête répartie sur les fournisseurs successifs ; la première réponse complète winner
+     */
+    private final class Attempt {
+        final Function<WeatherProvider, CurrentWeather> request;
+        final CompletableFuture<CurrentWeather> winner = new CompletableFuture<>();
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger running = new AtomicInteger();
+        final List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        // Priorité de quota de l'appelant, reprise par chaque appel fournisseur
+        final UpstreamPriority priority = UpstreamPriority.current();
+
+        Attempt(Function<WeatherProvider, CurrentWeather> request) {
+            this.request = request;
+        }
+
+        /**
+         * Lance le prochain fournisseur dont le disjoncteur laisse passer l'appel ;
+         * null s'il n'y en a plus. reason : null pour le premier, "failover" ou "hedge" ensuite.
+         */
+        Route launchNext(String reason) {
+            int index;
+            while ((index = next.getAndIncrement()) < routes.size()) {
+                Route route = routes.get(index);
+                if (!route.breaker.tryAcquire()) {
+                    count(route, "rejected");
+                    continue;
+                }
+                if (reason != null) {
+                    Counter.builder("weather.provider.fallbacks")
+                            .description("Appels de secours : bascule après échec ou couverture après la p95")
+                            .tag("provider", route.name())
+                            .tag("reason", reason)
+                            .register(meterRegistry)
+                            .increment();
+                    logger.debug("Appel {} vers {}", reason, route.name());
+                }
+                running.incrementAndGet();
+                executor.execute(() -> UpstreamPriority.run(priority, () -> run(route)));
+                return route;
+            }
+            return null;
+        }
+
+        private void run(Route route) {
+            try {
+                CurrentWeather weather = request.apply(route.provider);
+                route.breaker.onSuccess();
+                count(route, "success");
+                winner.complete(weather);
+                running.decrementAndGet();
+            } catch (RuntimeException e) {
+                if (isClientError(e)) {
+                    route.breaker.release();
+                    count(route, "client_error");
+                    winner.completeExceptionally(e);
+                    running.decrementAndGet();
+                    return;
+                }
+                if (isProviderFailure(e)) {
+                    route.breaker.onFailure();
+                    count(route, "failure");
+                } else {
+                    // Quota épuisé, 429 ou réponse sans données : on bascule sans accuser le fournisseur
+                    route.breaker.release();
+                    count(route, "unavailable");
+                }
+                logger.warn("Fournisseur {} en échec : {}", route.name(), e.getMessage());
+                failures.add(route.name() + " : " + e.getMessage());
+                boolean launched = !winner.isDone() && launchNext("failover") != null;
+                if (running.decrementAndGet() == 0 && !launched) {
+                    winner.completeExceptionally(new IllegalStateException(
+                            "Tous les fournisseurs météo ont échoué (" + String.join(" ; ", failures) + ")"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Requête refusée par le fournisseur (4xx hors 429) : inutile de la rejouer ailleurs
+     */
+    static boolean isClientError(RuntimeException e) {
+        return e instanceof HttpClientErrorException error && error.getStatusCode().value() != HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+
+    /**
+     * Panne du fournisseur, comptée par son disjoncteur : 5xx, délai dépassé, erreur réseau
+     * ou rejet de cloison (ces trois derniers arrivent en ResourceAccessException) ; pas un quota épuisé
+     */
+    static boolean isProviderFailure(RuntimeException e) {
+        return e instanceof HttpServerErrorException
+                || (e instanceof ResourceAccessException && !UpstreamQuotaExceededException.isCause(e));
+    }
+
+    private void count(Route route, String outcome) {
+        Counter.builder("weather.provider.calls")
+                .description("Appels aux fournisseurs météo par issue")
+                .tag("provider", route.name())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,130 @@
+package com.backend.demo.Config;
+
+import com.backend.demo.service.PayloadEncodingInterceptor;
+import com.backend.demo.service.PreEncodedBroadcaster;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Deux instances en mode relay partagent un même broker STOMP (ici un broker de remplacement en mémoire) :
+ * un message publié par l'instance A atteint un client connecté à l'instance B.
+ */
+class StompBrokerRelayTests {
+
+	private StompStandInBroker broker;
+	private Node nodeA;
+	private Node nodeB;
+
+	private static final class Node {
+		final ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+		final BlockingQueue<Message<?>> toClients = new LinkedBlockingQueue<>();
+		final StompBrokerRelayMessageHandler relay;
+		final SimpMessagingTemplate template;
+
+		Node(int port) {
+			relay = new StompBrokerRelayMessageHandler(new ExecutorSubscribableChannel(),
+					(message, timeout) -> toClients.add(message), brokerChannel, List.of("/topic", "/queue"));
+			relay.setRelayHost("127.0.0.1");
+			relay.setRelayPort(port);
+			relay.setSystemHeartbeatSendInterval(0);
+			relay.setSystemHeartbeatReceiveInterval(0);
+			template = new SimpMessagingTemplate(brokerChannel);
+			template.setMessageConverter(new CompositeMessageConverter(List.of(
+					new StringMessageConverter(), new ByteArrayMessageConverter(), new MappingJackson2MessageConverter())));
+		}
+
+		void start() throws InterruptedException {
+			relay.start();
+			long deadline = System.currentTimeMillis() + 5000;
+			while (!relay.isBrokerAvailable() && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertTrue(relay.isBrokerAvailable(), "session système non connectée");
+		}
+
+		Message<?> nextToClient(StompCommand command) throws InterruptedException {
+			Message<?> message;
+			do {
+				message = toClients.poll(5, TimeUnit.SECONDS);
+			} while (message != null && StompHeaderAccessor.wrap(message).getCommand() != command);
+			return message;
+		}
+	}
+
+	@BeforeEach
+	void startNodes() throws Exception {
+		broker = new StompStandInBroker();
+		nodeA = new Node(broker.getPort());
+		nodeB = new Node(broker.getPort());
+		nodeA.start();
+		nodeB.start();
+	}
+
+	@AfterEach
+	void stopNodes() throws Exception {
+		nodeA.relay.stop();
+		nodeB.relay.stop();
+		broker.close();
+	}
+
+	@Test
+	void publishFromOneNodeReachesSubscriberOnAnother() throws Exception {
+		nodeB.relay.handleMessage(clientFrame(StompCommand.CONNECT, "client-1", null));
+		assertNotNull(nodeB.nextToClient(StompCommand.CONNECTED));
+		nodeB.relay.handleMessage(clientFrame(StompCommand.SUBSCRIBE, "client-1", "/topic/airquality"));
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (broker.getSubscriptionCount("/topic/airquality") == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+
+		PreEncodedBroadcaster broadcaster = new PreEncodedBroadcaster(nodeA.template, new PayloadEncodingInterceptor(new Jackson2ObjectMapperBuilder()));
+		broadcaster.send("/topic/airquality", broadcaster.encode(Map.of("aqi", 42)), Map.of("severity", "warning"));
+
+		Message<?> received = nodeB.nextToClient(StompCommand.MESSAGE);
+		assertNotNull(received, "message non relayé vers l'instance B");
+		assertEquals("client-1", SimpMessageHeaderAccessor.getSessionId(received.getHeaders()));
+		assertEquals("sub-0", SimpMessageHeaderAccessor.getSubscriptionId(received.getHeaders()));
+		assertEquals("{\"aqi\":42}", new String((byte[]) received.getPayload(), StandardCharsets.UTF_8));
+		assertEquals("warning", StompHeaderAccessor.wrap(received).getFirstNativeHeader("severity"));
+	}
+
+	private static Message<byte[]> clientFrame(StompCommand command, String sessionId, String destination) {
+		StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+		accessor.setSessionId(sessionId);
+		if (command == StompCommand.CONNECT) {
+			accessor.setAcceptVersion("1.2");
+			accessor.setHeartbeat(0, 0);
+		}
+		if (destination != null) {
+			accessor.setDestination(destination);
+			accessor.setSubscriptionId("sub-0");
+		}
+		return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+	}
+}
@@ -0,0 +1,193 @@
+package com.backend.demo.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Broker STOMP minimal en mémoire pour les tests du mode relay :
+ * CONNECT, SUBSCRIBE, UNSUBSCRIBE, SEND (diffusion aux abonnés de la destination exacte) et DISCONNECT.
+ * Pas de heart-beat, pas d'acquittement.
+ */
+class StompStandInBroker implements AutoCloseable {
+
+	private final ServerSocket serverSocket;
+	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+	private final List<Socket> connections = new CopyOnWriteArrayList<>();
+	private final AtomicLong messageIds = new AtomicLong();
+
+	private record Subscription(Connection connection, String id, String destination) {
+	}
+
+	private record Frame(String command, Map<String, String> headers, byte[] body) {
+	}
+
+	StompStandInBroker() throws IOException {
+		serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		Thread acceptor = new Thread(this::acceptLoop, "stomp-stand-in");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	int getSubscriptionCount(String destination) {
+		return (int) subscriptions.stream().filter(s -> s.destination().equals(destination)).count();
+	}
+
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+		for (Socket socket : connections) {
+			socket.close();
+		}
+	}
+
+	private void acceptLoop() {
+		while (!serverSocket.isClosed()) {
+			try {
+				Socket socket = serverSocket.accept();
+				connections.add(socket);
+				Thread reader = new Thread(() -> new Connection(socket).run(), "stomp-stand-in-connection");
+				reader.setDaemon(true);
+				reader.start();
+			} catch (IOException e) {
+				return;
+			}
+		}
+	}
+
+	private final class Connection {
+		private final Socket socket;
+		private OutputStream out;
+
+		Connection(Socket socket) {
+			this.socket = socket;
+		}
+
+		void run() {
+			try (socket) {
+				InputStream in = socket.getInputStream();
+				out = socket.getOutputStream();
+				Frame frame;
+				while ((frame = readFrame(in)) != null) {
+					if (!handle(frame)) {
+						break;
+					}
+				}
+			} catch (IOException e) {
+				// Connexion fermée par le client
+			} finally {
+				subscriptions.removeIf(s -> s.connection() == this);
+			}
+		}
+
+		private boolean handle(Frame frame) throws IOException {
+			switch (frame.command()) {
+				case "CONNECT", "STOMP" -> write("CONNECTED", Map.of("version", "1.2", "heart-beat", "0,0"), new byte[0]);
+				case "SUBSCRIBE" -> subscriptions.add(
+						new Subscription(this, frame.headers().get("id"), frame.headers().get("destination")));
+				case "UNSUBSCRIBE" -> subscriptions.removeIf(
+						s -> s.connection() == this && s.id().equals(frame.headers().get("id")));
+				case "SEND" -> broadcast(frame);
+				case "DISCONNECT" -> {
+					if (frame.headers().containsKey("receipt")) {
+						write("RECEIPT", Map.of("receipt-id", frame.headers().get("receipt")), new byte[0]);
+					}
+					return false;
+				}
+				default -> {
+				}
+			}
+			return true;
+		}
+
+		private void broadcast(Frame frame) throws IOException {
+			String destination = frame.headers().get("destination");
+			for (Subscription subscription : subscriptions) {
+				if (subscription.destination().equals(destination)) {
+					Map<String, String> headers = new LinkedHashMap<>(frame.headers());
+					headers.remove("content-length");
+					headers.put("subscription", subscription.id());
+					headers.put("message-id", String.valueOf(messageIds.incrementAndGet()));
+					subscription.connection().write("MESSAGE", headers, frame.body());
+				}
+			}
+		}
+
+		synchronized void write(String command, Map<String, String> headers, byte[] body) throws IOException {
+			StringBuilder head = new StringBuilder(command).append('\n');
+			headers.forEach((name, value) -> head.append(escape(name)).append(':').append(escape(value)).append('\n'));
+			head.append("content-length:").append(body.length).append("\n\n");
+			out.write(head.toString().getBytes(StandardCharsets.UTF_8));
+			out.write(body);
+			out.write(0);
+			out.flush();
+		}
+	}
+
+	private static Frame readFrame(InputStream in) throws IOException {
+		String command;
+		do {
+			command = readLine(in);
+			if (command == null) {
+				return null;
+			}
+		} while (command.isEmpty()); // heart-beats
+
+		Map<String, String> headers = new LinkedHashMap<>();
+		String line;
+		while ((line = readLine(in)) != null && !line.isEmpty()) {
+			int colon = line.indexOf(':');
+			headers.putIfAbsent(unescape(line.substring(0, colon)), unescape(line.substring(colon + 1)));
+		}
+
+		byte[] body;
+		if (headers.containsKey("content-length")) {
+			body = in.readNBytes(Integer.parseInt(headers.get("content-length")));
+			in.read(); // NUL
+		} else {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			int b;
+			while ((b = in.read()) > 0) {
+				buffer.write(b);
+			}
+			body = buffer.toByteArray();
+		}
+		return new Frame(command, headers, body);
+	}
+
+	private static String readLine(InputStream in) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		int b;
+		while ((b = in.read()) != '\n') {
+			if (b < 0) {
+				return null;
+			}
+			if (b != '\r') {
+				buffer.write(b);
+			}
+		}
+		return buffer.toString(StandardCharsets.UTF_8);
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\n", "\\n").replace(":", "\\c");
+	}
+
+	private static String unescape(String value) {
+		return value.replace("\\c", ":").replace("\\n", "\n").replace("\\r", "\r").replace("\\\\", "\\");
+	}
+}
@@ -0,0 +1,99 @@
+package com.backend.demo.Config;
+
+import com.backend.demo.repository.LoginLogRepository;
+import com.backend.demo.security.JwtAuthenticationEntryPoint;
+import com.backend.demo.security.JwtAuthenticationFilter;
+import com.backend.demo.security.JwtTokenProvider;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketServletAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Poignée de main WebSocket à travers la vraie chaîne de sécurité : un navigateur ne peut pas
+ * envoyer d'en-tête Authorization sur l'upgrade, l'authentification se fait au CONNECT STOMP.
+ */
+@SpringBootTest(classes = WebSocketSecurityTests.Config.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {
+				"app.jwt.secret=secret-de-test-secret-de-test-secret-de-test-secret-de-test-secret-de-test",
+				"app.jwt.expiration=60000"
+		})
+class WebSocketSecurityTests {
+
+	private static final String ORIGIN = "http://localhost:4200";
+
+	@Configuration
+	@EnableWebSocket
+	@ImportAutoConfiguration({PropertyPlaceholderAutoConfiguration.class, ServletWebServerFactoryAutoConfiguration.class,
+			DispatcherServletAutoConfiguration.class, WebMvcAutoConfiguration.class, WebSocketServletAutoConfiguration.class,
+			SecurityAutoConfiguration.class, SecurityFilterAutoConfiguration.class})
+	@Import({SecurityConfig.class, JwtAuthenticationEntryPoint.class, JwtAuthenticationFilter.class, JwtTokenProvider.class})
+	static class Config implements WebSocketConfigurer {
+
+		@Bean
+		UserDetailsService userDetailsService() {
+			return username -> {
+				throw new UsernameNotFoundException(username);
+			};
+		}
+
+		@Override
+		public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+			registry.addHandler(new TextWebSocketHandler(), "/ws-mqtt-binary").setAllowedOriginPatterns(ORIGIN);
+		}
+	}
+
+	@MockBean
+	private LoginLogRepository loginLogRepository;
+
+	@LocalServerPort
+	private int port;
+
+	@Test
+	void binaryEndpointHandshakeNeedsNoAuthorizationHeader() throws Exception {
+		WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+		headers.setOrigin(ORIGIN);
+		WebSocketSession session = new StandardWebSocketClient()
+				.execute(new TextWebSocketHandler(), headers, URI.create("ws://localhost:" + port + "/ws-mqtt-binary"))
+				.get(5, TimeUnit.SECONDS);
+		assertTrue(session.isOpen());
+		session.close();
+	}
+
+	@Test
+	void protectedEndpointsStillRequireAToken() throws Exception {
+		HttpResponse<String> response = HttpClient.newHttpClient().send(
+				HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/notifications")).build(),
+				HttpResponse.BodyHandlers.ofString());
+		assertEquals(401, response.statusCode());
+	}
+}
@@ -0,0 +1,138 @@
+package com.backend.demo.controller;
+
+import com.backend.demo.service.LocationIndex;
+import com.backend.demo.service.UpstreamFanOut;
+import com.backend.demo.service.WeatherPrewarmer;
+import com.backend.demo.service.WeatherResponseCache;
+import com.backend.demo.upstream.OpenWeatherProvider;
+import com.backend.demo.upstream.WeatherApiProvider;
+import com.backend.demo.upstream.WeatherProviders;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rejoue des clics sur la carte Leaflet (points denses autour de quelques villes, le reste épars)
+ * sur /api/weather/coordinates, sans regroupement (géohash 12, quelques centimètres) puis avec
+ * des cellules de 1 km et 5 km, et compare le taux de succès du cache et les appels amont.
+ */
+class CoordinateCacheReplayTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(CoordinateCacheReplayTests.class);
+
+	private static final int CLICKS = 5_000;
+	private static final double[][] CITIES = {
+			{48.8566, 2.3522}, {45.7640, 4.8357}, {43.2965, 5.3698}, {43.6047, 1.4442}, {47.2184, -1.5536},
+			{50.6292, 3.0573}, {44.8378, -0.5792}, {48.5734, 7.7521}, {43.7102, 7.2620}, {48.1173, -1.6778}};
+
+	private final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+	private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+	private final RestTemplate upstream = new RestTemplate() {
+		@Override
+		public <T> T getForObject(String url, Class<T> responseType, Object... uriVariables) {
+			upstreamCalls.incrementAndGet();
+			String json = url.contains("/forecast?") ? """
+					{"list": [{"dt": 1700000000, "main": {"temp": 12.0, "humidity": 80},
+					"weather": [{"description": "nuageux", "icon": "04n"}]}]}"""
+					: """
+					{"name": "Carte", "coord": {"lat": 48.85, "lon": 2.35}, "main": {"temp": 18.5}, "wind": {"speed": 3.0}}""";
+			try {
+				return objectMapper.readValue(json, responseType);
+			} catch (JsonProcessingException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	};
+
+	@Test
+	@Tag("benchmark")
+	void snappedCellsAnswerNearbyClicksFromCache() {
+		List<double[]> clicks = mapClicks();
+
+		Replay raw = replay(clicks, 12);
+		Replay kilometre = replay(clicks, 6);
+		Replay fiveKilometres = replay(clicks, 5);
+
+		for (Replay replay : List.of(raw, kilometre, fiveKilometres)) {
+			logger.info(String.format("Géohash %2d | %,5d clics | succès cache %5.1f %% | %,5d appels amont | %,5d économisés",
+					replay.precision, CLICKS, replay.hitRatio * 100, replay.upstreamCalls,
+					raw.upstreamCalls - replay.upstreamCalls));
+		}
+		assertTrue(raw.upstreamCalls > 1.9 * CLICKS, raw.upstreamCalls + " appels amont sans regroupement");
+		assertTrue(fiveKilometres.upstreamCalls * 5 < raw.upstreamCalls,
+				fiveKilometres.upstreamCalls + " appels amont sur " + raw.upstreamCalls);
+		assertTrue(fiveKilometres.hitRatio > 0.8, "succès cache " + fiveKilometres.hitRatio);
+	}
+
+	private record Replay(int precision, int upstreamCalls, double hitRatio) {
+	}
+
+	private Replay replay(List<double[]> clicks, int precision) {
+		upstreamCalls.set(0);
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		WeatherResponseCache cache = new WeatherResponseCache(meterRegistry, new MockEnvironment()
+				.withProperty("weather.cache.max-entries", "20000"));
+		UpstreamFanOut fanOut = new UpstreamFanOut(meterRegistry, 5_000);
+		OpenWeatherProvider openWeather = new OpenWeatherProvider(upstream, cache);
+		ReflectionTestUtils.setField(openWeather, "apiKey", "cle-openweather");
+		WeatherApiProvider weatherApi = new WeatherApiProvider(upstream, cache);
+		ReflectionTestUtils.setField(weatherApi, "apiKey", "cle-weatherapi");
+		WeatherProviders providers = new WeatherProviders(List.of(openWeather, weatherApi), meterRegistry,
+				List.of("openweather", "weatherapi"), 5, 30_000, 100, 1_000, 5_000);
+		WeatherController controller = new WeatherController(upstream, cache, fanOut, providers,
+				new LocationIndex(meterRegistry, "target/test-location-index.json", 1_000),
+				new WeatherPrewarmer(cache, meterRegistry, 20, 60_000));
+		ReflectionTestUtils.setField(controller, "openWeatherKey", "cle-openweather");
+		ReflectionTestUtils.setField(controller, "geohashPrecision", precision);
+		try {
+			for (double[] click : clicks) {
+				assertEquals(200, controller.getWeatherByCoordinates(click[0], click[1]).getStatusCode().value());
+			}
+			return new Replay(precision, upstreamCalls.get(), cache.getHitRatio(WeatherResponseCache.Endpoint.OPENWEATHER_CURRENT));
+		} finally {
+			providers.shutdown();
+			fanOut.shutdown();
+			cache.shutdown();
+		}
+	}
+
+	/**
+	 * 90 % des clics à quelques kilomètres d'une grande ville, 10 % n'importe où en France métropolitaine,
+	 * arrondis comme les coordonnées d'un clic Leaflet (5 décimales)
+	 */
+	private static List<double[]> mapClicks() {
+		Random random = new Random(42);
+		List<double[]> clicks = new ArrayList<>(CLICKS);
+		for (int i = 0; i < CLICKS; i++) {
+			double lat;
+			double lon;
+			if (random.nextInt(10) < 9) {
+				double[] city = CITIES[random.nextInt(CITIES.length)];
+				lat = city[0] + random.nextGaussian() * 0.02;
+				lon = city[1] + random.nextGaussian() * 0.03;
+			} else {
+				lat = 42.5 + random.nextDouble() * 8.5;
+				lon = -4.5 + random.nextDouble() * 12.5;
+			}
+			clicks.add(new double[]{Math.round(lat * 1e5) / 1e5, Math.round(lon * 1e5) / 1e5});
+		}
+		return clicks;
+	}
+}
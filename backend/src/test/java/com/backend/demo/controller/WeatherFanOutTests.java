@@ -0,0 +1,176 @@
+package com.backend.demo.controller;
+
+import com.backend.demo.service.LocationIndex;
+import com.backend.demo.service.UpstreamFanOut;
+import com.backend.demo.service.WeatherPrewarmer;
+import com.backend.demo.service.WeatherResponseCache;
+import com.backend.demo.upstream.OpenWeatherProvider;
+import com.backend.demo.upstream.WeatherApiProvider;
+import com.backend.demo.upstream.WeatherProviders;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Endpoints composites face à des fournisseurs lents : la latence est celle de l'appel
+ * le plus lent et non leur somme, et un appel au-delà de son échéance donne un résultat partiel.
+ */
+class WeatherFanOutTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(WeatherFanOutTests.class);
+
+	private static final long UPSTREAM_LATENCY_MS = 300;
+	private static final long DEADLINE_MS = 1_000;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final WeatherResponseCache cache = new WeatherResponseCache(meterRegistry, new MockEnvironment());
+	private final UpstreamFanOut fanOut = new UpstreamFanOut(meterRegistry, DEADLINE_MS);
+	// Latence simulée par type d'appel amont, repérée dans l'URL
+	private final Map<String, Long> latencies = new ConcurrentHashMap<>(Map.of(
+			"/weather?", UPSTREAM_LATENCY_MS,
+			"/forecast?", UPSTREAM_LATENCY_MS,
+			"current.json", UPSTREAM_LATENCY_MS));
+	// Appels amont qui échouent
+	private final Set<String> failing = ConcurrentHashMap.newKeySet();
+	private WeatherProviders providers;
+
+	private final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	private final RestTemplate slowUpstream = new RestTemplate() {
+		@Override
+		public <T> T getForObject(String url, Class<T> responseType, Object... uriVariables) {
+			String call = latencies.keySet().stream().filter(url::contains).findFirst().orElseThrow();
+			try {
+				Thread.sleep(latencies.get(call));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (failing.contains(call)) {
+				throw new ResourceAccessException("HTTP 503");
+			}
+			String json = switch (call) {
+				case "/weather?" -> """
+						{"name": "Paris", "main": {"temp": 18.5}, "wind": {"speed": 3.0}}""";
+				case "/forecast?" -> """
+						{"cnt": 1, "list": [{"dt": 1700000000, "dt_txt": "2023-11-14 22:00:00", "main": {"temp": 12.0, "humidity": 80},
+						"weather": [{"id": 804, "main": "Clouds", "description": "nuageux", "icon": "04n"}]}]}""";
+				default -> """
+						{"current": {"temp_c": 18.0}}""";
+			};
+			try {
+				return objectMapper.readValue(json, responseType);
+			} catch (JsonProcessingException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	};
+
+	@AfterEach
+	void shutdown() {
+		cache.shutdown();
+		fanOut.shutdown();
+		if (providers != null) {
+			providers.shutdown();
+		}
+	}
+
+	@Test
+	void weatherLatencyIsSlowestCallNotSum() {
+		WeatherController controller = weatherController();
+
+		long begin = System.nanoTime();
+		ResponseEntity<Map<String, Object>> response = controller.getWeatherData("Paris");
+		long elapsedMs = (System.nanoTime() - begin) / 1_000_000;
+		logger.info(String.format("Météo courante + prévision (%d ms chacune) servies en %d ms", UPSTREAM_LATENCY_MS, elapsedMs));
+
+		assertEquals(200, response.getStatusCode().value());
+		assertEquals("Paris", response.getBody().get("name"));
+		assertEquals(1, ((List<?>) ((Map<?, ?>) response.getBody().get("forecast")).get("hourly")).size());
+		assertFalse(response.getBody().containsKey("unavailable"));
+		assertTrue(elapsedMs < 2 * UPSTREAM_LATENCY_MS, "latence " + elapsedMs + " ms");
+	}
+
+	@Test
+	void forecastPastDeadlineGivesPartialWeather() {
+		latencies.put("/forecast?", 5_000L);
+		WeatherController controller = weatherController();
+
+		long begin = System.nanoTime();
+		ResponseEntity<Map<String, Object>> response = controller.getWeatherData("Paris");
+		long elapsedMs = (System.nanoTime() - begin) / 1_000_000;
+
+		assertEquals(200, response.getStatusCode().value());
+		assertEquals(List.of("forecast"), response.getBody().get("unavailable"));
+		assertEquals(List.of(), ((Map<?, ?>) response.getBody().get("forecast")).get("hourly"));
+		assertTrue(elapsedMs < DEADLINE_MS + UPSTREAM_LATENCY_MS, "latence " + elapsedMs + " ms");
+		assertEquals(1, meterRegistry.get("weather.upstream.deadline.exceeded").tag("call", "openweather-forecast").counter().count());
+	}
+
+	@Test
+	void currentWeatherFailsOverToWeatherApi() {
+		failing.add("/weather?");
+		WeatherController controller = weatherController();
+
+		ResponseEntity<Map<String, Object>> response = controller.getWeatherData("Paris");
+
+		assertEquals(200, response.getStatusCode().value());
+		assertEquals("weatherapi", response.getBody().get("source"));
+		assertEquals(18.0, ((Map<?, ?>) response.getBody().get("current")).get("temp"));
+		assertEquals(1, ((List<?>) ((Map<?, ?>) response.getBody().get("forecast")).get("hourly")).size());
+	}
+
+	@Test
+	void comparisonRunsProvidersInParallelAndToleratesOneMissing() {
+		WeatherApiController controller = new WeatherApiController(slowUpstream, cache, fanOut);
+		ReflectionTestUtils.setField(controller, "weatherApiKey", "cle-weatherapi");
+		ReflectionTestUtils.setField(controller, "openWeatherApiKey", "cle-openweather");
+
+		long begin = System.nanoTime();
+		ResponseEntity<Map<String, Object>> response = controller.compareWeatherApis("Paris");
+		long elapsedMs = (System.nanoTime() - begin) / 1_000_000;
+		assertEquals(200, response.getStatusCode().value());
+		assertEquals(18.5, ((Map<?, ?>) response.getBody().get("openWeatherMap")).get("temperature"));
+		assertEquals(18.0, ((Map<?, ?>) response.getBody().get("weatherAPI")).get("temperature"));
+		assertTrue(elapsedMs < 2 * UPSTREAM_LATENCY_MS, "latence " + elapsedMs + " ms");
+
+		latencies.put("current.json", 5_000L);
+		response = controller.compareWeatherApis("Lyon");
+		assertEquals(200, response.getStatusCode().value());
+		assertEquals(List.of("weatherAPI"), response.getBody().get("unavailable"));
+		assertEquals(Map.of(), response.getBody().get("weatherAPI"));
+	}
+
+	private WeatherController weatherController() {
+		OpenWeatherProvider openWeather = new OpenWeatherProvider(slowUpstream, cache);
+		ReflectionTestUtils.setField(openWeather, "apiKey", "cle-openweather");
+		WeatherApiProvider weatherApi = new WeatherApiProvider(slowUpstream, cache);
+		ReflectionTestUtils.setField(weatherApi, "apiKey", "cle-weatherapi");
+		providers = new WeatherProviders(List.of(weatherApi, openWeather), meterRegistry,
+				List.of("openweather", "weatherapi"), 5, 30_000, 100, 1_000, DEADLINE_MS);
+		WeatherController controller = new WeatherController(slowUpstream, cache, fanOut, providers,
+				new LocationIndex(meterRegistry, "target/test-location-index.json", 1_000),
+				new WeatherPrewarmer(cache, meterRegistry, 20, 60_000));
+		ReflectionTestUtils.setField(controller, "openWeatherKey", "cle-openweather");
+		ReflectionTestUtils.setField(controller, "geohashPrecision", 5);
+		return controller;
+	}
+}
@@ -0,0 +1,94 @@
+package com.backend.demo.controller;
+
+import com.backend.demo.service.UpstreamFanOut;
+import com.backend.demo.service.WeatherResponseCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Rafale de requêtes identiques sur /api/weather-api/{city} pendant un appel amont lent :
+ * un seul appel part vers WeatherAPI, les autres requêtes partagent son résultat.
+ */
+class WeatherRequestCoalescingLoadTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(WeatherRequestCoalescingLoadTests.class);
+
+	private static final int REQUESTS = 500;
+	private static final long UPSTREAM_LATENCY_MS = 300;
+
+	@Test
+	@Tag("benchmark")
+	void burstOfIdenticalRequestsMakesOneUpstreamCall() throws Exception {
+		AtomicInteger upstreamCalls = new AtomicInteger();
+		RestTemplate slowUpstream = new RestTemplate() {
+			@Override
+			@SuppressWarnings("unchecked")
+			public <T> T getForObject(String url, Class<T> responseType, Object... uriVariables) {
+				upstreamCalls.incrementAndGet();
+				try {
+					Thread.sleep(UPSTREAM_LATENCY_MS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return (T) Map.of("location", Map.of("name", "Paris"), "current", Map.of("temp_c", 18.5));
+			}
+		};
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		WeatherResponseCache cache = new WeatherResponseCache(meterRegistry, new MockEnvironment());
+		WeatherApiController controller = new WeatherApiController(slowUpstream, cache, new UpstreamFanOut(meterRegistry, 3_000));
+		ReflectionTestUtils.setField(controller, "weatherApiKey", "cle-de-test");
+
+		String[] spellings = {"Paris", "paris", " PARIS ", "Paris "};
+		CountDownLatch start = new CountDownLatch(1);
+		List<ResponseEntity<Map<String, Object>>> responses = new ArrayList<>();
+		List<Thread> clients = new ArrayList<>();
+		for (int i = 0; i < REQUESTS; i++) {
+			String city = spellings[i % spellings.length];
+			clients.add(Thread.ofVirtual().start(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				ResponseEntity<Map<String, Object>> response = controller.getWeatherApiData(city);
+				synchronized (responses) {
+					responses.add(response);
+				}
+			}));
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		for (Thread client : clients) {
+			client.join();
+		}
+		long elapsedMs = (System.nanoTime() - begin) / 1_000_000;
+
+		double coalesced = meterRegistry.get("weather.cache.coalesced")
+				.tag("endpoint", WeatherResponseCache.Endpoint.WEATHERAPI_CURRENT.getName()).counter().count();
+		logger.info(String.format("%d requêtes simultanées : %d appel amont, %.0f requêtes jointes à l'appel en cours, "
+				+ "toutes servies en %d ms (amont %d ms)", REQUESTS, upstreamCalls.get(), coalesced, elapsedMs, UPSTREAM_LATENCY_MS));
+
+		assertEquals(1, upstreamCalls.get());
+		assertEquals(REQUESTS, responses.size());
+		for (ResponseEntity<Map<String, Object>> response : responses) {
+			assertEquals(200, response.getStatusCode().value());
+			assertEquals(Map.of("temp_c", 18.5), response.getBody().get("current"));
+		}
+		cache.shutdown();
+	}
+}
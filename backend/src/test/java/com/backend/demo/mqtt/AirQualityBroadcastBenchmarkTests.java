@@ -0,0 +1,143 @@
+package com.backend.demo.mqtt;
+
+import com.backend.demo.service.PayloadEncodingInterceptor;
+import com.backend.demo.service.PreEncodedBroadcaster;
+import com.backend.demo.service.SseFeedService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Coût d'une diffusion /topic/airquality selon le nombre de sessions abonnées,
+ * avec le broker simple et un encodage de trame STOMP par session comme en production.
+ */
+class AirQualityBroadcastBenchmarkTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(AirQualityBroadcastBenchmarkTests.class);
+
+	private static final int FRAMES_PER_RUN = 200_000;
+
+	private final StompEncoder encoder = new StompEncoder();
+	private long frames;
+	private long frameBytes;
+
+	@Test
+	@Tag("benchmark")
+	void measuresBroadcastCostBySubscriberCount() throws InterruptedException {
+		for (int subscribers : new int[] {100, 1_000, 10_000}) {
+			ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+			SimpleBrokerMessageHandler broker = new SimpleBrokerMessageHandler(
+					new ExecutorSubscribableChannel(), this::encodeFrame, brokerChannel, List.of("/topic"));
+			broker.start();
+			for (int i = 0; i < subscribers; i++) {
+				broker.handleMessage(connect("session-" + i));
+				broker.handleMessage(subscribe("session-" + i));
+			}
+
+			SimpMessagingTemplate template = new SimpMessagingTemplate(brokerChannel);
+			template.setMessageConverter(new CompositeMessageConverter(List.of(
+					new StringMessageConverter(), new ByteArrayMessageConverter(), new MappingJackson2MessageConverter())));
+			PreEncodedBroadcaster preEncoded = new PreEncodedBroadcaster(template, new PayloadEncodingInterceptor(new Jackson2ObjectMapperBuilder()));
+
+			int broadcasts = FRAMES_PER_RUN / subscribers;
+			AirQualityData data = new AirQualityData(12.5f, 30.1f, 41.0f, 60.2f, 0.4f, 48);
+
+			// Préchauffage
+			run(template, preEncoded, data, broadcasts, false);
+			run(template, preEncoded, data, broadcasts, true);
+
+			long convertNanos = run(template, preEncoded, data, broadcasts, false);
+			frames = 0;
+			long preEncodedNanos = run(template, preEncoded, data, broadcasts, true);
+			assertEquals((long) broadcasts * subscribers, frames);
+
+			// Temps passé sur le thread appelant (thread MQTT) avec la diffusion asynchrone
+			AirQualityBroadcaster airQualityBroadcaster = new AirQualityBroadcaster(preEncoded,
+					new SseFeedService(new SimpleMeterRegistry(), 1_000, 256, 15_000, 60_000, 4), broadcasts);
+			long start = System.nanoTime();
+			for (int i = 0; i < broadcasts; i++) {
+				airQualityBroadcaster.broadcast("capteurs/qualite_air", data);
+			}
+			long callerNanos = System.nanoTime() - start;
+			while (airQualityBroadcaster.getPendingCount() > 0) {
+				Thread.onSpinWait();
+			}
+			airQualityBroadcaster.shutdown();
+
+			logger.info(String.format("%,6d abonnés : convertAndSend %,9.1f us/diffusion, pré-encodé %,9.1f us/diffusion "
+							+ "(%.0f ns/session, %d octets/trame), thread MQTT %.1f us/lecture",
+					subscribers, convertNanos / 1e3 / broadcasts, preEncodedNanos / 1e3 / broadcasts,
+					(double) preEncodedNanos / broadcasts / subscribers, frameBytes, callerNanos / 1e3 / broadcasts));
+			broker.stop();
+		}
+	}
+
+	private long run(SimpMessagingTemplate template, PreEncodedBroadcaster preEncoded, AirQualityData data,
+					 int broadcasts, boolean encodeOnce) {
+		long start = System.nanoTime();
+		for (int i = 0; i < broadcasts; i++) {
+			if (encodeOnce) {
+				preEncoded.send(AirQualityBroadcaster.DESTINATION, preEncoded.encode(data));
+			} else {
+				template.convertAndSend(AirQualityBroadcaster.DESTINATION, data);
+			}
+		}
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * Équivalent du travail de StompSubProtocolHandler pour chaque session
+	 */
+	private boolean encodeFrame(Message<?> message, long timeout) {
+		if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+			return true;
+		}
+		StompHeaderAccessor stomp = StompHeaderAccessor.create(StompCommand.MESSAGE);
+		stomp.setSubscriptionId(SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders()));
+		stomp.setDestination(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+		stomp.setMessageId(String.valueOf(frames));
+		stomp.setContentType(message.getHeaders().get(MessageHeaders.CONTENT_TYPE, MimeType.class));
+		byte[] frame = encoder.encode(MessageBuilder.createMessage((byte[]) message.getPayload(), stomp.getMessageHeaders()));
+		frames++;
+		frameBytes = frame.length;
+		return true;
+	}
+
+	private static Message<byte[]> connect(String sessionId) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+		accessor.setSessionId(sessionId);
+		accessor.setHeader(SimpMessageHeaderAccessor.HEART_BEAT_HEADER, new long[] {0, 0});
+		return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+	}
+
+	private static Message<byte[]> subscribe(String sessionId) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+		accessor.setSessionId(sessionId);
+		accessor.setSubscriptionId("sub-0");
+		accessor.setDestination(AirQualityBroadcaster.DESTINATION);
+		return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+	}
+}
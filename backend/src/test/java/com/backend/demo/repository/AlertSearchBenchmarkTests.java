@@ -0,0 +1,163 @@
+package com.backend.demo.repository;
+
+import com.backend.demo.dto.AlertPageResponse;
+import com.backend.demo.entity.Alert;
+import com.backend.demo.service.AlertBatchWriter;
+import com.backend.demo.service.AlertIdAllocator;
+import com.backend.demo.service.AlertService;
+import com.backend.demo.service.AlertWriterJpaTest;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Parcourt toutes les pages d'une recherche filtrée par curseur et compare le coût
+ * d'une page profonde avec la pagination par OFFSET.
+ * Volume par défaut réduit ; lancer avec -Dalerts.benchmark.rows=10000000 pour le banc complet.
+ */
+@AlertWriterJpaTest
+class AlertSearchBenchmarkTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(AlertSearchBenchmarkTests.class);
+
+	private static final int ROWS = Integer.getInteger("alerts.benchmark.rows", 20_000);
+	private static final String[] PARAMETERS = {"pm25", "pm10", "no2", "o3", "co", "aqi", "temperature", "humidity"};
+	private static final int PAGE_SIZE = 500;
+
+	@Autowired
+	private AlertRepository alertRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private AlertBatchWriter alertBatchWriter;
+
+	@Test
+	void keysetPagesCoverEveryMatchingAlertOnce() {
+		insertAlerts();
+		Specification<Alert> filter = AlertSpecifications.filters("pm25", null, null, null, null);
+
+		Set<Long> seen = new HashSet<>();
+		Alert previous = null;
+		Alert last = null;
+		int pages = 0;
+		long lastPageNanos = 0;
+		while (true) {
+			Specification<Alert> spec = last == null ? filter
+					: filter.and(AlertSpecifications.before(last.getTimestamp(), last.getId()));
+			long start = System.nanoTime();
+			List<Alert> page = alertRepository.findBy(spec,
+					query -> query.sortBy(AlertSpecifications.KEYSET_ORDER).limit(PAGE_SIZE).all());
+			lastPageNanos = System.nanoTime() - start;
+			if (page.isEmpty()) {
+				break;
+			}
+			for (Alert alert : page) {
+				assertTrue(seen.add(alert.getId()), "alerte en double: " + alert.getId());
+				if (previous != null) {
+					assertTrue(previous.getTimestamp().compareTo(alert.getTimestamp()) > 0
+							|| (previous.getTimestamp().equals(alert.getTimestamp()) && previous.getId() > alert.getId()));
+				}
+				previous = alert;
+			}
+			last = page.get(page.size() - 1);
+			pages++;
+		}
+		assertEquals(ROWS / PARAMETERS.length, seen.size());
+
+		long start = System.nanoTime();
+		alertRepository.findAll(filter, PageRequest.of(pages - 1, PAGE_SIZE, AlertSpecifications.KEYSET_ORDER));
+		long offsetNanos = System.nanoTime() - start;
+
+		logger.info("{} alertes, {} pages : dernière page par curseur {} ms, par OFFSET {} ms",
+				ROWS, pages, String.format("%.2f", lastPageNanos / 1e6), String.format("%.2f", offsetNanos / 1e6));
+	}
+
+	/**
+	 * Des alertes de même timestamp à cheval sur plusieurs pages :
+	 * seul l'id départage, aucune ne doit être perdue ni répétée
+	 */
+	@Test
+	void equalTimestampsAcrossPageBoundariesAreSplitById() {
+		jdbcTemplate.update("DELETE FROM alert");
+		Timestamp now = new Timestamp(System.currentTimeMillis() / 1000 * 1000);
+		List<Object[]> rows = new ArrayList<>();
+		for (long id = 1; id <= 23; id++) {
+			// ids 4 à 20 partagent le même timestamp, des deux côtés de chaque limite de page
+			Timestamp timestamp = id < 4 ? new Timestamp(now.getTime() - 1000) : id > 20
+					? new Timestamp(now.getTime() + 1000) : now;
+			rows.add(new Object[] {id, "pm25", 42.0, "warning", "tie", "air", timestamp});
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO alert (id, parameter, value, severity, message, type, timestamp) "
+				+ "VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+
+		AlertService service = alertService();
+		List<Long> ids = new ArrayList<>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			AlertPageResponse page = service.searchAlertsPage("pm25", null, null, null, null, cursor, 5);
+			page.getItems().forEach(alert -> ids.add(alert.getId()));
+			cursor = page.getNextCursor();
+			pages++;
+		} while (cursor != null);
+
+		List<Long> expected = new ArrayList<>();
+		for (long id = 23; id >= 1; id--) {
+			expected.add(id);
+		}
+		assertEquals(expected, ids);
+		assertEquals(5, pages);
+	}
+
+	@Test
+	void malformedOrForeignCursorsAreRejected() {
+		AlertService service = alertService();
+		for (String cursor : List.of("abc", "1700000000000", "1700000000000:", ":12", "1700000000000:12:3",
+				"1700000000000:abc", "-1:12", "1700000000000:0", "eyJwYWdlIjoyfQ==")) {
+			assertThrows(IllegalArgumentException.class,
+					() -> service.searchAlertsPage(null, null, null, null, null, cursor, 10), cursor);
+		}
+	}
+
+	private AlertService alertService() {
+		AlertService service = new AlertService();
+		ReflectionTestUtils.setField(service, "alertRepository", alertRepository);
+		ReflectionTestUtils.setField(service, "alertBatchWriter", alertBatchWriter);
+		return service;
+	}
+
+	private void insertAlerts() {
+		jdbcTemplate.update("DELETE FROM alert");
+		long base = System.currentTimeMillis();
+		int chunk = 10_000;
+		for (int from = 0; from < ROWS; from += chunk) {
+			List<Object[]> batch = new ArrayList<>(chunk);
+			for (int i = from; i < Math.min(ROWS, from + chunk); i++) {
+				// Trois alertes par seconde : des timestamps identiques départagés par l'id
+				batch.add(new Object[] {(long) i + 1, PARAMETERS[i % PARAMETERS.length], 42.0,
+						i % 2 == 0 ? "warning" : "danger", "bench", i % 4 < 3 ? "air" : "weather",
+						new Timestamp(base - (i / 3) * 1000L)});
+			}
+			jdbcTemplate.batchUpdate("INSERT INTO alert (id, parameter, value, severity, message, type, timestamp) "
+					+ "VALUES (?, ?, ?, ?, ?, ?, ?)", batch);
+		}
+	}
+}
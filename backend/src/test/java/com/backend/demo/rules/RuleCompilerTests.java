@@ -0,0 +1,196 @@
+package com.backend.demo.rules;
+
+import com.backend.demo.entity.AlertRule;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RuleCompilerTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(RuleCompilerTests.class);
+
+	private static final long MINUTE = 60_000L;
+
+	@Test
+	void sustainedConditionFiresOnlyAfterItsDuration() {
+		RuleProgram program = RuleCompiler.compile(List.of(rule("stagnation", "pm25 > 35 for 10m AND no2 > 40")));
+		SensorRuleState state = program.newState();
+		List<String> fired = new ArrayList<>();
+		int pm25 = program.indexOf("pm25");
+		int no2 = program.indexOf("no2");
+
+		state.setValue(no2, 50.0);
+		for (int minute = 0; minute <= 10; minute++) {
+			state.setValue(pm25, 40.0);
+			program.evaluate(state, minute * MINUTE, (rule, value) -> fired.add(rule.name()));
+		}
+		assertEquals(List.of("stagnation"), fired);
+
+		// Une seule alerte tant que la règle reste vraie, puis réarmement après une interruption
+		state.setValue(pm25, 20.0);
+		program.evaluate(state, 11 * MINUTE, (rule, value) -> fired.add(rule.name()));
+		state.setValue(pm25, 40.0);
+		program.evaluate(state, 12 * MINUTE, (rule, value) -> fired.add(rule.name()));
+		assertEquals(1, fired.size());
+	}
+
+	@Test
+	void risingConditionUsesTheRollingWindow() {
+		RuleProgram program = RuleCompiler.compile(List.of(rule("no2-hausse", "no2 rising 20%/h")));
+		SensorRuleState state = program.newState();
+		List<Double> fired = new ArrayList<>();
+		int no2 = program.indexOf("no2");
+
+		// Stable pendant une heure, puis +1 par minute : +20% sur l'heure glissante à la minute 80
+		for (int minute = 0; minute <= 90; minute++) {
+			state.setValue(no2, minute < 60 ? 100.0 : 100.0 + (minute - 60));
+			program.evaluate(state, minute * MINUTE, (rule, value) -> fired.add(value));
+		}
+		assertEquals(1, fired.size());
+		assertEquals(120.0, fired.get(0), 0.001);
+	}
+
+	@Test
+	void supportsBooleanOperatorsAndParentheses() {
+		RuleProgram program = RuleCompiler.compile(List.of(rule("combo", "NOT (co >= 5 OR o3 > 100) and aqi != 0")));
+		SensorRuleState state = program.newState();
+		List<String> fired = new ArrayList<>();
+
+		state.setValue(program.indexOf("co"), 1);
+		state.setValue(program.indexOf("o3"), 50);
+		state.setValue(program.indexOf("aqi"), 40);
+		program.evaluate(state, 0, (rule, value) -> fired.add(rule.name()));
+		assertEquals(1, fired.size());
+	}
+
+	@Test
+	void missingDataIsNeverTrueEvenUnderNot() {
+		RuleProgram program = RuleCompiler.compile(List.of(
+				rule("not-co", "NOT co > 5"),
+				rule("not-rising", "NOT no2 rising 20%/h"),
+				rule("or", "NOT pm25 > 35 OR aqi > 100")));
+		SensorRuleState state = program.newState();
+		List<String> fired = new ArrayList<>();
+
+		program.evaluate(state, 0, (rule, value) -> fired.add(rule.name()));
+		assertEquals(List.of(), fired);
+
+		// Une branche connue et vraie suffit pour OR ; la variation reste inconnue sans historique
+		state.setValue(program.indexOf("co"), 1);
+		state.setValue(program.indexOf("no2"), 10);
+		state.setValue(program.indexOf("aqi"), 150);
+		program.evaluate(state, MINUTE, (rule, value) -> fired.add(rule.name()));
+		assertEquals(List.of("not-co", "or"), fired);
+	}
+
+	@Test
+	void adoptedStateKeepsWindowsOfUnchangedRules() {
+		AlertRule sustained = rule("stagnation", "pm25 > 35 for 10m");
+		sustained.setId(1L);
+		RuleProgram before = RuleCompiler.compile(List.of(sustained));
+		SensorRuleState state = before.newState();
+		List<String> fired = new ArrayList<>();
+		for (int minute = 0; minute < 9; minute++) {
+			state.setValue(before.indexOf("pm25"), 40.0);
+			before.evaluate(state, minute * MINUTE, (rule, value) -> fired.add(rule.name()));
+		}
+
+		// Une autre règle est ajoutée : la fenêtre de 10 minutes n'est pas remise à zéro
+		AlertRule other = rule("co", "co > 5");
+		other.setId(2L);
+		RuleProgram after = RuleCompiler.compile(List.of(sustained, other));
+		state = after.adopt(state);
+		for (int minute = 9; minute <= 10; minute++) {
+			state.setValue(after.indexOf("pm25"), 40.0);
+			after.evaluate(state, minute * MINUTE, (rule, value) -> fired.add(rule.name()));
+		}
+		assertEquals(List.of("stagnation"), fired);
+
+		// Déjà déclenchée avant le rechargement : pas de nouvelle alerte
+		state = RuleCompiler.compile(List.of(sustained)).adopt(state);
+		assertTrue(state.firing[0]);
+	}
+
+	@Test
+	void acceptsNegativeNumbers() {
+		RuleProgram program = RuleCompiler.compile(List.of(rule("negatif", "co > -1.5 AND o3 < -.5")));
+		SensorRuleState state = program.newState();
+		List<String> fired = new ArrayList<>();
+
+		state.setValue(program.indexOf("co"), -1.0);
+		state.setValue(program.indexOf("o3"), -2.0);
+		program.evaluate(state, 0, (rule, value) -> fired.add(rule.name()));
+		assertEquals(List.of("negatif"), fired);
+		RuleCompiler.validate("co rising -20%/h");
+		assertThrows(IllegalArgumentException.class, () -> RuleCompiler.validate("pm25 > 35 for -10m"));
+	}
+
+	@Test
+	void rejectsInvalidExpressions() {
+		assertThrows(IllegalArgumentException.class, () -> RuleCompiler.validate("wind < 2"));
+		assertThrows(IllegalArgumentException.class, () -> RuleCompiler.validate("pm25 > 35 AND temperature > 30"));
+		assertThrows(IllegalArgumentException.class, () -> RuleCompiler.validate("pm25 >"));
+		assertThrows(IllegalArgumentException.class, () -> RuleCompiler.validate("pm25 > 35 for 10 days"));
+		assertThrows(IllegalArgumentException.class, () -> RuleCompiler.validate("(pm25 > 35"));
+		assertThrows(IllegalArgumentException.class, () -> RuleCompiler.validate("pm25 rising 20"));
+		assertThrows(IllegalArgumentException.class, () -> RuleCompiler.validate("pm25 > - 35"));
+	}
+
+	/**
+	 * Débit d'évaluation : 1000 règles sur 1000 capteurs
+	 */
+	@Test
+	@Tag("benchmark")
+	void evaluatesThousandsOfRulesPerReadingInMicroseconds() {
+		List<AlertRule> rules = new ArrayList<>();
+		String[] parameters = {"pm25", "pm10", "no2", "o3", "co", "aqi"};
+		for (int i = 0; i < 1000; i++) {
+			String parameter = parameters[i % parameters.length];
+			String other = parameters[(i + 1) % parameters.length];
+			String expression = switch (i % 3) {
+				case 0 -> parameter + " > " + (20 + i % 50) + " for " + (1 + i % 15) + "m AND " + other + " < 80";
+				case 1 -> parameter + " rising " + (10 + i % 30) + "%/h OR " + other + " >= 150";
+				default -> "(" + parameter + " > " + (i % 100) + " AND " + other + " <= 40) OR NOT aqi < 200";
+			};
+			rules.add(rule("r" + i, expression));
+		}
+		RuleProgram program = RuleCompiler.compile(rules);
+		SensorRuleState[] states = new SensorRuleState[1000];
+		for (int i = 0; i < states.length; i++) {
+			states[i] = program.newState();
+		}
+
+		int[] matches = new int[1];
+		int readings = 50_000;
+		long start = System.nanoTime();
+		for (int r = 0; r < readings; r++) {
+			SensorRuleState state = states[r % states.length];
+			for (int p = 0; p < parameters.length; p++) {
+				state.setValue(program.indexOf(parameters[p]), (r * 31 + p * 17) % 120);
+			}
+			program.evaluate(state, r * 1_000L, (rule, value) -> matches[0]++);
+		}
+		long elapsed = System.nanoTime() - start;
+
+		logger.info("Règles: {}, {} µs par lecture, {} évaluations de règle/s, {} déclenchements",
+				program.getRuleCount(), String.format("%.1f", elapsed / 1_000.0 / readings),
+				String.format("%.0f", readings * (double) program.getRuleCount() / (elapsed / 1e9)), matches[0]);
+		assertTrue(matches[0] > 0);
+	}
+
+	private static AlertRule rule(String name, String expression) {
+		AlertRule rule = new AlertRule();
+		rule.setName(name);
+		rule.setExpression(expression);
+		rule.setSeverity("warning");
+		return rule;
+	}
+}
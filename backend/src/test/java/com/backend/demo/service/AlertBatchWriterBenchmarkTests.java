@@ -0,0 +1,77 @@
+package com.backend.demo.service;
+
+import com.backend.demo.entity.Alert;
+import com.backend.demo.repository.AlertRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compare le débit d'insertion des alertes : une transaction par alerte (ancien createAlert)
+ * contre l'écriture différée par lots. Les chiffres sont indicatifs (H2 en mémoire).
+ */
+@AlertWriterJpaTest
+class AlertBatchWriterBenchmarkTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(AlertBatchWriterBenchmarkTests.class);
+
+	private static final int ALERTS = 2000;
+
+	@Autowired
+	private AlertRepository alertRepository;
+
+	@Autowired
+	private AlertIdAllocator alertIdAllocator;
+
+	@Autowired
+	private AlertBatchWriter alertBatchWriter;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	@Tag("benchmark")
+	void batchedWritesPersistEveryAlert() {
+		alertRepository.deleteAll();
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < ALERTS; i++) {
+			Alert alert = newAlert(i);
+			transactionTemplate.executeWithoutResult(status -> alertRepository.save(alert));
+		}
+		double perAlert = ALERTS / ((System.nanoTime() - start) / 1e9);
+
+		start = System.nanoTime();
+		for (int i = 0; i < ALERTS; i++) {
+			alertBatchWriter.enqueue(newAlert(i));
+		}
+		alertBatchWriter.flush();
+		double batched = ALERTS / ((System.nanoTime() - start) / 1e9);
+
+		logger.info(String.format("Alertes/s - une transaction par alerte: %.0f, écriture différée: %.0f",
+				perAlert, batched));
+		assertEquals(2L * ALERTS, alertRepository.count());
+		assertEquals(0, alertBatchWriter.getPendingCount());
+	}
+
+	private Alert newAlert(int i) {
+		Alert alert = new Alert();
+		alert.setId(alertIdAllocator.nextId());
+		alert.setParameter("pm25");
+		alert.setValue(40.0 + i % 10);
+		alert.setSeverity("warning");
+		alert.setType("air");
+		alert.setMessage("PM2.5 niveau warning");
+		alert.setTimestamp(new Date());
+		return alert;
+	}
+}
@@ -0,0 +1,118 @@
+package com.backend.demo.service;
+
+import com.backend.demo.entity.Alert;
+import com.backend.demo.repository.AlertRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@AlertWriterJpaTest
+class AlertBatchWriterTests {
+
+	@Autowired
+	private AlertRepository alertRepository;
+
+	@Autowired
+	private AlertIdAllocator alertIdAllocator;
+
+	@Autowired
+	private AlertBatchWriter alertBatchWriter;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@BeforeEach
+	void clean() {
+		alertRepository.deleteAll();
+	}
+
+	@Test
+	void rejectedRowIsIsolatedAndLaterBatchesAreWritten(@TempDir Path dir) throws IOException {
+		AlertBatchWriter writer = newWriter(dir);
+		Alert existing = newAlert(alertIdAllocator.nextId());
+		alertRepository.save(existing);
+
+		// Lot de 8 dont une ligne reprend un identifiant déjà en base, puis un second lot
+		for (int i = 0; i < 16; i++) {
+			writer.enqueue(newAlert(i == 5 ? existing.getId() : alertIdAllocator.nextId()));
+		}
+		writer.flush();
+
+		assertEquals(0, writer.getPendingCount());
+		assertEquals(1 + 15, alertRepository.count());
+	}
+
+	@Test
+	void queuedAlertsAreWrittenOnFlush() {
+		Alert alert = newAlert(alertIdAllocator.nextId());
+		alertBatchWriter.enqueue(alert);
+		assertFalse(alertRepository.existsById(alert.getId()));
+
+		alertBatchWriter.flush();
+		assertTrue(alertRepository.existsById(alert.getId()));
+	}
+
+	@Test
+	void journaledAlertsAreWrittenAfterACrash(@TempDir Path dir) throws IOException {
+		AlertBatchWriter crashed = newWriter(dir);
+		Alert written = newAlert(alertIdAllocator.nextId());
+		Alert pending = newAlert(alertIdAllocator.nextId());
+		crashed.enqueue(written);
+		crashed.enqueue(pending);
+		// Arrêt après l'écriture de la première alerte, pendant l'ajout d'une troisième
+		alertRepository.save(written);
+		try (Stream<Path> files = Files.list(dir)) {
+			Files.writeString(files.findFirst().orElseThrow(), "{\"id\":",
+					StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+		}
+
+		AlertBatchWriter restarted = newWriter(dir);
+		assertEquals(1, restarted.getPendingCount());
+		restarted.flush();
+
+		assertEquals(0, restarted.getPendingCount());
+		assertEquals(2, alertRepository.count());
+		assertEquals(pending.getMessage(), alertRepository.findById(pending.getId()).orElseThrow().getMessage());
+		restarted.shutdown();
+		try (Stream<Path> files = Files.list(dir)) {
+			assertEquals(List.of(), files.toList());
+		}
+	}
+
+	private AlertBatchWriter newWriter(Path dir) throws IOException {
+		AlertBatchWriter writer = new AlertBatchWriter(alertRepository, transactionManager);
+		ReflectionTestUtils.setField(writer, "capacity", 100);
+		ReflectionTestUtils.setField(writer, "batchSize", 8);
+		ReflectionTestUtils.setField(writer, "journalDir", dir.toString());
+		writer.init();
+		return writer;
+	}
+
+	private static Alert newAlert(long id) {
+		Alert alert = new Alert();
+		alert.setId(id);
+		alert.setParameter("pm25");
+		alert.setValue(42.0);
+		alert.setSeverity("warning");
+		alert.setType("air");
+		alert.setMessage("PM2.5 niveau warning");
+		alert.setTimestamp(new Date());
+		return alert;
+	}
+}
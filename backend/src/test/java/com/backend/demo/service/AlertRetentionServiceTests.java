@@ -0,0 +1,111 @@
+package com.backend.demo.service;
+
+import com.backend.demo.entity.Alert;
+import com.backend.demo.repository.AlertRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:retention;MODE=MariaDB;NON_KEYWORDS=VALUE",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.show-sql=false",
+		"alert.retention.chunk-size=1000",
+		"alert.retention.pause-ms=0"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AlertRetentionServiceTests {
+
+	private static final long DAY_MS = 24 * 3600 * 1000L;
+
+	@Configuration
+	@EntityScan(basePackageClasses = Alert.class)
+	@EnableJpaRepositories(basePackageClasses = AlertRepository.class, includeFilters = @ComponentScan.Filter(
+			type = FilterType.ASSIGNABLE_TYPE, classes = AlertRepository.class))
+	@Import(AlertRetentionService.class)
+	static class Config {
+
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+
+	@Autowired
+	private AlertRetentionService retentionService;
+
+	@Autowired
+	private AlertRepository alertRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void purgesExpiredAlertsInChunksAndKeepsRecentOnes() {
+		long now = System.currentTimeMillis();
+		List<Object[]> rows = new ArrayList<>();
+		for (int i = 0; i < 2500; i++) {
+			rows.add(new Object[] {(long) i + 1, new Timestamp(now - 40 * DAY_MS - i * 1000L)});
+		}
+		for (int i = 0; i < 20; i++) {
+			rows.add(new Object[] {(long) 10_000 + i, new Timestamp(now - i * 1000L)});
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO alert (id, parameter, value, severity, message, type, timestamp) "
+				+ "VALUES (?, 'pm25', 50, 'warning', 'test', 'air', ?)", rows);
+
+		long purged = retentionService.purgeBefore(new Date(now - 30 * DAY_MS));
+
+		assertEquals(2500, purged);
+		assertEquals(20, alertRepository.count());
+		assertEquals(2500, meterRegistry.get("alerts.retention.purged").counter().count());
+		assertEquals(1, meterRegistry.get("alerts.retention.duration").timer().count());
+	}
+
+	@Test
+	@DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+	void scheduledPurgeRunsOffTheCallerThread() throws InterruptedException {
+		long now = System.currentTimeMillis();
+		List<Object[]> rows = new ArrayList<>();
+		for (int i = 0; i < 1500; i++) {
+			rows.add(new Object[] {(long) 20_000 + i, new Timestamp(now - 40 * DAY_MS - i * 1000L)});
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO alert (id, parameter, value, severity, message, type, timestamp) "
+				+ "VALUES (?, 'pm25', 50, 'warning', 'test', 'air', ?)", rows);
+		long before = alertRepository.count();
+
+		assertTrue(retentionService.purgeBeforeAsync(new Date(now - 30 * DAY_MS)));
+
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (alertRepository.count() > before - 1500 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertEquals(before - 1500, alertRepository.count());
+	}
+}
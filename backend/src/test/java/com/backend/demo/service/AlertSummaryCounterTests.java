@@ -0,0 +1,67 @@
+package com.backend.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AlertSummaryCounterTests {
+
+	private static final long MINUTE = 60_000L;
+
+	@Test
+	void countsAlertsBySeverityTypeAndParameter() {
+		AlertSummaryCounter counter = new AlertSummaryCounter();
+		long now = System.currentTimeMillis();
+
+		counter.record("danger", "air", "pm25", new Date(now));
+		counter.record("warning", "air", "pm10", new Date(now - 5 * MINUTE));
+		counter.record("warning", "weather", "temperature", new Date(now - 60 * MINUTE));
+
+		AlertSummaryCounter.AlertSummary summary = counter.summarize(now);
+		assertEquals(3, summary.total());
+		assertEquals(1, summary.danger());
+		assertEquals(2, summary.warning());
+		assertEquals(2L, summary.byType().get("air"));
+		assertEquals(1L, summary.byParameter().get("temperature"));
+	}
+
+	@Test
+	void dropsBucketsOlderThanTheWindow() {
+		AlertSummaryCounter counter = new AlertSummaryCounter();
+		long now = System.currentTimeMillis();
+
+		counter.record("danger", "air", "pm25", new Date(now - 25 * 60 * MINUTE));
+		counter.record("danger", "air", "pm25", new Date(now - 23 * 60 * MINUTE));
+
+		assertEquals(1, counter.summarize(now).total());
+		assertEquals(0, counter.summarize(now + 2 * 60 * MINUTE).total());
+	}
+
+	@Test
+	void reusedBucketIsResetForTheNewMinute() {
+		AlertSummaryCounter counter = new AlertSummaryCounter();
+		long now = System.currentTimeMillis();
+
+		counter.record("danger", "air", "pm25", new Date(now - AlertSummaryCounter.BUCKETS * MINUTE));
+		counter.record("warning", "air", "no2", new Date(now));
+
+		AlertSummaryCounter.AlertSummary summary = counter.summarize(now);
+		assertEquals(1, summary.total());
+		assertEquals(0, summary.danger());
+	}
+
+	@Test
+	void removeDecrementsOnlyAlertsInsideTheWindow() {
+		AlertSummaryCounter counter = new AlertSummaryCounter();
+		long now = System.currentTimeMillis();
+
+		counter.record("danger", "air", "pm25", new Date(now));
+		counter.remove("danger", "air", "pm25", new Date(now));
+		counter.remove("danger", "air", "pm25", new Date(now - 30 * 60 * MINUTE));
+
+		assertEquals(0, counter.summarize(now).total());
+		assertEquals(0, counter.summarize(now).danger());
+	}
+}
@@ -0,0 +1,48 @@
+package com.backend.demo.service;
+
+import com.backend.demo.entity.Alert;
+import com.backend.demo.repository.AlertRepository;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Contexte JPA partagé des tests d'écriture des alertes : H2 en mode MariaDB, entité Alert et son dépôt,
+ * AlertIdAllocator et AlertBatchWriter (journal dans un répertoire temporaire propre au contexte).
+ * Les tests tournent hors transaction, comme les lots écrits en production.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:alertwriter;MODE=MariaDB;NON_KEYWORDS=VALUE",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.show-sql=false",
+		"alert.write-behind.journal-dir=${java.io.tmpdir}/alert-journal-${random.uuid}"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ContextConfiguration(classes = AlertWriterJpaTest.Config.class)
+public @interface AlertWriterJpaTest {
+
+	@Configuration
+	@EntityScan(basePackageClasses = Alert.class)
+	@EnableJpaRepositories(basePackageClasses = AlertRepository.class, includeFilters = @ComponentScan.Filter(
+			type = FilterType.ASSIGNABLE_TYPE, classes = AlertRepository.class))
+	@Import({AlertIdAllocator.class, AlertBatchWriter.class})
+	class Config {
+	}
+}
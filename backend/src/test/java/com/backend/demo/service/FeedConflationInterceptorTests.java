@@ -0,0 +1,114 @@
+package com.backend.demo.service;
+
+import com.backend.demo.mqtt.AirQualityBroadcaster;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class FeedConflationInterceptorTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	// 20 mises à jour/s : une lecture toutes les 50 ms au plus
+	private final SlowConsumerMonitor monitor = new SlowConsumerMonitor(meterRegistry,
+			new StaticListableBeanFactory().getBeanProvider(ThreadPoolTaskExecutor.class), 50, 0.5, 500, 5000);
+	private final FeedConflationInterceptor interceptor = new FeedConflationInterceptor(meterRegistry, monitor, 20, 0.2);
+	private final List<Message<?>> flushed = new ArrayList<>();
+	private final MessageChannel channel = (message, timeout) -> {
+		// Les envois du timer repassent par l'intercepteur comme sur le vrai canal
+		Message<?> sent = interceptor.preSend(message, null);
+		flushed.add(sent);
+		return true;
+	};
+
+	@Test
+	void keepsOnlyLatestReadingPerSensorUntilIntervalElapses() throws InterruptedException {
+		Message<?> first = reading("s1", "capteur-a", 1);
+		assertSame(first, interceptor.preSend(first, channel));
+		for (int i = 2; i <= 10; i++) {
+			assertNull(interceptor.preSend(reading("s1", "capteur-a", i), channel));
+		}
+		// Un autre capteur n'est pas limité par le premier
+		assertNotNull(interceptor.preSend(reading("s1", "capteur-b", 1), channel));
+
+		interceptor.flush();
+		assertEquals(0, flushed.size());
+
+		Thread.sleep(60);
+		interceptor.flush();
+		assertEquals(1, flushed.size());
+		assertEquals("10", new String((byte[]) flushed.get(0).getPayload(), StandardCharsets.UTF_8));
+
+		assertEquals(3, meterRegistry.get("airquality.feed.delivered").counter().count());
+		assertEquals(8, meterRegistry.get("airquality.feed.conflated").counter().count());
+		assertEquals(0, interceptor.getPendingCount());
+	}
+
+	@Test
+	void sessionsAreLimitedIndependently() {
+		for (String session : new String[] {"s1", "s2", "s3"}) {
+			Message<?> message = reading(session, "capteur-a", 1);
+			assertSame(message, interceptor.preSend(message, channel));
+			assertNull(interceptor.preSend(reading(session, "capteur-a", 2), channel));
+		}
+		assertEquals(3, interceptor.getPendingCount());
+	}
+
+	@Test
+	void unsubscribeDropsPendingAndLastSentReadings() {
+		assertNotNull(interceptor.preSend(reading("s1", "capteur-a", 1), channel));
+		assertNull(interceptor.preSend(reading("s1", "capteur-a", 2), channel));
+		assertEquals(1, interceptor.getPendingCount());
+
+		StompHeaderAccessor unsubscribe = StompHeaderAccessor.create(StompCommand.UNSUBSCRIBE);
+		unsubscribe.setSessionId("s1");
+		unsubscribe.setSubscriptionId("sub-0");
+		interceptor.onUnsubscribe(new SessionUnsubscribeEvent(this,
+				MessageBuilder.createMessage(new byte[0], unsubscribe.getMessageHeaders())));
+
+		assertEquals(0, interceptor.getPendingCount());
+		interceptor.flush();
+		assertEquals(0, flushed.size());
+		// Un nouvel abonnement avec le même id n'hérite pas de l'ancien intervalle
+		assertNotNull(interceptor.preSend(reading("s1", "capteur-a", 3), channel));
+	}
+
+	@Test
+	void otherDestinationsPassThrough() {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		accessor.setSessionId("s1");
+		accessor.setDestination("/topic/alerts");
+		Message<byte[]> alert = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+		for (int i = 0; i < 5; i++) {
+			assertSame(alert, interceptor.preSend(alert, channel));
+		}
+	}
+
+	private static Message<byte[]> reading(String sessionId, String sensor, int value) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		accessor.setSessionId(sessionId);
+		accessor.setSubscriptionId("sub-0");
+		accessor.setDestination(AirQualityBroadcaster.DESTINATION);
+		accessor.setNativeHeader(AirQualityBroadcaster.SENSOR_HEADER, sensor);
+		accessor.setLeaveMutable(true);
+		return MessageBuilder.createMessage(String.valueOf(value).getBytes(StandardCharsets.UTF_8),
+				accessor.getMessageHeaders());
+	}
+}
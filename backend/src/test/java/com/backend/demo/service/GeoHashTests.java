@@ -0,0 +1,35 @@
+package com.backend.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeoHashTests {
+
+	@Test
+	void encodesReferencePoints() {
+		assertEquals("u4pruydqqvj", GeoHash.snap(57.64911, 10.40744, 11).hash());
+		assertEquals("u09tv", GeoHash.snap(48.8566, 2.3522, 5).hash());
+		assertEquals("ezs42", GeoHash.snap(42.605, -5.603, 5).hash());
+	}
+
+	@Test
+	void nearbyPointsShareCellCentre() {
+		// Deux clics à environ 150 m l'un de l'autre dans Paris
+		GeoHash.Cell first = GeoHash.snap(48.85661, 2.35222, 5);
+		GeoHash.Cell second = GeoHash.snap(48.85750, 2.35400, 5);
+
+		assertEquals(first, second);
+		assertTrue(Math.abs(first.lat() - 48.8566) < 0.025 && Math.abs(first.lon() - 2.3522) < 0.025);
+		assertEquals(first.hash(), GeoHash.snap(48.85661, 2.35222, 6).hash().substring(0, 5));
+	}
+
+	@Test
+	void rejectsInvalidInput() {
+		assertThrows(IllegalArgumentException.class, () -> GeoHash.snap(48.8, 2.3, 0));
+		assertThrows(IllegalArgumentException.class, () -> GeoHash.snap(91, 2.3, 5));
+		assertThrows(IllegalArgumentException.class, () -> GeoHash.snap(48.8, -181, 5));
+	}
+}
@@ -0,0 +1,61 @@
+package com.backend.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeavyHittersTests {
+
+	@Test
+	void dominantCitiesLeadTheTopK() {
+		HeavyHitters sketch = new HeavyHitters(10, 4, 2048);
+		Map<String, Integer> actual = new HashMap<>();
+		Random random = new Random(7);
+		for (int i = 0; i < 100_000; i++) {
+			int draw = random.nextInt(100);
+			String city = draw < 30 ? "jorf lasfar|fr" : draw < 50 ? "el jadida|fr" : "ville " + random.nextInt(5_000) + "|fr";
+			sketch.add(city);
+			actual.merge(city, 1, Integer::sum);
+		}
+
+		List<HeavyHitters.Item> top = sketch.top();
+		assertEquals(10, top.size());
+		assertEquals("jorf lasfar|fr", top.get(0).key());
+		assertEquals("el jadida|fr", top.get(1).key());
+		// Count-min : jamais de sous-estimation, erreur bornée par la largeur du sketch
+		for (Map.Entry<String, Integer> entry : actual.entrySet()) {
+			long estimate = sketch.estimate(entry.getKey());
+			assertTrue(estimate >= entry.getValue(), entry.getKey());
+			assertTrue(estimate - entry.getValue() < 200, entry.getKey() + " surestimé de " + (estimate - entry.getValue()));
+		}
+	}
+
+	@Test
+	void decayLetsRecentTrafficTakeOver() {
+		HeavyHitters sketch = new HeavyHitters(1, 2, 64);
+		for (int i = 0; i < 100; i++) {
+			sketch.add("agadir|fr");
+		}
+		sketch.decay();
+		assertEquals(List.of(new HeavyHitters.Item("agadir|fr", 50)), sketch.top());
+		for (int i = 0; i < 6; i++) {
+			sketch.decay();
+		}
+		for (int i = 0; i < 10; i++) {
+			sketch.add("safi|fr");
+		}
+		assertEquals("safi|fr", sketch.top().get(0).key());
+	}
+
+	@Test
+	void rejectsInvalidDimensions() {
+		assertThrows(IllegalArgumentException.class, () -> new HeavyHitters(0, 4, 2048));
+	}
+}
@@ -0,0 +1,149 @@
+package com.backend.demo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocationIndexTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(LocationIndexTests.class);
+
+	@TempDir
+	Path dir;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void prefixSearchIgnoresAccentsCaseAndHyphens() {
+		LocationIndex index = index(100);
+		index.addAll(new Object[]{
+				geocoded("Saint-Étienne", 45.4397, 4.3872, "FR", null),
+				geocoded("Saint-Denis", 48.9362, 2.3574, "FR", null)});
+
+		assertEquals(List.of("Saint-Étienne"), names(index.search("saint et", 5)));
+		assertEquals(List.of("Saint-Étienne"), names(index.search("SAINT-ETIENNE", 5)));
+		assertEquals(2, index.search("Saint", 5).size());
+	}
+
+	@Test
+	void frenchNameIsIndexedAsAlias() {
+		LocationIndex index = index(100);
+		index.addAll(new Object[]{geocoded("London", 51.5073, -0.1276, "GB", "Londres")});
+
+		assertEquals(List.of("London"), names(index.search("londres", 5)));
+		assertEquals(List.of("London"), names(index.search("lond", 5)));
+		assertEquals(2, index.size());
+	}
+
+	@Test
+	void exactMatchComesFirstAndLimitIsApplied() {
+		LocationIndex index = index(100);
+		index.addAll(new Object[]{
+				geocoded("Parisot", 44.26, 1.86, "FR", null),
+				geocoded("Paris", 48.8589, 2.32, "FR", null),
+				geocoded("Paris", 33.66, -95.55, "US", null),
+				geocoded("Parisis", 49.0, 2.2, "FR", null)});
+
+		List<LocationIndex.Location> found = index.search("paris", 3);
+		assertEquals(List.of("Paris", "Paris", "Parisis"), names(found));
+		assertEquals(List.of(), index.search("lyon", 5));
+	}
+
+	@Test
+	void knownPrefixDoesNotHideLocationsOnlyTheApiKnows() {
+		LocationIndex index = index(100);
+		index.addAll(new Object[]{geocoded("Paris", 48.8589, 2.32, "FR", null)});
+
+		// "Par" et "Parma" ne sont pas des noms indexés et la page n'est pas complète : l'API est interrogée
+		assertEquals(List.of(), index.lookup("Par", 5));
+		assertEquals(List.of(), index.lookup("Parma", 5));
+		assertEquals(List.of("Paris"), names(index.lookup("paris", 5)));
+
+		index.addAll(new Object[]{
+				geocoded("Parma", 44.8, 10.33, "IT", null),
+				geocoded("Paramaribo", 5.85, -55.2, "SR", null),
+				geocoded("Paray-le-Monial", 46.45, 4.12, "FR", null),
+				geocoded("Pardies", 43.37, -0.59, "FR", null)});
+		assertEquals(5, index.lookup("Par", 5).size());
+	}
+
+	@Test
+	void indexSurvivesRestart() {
+		LocationIndex index = index(100);
+		index.addAll(new Object[]{geocoded("Lyon", 45.7578, 4.832, "FR", null)});
+		index.flush();
+
+		LocationIndex restarted = index(100);
+		restarted.load();
+		assertEquals(List.of(new LocationIndex.Location("Lyon", 45.7578, 4.832, "FR", null)), restarted.search("ly", 5));
+	}
+
+	@Test
+	void lookupsAreCountedAndIndexIsBounded() {
+		LocationIndex index = index(2);
+		index.addAll(new Object[]{
+				geocoded("Nice", 43.7, 7.27, "FR", null),
+				geocoded("Nantes", 47.22, -1.55, "FR", null),
+				geocoded("Nancy", 48.69, 6.18, "FR", null)});
+
+		assertEquals(2, index.size());
+		index.lookup("nice", 5);
+		index.lookup("nancy", 5);
+		assertEquals(1, meterRegistry.get("weather.geocoding.lookups").tag("result", "hit").counter().count());
+		assertEquals(1, meterRegistry.get("weather.geocoding.lookups").tag("result", "miss").counter().count());
+		assertEquals(2, meterRegistry.get("weather.geocoding.index.size").gauge().value());
+	}
+
+	@Test
+	@Tag("benchmark")
+	void prefixLookupStaysInMicroseconds() {
+		LocationIndex index = index(50_000);
+		Object[] locations = new Object[20_000];
+		for (int i = 0; i < locations.length; i++) {
+			locations[i] = geocoded("Ville " + Integer.toString(i, 36), 40 + i * 0.0005, i * 0.0005, "FR", null);
+		}
+		index.addAll(locations);
+
+		for (int i = 0; i < 20_000; i++) {
+			index.search("ville " + Integer.toString(i, 36), 5);
+		}
+		int rounds = 100_000;
+		long begin = System.nanoTime();
+		for (int i = 0; i < rounds; i++) {
+			index.search("ville " + Integer.toString(i % 20_000, 36), 5);
+		}
+		double micros = (System.nanoTime() - begin) / 1_000.0 / rounds;
+		logger.info(String.format("Index des lieux : %,d entrées, %.2f µs par recherche par préfixe", index.size(), micros));
+		assertTrue(micros < 100, micros + " µs par recherche");
+	}
+
+	private LocationIndex index(int maxEntries) {
+		return new LocationIndex(meterRegistry, dir.resolve("location-index.json").toString(), maxEntries);
+	}
+
+	private static Map<String, Object> geocoded(String name, double lat, double lon, String country, String frenchName) {
+		Map<String, Object> location = new HashMap<>(Map.of("name", name, "lat", lat, "lon", lon, "country", country));
+		if (frenchName != null) {
+			location.put("local_names", Map.of("fr", frenchName, "en", name));
+		}
+		return location;
+	}
+
+	private static List<String> names(List<LocationIndex.Location> locations) {
+		List<String> names = new ArrayList<>();
+		locations.forEach(location -> names.add(location.name()));
+		return names;
+	}
+}
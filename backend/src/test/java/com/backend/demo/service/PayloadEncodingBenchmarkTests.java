@@ -0,0 +1,91 @@
+package com.backend.demo.service;
+
+import com.backend.demo.entity.Alert;
+import com.backend.demo.mqtt.AirQualityData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Temps d'encodage et taille sur le fil, JSON (convertisseur du broker) contre CBOR,
+ * pour une lecture, une alerte et l'instantané de la flotte de capteurs.
+ */
+class PayloadEncodingBenchmarkTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(PayloadEncodingBenchmarkTests.class);
+
+	private static final int FLEET_SIZE = 5_000;
+
+	private final ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+	private final PayloadEncodingInterceptor encodings = new PayloadEncodingInterceptor(new Jackson2ObjectMapperBuilder());
+
+	@Test
+	@Tag("benchmark")
+	void comparesJsonAndCbor() throws Exception {
+		AirQualityData reading = new AirQualityData(12.5f, 30.1f, 41.0f, 60.2f, 0.4f, 48);
+
+		Alert alert = new Alert();
+		alert.setId(123456L);
+		alert.setParameter("pm25");
+		alert.setValue(87.3);
+		alert.setSeverity("danger");
+		alert.setType("air");
+		alert.setMessage("PM2.5 au-dessus du seuil critique");
+
+		StateSync fleet = new StateSync();
+		for (int i = 0; i < FLEET_SIZE; i++) {
+			fleet.update("capteurs/qualite_air/" + i, DashboardStateService.fieldsOf(
+					new AirQualityData(10 + i % 40, 20 + i % 50, 30 + i % 20, 50 + i % 30, 0.1f * (i % 9), 20 + i % 150)));
+		}
+		StateSync.StateMessage snapshot = fleet.snapshot();
+
+		measure("AirQualityData", reading, 200_000);
+		measure("Alert", alert, 200_000);
+		measure("Instantané " + FLEET_SIZE + " capteurs", snapshot, 50);
+	}
+
+	private void measure(String label, Object payload, int iterations) throws Exception {
+		byte[] json = jsonMapper.writeValueAsBytes(payload);
+		byte[] cbor = encodings.toCbor(payload);
+		// Les flottants restent en float32 en CBOR : comparaison sur le rendu JSON
+		assertEquals(jsonMapper.readTree(json).toString(), new CBORMapper().readTree(cbor).toString());
+		assertTrue(cbor.length < json.length, label);
+
+		// Préchauffage puis mesure
+		time(() -> write(payload), iterations);
+		time(() -> encodings.toCbor(payload), iterations);
+		double jsonNanos = time(() -> write(payload), iterations);
+		double cborNanos = time(() -> encodings.toCbor(payload), iterations);
+
+		logger.info(String.format("%-26s JSON %,9d octets %,10.0f ns | CBOR %,9d octets (%3.0f%%) %,10.0f ns",
+				label, json.length, jsonNanos, cbor.length, 100.0 * cbor.length / json.length, cborNanos));
+	}
+
+	private byte[] write(Object payload) {
+		try {
+			return jsonMapper.writeValueAsBytes(payload);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static double time(Supplier<byte[]> encoder, int iterations) {
+		long bytes = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			bytes += encoder.get().length;
+		}
+		long elapsed = System.nanoTime() - start;
+		assertTrue(bytes > 0);
+		return (double) elapsed / iterations;
+	}
+}
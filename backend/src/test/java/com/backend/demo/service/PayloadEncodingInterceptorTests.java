@@ -0,0 +1,140 @@
+package com.backend.demo.service;
+
+import com.backend.demo.entity.Alert;
+import com.backend.demo.mqtt.AirQualityBroadcaster;
+import com.backend.demo.mqtt.AirQualityData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PayloadEncodingInterceptorTests {
+
+	private final PayloadEncodingInterceptor interceptor = new PayloadEncodingInterceptor(new Jackson2ObjectMapperBuilder());
+	private final List<Message<?>> published = new ArrayList<>();
+	private final SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> published.add(message));
+	private final PreEncodedBroadcaster broadcaster = new PreEncodedBroadcaster(template, interceptor);
+	private final ObjectMapper jsonMapper = new ObjectMapper();
+	private final ObjectMapper cborMapper = new CBORMapper();
+
+	PayloadEncodingInterceptorTests() {
+		template.setMessageConverter(new MappingJackson2MessageConverter());
+	}
+
+	/**
+	 * Les dates CBOR suivent spring.jackson.* comme le JSON servi par Spring Boot
+	 */
+	@Test
+	void cborFollowsBootJacksonSettings() {
+		new ApplicationContextRunner()
+				.withConfiguration(AutoConfigurations.of(JacksonAutoConfiguration.class))
+				.withPropertyValues("spring.jackson.serialization.write-dates-as-timestamps=false",
+						"spring.jackson.time-zone=UTC")
+				.withBean(PayloadEncodingInterceptor.class)
+				.run(context -> {
+					Alert alert = new Alert();
+					alert.setId(1L);
+					alert.setParameter("pm25");
+					alert.setTimestamp(new Date(1_700_000_000_000L));
+
+					byte[] cbor = context.getBean(PayloadEncodingInterceptor.class).toCbor(alert);
+					assertEquals("2023-11-14T22:13:20.000+00:00", cborMapper.readTree(cbor).get("timestamp").asText());
+					assertEquals(jsonMapper.readTree(context.getBean(ObjectMapper.class).writeValueAsBytes(alert)),
+							cborMapper.readTree(cbor));
+				});
+	}
+
+	@Test
+	void binaryEndpointSessionsReceiveCborEncodedOnce() throws Exception {
+		connect("binaire", true, null);
+		connect("texte", false, null);
+		AirQualityData data = new AirQualityData(12.5f, 30.1f, 41.0f, 60.2f, 0.4f, 48);
+		broadcaster.send(AirQualityBroadcaster.DESTINATION, broadcaster.encode(data));
+		Message<?> published = this.published.get(0);
+
+		Message<?> json = interceptor.preSend(forSession(published, "texte"), null);
+		assertEquals(MimeTypeUtils.APPLICATION_JSON, json.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+
+		Message<?> cbor = interceptor.preSend(forSession(published, "binaire"), null);
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(cbor);
+		assertEquals(MimeTypeUtils.APPLICATION_OCTET_STREAM, accessor.getContentType());
+		assertEquals(PayloadEncodingInterceptor.CBOR, accessor.getFirstNativeHeader(PayloadEncodingInterceptor.ENCODING_HEADER));
+		assertNull(cbor.getHeaders().get(PayloadEncodingInterceptor.CBOR_PAYLOAD_HEADER));
+		// Le contenu CBOR est celui encodé à la publication, partagé entre sessions
+		assertSame(published.getHeaders().get(PayloadEncodingInterceptor.CBOR_PAYLOAD_HEADER), cbor.getPayload());
+		assertEquals(jsonMapper.readTree((byte[]) json.getPayload()).toString(),
+				cborMapper.readTree((byte[]) cbor.getPayload()).toString());
+	}
+
+	@Test
+	void negotiationFollowsEndpointAndHeader() {
+		connect("binaire-json", true, PayloadEncodingInterceptor.JSON);
+		connect("sockjs-cbor", false, PayloadEncodingInterceptor.CBOR);
+		assertFalse(interceptor.isCbor("binaire-json"));
+		assertFalse(interceptor.isCbor("sockjs-cbor"));
+		assertFalse(interceptor.hasCborSessions());
+
+		// Sans session CBOR, rien n'est encodé en plus du JSON
+		assertNull(broadcaster.encode(Map.of("aqi", 48)).cbor());
+		connect("binaire", true, null);
+		assertTrue(broadcaster.encode(Map.of("aqi", 48)).cbor() != null);
+	}
+
+	@Test
+	void jsonRepliesAreTranscodedForCborSessions() throws Exception {
+		connect("binaire", true, null);
+		template.convertAndSend("/topic/notifications", Map.of("title", "Alerte", "count", 3));
+		Message<?> cbor = interceptor.preSend(forSession(published.get(0), "binaire"), null);
+
+		assertEquals(MimeTypeUtils.APPLICATION_OCTET_STREAM, cbor.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+		assertEquals(jsonMapper.readTree("{\"title\":\"Alerte\",\"count\":3}"), cborMapper.readTree((byte[]) cbor.getPayload()));
+	}
+
+	private void connect(String sessionId, boolean binaryEndpoint, String encoding) {
+		Map<String, Object> attributes = new HashMap<>();
+		if (binaryEndpoint) {
+			interceptor.beforeHandshake(null, null, null, attributes);
+		}
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+		accessor.setSessionId(sessionId);
+		accessor.setSessionAttributes(attributes);
+		if (encoding != null) {
+			accessor.setNativeHeader(PayloadEncodingInterceptor.ENCODING_HEADER, encoding);
+		}
+		interceptor.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), null);
+	}
+
+	/**
+	 * Copie par session faite par le broker simple avant le canal sortant
+	 */
+	private static Message<?> forSession(Message<?> message, String sessionId) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		accessor.setSessionId(sessionId);
+		accessor.setSubscriptionId("sub-0");
+		accessor.copyHeadersIfAbsent(message.getHeaders());
+		return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+	}
+}
@@ -0,0 +1,149 @@
+package com.backend.demo.service;
+
+import com.backend.demo.entity.Alert;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PreEncodedBroadcasterTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(PreEncodedBroadcasterTests.class);
+
+	private static final String[] DESTINATIONS = {
+			"/topic/alerts", "/topic/alerts/air", "/topic/alerts/parameter/pm25", "/topic/alerts/severity/danger"};
+
+	private final List<Message<?>> sent = new ArrayList<>();
+	private final SimpMessagingTemplate template = newTemplate(sent::add);
+	private final PreEncodedBroadcaster broadcaster = new PreEncodedBroadcaster(template, new PayloadEncodingInterceptor(new Jackson2ObjectMapperBuilder()));
+
+	@Test
+	void encodedPayloadMatchesConvertAndSend() {
+		Alert alert = alert(1L, "danger");
+		template.convertAndSend("/topic/alerts", alert);
+		broadcaster.send("/topic/alerts", broadcaster.encode(alert));
+
+		assertEquals(2, sent.size());
+		assertArrayEquals((byte[]) sent.get(0).getPayload(), (byte[]) sent.get(1).getPayload());
+		assertEquals("/topic/alerts", SimpMessageHeaderAccessor.getDestination(sent.get(1).getHeaders()));
+	}
+
+	@Test
+	void selectorHeaderFiltersSingleSubscription() {
+		DefaultSubscriptionRegistry registry = new DefaultSubscriptionRegistry();
+		registry.setSelectorHeaderName("selector");
+		registry.registerSubscription(subscribe("s1", "headers.severity == 'danger'"));
+		registry.registerSubscription(subscribe("s2", null));
+
+		for (String severity : new String[] {"danger", "warning"}) {
+			Alert alert = alert(2L, severity);
+			broadcaster.send("/topic/alerts", broadcaster.encode(alert),
+					Map.of("type", alert.getType(), "parameter", alert.getParameter(), "severity", severity));
+		}
+
+		assertEquals(2, registry.findSubscriptions(sent.get(0)).size());
+		assertEquals(1, registry.findSubscriptions(sent.get(1)).size());
+	}
+
+	@Test
+	@Tag("benchmark")
+	void measuresCpuSavedPerAlert() {
+		SimpMessagingTemplate discarding = newTemplate(message -> { });
+		PreEncodedBroadcaster encoded = new PreEncodedBroadcaster(discarding, new PayloadEncodingInterceptor(new Jackson2ObjectMapperBuilder()));
+		int alerts = 50_000;
+
+		// Préchauffage
+		runConvertAndSend(discarding, alerts);
+		runPreEncoded(encoded, alerts);
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		long start = threads.getCurrentThreadCpuTime();
+		runConvertAndSend(discarding, alerts);
+		long convertNanos = threads.getCurrentThreadCpuTime() - start;
+
+		start = threads.getCurrentThreadCpuTime();
+		runPreEncoded(encoded, alerts);
+		long encodedNanos = threads.getCurrentThreadCpuTime() - start;
+
+		logger.info(String.format("CPU par alerte (%d destinations) : convertAndSend %d ns, pré-encodé %d ns, économie %d ns",
+				DESTINATIONS.length, convertNanos / alerts, encodedNanos / alerts, (convertNanos - encodedNanos) / alerts));
+	}
+
+	private static void runConvertAndSend(SimpMessagingTemplate template, int alerts) {
+		for (int i = 0; i < alerts; i++) {
+			Alert alert = alert(i, "danger");
+			for (String destination : DESTINATIONS) {
+				template.convertAndSend(destination, alert);
+			}
+		}
+	}
+
+	private static void runPreEncoded(PreEncodedBroadcaster broadcaster, int alerts) {
+		for (int i = 0; i < alerts; i++) {
+			Alert alert = alert(i, "danger");
+			PreEncodedBroadcaster.EncodedPayload payload = broadcaster.encode(alert);
+			broadcaster.send(DESTINATIONS[0], payload,
+					Map.of("type", alert.getType(), "parameter", alert.getParameter(), "severity", alert.getSeverity()));
+			for (int d = 1; d < DESTINATIONS.length; d++) {
+				broadcaster.send(DESTINATIONS[d], payload);
+			}
+		}
+	}
+
+	private static SimpMessagingTemplate newTemplate(Consumer<Message<?>> sink) {
+		MessageChannel channel = (message, timeout) -> {
+			sink.accept(message);
+			return true;
+		};
+		SimpMessagingTemplate template = new SimpMessagingTemplate(channel);
+		template.setMessageConverter(new CompositeMessageConverter(List.of(
+				new StringMessageConverter(), new ByteArrayMessageConverter(), new MappingJackson2MessageConverter())));
+		return template;
+	}
+
+	private static Message<byte[]> subscribe(String id, String selector) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+		accessor.setSessionId("session-" + id);
+		accessor.setSubscriptionId(id);
+		accessor.setDestination("/topic/alerts");
+		if (selector != null) {
+			accessor.setNativeHeader("selector", selector);
+		}
+		return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+	}
+
+	private static Alert alert(long id, String severity) {
+		Alert alert = new Alert();
+		alert.setId(id);
+		alert.setParameter("pm25");
+		alert.setValue(72.5);
+		alert.setSeverity(severity);
+		alert.setType("air");
+		alert.setMessage("Niveau de PM2.5 dangereux: 72.5");
+		alert.setTimestamp(new Date(1_700_000_000_000L));
+		return alert;
+	}
+}
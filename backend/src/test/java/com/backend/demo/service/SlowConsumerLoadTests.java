@@ -0,0 +1,290 @@
+package com.backend.demo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Charge avec des clients volontairement lents, sur la chaîne STOMP de production
+ * (broker simple, canal sortant multi-thread, SubProtocolWebSocketHandler) :
+ * les sessions lentes sont dégradées puis évincées, les autres reçoivent tout.
+ * Il y a autant de sessions lentes que de threads sortants : sans éviction,
+ * elles monopoliseraient le canal.
+ */
+class SlowConsumerLoadTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(SlowConsumerLoadTests.class);
+
+	private static final int FAST_SESSIONS = 40;
+	private static final int SLOW_SESSIONS = 4;
+	private static final int MESSAGES = 1_000;
+	private static final int EVICT_BACKLOG = 200;
+	private static final long EVICT_AFTER_MS = 500;
+
+	@Test
+	void slowSessionsAreDegradedThenEvictedWithoutStallingOthers() throws Exception {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(4);
+		executor.setMaxPoolSize(4);
+		executor.setThreadNamePrefix("clientOutbound-");
+		executor.initialize();
+		StaticListableBeanFactory beans = new StaticListableBeanFactory();
+		beans.addBean("clientOutboundChannelExecutor", executor);
+
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		SlowConsumerMonitor monitor = new SlowConsumerMonitor(meterRegistry,
+				beans.getBeanProvider(ThreadPoolTaskExecutor.class), 20, 0.5, EVICT_BACKLOG, EVICT_AFTER_MS);
+
+		ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+		ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel(executor);
+		ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+		clientOutbound.addInterceptor(new FeedConflationInterceptor(meterRegistry, monitor, 2, 0.2));
+		clientOutbound.addInterceptor(monitor);
+
+		SimpleBrokerMessageHandler broker = new SimpleBrokerMessageHandler(
+				clientInbound, clientOutbound, brokerChannel, List.of("/topic"));
+		broker.start();
+		SubProtocolWebSocketHandler subProtocolHandler = new SubProtocolWebSocketHandler(clientInbound, clientOutbound);
+		subProtocolHandler.setDefaultProtocolHandler(new StompSubProtocolHandler());
+		// Limites de Spring larges : c'est la politique de retard qui doit agir en premier
+		subProtocolHandler.setSendTimeLimit(10_000);
+		subProtocolHandler.setSendBufferSizeLimit(16 * 1024 * 1024);
+		subProtocolHandler.start();
+		WebSocketHandler handler = monitor.decorate(subProtocolHandler);
+
+		List<ClientSession> fast = new ArrayList<>();
+		List<ClientSession> slow = new ArrayList<>();
+		for (int i = 0; i < FAST_SESSIONS + SLOW_SESSIONS; i++) {
+			ClientSession session = new ClientSession("session-" + i, i < FAST_SESSIONS ? 0 : 10, handler);
+			(i < FAST_SESSIONS ? fast : slow).add(session);
+			handler.afterConnectionEstablished(session);
+			handler.handleMessage(session, new TextMessage("CONNECT\naccept-version:1.2\nheart-beat:0,0\n\n\0"));
+			handler.handleMessage(session, new TextMessage("SUBSCRIBE\nid:sub-0\ndestination:/topic/alerts\n\n\0"));
+		}
+
+		// Équivalent du @Scheduled, avec échantillonnage des métriques
+		AtomicInteger maxBacklog = new AtomicInteger();
+		AtomicInteger maxDegraded = new AtomicInteger();
+		List<Double> utilization = new ArrayList<>();
+		Thread checker = new Thread(() -> {
+			while (!Thread.currentThread().isInterrupted()) {
+				maxBacklog.accumulateAndGet((int) monitor.getBacklogStats()[1], Math::max);
+				maxDegraded.accumulateAndGet(monitor.getDegradedCount(), Math::max);
+				synchronized (utilization) {
+					utilization.add(monitor.getOutboundUtilization());
+				}
+				monitor.checkSessions();
+				try {
+					Thread.sleep(20);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		});
+		checker.start();
+
+		long start = System.nanoTime();
+		for (int i = 0; i < MESSAGES; i++) {
+			SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+			accessor.setDestination("/topic/alerts");
+			brokerChannel.send(MessageBuilder.createMessage(
+					("{\"id\":" + i + "}").getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders()));
+			if (i % 10 == 0) {
+				Thread.sleep(1);
+			}
+		}
+		long deadline = System.currentTimeMillis() + 15_000;
+		while (fast.stream().anyMatch(s -> s.received.get() < MESSAGES) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+		checker.interrupt();
+		checker.join();
+
+		double meanUtilization;
+		synchronized (utilization) {
+			meanUtilization = utilization.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+		}
+		logger.info(String.format("%d sessions rapides, %d lentes, %d messages : livraison complète en %d ms, "
+						+ "retard max %d messages, %d sessions dégradées, %.0f évincées, canal sortant occupé à %.0f%%",
+				FAST_SESSIONS, SLOW_SESSIONS, MESSAGES, elapsedMs, maxBacklog.get(), maxDegraded.get(),
+				meterRegistry.get("websocket.sessions.evicted").counter().count(), meanUtilization * 100));
+
+		for (ClientSession session : fast) {
+			assertEquals(MESSAGES, session.received.get(), session.getId());
+			assertTrue(session.isOpen());
+		}
+		for (ClientSession session : slow) {
+			assertFalse(session.isOpen());
+			assertEquals(CloseStatus.SESSION_NOT_RELIABLE, session.closeStatus);
+			assertTrue(session.received.get() < MESSAGES);
+		}
+		assertEquals(SLOW_SESSIONS, meterRegistry.get("websocket.sessions.evicted").counter().count());
+		assertTrue(maxDegraded.get() > 0);
+		assertTrue(maxBacklog.get() < 2 * EVICT_BACKLOG, "retard max " + maxBacklog.get());
+
+		subProtocolHandler.stop();
+		broker.stop();
+		executor.shutdown();
+	}
+
+	/**
+	 * Connexion cliente simulée ; une session lente met delayMs à écrire chaque trame.
+	 * La fermeture notifie le gestionnaire comme le ferait le conteneur WebSocket.
+	 */
+	static final class ClientSession implements WebSocketSession {
+		private final String id;
+		private final long delayMs;
+		private final WebSocketHandler handler;
+		private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+		final AtomicInteger received = new AtomicInteger();
+		private volatile boolean open = true;
+		private volatile CloseStatus closeStatus;
+		private int textMessageSizeLimit = 8192;
+
+		ClientSession(String id, long delayMs, WebSocketHandler handler) {
+			this.id = id;
+			this.delayMs = delayMs;
+			this.handler = handler;
+		}
+
+		@Override
+		public void sendMessage(WebSocketMessage<?> message) throws IOException {
+			if (!open) {
+				throw new IOException("Session fermée");
+			}
+			if (delayMs > 0) {
+				try {
+					Thread.sleep(delayMs);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			if (message instanceof TextMessage text && text.getPayload().startsWith("MESSAGE")) {
+				received.incrementAndGet();
+			}
+		}
+
+		@Override
+		public void close(CloseStatus status) {
+			synchronized (this) {
+				if (!open) {
+					return;
+				}
+				open = false;
+				closeStatus = status;
+			}
+			try {
+				handler.afterConnectionClosed(this, status);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public void close() {
+			close(CloseStatus.NORMAL);
+		}
+
+		@Override
+		public boolean isOpen() {
+			return open;
+		}
+
+		@Override
+		public String getId() {
+			return id;
+		}
+
+		@Override
+		public URI getUri() {
+			return URI.create("ws://localhost/ws-mqtt");
+		}
+
+		@Override
+		public HttpHeaders getHandshakeHeaders() {
+			return new HttpHeaders();
+		}
+
+		@Override
+		public Map<String, Object> getAttributes() {
+			return attributes;
+		}
+
+		@Override
+		public Principal getPrincipal() {
+			return null;
+		}
+
+		@Override
+		public InetSocketAddress getLocalAddress() {
+			return null;
+		}
+
+		@Override
+		public InetSocketAddress getRemoteAddress() {
+			return null;
+		}
+
+		@Override
+		public String getAcceptedProtocol() {
+			return null;
+		}
+
+		@Override
+		public void setTextMessageSizeLimit(int messageSizeLimit) {
+			textMessageSizeLimit = messageSizeLimit;
+		}
+
+		@Override
+		public int getTextMessageSizeLimit() {
+			return textMessageSizeLimit;
+		}
+
+		@Override
+		public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+		}
+
+		@Override
+		public int getBinaryMessageSizeLimit() {
+			return 8192;
+		}
+
+		@Override
+		public List<WebSocketExtension> getExtensions() {
+			return List.of();
+		}
+	}
+}
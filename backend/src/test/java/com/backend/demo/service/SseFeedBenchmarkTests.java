@@ -0,0 +1,193 @@
+package com.backend.demo.service;
+
+import com.backend.demo.controller.AirQualityController;
+import com.backend.demo.mqtt.AirQualityBroadcaster;
+import com.backend.demo.mqtt.AirQualityData;
+import com.backend.demo.mqtt.AirQualityDataService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Connexions simultanées tenues par une instance : flux SSE (une file par connexion, écrivains en pool borné)
+ * contre sessions STOMP (broker simple, canal sortant de websocket.outbound.pool-size threads).
+ * Pour chaque nombre de connexions : mémoire retenue par connexion, threads plateforme créés,
+ * et temps pour livrer une rafale de lectures à toutes les connexions.
+ * Les tampons réseau du conteneur ne sont pas comptés, ni d'un côté ni de l'autre ;
+ * côté SSE, la requête et la réponse simulées par MockMvc le sont, d'où une mesure du flux seul.
+ * MockMvc n'écrit jamais sur un socket : les lecteurs lents sont mesurés dans SseFeedSocketBenchmarkTests.
+ */
+class SseFeedBenchmarkTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(SseFeedBenchmarkTests.class);
+
+	private static final int READINGS = 20;
+	private static final int OUTBOUND_THREADS = 8;
+
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+	@Test
+	@Tag("benchmark")
+	void comparesSseConnectionsWithStompSessions() throws Exception {
+		for (int connections : new int[] {1_000, 10_000}) {
+			Result stomp = measureStomp(connections);
+			Result sse = measureSse(connections);
+			long feedBytes = measureSseFeedOnly(connections);
+			logger.info(String.format("%,7d connexions | SSE %,6d o/connexion (%,5d hors MockMvc), +%d threads plateforme, "
+							+ "rafale livrée en %,5d ms | STOMP %,6d o/session, +%d threads plateforme, rafale livrée en %,5d ms",
+					connections, sse.bytesPerConnection, feedBytes, sse.platformThreads, sse.deliveryMs,
+					stomp.bytesPerConnection, stomp.platformThreads, stomp.deliveryMs));
+			// Les connexions SSE ne consomment pas de thread : les écrivains ne sont créés qu'à l'envoi
+			assertTrue(sse.platformThreads < 10, "threads plateforme SSE : " + sse.platformThreads);
+		}
+	}
+
+	private Result measureSse(int connections) throws Exception {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		SseFeedService sseFeeds = new SseFeedService(meterRegistry, 1_000, 256, 15_000, 600_000, 16);
+		SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> true);
+		template.setMessageConverter(new MappingJackson2MessageConverter());
+		AirQualityBroadcaster airQualityBroadcaster = new AirQualityBroadcaster(
+				new PreEncodedBroadcaster(template, new PayloadEncodingInterceptor(new Jackson2ObjectMapperBuilder())), sseFeeds, 1_000);
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(
+				new AirQualityController(new AirQualityDataService(), airQualityBroadcaster, sseFeeds)).build();
+
+		long heapBefore = usedHeap();
+		int threadsBefore = threads.getThreadCount();
+		List<MvcResult> open = new ArrayList<>(connections);
+		for (int i = 0; i < connections; i++) {
+			open.add(mockMvc.perform(get("/api/airquality/stream").accept(MediaType.TEXT_EVENT_STREAM)).andReturn());
+		}
+		assertEquals(connections, sseFeeds.getConnectionCount(SseFeedService.AIRQUALITY));
+		long heapAfter = usedHeap();
+		int platformThreads = threads.getThreadCount() - threadsBefore;
+
+		Counter sent = meterRegistry.get("sse.events.sent").counter();
+		long deliveryMs = deliver(() -> (long) sent.count(), (long) connections * READINGS, () -> {
+			for (int i = 0; i < READINGS; i++) {
+				airQualityBroadcaster.broadcast("capteurs/qualite_air", new AirQualityData(10, 20, 30, 40, 0.1f, i));
+			}
+		});
+		assertTrue(open.get(connections - 1).getResponse().getContentAsString().contains("\"aqi\":" + (READINGS - 1)));
+
+		sseFeeds.shutdown();
+		airQualityBroadcaster.shutdown();
+		// Laisse les écrivains envoyer la fin de flux avant la mesure suivante
+		Thread.sleep(200);
+		return new Result((heapAfter - heapBefore) / connections, platformThreads, deliveryMs);
+	}
+
+	/**
+	 * Coût propre du flux par connexion (émetteur, file),
+	 * sans la requête et la réponse simulées
+	 */
+	private long measureSseFeedOnly(int connections) throws InterruptedException {
+		SseFeedService sseFeeds = new SseFeedService(new SimpleMeterRegistry(), 1_000, 256, 15_000, 600_000, 16);
+		long heapBefore = usedHeap();
+		for (int i = 0; i < connections; i++) {
+			sseFeeds.subscribe(SseFeedService.AIRQUALITY, null, Map.of(), List.of());
+		}
+		long heapAfter = usedHeap();
+		sseFeeds.shutdown();
+		Thread.sleep(200);
+		return (heapAfter - heapBefore) / connections;
+	}
+
+	private Result measureStomp(int connections) throws Exception {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(OUTBOUND_THREADS);
+		executor.setMaxPoolSize(OUTBOUND_THREADS);
+		executor.setThreadNamePrefix("clientOutbound-");
+		executor.initialize();
+		ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+		ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel(executor);
+		ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+		SimpleBrokerMessageHandler broker = new SimpleBrokerMessageHandler(
+				clientInbound, clientOutbound, brokerChannel, List.of("/topic"));
+		broker.start();
+		SubProtocolWebSocketHandler handler = new SubProtocolWebSocketHandler(clientInbound, clientOutbound);
+		handler.setDefaultProtocolHandler(new StompSubProtocolHandler());
+		handler.start();
+		SimpMessagingTemplate template = new SimpMessagingTemplate(brokerChannel);
+		template.setMessageConverter(new MappingJackson2MessageConverter());
+		PreEncodedBroadcaster broadcaster = new PreEncodedBroadcaster(template, new PayloadEncodingInterceptor(new Jackson2ObjectMapperBuilder()));
+
+		// Les threads du canal sortant sont créés à la demande : comptés avec les sessions
+		long heapBefore = usedHeap();
+		int threadsBefore = threads.getThreadCount();
+		List<SlowConsumerLoadTests.ClientSession> sessions = new ArrayList<>(connections);
+		for (int i = 0; i < connections; i++) {
+			SlowConsumerLoadTests.ClientSession session = new SlowConsumerLoadTests.ClientSession("session-" + i, 0, handler);
+			sessions.add(session);
+			handler.afterConnectionEstablished(session);
+			handler.handleMessage(session, new TextMessage("CONNECT\naccept-version:1.2\nheart-beat:0,0\n\n\0"));
+			handler.handleMessage(session, new TextMessage(
+					"SUBSCRIBE\nid:sub-0\ndestination:" + AirQualityBroadcaster.DESTINATION + "\n\n\0"));
+		}
+		long heapAfter = usedHeap();
+		int platformThreads = threads.getThreadCount() - threadsBefore;
+
+		long deliveryMs = deliver(() -> sessions.stream().mapToLong(s -> s.received.get()).sum(),
+				(long) connections * READINGS, () -> {
+					for (int i = 0; i < READINGS; i++) {
+						broadcaster.send(AirQualityBroadcaster.DESTINATION,
+								broadcaster.encode(new AirQualityData(10, 20, 30, 40, 0.1f, i)));
+					}
+				});
+
+		handler.stop();
+		broker.stop();
+		executor.shutdown();
+		return new Result((heapAfter - heapBefore) / connections, platformThreads, deliveryMs);
+	}
+
+	private static long deliver(LongSupplier delivered, long expected, Runnable publish) throws InterruptedException {
+		long start = System.nanoTime();
+		publish.run();
+		long deadline = System.currentTimeMillis() + 60_000;
+		while (delivered.getAsLong() < expected) {
+			assertTrue(System.currentTimeMillis() < deadline, delivered.getAsLong() + " / " + expected);
+			Thread.sleep(1);
+		}
+		return (System.nanoTime() - start) / 1_000_000;
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private record Result(long bytesPerConnection, int platformThreads, long deliveryMs) {
+	}
+}
@@ -0,0 +1,144 @@
+package com.backend.demo.service;
+
+import com.backend.demo.controller.AirQualityController;
+import com.backend.demo.mqtt.AirQualityBroadcaster;
+import com.backend.demo.mqtt.AirQualityData;
+import com.backend.demo.mqtt.AirQualityDataService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class SseFeedServiceTests {
+
+	private static final Pattern EVENT_ID = Pattern.compile("^id:(\\S+)$", Pattern.MULTILINE);
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final SseFeedService sseFeeds = new SseFeedService(meterRegistry, 4, 2, 15_000, 60_000, 4);
+	private final PreEncodedBroadcaster broadcaster;
+	private final AirQualityBroadcaster airQualityBroadcaster;
+	private final MockMvc mockMvc;
+
+	SseFeedServiceTests() {
+		SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> true);
+		template.setMessageConverter(new MappingJackson2MessageConverter());
+		broadcaster = new PreEncodedBroadcaster(template, new PayloadEncodingInterceptor(new Jackson2ObjectMapperBuilder()));
+		airQualityBroadcaster = new AirQualityBroadcaster(broadcaster, sseFeeds, 100);
+		mockMvc = MockMvcBuilders.standaloneSetup(
+				new AirQualityController(new AirQualityDataService(), airQualityBroadcaster, sseFeeds)).build();
+	}
+
+	@AfterEach
+	void shutdown() throws InterruptedException {
+		sseFeeds.shutdown();
+		airQualityBroadcaster.shutdown();
+	}
+
+	@Test
+	void newConnectionReceivesSnapshotThenLiveReadings() throws Exception {
+		publish("capteur-a", 40);
+		publish("capteur-b", 41);
+		MockHttpServletResponse response = open(null, null).getResponse();
+		awaitContent(response, content -> content.contains("\"aqi\":40") && content.contains("\"aqi\":41"));
+		// L'instantané n'a pas d'identifiant : une reconnexion ne le confond pas avec le flux
+		assertFalse(EVENT_ID.matcher(content(response)).find());
+
+		publish("capteur-a", 42);
+		awaitContent(response, content -> content.contains("\"aqi\":42"));
+		assertEquals(1, ids(response).size());
+		assertTrue(response.getContentType().startsWith(MediaType.TEXT_EVENT_STREAM_VALUE));
+	}
+
+	@Test
+	void lastEventIdReplaysOnlyMissedEventsForTheSensor() throws Exception {
+		MockHttpServletResponse first = open(null, "capteur-a").getResponse();
+		publish("capteur-a", 1);
+		publish("capteur-b", 2);
+		awaitContent(first, content -> content.contains("\"aqi\":1"));
+		String lastEventId = ids(first).get(0);
+		sseFeeds.shutdown();
+
+		publish("capteur-a", 3);
+		publish("capteur-b", 4);
+		publish("capteur-a", 5);
+		MockHttpServletResponse resumed = open(lastEventId, "capteur-a").getResponse();
+		awaitContent(resumed, content -> content.contains("\"aqi\":5"));
+		String content = content(resumed);
+		assertTrue(content.contains("\"aqi\":3"));
+		assertFalse(content.contains("\"aqi\":1"));
+		assertFalse(content.contains("\"aqi\":2") || content.contains("\"aqi\":4"));
+		assertEquals(2, ids(resumed).size());
+	}
+
+	@Test
+	void unknownLastEventIdReplaysWholeRing() throws Exception {
+		for (int aqi = 1; aqi <= 6; aqi++) {
+			publish("capteur-a", aqi);
+		}
+		MockHttpServletResponse response = open("instance-precedente-3", null).getResponse();
+		awaitContent(response, content -> content.contains("\"aqi\":6"));
+		// Anneau de 4 événements : les plus anciens sont perdus
+		assertEquals(4, ids(response).size());
+		assertFalse(content(response).contains("\"aqi\":2"));
+	}
+
+	private MvcResult open(String lastEventId, String sensor) throws Exception {
+		var request = get("/api/airquality/stream").accept(MediaType.TEXT_EVENT_STREAM);
+		if (lastEventId != null) {
+			request.header("Last-Event-ID", lastEventId);
+		}
+		if (sensor != null) {
+			request.param("sensor", sensor);
+		}
+		MvcResult result = mockMvc.perform(request).andReturn();
+		assertTrue(result.getRequest().isAsyncStarted());
+		return result;
+	}
+
+	private void publish(String sensorKey, int aqi) throws InterruptedException {
+		airQualityBroadcaster.broadcast(sensorKey, new AirQualityData(10, 20, 30, 40, 0.1f, aqi));
+		while (airQualityBroadcaster.getPendingCount() > 0) {
+			Thread.sleep(2);
+		}
+	}
+
+	private static void awaitContent(MockHttpServletResponse response, Predicate<String> condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (!condition.test(content(response))) {
+			assertTrue(System.currentTimeMillis() < deadline, content(response));
+			Thread.sleep(5);
+		}
+	}
+
+	private static String content(MockHttpServletResponse response) {
+		return new String(response.getContentAsByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static List<String> ids(MockHttpServletResponse response) {
+		List<String> ids = new ArrayList<>();
+		Matcher matcher = EVENT_ID.matcher(content(response));
+		while (matcher.find()) {
+			ids.add(matcher.group(1));
+		}
+		return ids;
+	}
+}
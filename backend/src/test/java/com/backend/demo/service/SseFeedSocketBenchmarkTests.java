@@ -0,0 +1,231 @@
+package com.backend.demo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Flux SSE servi par Tomcat sur de vrais sockets, avec des lecteurs lents dont les tampons
+ * réseau se remplissent : leurs écritures bloquent, contrairement à MockMvc.
+ * Mesure le temps de livraison aux lecteurs rapides et la latence des threads virtuels
+ * pendant que des écrivains sont bloqués ; les lecteurs lents finissent fermés pour débordement.
+ */
+@SpringBootTest(classes = SseFeedSocketBenchmarkTests.Config.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class SseFeedSocketBenchmarkTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(SseFeedSocketBenchmarkTests.class);
+
+	private static final int FAST_READERS = 8;
+	private static final int SLOW_READERS = 2;
+	private static final int WRITER_THREADS = 4;
+	private static final int EVENTS = 200;
+	private static final int PAYLOAD_BYTES = 512;
+
+	@Configuration
+	@ImportAutoConfiguration({PropertyPlaceholderAutoConfiguration.class, ServletWebServerFactoryAutoConfiguration.class,
+			DispatcherServletAutoConfiguration.class, WebMvcAutoConfiguration.class})
+	static class Config {
+
+		@Bean
+		SimpleMeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+
+		@Bean
+		SseFeedService sseFeedService(SimpleMeterRegistry meterRegistry) {
+			return new SseFeedService(meterRegistry, 1_000, 32, 15_000, 120_000, WRITER_THREADS);
+		}
+
+		/**
+		 * Tampon d'envoi fixe et petit : sans lui, le noyau absorbe plusieurs Mo avant de bloquer l'écriture
+		 */
+		@Bean
+		WebServerFactoryCustomizer<TomcatServletWebServerFactory> smallSendBuffer() {
+			return factory -> factory.addConnectorCustomizers(connector -> connector.setProperty("socket.txBufSize", "8192"));
+		}
+
+		@Bean
+		StreamController streamController(SseFeedService sseFeeds) {
+			return new StreamController(sseFeeds);
+		}
+	}
+
+	@RestController
+	static class StreamController {
+		private final SseFeedService sseFeeds;
+
+		StreamController(SseFeedService sseFeeds) {
+			this.sseFeeds = sseFeeds;
+		}
+
+		@GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+		SseEmitter stream() {
+			return sseFeeds.subscribe(SseFeedService.AIRQUALITY, null, Map.of(), List.of());
+		}
+	}
+
+	@Autowired
+	private SseFeedService sseFeeds;
+
+	@Autowired
+	private SimpleMeterRegistry meterRegistry;
+
+	@LocalServerPort
+	private int port;
+
+	@Test
+	void slowReadersDoNotDelayFastReadersNorVirtualThreads() throws Exception {
+		List<Socket> sockets = new ArrayList<>();
+		List<AtomicInteger> fastCounts = new ArrayList<>();
+		try {
+			for (int i = 0; i < SLOW_READERS; i++) {
+				Socket socket = open(4 * 1024);
+				sockets.add(socket);
+				Thread.ofVirtual().start(() -> readSlowly(socket));
+			}
+			for (int i = 0; i < FAST_READERS; i++) {
+				Socket socket = open(0);
+				sockets.add(socket);
+				AtomicInteger count = new AtomicInteger();
+				fastCounts.add(count);
+				Thread.ofVirtual().start(() -> countEvents(socket, count));
+			}
+			await(() -> sseFeeds.getConnectionCount(SseFeedService.AIRQUALITY) == FAST_READERS + SLOW_READERS);
+
+			byte[] data = payload();
+			long start = System.nanoTime();
+			for (int i = 0; i < EVENTS; i++) {
+				sseFeeds.publish(SseFeedService.AIRQUALITY,
+						new PreEncodedBroadcaster.EncodedPayload(data, MediaType.APPLICATION_JSON), Map.of());
+				Thread.sleep(5);
+			}
+			await(() -> fastCounts.stream().allMatch(count -> count.get() == EVENTS));
+			long deliveryMs = (System.nanoTime() - start) / 1_000_000;
+
+			// Les écrivains des lecteurs lents peuvent être encore bloqués : aucun porteur ne doit être épinglé
+			long virtualThreadMs = virtualThreadRoundTrip();
+			double dropped = meterRegistry.get("sse.clients.dropped").tag("feed", SseFeedService.AIRQUALITY).counter().count();
+			logger.info(String.format("%d lecteurs rapides, %d lents, %d écrivains : %,d événements de %,d o livrés en %,d ms, "
+							+ "%.0f connexions fermées, 1 000 threads virtuels en %,d ms",
+					FAST_READERS, SLOW_READERS, WRITER_THREADS, EVENTS, PAYLOAD_BYTES, deliveryMs, dropped, virtualThreadMs));
+			assertTrue(dropped >= SLOW_READERS, "connexions fermées : " + dropped);
+			assertTrue(virtualThreadMs < 1_000, "threads virtuels : " + virtualThreadMs + " ms");
+		} finally {
+			for (Socket socket : sockets) {
+				socket.close();
+			}
+		}
+	}
+
+	/**
+	 * Requête HTTP/1.0 : réponse non découpée en chunks, chaque ligne id: arrive entière
+	 */
+	private Socket open(int receiveBufferSize) throws IOException {
+		Socket socket = new Socket();
+		if (receiveBufferSize > 0) {
+			socket.setReceiveBufferSize(receiveBufferSize);
+		}
+		socket.connect(new InetSocketAddress("localhost", port));
+		OutputStream out = socket.getOutputStream();
+		out.write("GET /stream HTTP/1.0\r\nHost: localhost\r\nAccept: text/event-stream\r\n\r\n"
+				.getBytes(StandardCharsets.US_ASCII));
+		out.flush();
+		return socket;
+	}
+
+	private static void countEvents(Socket socket, AtomicInteger count) {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith("id:")) {
+					count.incrementAndGet();
+				}
+			}
+		} catch (IOException e) {
+			// Socket fermé en fin de test
+		}
+	}
+
+	/**
+	 * Lit 1 Ko toutes les 50 ms, soit environ 20 Ko/s
+	 */
+	private static void readSlowly(Socket socket) {
+		byte[] buffer = new byte[1024];
+		try {
+			InputStream in = socket.getInputStream();
+			while (in.read(buffer) >= 0) {
+				Thread.sleep(50);
+			}
+		} catch (IOException e) {
+			// Socket fermé en fin de test
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static long virtualThreadRoundTrip() throws InterruptedException {
+		long start = System.nanoTime();
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 1_000; i++) {
+			threads.add(Thread.ofVirtual().start(() -> {
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		return (System.nanoTime() - start) / 1_000_000;
+	}
+
+	private static byte[] payload() {
+		char[] filler = new char[PAYLOAD_BYTES - 8];
+		Arrays.fill(filler, 'x');
+		return ("{\"v\":\"" + new String(filler) + "\"}").getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 30_000;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < deadline);
+			Thread.sleep(5);
+		}
+	}
+}
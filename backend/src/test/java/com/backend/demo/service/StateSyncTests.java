@@ -0,0 +1,131 @@
+package com.backend.demo.service;
+
+import com.backend.demo.mqtt.AirQualityData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StateSyncTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(StateSyncTests.class);
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void publishesOnlyChangedFieldsWithIncreasingSequence() {
+		StateSync sync = new StateSync();
+		sync.update("a", Map.of("pm25", 10f, "aqi", 40));
+		StateSync.StateMessage first = sync.drainDelta();
+		assertEquals(1, first.seq());
+		assertEquals(Map.of("pm25", 10f, "aqi", 40), first.entries().get("a"));
+
+		sync.update("a", Map.of("pm25", 10f, "aqi", 41));
+		StateSync.StateMessage second = sync.drainDelta();
+		assertEquals(2, second.seq());
+		assertEquals(Map.of("aqi", 41), second.entries().get("a"));
+
+		sync.update("a", Map.of("pm25", 10f, "aqi", 41));
+		assertNull(sync.drainDelta());
+	}
+
+	@Test
+	void clientResyncsAfterGapAndConvergesToServerState() {
+		StateSync sync = new StateSync();
+		Random random = new Random(7);
+		Map<String, Map<String, Object>> client = new HashMap<>();
+		long clientSeq = -1;
+		int resyncs = 0;
+
+		for (int tick = 0; tick < 200; tick++) {
+			for (int i = 0; i < 5; i++) {
+				sync.update("s" + random.nextInt(50), Map.of("aqi", random.nextInt(5), "pm25", (float) random.nextInt(3)));
+			}
+			StateSync.StateMessage delta = sync.drainDelta();
+			// 10 % des deltas sont perdus (reconnexion, client lent)
+			if (delta == null || random.nextInt(10) == 0) {
+				continue;
+			}
+			if (clientSeq < 0 || delta.seq() != clientSeq + 1) {
+				clientSeq = resync(sync, client);
+				resyncs++;
+				continue;
+			}
+			apply(client, delta);
+			clientSeq = delta.seq();
+		}
+
+		// Le dernier delta a pu être perdu : le trou serait détecté au delta suivant
+		if (clientSeq != sync.getSequence()) {
+			resync(sync, client);
+		}
+		assertTrue(resyncs > 1);
+		assertEquals(sync.snapshot().entries(), client);
+	}
+
+	@Test
+	@Tag("benchmark")
+	void measuresBytesPerSecondForFullAndDeltaModes() throws Exception {
+		int sensors = 5_000;
+		int seconds = 60;
+		Random random = new Random(42);
+		AirQualityData[] fleet = new AirQualityData[sensors];
+		StateSync sync = new StateSync();
+		for (int s = 0; s < sensors; s++) {
+			fleet[s] = new AirQualityData(12.5f, 30.1f, 41.0f, 60.2f, 0.4f, 48);
+			sync.update("capteur-" + s, DashboardStateService.fieldsOf(fleet[s]));
+		}
+		long snapshotBytes = objectMapper.writeValueAsBytes(sync.snapshot()).length;
+		sync.drainDelta();
+
+		long fullBytes = 0;
+		long deltaBytes = 0;
+		for (int second = 0; second < seconds; second++) {
+			// Chaque capteur publie une lecture par seconde, 1 % d'entre eux change
+			for (int s = 0; s < sensors; s++) {
+				if (random.nextInt(100) == 0) {
+					fleet[s].setAqi(fleet[s].getAqi() + 1);
+					if (random.nextBoolean()) {
+						fleet[s].setPm25(fleet[s].getPm25() + 0.5f);
+					}
+				}
+				fullBytes += objectMapper.writeValueAsBytes(fleet[s]).length;
+				sync.update("capteur-" + s, DashboardStateService.fieldsOf(fleet[s]));
+			}
+			StateSync.StateMessage delta = sync.drainDelta();
+			if (delta != null) {
+				deltaBytes += objectMapper.writeValueAsBytes(delta).length;
+			}
+		}
+
+		logger.info(String.format("%d capteurs : complet %,d octets/s, deltas %,d octets/s (instantané initial %,d octets), ratio %.1fx",
+				sensors, fullBytes / seconds, deltaBytes / seconds, snapshotBytes, (double) fullBytes / deltaBytes));
+		assertTrue(deltaBytes * 20 < fullBytes);
+	}
+
+	private static long resync(StateSync sync, Map<String, Map<String, Object>> client) {
+		StateSync.StateMessage snapshot = sync.snapshot();
+		client.clear();
+		snapshot.entries().forEach((key, fields) -> client.put(key, new HashMap<>(fields)));
+		return snapshot.seq();
+	}
+
+	private static void apply(Map<String, Map<String, Object>> client, StateSync.StateMessage delta) {
+		delta.entries().forEach((key, fields) -> {
+			if (fields == null) {
+				client.remove(key);
+			} else {
+				client.computeIfAbsent(key, k -> new HashMap<>()).putAll(fields);
+			}
+		});
+	}
+}
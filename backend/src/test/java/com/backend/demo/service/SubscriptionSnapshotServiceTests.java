@@ -0,0 +1,114 @@
+package com.backend.demo.service;
+
+import com.backend.demo.Config.WebSocketConfig;
+import com.backend.demo.mqtt.AirQualityBroadcaster;
+import com.backend.demo.mqtt.AirQualityData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SubscriptionSnapshotServiceTests {
+
+	private final List<Message<?>> outbound = new ArrayList<>();
+	private final PreEncodedBroadcaster broadcaster;
+	private final AirQualityBroadcaster airQualityBroadcaster;
+	private final AlertSummaryCounter alertSummaryCounter = new AlertSummaryCounter();
+	private final SseFeedService sseFeeds = new SseFeedService(new SimpleMeterRegistry(), 100, 16, 15_000, 60_000, 4);
+	private final SubscriptionSnapshotService service;
+
+	SubscriptionSnapshotServiceTests() {
+		SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> true);
+		template.setMessageConverter(new MappingJackson2MessageConverter());
+		broadcaster = new PreEncodedBroadcaster(template, new PayloadEncodingInterceptor(new Jackson2ObjectMapperBuilder()));
+		airQualityBroadcaster = new AirQualityBroadcaster(broadcaster, sseFeeds, 100);
+		service = new SubscriptionSnapshotService((message, timeout) -> outbound.add(message),
+				broadcaster, airQualityBroadcaster, alertSummaryCounter);
+	}
+
+	@AfterEach
+	void shutdown() throws InterruptedException {
+		airQualityBroadcaster.shutdown();
+	}
+
+	@Test
+	void airQualitySubscriberReceivesLatestReadingPerSensor() throws Exception {
+		airQualityBroadcaster.broadcast("capteur-a", new AirQualityData(10, 20, 30, 40, 0.1f, 42));
+		airQualityBroadcaster.broadcast("capteur-b", new AirQualityData(11, 21, 31, 41, 0.2f, 43));
+		airQualityBroadcaster.broadcast("capteur-a", new AirQualityData(12, 22, 32, 42, 0.3f, 44));
+		awaitBroadcasts();
+
+		service.onSubscribe(subscribe("s1", "sub-0", AirQualityBroadcaster.DESTINATION, null));
+
+		assertEquals(2, outbound.size());
+		for (Message<?> message : outbound) {
+			SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+			assertEquals(SimpMessageType.MESSAGE, accessor.getMessageType());
+			assertEquals("s1", accessor.getSessionId());
+			assertEquals("sub-0", accessor.getSubscriptionId());
+			assertEquals(AirQualityBroadcaster.DESTINATION, accessor.getDestination());
+			if ("capteur-a".equals(accessor.getFirstNativeHeader(AirQualityBroadcaster.SENSOR_HEADER))) {
+				Map<?, ?> reading = new ObjectMapper().readValue((byte[]) message.getPayload(), Map.class);
+				assertEquals(44, reading.get("aqi"));
+			}
+		}
+	}
+
+	@Test
+	void selectorFiltersSnapshot() throws Exception {
+		airQualityBroadcaster.broadcast("capteur-a", new AirQualityData(10, 20, 30, 40, 0.1f, 42));
+		airQualityBroadcaster.broadcast("capteur-b", new AirQualityData(11, 21, 31, 41, 0.2f, 43));
+		awaitBroadcasts();
+
+		service.onSubscribe(subscribe("s1", "sub-0", AirQualityBroadcaster.DESTINATION, "headers.sensor == 'capteur-b'"));
+
+		assertEquals(1, outbound.size());
+		assertEquals("capteur-b", SimpMessageHeaderAccessor.wrap(outbound.get(0))
+				.getFirstNativeHeader(AirQualityBroadcaster.SENSOR_HEADER));
+	}
+
+	@Test
+	void alertSummarySubscriberReceivesCurrentSummary() throws Exception {
+		alertSummaryCounter.record("danger", "air", "pm25", new Date());
+		service.onSubscribe(subscribe("s1", "sub-1", SubscriptionSnapshotService.ALERT_SUMMARY_DESTINATION, null));
+		service.onSubscribe(subscribe("s1", "sub-2", "/topic/alerts", null));
+
+		assertEquals(1, outbound.size());
+		Map<?, ?> summary = new ObjectMapper().readValue((byte[]) outbound.get(0).getPayload(), Map.class);
+		assertEquals(1, summary.get("danger"));
+		assertEquals(1, summary.get("total"));
+	}
+
+	private void awaitBroadcasts() throws InterruptedException {
+		while (airQualityBroadcaster.getPendingCount() > 0) {
+			Thread.sleep(5);
+		}
+	}
+
+	private static SessionSubscribeEvent subscribe(String sessionId, String subscriptionId, String destination, String selector) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+		accessor.setSessionId(sessionId);
+		accessor.setSubscriptionId(subscriptionId);
+		accessor.setDestination(destination);
+		if (selector != null) {
+			accessor.setNativeHeader(WebSocketConfig.SELECTOR_HEADER, selector);
+		}
+		return new SessionSubscribeEvent(SubscriptionSnapshotServiceTests.class,
+				MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+	}
+}
@@ -0,0 +1,148 @@
+package com.backend.demo.service;
+
+import com.backend.demo.entity.Alert;
+import com.backend.demo.entity.ThresholdScope;
+import com.backend.demo.mqtt.AirQualityData;
+import com.backend.demo.mqtt.AirQualityDataService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ThresholdTableTests {
+
+	@Test
+	void resolvesSensorThenZoneThenGlobal() {
+		ThresholdTable table = new ThresholdTable();
+		table.setGlobal("pm25", 35.0, 55.0);
+		table.assignZone("1", "industrielle");
+		table.assignZone("2", "industrielle");
+		table.setOverride(ThresholdScope.ZONE, "industrielle", "pm25", 50.0, 80.0);
+		// Seul le seuil critique est surchargé pour le capteur 2
+		table.setOverride(ThresholdScope.SENSOR, "2", "pm25", null, 70.0);
+
+		int pm25 = table.indexOfParameter("pm25");
+		assertEquals(35.0, table.warning(table.indexOfSensor("3"), pm25));
+		assertEquals(50.0, table.warning(table.indexOfSensor("1"), pm25));
+		assertEquals(80.0, table.critical(table.indexOfSensor("1"), pm25));
+		assertEquals(50.0, table.warning(table.indexOfSensor("2"), pm25));
+		assertEquals(70.0, table.critical(table.indexOfSensor("2"), pm25));
+		assertEquals(55.0, table.critical(ThresholdTable.NO_SENSOR, pm25));
+	}
+
+	@Test
+	void updatesOnlyAffectedCellsWhenALevelChanges() {
+		ThresholdTable table = new ThresholdTable();
+		table.setGlobal("no2", 100.0, 200.0);
+		table.assignZone("a", "residentielle");
+		table.setOverride(ThresholdScope.ZONE, "residentielle", "no2", 80.0, null);
+		int no2 = table.indexOfParameter("no2");
+		int a = table.indexOfSensor("a");
+
+		table.setGlobal("no2", 90.0, 150.0);
+		assertEquals(80.0, table.warning(a, no2));
+		assertEquals(150.0, table.critical(a, no2));
+
+		table.removeOverride(ThresholdScope.ZONE, "residentielle", "no2");
+		assertEquals(90.0, table.warning(a, no2));
+
+		table.setOverride(ThresholdScope.ZONE, "industrielle", "no2", 120.0, null);
+		table.assignZone("a", "industrielle");
+		assertEquals(120.0, table.warning(a, no2));
+	}
+
+	@Test
+	void growsToManySensorsAndParameters() {
+		ThresholdTable table = new ThresholdTable();
+		for (int p = 0; p < 20; p++) {
+			table.setGlobal("p" + p, (double) p, p + 10.0);
+		}
+		for (int s = 0; s < 100_000; s++) {
+			table.assignZone("s" + s, s % 2 == 0 ? "paire" : null);
+		}
+		table.setOverride(ThresholdScope.ZONE, "paire", "p19", -1.0, null);
+
+		assertEquals(100_000, table.getSensorCount());
+		int p19 = table.indexOfParameter("p19");
+		assertEquals(-1.0, table.warning(table.indexOfSensor("s99998"), p19));
+		assertEquals(19.0, table.warning(table.indexOfSensor("s99999"), p19));
+		assertEquals(29.0, table.critical(table.indexOfSensor("s99998"), p19));
+	}
+
+	@Test
+	void removedSensorLeavesNothingForTheNextSensorWithItsKey() {
+		ThresholdTable table = new ThresholdTable();
+		table.setGlobal("pm25", 35.0, 55.0);
+		table.assignZone("4", "industrielle");
+		table.setOverride(ThresholdScope.ZONE, "industrielle", "pm25", 50.0, null);
+		table.setOverride(ThresholdScope.SENSOR, "4", "pm25", null, 70.0);
+
+		table.removeSensor("4");
+		int pm25 = table.indexOfParameter("pm25");
+		assertEquals(35.0, table.warning(table.indexOfSensor("4"), pm25));
+		assertEquals(55.0, table.critical(table.indexOfSensor("4"), pm25));
+		// La surcharge de zone ne touche plus l'ancienne ligne
+		table.setOverride(ThresholdScope.ZONE, "industrielle", "pm25", 60.0, null);
+		assertEquals(35.0, table.warning(table.indexOfSensor("4"), pm25));
+	}
+
+	@Test
+	void readersNeverSeeAHalfUpdatedPair() throws InterruptedException {
+		ThresholdTable table = new ThresholdTable();
+		table.setGlobal("pm25", 10.0, 20.0);
+		int pm25 = table.indexOfParameter("pm25");
+		int sensor = table.indexOfSensor("1");
+		AtomicBoolean done = new AtomicBoolean();
+		AtomicInteger mixed = new AtomicInteger();
+		// 25 est en danger sous (10, 20) et sous les seuils avec (30, 40) ; "warning" trahirait (10, 40)
+		Thread reader = Thread.ofPlatform().start(() -> {
+			while (!done.get()) {
+				if ("warning".equals(table.level(sensor, pm25, 25))) {
+					mixed.incrementAndGet();
+				}
+			}
+		});
+		for (int i = 0; i < 100_000; i++) {
+			if (i % 2 == 0) {
+				table.setGlobal("pm25", 30.0, 40.0);
+			} else {
+				table.setGlobal("pm25", 10.0, 20.0);
+			}
+		}
+		done.set(true);
+		reader.join();
+		assertEquals(0, mixed.get());
+	}
+
+	@Test
+	void sensorOverrideSetsTheSeverityOfReadingAlerts() {
+		ThresholdTable table = new ThresholdTable();
+		for (String parameter : List.of("pm25", "pm10", "no2", "o3", "co", "aqi")) {
+			table.setGlobal(parameter, 1000.0, 2000.0);
+		}
+		table.setGlobal("pm25", 35.0, 55.0);
+		table.setOverride(ThresholdScope.SENSOR, "7", "pm25", null, 40.0);
+
+		List<String> created = new ArrayList<>();
+		AlertService alertService = new AlertService() {
+			@Override
+			public Alert createAlert(String parameter, Double value, String severity) {
+				created.add(parameter + ":" + severity);
+				return null;
+			}
+		};
+		ReflectionTestUtils.setField(alertService, "thresholdTable", table);
+
+		AirQualityData reading = new AirQualityData(45f, 10f, 10f, 10f, 1f, 50);
+		alertService.checkReading(AirQualityDataService.sensorKeyOf("capteurs/qualite_air/7"), reading);
+		alertService.checkReading(AirQualityDataService.sensorKeyOf("capteurs/qualite_air/8"), reading);
+
+		// Le capteur 7 passe en danger grâce à sa surcharge, le capteur 8 reste aux seuils globaux
+		assertEquals(List.of("pm25:danger", "pm25:warning"), created);
+	}
+}
@@ -0,0 +1,83 @@
+package com.backend.demo.service;
+
+import com.backend.demo.repository.WeatherComparisonRepository;
+import com.backend.demo.upstream.OpenWeatherForecast;
+import com.backend.demo.upstream.UpstreamPriority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WeatherComparisonServiceTests {
+
+	private final WeatherComparisonRepository repository = mock(WeatherComparisonRepository.class);
+	private final UpstreamFanOut fanOut = new UpstreamFanOut(new SimpleMeterRegistry(), 1_000);
+	private final WeatherComparisonService service = new WeatherComparisonService(repository, new RestTemplate(), fanOut);
+
+	@AfterEach
+	void shutdown() {
+		service.shutdown();
+		fanOut.shutdown();
+	}
+
+	@Test
+	void scheduledUpdateRunsOffTheSchedulerThread() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicReference<String> thread = new AtomicReference<>();
+		AtomicReference<UpstreamPriority> priority = new AtomicReference<>();
+		when(repository.findAll()).thenAnswer(invocation -> {
+			thread.set(Thread.currentThread().getName());
+			priority.set(UpstreamPriority.current());
+			started.countDown();
+			// Attente de quota simulée
+			release.await(5, TimeUnit.SECONDS);
+			return List.of();
+		});
+
+		long begin = System.nanoTime();
+		service.scheduledForecastUpdate();
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		// La mise à jour précédente n'est pas terminée : celle-ci est ignorée
+		service.scheduledForecastUpdate();
+		long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+		release.countDown();
+
+		assertTrue(elapsedMs < 1_000, "thread planifié occupé " + elapsedMs + " ms");
+		assertEquals("weather-comparison-update", thread.get());
+		assertEquals(UpstreamPriority.SCHEDULED, priority.get());
+		verify(repository, times(1)).findAll();
+	}
+
+	@Test
+	void recordForecastsReportsCallsStillPendingAtTheDeadline() {
+		RestTemplate slowRestTemplate = mock(RestTemplate.class);
+		when(slowRestTemplate.getForObject(anyString(), eq(OpenWeatherForecast.class))).thenAnswer(invocation -> {
+			Thread.sleep(500);
+			return null;
+		});
+		UpstreamFanOut shortFanOut = new UpstreamFanOut(new SimpleMeterRegistry(), 100);
+		try {
+			WeatherComparisonService slowService = new WeatherComparisonService(repository, slowRestTemplate, shortFanOut);
+			assertEquals(List.of("openweather-forecast"), slowService.recordForecasts("Paris"));
+			WeatherComparisonService fastService = new WeatherComparisonService(repository, mock(RestTemplate.class), shortFanOut);
+			assertEquals(List.of(), fastService.recordForecasts("Paris"));
+		} finally {
+			shortFanOut.shutdown();
+		}
+	}
+}
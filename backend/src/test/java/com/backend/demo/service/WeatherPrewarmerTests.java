@@ -0,0 +1,133 @@
+package com.backend.demo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WeatherPrewarmerTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(WeatherPrewarmerTests.class);
+
+	private static final WeatherResponseCache.Endpoint CURRENT = WeatherResponseCache.Endpoint.OPENWEATHER_CURRENT;
+	private static final String JORF_LASFAR = WeatherResponseCache.key("Jorf Lasfar", "fr");
+	private static final String EL_JADIDA = WeatherResponseCache.key("El Jadida", "fr");
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AtomicLong now = new AtomicLong();
+	private WeatherResponseCache cache;
+	private WeatherPrewarmer prewarmer;
+
+	@AfterEach
+	void shutdown() {
+		prewarmer.shutdown();
+		cache.shutdown();
+	}
+
+	@Test
+	void refreshesAreSpreadAcrossTheInterval() throws InterruptedException {
+		cache = new WeatherResponseCache(meterRegistry, new MockEnvironment()
+				.withProperty("weather.cache.openweather-current.ttl", "100"));
+		prewarmer = new WeatherPrewarmer(cache, meterRegistry, 4, 400);
+		List<Long> loads = new CopyOnWriteArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			String query = "ville " + i + "|fr";
+			cache.get(CURRENT, query, () -> loads.add(System.nanoTime()));
+			for (int j = 0; j <= i; j++) {
+				prewarmer.record(query);
+			}
+		}
+		loads.clear();
+
+		prewarmer.schedulePrewarm();
+		long deadline = System.currentTimeMillis() + 2_000;
+		while (loads.size() < 4 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+
+		assertEquals(4, loads.size());
+		long spreadMs = TimeUnit.NANOSECONDS.toMillis(loads.get(3) - loads.get(0));
+		assertTrue(spreadMs >= 250, "préchargements étalés sur " + spreadMs + " ms");
+		assertEquals(4, meterRegistry.get("weather.prewarm.refreshes").counter().count());
+		assertEquals("ville 3|fr", prewarmer.getTop().get(0).key());
+	}
+
+	/**
+	 * Trafic simulé sur 3 h (horloge simulée) : Jorf Lasfar et El Jadida font la moitié des recherches.
+	 * Sans préchargement, leurs entrées expirent et des requêtes reçoivent une valeur périmée ou attendent
+	 * l'appel amont ; avec préchargement, elles restent fraîches.
+	 */
+	@Test
+	@Tag("benchmark")
+	void popularLookupsStayFresh() {
+		Outcome without = simulate(false);
+		Outcome with = simulate(true);
+
+		logger.info(String.format("Recherches populaires sans préchargement : %,d requêtes, %,d en attente de l'amont, %,d périmées",
+				without.requests, without.misses, without.stale));
+		logger.info(String.format("Recherches populaires avec préchargement : %,d requêtes, %,d en attente de l'amont, %,d périmées",
+				with.requests, with.misses, with.stale));
+		assertTrue(without.misses + without.stale > 20, without.toString());
+		// Seule la toute première requête de chaque ville attend l'amont
+		assertEquals(2, with.misses);
+		assertEquals(0, with.stale);
+	}
+
+	private record Outcome(long requests, long misses, long stale) {
+	}
+
+	private Outcome simulate(boolean prewarm) {
+		if (cache != null) {
+			prewarmer.shutdown();
+			cache.shutdown();
+		}
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		now.set(0);
+		// Fraîcheur 10 min puis 2 min de valeur périmée servie
+		cache = new WeatherResponseCache(registry, new MockEnvironment()
+				.withProperty("weather.cache.max-entries", "5000")
+				.withProperty("weather.cache.openweather-current.ttl", "600000")
+				.withProperty("weather.cache.openweather-current.stale", "120000"), now::get);
+		prewarmer = new WeatherPrewarmer(cache, registry, 10, 60_000);
+		Random random = new Random(11);
+		long requests = 0;
+		long misses = 0;
+		long stale = 0;
+		for (int minute = 0; minute < 180; minute++) {
+			if (prewarm) {
+				prewarmer.getTop().forEach(item -> prewarmer.refresh(item.key()));
+			}
+			for (int i = 0; i < 40; i++) {
+				int draw = random.nextInt(100);
+				String query = draw < 30 ? JORF_LASFAR : draw < 50 ? EL_JADIDA : "ville " + random.nextInt(2_000) + "|fr";
+				prewarmer.record(query);
+				double missesBefore = count(registry, "miss");
+				double staleBefore = count(registry, "stale");
+				cache.get(CURRENT, query, () -> "météo");
+				if (query.equals(JORF_LASFAR) || query.equals(EL_JADIDA)) {
+					requests++;
+					misses += (long) (count(registry, "miss") - missesBefore);
+					stale += (long) (count(registry, "stale") - staleBefore);
+				}
+				now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_500));
+			}
+		}
+		return new Outcome(requests, misses, stale);
+	}
+
+	private static double count(SimpleMeterRegistry registry, String result) {
+		return registry.get("weather.cache.requests").tag("endpoint", CURRENT.getName()).tag("result", result).counter().count();
+	}
+}
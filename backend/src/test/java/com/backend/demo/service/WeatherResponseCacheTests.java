@@ -0,0 +1,225 @@
+package com.backend.demo.service;
+
+import com.backend.demo.upstream.UpstreamQuotaExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.cumulative.CumulativeCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WeatherResponseCacheTests {
+
+	private static final WeatherResponseCache.Endpoint CURRENT = WeatherResponseCache.Endpoint.OPENWEATHER_CURRENT;
+
+	private final AtomicReference<Runnable> onMiss = new AtomicReference<>();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry() {
+		@Override
+		protected Counter newCounter(Meter.Id id) {
+			if (!"miss".equals(id.getTag("result"))) {
+				return super.newCounter(id);
+			}
+			return new CumulativeCounter(id) {
+				@Override
+				public void increment(double amount) {
+					super.increment(amount);
+					Runnable hook = onMiss.getAndSet(null);
+					if (hook != null) {
+						hook.run();
+					}
+				}
+			};
+		}
+	};
+	private final AtomicLong now = new AtomicLong();
+	private final AtomicInteger upstreamCalls = new AtomicInteger();
+	private final WeatherResponseCache cache = new WeatherResponseCache(meterRegistry, new MockEnvironment()
+			.withProperty("weather.cache.max-entries", "3")
+			.withProperty("weather.cache.wait-timeout", "50")
+			.withProperty("weather.cache.openweather-current.ttl", "1000")
+			.withProperty("weather.cache.openweather-current.stale", "1000"), now::get);
+
+	@AfterEach
+	void shutdown() {
+		cache.shutdown();
+	}
+
+	@Test
+	void freshEntryIsServedWithoutUpstreamCall() {
+		assertEquals(1, cache.get(CURRENT, WeatherResponseCache.key("Paris"), this::upstream));
+		advance(900);
+		assertEquals(1, cache.get(CURRENT, WeatherResponseCache.key("  paris "), this::upstream));
+		assertEquals(1, upstreamCalls.get());
+		assertEquals(0.5, cache.getHitRatio(CURRENT));
+		assertEquals(1, meterRegistry.get("weather.cache.load").tag("endpoint", CURRENT.getName()).tag("outcome", "success").timer().count());
+	}
+
+	@Test
+	void gaugesAreRegisteredOnceTheCacheIsBuilt() {
+		cache.registerMeters();
+		cache.get(CURRENT, "paris", this::upstream);
+		cache.get(CURRENT, "paris", this::upstream);
+
+		assertEquals(1, meterRegistry.get("weather.cache.size").gauge().value());
+		assertEquals(0.5, meterRegistry.get("weather.cache.hit.ratio").tag("endpoint", CURRENT.getName()).gauge().value());
+	}
+
+	@Test
+	void staleEntryIsServedWhileOneBackgroundRefreshRuns() throws Exception {
+		cache.get(CURRENT, "paris", this::upstream);
+		advance(1500);
+		CountDownLatch release = new CountDownLatch(1);
+		for (int i = 0; i < 10; i++) {
+			// Tant que le rafraîchissement est en cours, toutes les lectures reçoivent la valeur périmée
+			assertEquals(1, cache.get(CURRENT, "paris", () -> {
+				await(release);
+				return upstream();
+			}));
+		}
+		release.countDown();
+		awaitLoads("success", 2);
+		assertEquals(2, cache.get(CURRENT, "paris", this::upstream));
+		assertEquals(2, upstreamCalls.get());
+		assertEquals(10, meterRegistry.get("weather.cache.requests").tag("endpoint", CURRENT.getName()).tag("result", "stale").counter().count());
+	}
+
+	@Test
+	void failedRefreshKeepsStaleValueUntilWindowEnds() throws Exception {
+		cache.get(CURRENT, "paris", this::upstream);
+		advance(1500);
+		assertEquals(1, cache.get(CURRENT, "paris", this::failingUpstream));
+		awaitLoads("failure", 1);
+		assertEquals(1, cache.get(CURRENT, "paris", this::failingUpstream));
+
+		// Fenêtre de péremption dépassée : chargement synchrone, l'erreur remonte et n'est pas mise en cache
+		advance(1000);
+		assertThrows(IllegalStateException.class, () -> cache.get(CURRENT, "paris", this::failingUpstream));
+		assertEquals(upstreamCalls.get() + 1, cache.get(CURRENT, "paris", this::upstream));
+	}
+
+	@Test
+	void leastRecentlyReadEntriesAreEvicted() {
+		cache.get(CURRENT, "paris", this::upstream);
+		cache.get(CURRENT, "lyon", this::upstream);
+		cache.get(CURRENT, "tunis", this::upstream);
+		cache.get(CURRENT, "paris", this::upstream);
+		cache.get(CURRENT, "nice", this::upstream);
+
+		assertEquals(3, cache.size());
+		assertEquals(4, upstreamCalls.get());
+		cache.get(CURRENT, "paris", this::upstream);
+		assertEquals(4, upstreamCalls.get());
+		cache.get(CURRENT, "lyon", this::upstream);
+		assertEquals(5, upstreamCalls.get());
+	}
+
+	@Test
+	void waiterTimeoutDoesNotCancelSharedCall() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Thread leader = Thread.ofVirtual().start(() -> cache.get(CURRENT, "paris", () -> {
+			started.countDown();
+			await(release);
+			return upstream();
+		}));
+		// L'appel partagé est enregistré avant que son chargeur ne démarre
+		assertTrue(started.await(2, TimeUnit.SECONDS));
+
+		// Le second appelant rejoint l'appel en cours puis abandonne après wait-timeout
+		IllegalStateException timeout = assertThrows(IllegalStateException.class,
+				() -> cache.get(CURRENT, "paris", this::upstream));
+		assertTrue(timeout.getMessage().contains("Délai dépassé"));
+		assertEquals(1, meterRegistry.get("weather.cache.coalesced").tag("endpoint", CURRENT.getName()).counter().count());
+
+		release.countDown();
+		leader.join();
+		assertEquals(1, cache.get(CURRENT, "paris", this::upstream));
+		assertEquals(1, upstreamCalls.get());
+	}
+
+	@Test
+	void callerLosingTheRaceToACompletedLoadReusesItsValue() {
+		// Un autre appelant charge et libère la clé entre la lecture du cache et le chargement
+		onMiss.set(() -> cache.get(CURRENT, "paris", this::upstream));
+
+		assertEquals(1, cache.get(CURRENT, "paris", this::upstream));
+		assertEquals(1, upstreamCalls.get());
+	}
+
+	@Test
+	void keysAreNormalized() {
+		assertEquals("sao paulo|fr", WeatherResponseCache.key(" São  Paulo", "fr"));
+		assertEquals("48.8566,2.3522", WeatherResponseCache.key(48.85661, 2.35222));
+		assertEquals(WeatherResponseCache.key("Paris"), WeatherResponseCache.key("PARIS"));
+	}
+
+	@Test
+	void refreshAheadReloadsOnlyEntriesCloseToExpiry() {
+		cache.get(CURRENT, "paris", this::upstream);
+		assertEquals(0, cache.refreshAhead("paris", 500));
+		assertEquals(0, cache.refreshAhead("lyon", 5_000));
+
+		advance(600);
+		assertEquals(1, cache.refreshAhead("paris", 500));
+		assertEquals(2, upstreamCalls.get());
+		// Valeur rechargée, de nouveau fraîche pour 1 s, sans compter de requête dans les statistiques
+		advance(900);
+		assertEquals(2, cache.get(CURRENT, "paris", this::upstream));
+		assertEquals(0.5, cache.getHitRatio(CURRENT));
+	}
+
+	@Test
+	void expiredValueIsServedWhenQuotaIsExhausted() {
+		cache.get(CURRENT, "paris", this::upstream);
+		advance(2500);
+
+		assertEquals(1, cache.<Integer>get(CURRENT, "paris", () -> {
+			throw new ResourceAccessException("I/O error", new UpstreamQuotaExceededException("Quota openweather épuisé"));
+		}));
+		assertEquals(1, meterRegistry.get("weather.cache.degraded").tag("endpoint", CURRENT.getName()).counter().count());
+		// Sans valeur connue, le refus de quota remonte
+		assertThrows(ResourceAccessException.class, () -> cache.<Integer>get(CURRENT, "lyon", () -> {
+			throw new ResourceAccessException("I/O error", new UpstreamQuotaExceededException("Quota openweather épuisé"));
+		}));
+	}
+
+	private int upstream() {
+		return upstreamCalls.incrementAndGet();
+	}
+
+	private int failingUpstream() {
+		throw new IllegalStateException("HTTP 503");
+	}
+
+	private void advance(long millis) {
+		now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+	}
+
+	private void awaitLoads(String outcome, int expected) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 2_000;
+		while (meterRegistry.get("weather.cache.load").tag("endpoint", CURRENT.getName()).tag("outcome", outcome).timer().count() < expected) {
+			assertTrue(System.currentTimeMillis() < deadline);
+			Thread.sleep(2);
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(2, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
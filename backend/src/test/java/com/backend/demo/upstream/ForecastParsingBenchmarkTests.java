@@ -0,0 +1,209 @@
+package com.backend.demo.upstream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lecture d'une réponse de prévision complète (OpenWeather : 40 créneaux, WeatherAPI : 72 heures)
+ * en arbre de Map, puis extraction des champs utilisés, contre la lecture directe dans les modèles typés.
+ * Mesure par réponse : octets alloués par le thread et temps moyen, après préchauffage.
+ * Même ObjectMapper que le RestTemplate (Jackson2ObjectMapperBuilder).
+ */
+class ForecastParsingBenchmarkTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(ForecastParsingBenchmarkTests.class);
+
+	private static final int WARMUP = 3_000;
+	private static final int ITERATIONS = 3_000;
+
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+	private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	@Test
+	@Tag("benchmark")
+	void typedModelsAllocateLessThanMapTrees() throws Exception {
+		byte[] openWeather = openWeatherForecast().getBytes(StandardCharsets.UTF_8);
+		byte[] weatherApi = weatherApiForecast().getBytes(StandardCharsets.UTF_8);
+
+		Result openWeatherMap = measure(openWeather, this::sumOpenWeatherMap);
+		Result openWeatherTyped = measure(openWeather, this::sumOpenWeatherTyped);
+		Result weatherApiMap = measure(weatherApi, this::sumWeatherApiMap);
+		Result weatherApiTyped = measure(weatherApi, this::sumWeatherApiTyped);
+
+		logger.info(String.format("OpenWeather (%,d o) | Map %,8d o/réponse %,6.1f µs | typé %,8d o/réponse %,6.1f µs",
+				openWeather.length, openWeatherMap.bytes, openWeatherMap.micros, openWeatherTyped.bytes, openWeatherTyped.micros));
+		logger.info(String.format("WeatherAPI  (%,d o) | Map %,8d o/réponse %,6.1f µs | typé %,8d o/réponse %,6.1f µs",
+				weatherApi.length, weatherApiMap.bytes, weatherApiMap.micros, weatherApiTyped.bytes, weatherApiTyped.micros));
+
+		// Les deux chemins lisent les mêmes valeurs
+		assertEquals(sumOpenWeatherMap(openWeather), sumOpenWeatherTyped(openWeather), 1e-9);
+		assertEquals(sumWeatherApiMap(weatherApi), sumWeatherApiTyped(weatherApi), 1e-9);
+		assertTrue(openWeatherTyped.bytes < openWeatherMap.bytes);
+		assertTrue(weatherApiTyped.bytes < weatherApiMap.bytes);
+	}
+
+	@Test
+	void forwardedConditionAndWindKeepTheirUpstreamFields() throws Exception {
+		String json = openWeatherForecast();
+		Map<?, ?> raw = (Map<?, ?>) ((List<?>) objectMapper.readValue(json, Map.class).get("list")).get(0);
+		OpenWeatherForecast.Item typed = objectMapper.readValue(json, OpenWeatherForecast.class).list().get(0);
+
+		// Condition et Wind sont renvoyés tels quels au frontend, comme l'étaient les Map d'origine
+		assertEquals(((List<?>) raw.get("weather")).get(0), objectMapper.convertValue(typed.condition(), Map.class));
+		Map<?, ?> wind = objectMapper.convertValue(typed.windOrCalm(), Map.class);
+		assertEquals(((Map<?, ?>) raw.get("wind")).keySet(), wind.keySet());
+		assertEquals(6.2, wind.get("gust"));
+	}
+
+	private Result measure(byte[] json, ToDoubleFunction<byte[]> parse) {
+		double sink = 0;
+		for (int i = 0; i < WARMUP; i++) {
+			sink += parse.applyAsDouble(json);
+		}
+		long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			sink += parse.applyAsDouble(json);
+		}
+		long elapsed = System.nanoTime() - start;
+		long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+		assertTrue(sink != 0);
+		return new Result(allocated / ITERATIONS, elapsed / 1_000.0 / ITERATIONS);
+	}
+
+	@SuppressWarnings("unchecked")
+	private double sumOpenWeatherMap(byte[] json) {
+		Map<String, Object> response = read(json, Map.class);
+		double sum = 0;
+		for (Map<String, Object> item : (List<Map<String, Object>>) response.get("list")) {
+			Map<String, Object> main = (Map<String, Object>) item.get("main");
+			Map<String, Object> wind = (Map<String, Object>) item.get("wind");
+			Map<String, Object> weather = ((List<Map<String, Object>>) item.get("weather")).get(0);
+			sum += ((Number) item.get("dt")).longValue() % 1_000 + ((Number) main.get("temp")).doubleValue()
+					+ ((Number) main.get("humidity")).doubleValue() + ((Number) wind.get("speed")).doubleValue()
+					+ ((Number) item.get("pop")).doubleValue() + ((String) weather.get("description")).length();
+		}
+		return sum;
+	}
+
+	private double sumOpenWeatherTyped(byte[] json) {
+		OpenWeatherForecast response = read(json, OpenWeatherForecast.class);
+		double sum = 0;
+		for (OpenWeatherForecast.Item item : response.list()) {
+			sum += item.dt() % 1_000 + item.temp() + item.humidity() + item.windOrCalm().speed()
+					+ item.pop() + item.condition().description().length();
+		}
+		return sum;
+	}
+
+	@SuppressWarnings("unchecked")
+	private double sumWeatherApiMap(byte[] json) {
+		Map<String, Object> response = read(json, Map.class);
+		double sum = 0;
+		Map<String, Object> forecast = (Map<String, Object>) response.get("forecast");
+		for (Map<String, Object> day : (List<Map<String, Object>>) forecast.get("forecastday")) {
+			Map<String, Object> summary = (Map<String, Object>) day.get("day");
+			sum += ((Number) summary.get("maxtemp_c")).doubleValue() + ((Number) summary.get("mintemp_c")).doubleValue();
+			for (Map<String, Object> hour : (List<Map<String, Object>>) day.get("hour")) {
+				Map<String, Object> condition = (Map<String, Object>) hour.get("condition");
+				sum += ((Number) hour.get("temp_c")).doubleValue() + ((Number) hour.get("humidity")).doubleValue()
+						+ ((Number) hour.get("wind_kph")).doubleValue() + ((String) condition.get("text")).length()
+						+ ((String) hour.get("time")).length();
+			}
+		}
+		return sum;
+	}
+
+	private double sumWeatherApiTyped(byte[] json) {
+		WeatherApiForecast response = read(json, WeatherApiForecast.class);
+		double sum = 0;
+		for (WeatherApiForecast.Day day : response.days()) {
+			sum += day.day().maxTempC() + day.day().minTempC();
+			for (WeatherApiForecast.Hour hour : day.hours()) {
+				sum += hour.tempC() + hour.humidity() + hour.windKph() + hour.condition().text().length() + hour.time().length();
+			}
+		}
+		return sum;
+	}
+
+	private <T> T read(byte[] json, Class<T> type) {
+		try {
+			return objectMapper.readValue(json, type);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Réponse /data/2.5/forecast complète : 40 créneaux de 3 h avec tous leurs champs
+	 */
+	private static String openWeatherForecast() {
+		StringBuilder json = new StringBuilder("{\"cod\":\"200\",\"message\":0,\"cnt\":40,\"list\":[");
+		for (int i = 0; i < 40; i++) {
+			double temp = 12.5 + (i % 8) * 0.75;
+			json.append(i == 0 ? "" : ",").append("{\"dt\":").append(1_700_000_000L + i * 10_800L)
+					.append(",\"main\":{\"temp\":").append(temp).append(",\"feels_like\":").append(temp - 1.2)
+					.append(",\"temp_min\":").append(temp - 0.8).append(",\"temp_max\":").append(temp + 0.6)
+					.append(",\"pressure\":1015,\"sea_level\":1015,\"grnd_level\":1008,\"humidity\":").append(60 + i % 30)
+					.append(",\"temp_kf\":0.43},\"weather\":[{\"id\":803,\"main\":\"Clouds\",\"description\":\"nuageux\",\"icon\":\"04d\"}]")
+					.append(",\"clouds\":{\"all\":75},\"wind\":{\"speed\":").append(3.1 + i % 5).append(",\"deg\":230,\"gust\":6.2}")
+					.append(",\"visibility\":10000,\"pop\":").append((i % 10) / 10.0)
+					.append(",\"sys\":{\"pod\":\"d\"},\"dt_txt\":\"2023-11-14 ").append(String.format("%02d", (i * 3) % 24)).append(":00:00\"}");
+		}
+		return json.append("],\"city\":{\"id\":2988507,\"name\":\"Paris\",\"coord\":{\"lat\":48.8534,\"lon\":2.3488},")
+				.append("\"country\":\"FR\",\"population\":2138551,\"timezone\":3600,\"sunrise\":1699944000,\"sunset\":1699977600}}")
+				.toString();
+	}
+
+	/**
+	 * Réponse /v1/forecast.json sur 3 jours : location, current, et 24 heures détaillées par jour
+	 */
+	private static String weatherApiForecast() {
+		String condition = "{\"text\":\"Partiellement nuageux\",\"icon\":\"//cdn.weatherapi.com/weather/64x64/day/116.png\",\"code\":1003}";
+		StringBuilder json = new StringBuilder("{\"location\":{\"name\":\"Paris\",\"region\":\"Ile-de-France\",\"country\":\"France\",")
+				.append("\"lat\":48.87,\"lon\":2.33,\"tz_id\":\"Europe/Paris\",\"localtime_epoch\":1700000000,\"localtime\":\"2023-11-14 23:13\"},")
+				.append("\"current\":{\"temp_c\":12.0,\"temp_f\":53.6,\"is_day\":0,\"condition\":").append(condition)
+				.append(",\"wind_kph\":11.2,\"humidity\":82,\"cloud\":75,\"feelslike_c\":10.4,\"uv\":1.0},\"forecast\":{\"forecastday\":[");
+		for (int d = 0; d < 3; d++) {
+			json.append(d == 0 ? "" : ",").append("{\"date\":\"2023-11-1").append(4 + d).append("\",\"date_epoch\":").append(1_699_920_000L + d * 86_400L)
+					.append(",\"day\":{\"maxtemp_c\":").append(14.5 + d).append(",\"maxtemp_f\":58.1,\"mintemp_c\":").append(8.2 + d)
+					.append(",\"mintemp_f\":46.8,\"avgtemp_c\":11.3,\"avgtemp_f\":52.3,\"maxwind_mph\":9.8,\"maxwind_kph\":15.8,")
+					.append("\"totalprecip_mm\":1.2,\"totalprecip_in\":0.05,\"totalsnow_cm\":0.0,\"avgvis_km\":9.6,\"avgvis_miles\":5.0,")
+					.append("\"avghumidity\":78,\"daily_will_it_rain\":1,\"daily_chance_of_rain\":80,\"daily_will_it_snow\":0,")
+					.append("\"daily_chance_of_snow\":0,\"condition\":").append(condition).append(",\"uv\":2.0},")
+					.append("\"astro\":{\"sunrise\":\"07:58 AM\",\"sunset\":\"05:08 PM\",\"moonrise\":\"09:01 AM\",\"moonset\":\"05:37 PM\",")
+					.append("\"moon_phase\":\"Waxing Crescent\",\"moon_illumination\":3,\"is_moon_up\":0,\"is_sun_up\":0},\"hour\":[");
+			for (int h = 0; h < 24; h++) {
+				double temp = 9.0 + (h % 12) * 0.4 + d;
+				json.append(h == 0 ? "" : ",").append("{\"time_epoch\":").append(1_699_920_000L + d * 86_400L + h * 3_600L)
+						.append(",\"time\":\"2023-11-1").append(4 + d).append(" ").append(String.format("%02d", h)).append(":00\"")
+						.append(",\"temp_c\":").append(temp).append(",\"temp_f\":").append(temp * 1.8 + 32)
+						.append(",\"is_day\":").append(h > 7 && h < 17 ? 1 : 0).append(",\"condition\":").append(condition)
+						.append(",\"wind_mph\":6.9,\"wind_kph\":").append(11.2 + h % 4).append(",\"wind_degree\":224,\"wind_dir\":\"SW\",")
+						.append("\"pressure_mb\":1012.0,\"pressure_in\":29.88,\"precip_mm\":0.1,\"precip_in\":0.0,\"snow_cm\":0.0,")
+						.append("\"humidity\":").append(70 + h % 20).append(",\"cloud\":78,\"feelslike_c\":7.1,\"feelslike_f\":44.8,")
+						.append("\"windchill_c\":7.1,\"windchill_f\":44.8,\"heatindex_c\":9.6,\"heatindex_f\":49.2,\"dewpoint_c\":6.0,")
+						.append("\"dewpoint_f\":42.8,\"will_it_rain\":0,\"chance_of_rain\":40,\"will_it_snow\":0,\"chance_of_snow\":0,")
+						.append("\"vis_km\":10.0,\"vis_miles\":6.0,\"gust_mph\":12.6,\"gust_kph\":20.3,\"uv\":1.0}");
+			}
+			json.append("]}");
+		}
+		return json.append("]}}").toString();
+	}
+
+	private record Result(long bytes, double micros) {
+	}
+}
@@ -0,0 +1,152 @@
+package com.backend.demo.upstream;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Client amont contre un serveur HTTP local : réutilisation des connexions, délai de lecture
+ * par fournisseur et cloisons. Les deux fournisseurs simulés visent le même serveur
+ * par deux noms d'hôte différents (localhost et 127.0.0.1).
+ */
+class UpstreamHttpClientTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+	private HttpServer server;
+
+	@BeforeEach
+	void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(0), 0);
+		server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		server.createContext("/weather", exchange -> {
+			clientPorts.add(exchange.getRemoteAddress().getPort());
+			String query = exchange.getRequestURI().getQuery();
+			if (query != null && query.startsWith("delay=")) {
+				try {
+					Thread.sleep(Long.parseLong(query.substring(6)));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			byte[] body = "{\"name\":\"Paris\",\"main\":{\"temp\":18.5}}".getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			} catch (IOException e) {
+				// Client parti avant la réponse (délai dépassé)
+			}
+		});
+		server.start();
+	}
+
+	@AfterEach
+	void stopServer() {
+		server.stop(0);
+	}
+
+	@Test
+	void connectionsAreKeptAliveBetweenRequests() {
+		RestTemplate restTemplate = restTemplate(
+				new UpstreamProvider("openweather", "localhost", 4, Duration.ofMillis(100), Duration.ofSeconds(2)));
+
+		for (int i = 0; i < 20; i++) {
+			Map<?, ?> response = restTemplate.getForObject(url("localhost", 0), Map.class);
+			assertEquals("Paris", response.get("name"));
+		}
+
+		assertEquals(1, clientPorts.size(), "connexions ouvertes : " + clientPorts.size());
+		assertEquals(20, meterRegistry.get("upstream.http.requests").tag("provider", "openweather").tag("outcome", "success").timer().count());
+		assertEquals(0, meterRegistry.get("upstream.http.active").tag("provider", "openweather").gauge().value());
+	}
+
+	@Test
+	void readTimeoutBoundsSlowProvider() {
+		RestTemplate restTemplate = restTemplate(
+				new UpstreamProvider("openweather", "localhost", 4, Duration.ofMillis(100), Duration.ofMillis(200)));
+
+		long begin = System.nanoTime();
+		assertThrows(ResourceAccessException.class, () -> restTemplate.getForObject(url("localhost", 2_000), Map.class));
+		long elapsedMs = (System.nanoTime() - begin) / 1_000_000;
+
+		assertTrue(elapsedMs < 1_000, "échéance atteinte en " + elapsedMs + " ms");
+		assertEquals(1, meterRegistry.get("upstream.http.requests").tag("provider", "openweather").tag("outcome", "timeout").timer().count());
+		assertEquals(0, meterRegistry.get("upstream.http.active").tag("provider", "openweather").gauge().value());
+	}
+
+	@Test
+	void saturatedProviderDoesNotBlockTheOther() throws Exception {
+		RestTemplate restTemplate = restTemplate(
+				new UpstreamProvider("openweather", "localhost", 2, Duration.ofMillis(50), Duration.ofSeconds(5)),
+				new UpstreamProvider("weatherapi", "127.0.0.1", 2, Duration.ofMillis(50), Duration.ofSeconds(5)));
+
+		AtomicInteger succeeded = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+		List<Thread> clients = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			clients.add(Thread.ofVirtual().start(() -> {
+				try {
+					restTemplate.getForObject(url("localhost", 500), Map.class);
+					succeeded.incrementAndGet();
+				} catch (ResourceAccessException e) {
+					if (e.getMessage().contains("saturée")) {
+						rejected.incrementAndGet();
+					}
+				}
+			}));
+		}
+		while (meterRegistry.find("upstream.http.requests").tag("outcome", "rejected").timer() == null
+				|| meterRegistry.get("upstream.http.requests").tag("outcome", "rejected").timer().count() < 4) {
+			Thread.sleep(5);
+		}
+
+		// Cloison openweather pleine : weatherapi répond sans attendre
+		assertEquals(2, meterRegistry.get("upstream.http.active").tag("provider", "openweather").gauge().value());
+		long begin = System.nanoTime();
+		assertEquals("Paris", restTemplate.getForObject(url("127.0.0.1", 0), Map.class).get("name"));
+		long otherMs = (System.nanoTime() - begin) / 1_000_000;
+		for (Thread client : clients) {
+			client.join();
+		}
+
+		assertEquals(2, succeeded.get());
+		assertEquals(4, rejected.get());
+		assertTrue(otherMs < 300, "weatherapi servi en " + otherMs + " ms");
+		assertEquals(0, meterRegistry.get("upstream.http.queued").tag("provider", "openweather").gauge().value());
+		assertEquals(6, meterRegistry.get("upstream.http.queue.wait").tag("provider", "openweather").timer().count());
+	}
+
+	private RestTemplate restTemplate(UpstreamProvider... providers) {
+		List<UpstreamProvider> list = List.of(providers);
+		RestTemplate restTemplate = new RestTemplate(new UpstreamRequestFactory(
+				UpstreamRequestFactory.httpClient(Duration.ofSeconds(1)), list, Duration.ofSeconds(5)));
+		restTemplate.getInterceptors().add(new UpstreamBulkheadInterceptor(list, meterRegistry));
+		return restTemplate;
+	}
+
+	private String url(String host, long delayMs) {
+		return "http://" + host + ":" + server.getAddress().getPort() + "/weather?delay=" + delayMs;
+	}
+}
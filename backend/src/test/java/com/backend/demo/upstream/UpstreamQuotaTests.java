@@ -0,0 +1,172 @@
+package com.backend.demo.upstream;
+
+import com.backend.demo.service.UpstreamFanOut;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.client.ExpectedCount.times;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class UpstreamQuotaTests {
+
+	private static final Map<UpstreamPriority, Duration> WAITS = Map.of(
+			UpstreamPriority.INTERACTIVE, Duration.ofMillis(1_000),
+			UpstreamPriority.MANUAL, Duration.ofMillis(1_000),
+			UpstreamPriority.SCHEDULED, Duration.ofMillis(50));
+
+	private final AtomicLong wallClock = new AtomicLong(TimeUnit.DAYS.toMillis(20_000));
+
+	@Test
+	void emptyBucketRejectsAfterThePriorityWait() throws Exception {
+		QuotaGovernor governor = governor(new UpstreamQuota("openweather", "localhost", 60, 2, 1_000));
+		governor.acquire(UpstreamPriority.SCHEDULED);
+		governor.acquire(UpstreamPriority.SCHEDULED);
+
+		long begin = System.nanoTime();
+		assertThrows(UpstreamQuotaExceededException.class, () -> governor.acquire(UpstreamPriority.SCHEDULED));
+		long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+		assertTrue(waitedMs >= 40 && waitedMs < 500, "attente " + waitedMs + " ms");
+		assertEquals(998, governor.remainingToday());
+	}
+
+	@Test
+	void interactiveRequestGetsTheNextTokenBeforeQueuedJobs() throws Exception {
+		// Un jeton toutes les 100 ms, seau vidé
+		QuotaGovernor governor = new QuotaGovernor(new UpstreamQuota("openweather", "localhost", 600, 1, 1_000),
+				Map.of(UpstreamPriority.INTERACTIVE, Duration.ofSeconds(2), UpstreamPriority.MANUAL, Duration.ofSeconds(2),
+						UpstreamPriority.SCHEDULED, Duration.ofSeconds(2)), 0.2, System::nanoTime, wallClock::get);
+		governor.acquire(UpstreamPriority.INTERACTIVE);
+
+		List<UpstreamPriority> granted = new CopyOnWriteArrayList<>();
+		CountDownLatch queued = new CountDownLatch(2);
+		List<Thread> threads = new CopyOnWriteArrayList<>();
+		for (UpstreamPriority priority : List.of(UpstreamPriority.SCHEDULED, UpstreamPriority.MANUAL)) {
+			threads.add(Thread.ofVirtual().start(() -> acquire(governor, priority, granted, queued)));
+		}
+		assertTrue(queued.await(1, TimeUnit.SECONDS));
+		while (governor.queued() < 2) {
+			Thread.sleep(1);
+		}
+		// Arrivée en dernier, la requête interactive passe en tête de file
+		threads.add(Thread.ofVirtual().start(() -> acquire(governor, UpstreamPriority.INTERACTIVE, granted, new CountDownLatch(1))));
+		for (Thread thread : threads) {
+			thread.join(3_000);
+		}
+
+		assertEquals(List.of(UpstreamPriority.INTERACTIVE, UpstreamPriority.MANUAL, UpstreamPriority.SCHEDULED), granted);
+	}
+
+	@Test
+	void dailyReserveIsKeptForInteractiveTraffic() throws Exception {
+		QuotaGovernor governor = governor(new UpstreamQuota("weatherapi", "localhost", 6_000, 100, 10));
+		for (int i = 0; i < 8; i++) {
+			governor.acquire(UpstreamPriority.SCHEDULED);
+		}
+		assertThrows(UpstreamQuotaExceededException.class, () -> governor.acquire(UpstreamPriority.SCHEDULED));
+		assertThrows(UpstreamQuotaExceededException.class, () -> governor.acquire(UpstreamPriority.MANUAL));
+		governor.acquire(UpstreamPriority.INTERACTIVE);
+		governor.acquire(UpstreamPriority.INTERACTIVE);
+		assertThrows(UpstreamQuotaExceededException.class, () -> governor.acquire(UpstreamPriority.INTERACTIVE));
+
+		// Nouveau jour UTC : quota journalier rétabli
+		wallClock.addAndGet(TimeUnit.DAYS.toMillis(1));
+		assertDoesNotThrow(() -> governor.acquire(UpstreamPriority.SCHEDULED));
+	}
+
+	@Test
+	void restTemplateCallsAreGovernedAndRemainingBudgetIsExposed() {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		RestTemplate restTemplate = new RestTemplate();
+		restTemplate.getInterceptors().add(new UpstreamQuotaInterceptor(
+				List.of(new UpstreamQuota("openweather", "localhost", 60, 1, 100)), WAITS, 0.2, meterRegistry,
+				System::nanoTime, wallClock::get));
+		MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+		server.expect(method(HttpMethod.GET)).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+		restTemplate.getForObject("http://localhost/data/2.5/weather?q=Paris", Map.class);
+		ResourceAccessException rejected = assertThrows(ResourceAccessException.class, () -> UpstreamPriority.run(
+				UpstreamPriority.SCHEDULED, () -> restTemplate.getForObject("http://localhost/data/2.5/weather?q=Lyon", Map.class)));
+
+		server.verify();
+		assertTrue(UpstreamQuotaExceededException.isCause(rejected));
+		assertEquals(0, meterRegistry.get("upstream.quota.remaining").tag("window", "minute").gauge().value());
+		assertEquals(99, meterRegistry.get("upstream.quota.remaining").tag("window", "day").gauge().value());
+		assertEquals(1, meterRegistry.get("upstream.quota.requests").tag("priority", "scheduled").tag("outcome", "rejected").counter().count());
+	}
+
+	@Test
+	void dailyUsageSurvivesARestartOnTheSameDay(@TempDir Path dir) {
+		String file = dir.resolve("upstream-quota.json").toString();
+		UpstreamQuotaInterceptor before = interceptor(new SimpleMeterRegistry());
+		RestTemplate restTemplate = new RestTemplate();
+		restTemplate.getInterceptors().add(before);
+		MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+		server.expect(times(3), method(HttpMethod.GET)).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+		for (int i = 0; i < 3; i++) {
+			restTemplate.getForObject("http://localhost/data/2.5/weather?q=Paris", Map.class);
+		}
+		new QuotaUsageFile(before, file).shutdown();
+
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		new QuotaUsageFile(interceptor(meterRegistry), file).load();
+		assertEquals(97, meterRegistry.get("upstream.quota.remaining").tag("window", "day").gauge().value());
+
+		// Le compte d'un autre jour UTC n'est pas repris
+		wallClock.addAndGet(TimeUnit.DAYS.toMillis(1));
+		SimpleMeterRegistry nextDay = new SimpleMeterRegistry();
+		new QuotaUsageFile(interceptor(nextDay), file).load();
+		assertEquals(100, nextDay.get("upstream.quota.remaining").tag("window", "day").gauge().value());
+	}
+
+	@Test
+	void priorityFollowsCallsFannedOut() {
+		UpstreamFanOut fanOut = new UpstreamFanOut(new SimpleMeterRegistry(), 1_000);
+		try {
+			UpstreamPriority inner = UpstreamPriority.call(UpstreamPriority.SCHEDULED,
+					() -> fanOut.start("test", UpstreamPriority::current).get());
+			assertEquals(UpstreamPriority.SCHEDULED, inner);
+			assertEquals(UpstreamPriority.INTERACTIVE, UpstreamPriority.current());
+		} finally {
+			fanOut.shutdown();
+		}
+	}
+
+	private UpstreamQuotaInterceptor interceptor(SimpleMeterRegistry meterRegistry) {
+		return new UpstreamQuotaInterceptor(List.of(new UpstreamQuota("openweather", "localhost", 6_000, 100, 100)),
+				WAITS, 0.2, meterRegistry, System::nanoTime, wallClock::get);
+	}
+
+	private QuotaGovernor governor(UpstreamQuota quota) {
+		return new QuotaGovernor(quota, WAITS, 0.2, System::nanoTime, wallClock::get);
+	}
+
+	private static void acquire(QuotaGovernor governor, UpstreamPriority priority, List<UpstreamPriority> granted, CountDownLatch queued) {
+		queued.countDown();
+		try {
+			governor.acquire(priority);
+			granted.add(priority);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package com.backend.demo.upstream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WeatherProvidersTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AtomicLong now = new AtomicLong();
+	private final FakeProvider primary = new FakeProvider("openweather");
+	private final FakeProvider backup = new FakeProvider("weatherapi");
+	// Disjoncteur ouvert après 3 échecs pendant 1 s, couverture après 1 s tant que la p95 est inconnue
+	private final WeatherProviders providers = new WeatherProviders(List.of(backup, primary), meterRegistry,
+			List.of("openweather", "weatherapi"), 3, 1_000, 20, 1_000, 2_000, now::get);
+
+	@AfterEach
+	void shutdown() {
+		providers.shutdown();
+	}
+
+	@Test
+	void preferredProviderServesWhenHealthy() {
+		assertEquals("openweather", providers.current("Paris").source());
+		assertEquals(List.of("openweather", "weatherapi"), providers.getProviderNames());
+		assertEquals(0, backup.calls.get());
+	}
+
+	@Test
+	void failureFailsOverToNextProvider() {
+		primary.failing = true;
+
+		assertEquals("weatherapi", providers.current("Paris").source());
+		assertEquals(1, meterRegistry.get("weather.provider.fallbacks").tag("provider", "weatherapi").tag("reason", "failover").counter().count());
+		assertEquals(1, meterRegistry.get("weather.provider.calls").tag("provider", "openweather").tag("outcome", "failure").counter().count());
+	}
+
+	@Test
+	void openCircuitSkipsProviderUntilTrialSucceeds() {
+		primary.failing = true;
+		for (int i = 0; i < 3; i++) {
+			providers.current("Paris");
+		}
+		assertEquals(1, circuitState("openweather"));
+
+		// Disjoncteur ouvert : le fournisseur préféré n'est plus appelé
+		assertEquals("weatherapi", providers.current("Paris").source());
+		assertEquals(3, primary.calls.get());
+		assertEquals(1, meterRegistry.get("weather.provider.calls").tag("provider", "openweather").tag("outcome", "rejected").counter().count());
+
+		// Fin d'ouverture : un appel d'essai, qui réussit et referme le disjoncteur
+		primary.failing = false;
+		now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_000));
+		assertEquals("openweather", providers.current("Paris").source());
+		assertEquals(0, circuitState("openweather"));
+	}
+
+	@Test
+	void clientErrorIsReturnedWithoutFailoverAndLeavesTheCircuitAlone() {
+		primary.failing = true;
+		providers.current("Paris");
+		providers.current("Paris");
+		primary.failing = false;
+
+		// Ville inconnue : 404 renvoyé tel quel, ni bascule ni échec compté, au-delà du seuil de 3
+		primary.notFound = true;
+		for (int i = 0; i < 5; i++) {
+			HttpClientErrorException error = assertThrows(HttpClientErrorException.class, () -> providers.current("Atlantide"));
+			assertEquals(404, error.getStatusCode().value());
+		}
+		assertEquals(0, circuitState("openweather"));
+		assertEquals(2, backup.calls.get());
+		assertEquals(5, meterRegistry.get("weather.provider.calls").tag("provider", "openweather").tag("outcome", "client_error").counter().count());
+
+		// Les deux échecs précédents comptent toujours : le troisième ouvre le disjoncteur
+		primary.notFound = false;
+		primary.failing = true;
+		providers.current("Paris");
+		assertEquals(1, circuitState("openweather"));
+	}
+
+	@Test
+	void slowProviderIsHedgedAfterItsP95() {
+		primary.p95 = Duration.ofMillis(50);
+		primary.delayMs = 1_000;
+
+		long begin = System.nanoTime();
+		CurrentWeather weather = providers.current("Paris");
+		long elapsedMs = (System.nanoTime() - begin) / 1_000_000;
+
+		assertEquals("weatherapi", weather.source());
+		assertTrue(elapsedMs < 500, "couverture servie en " + elapsedMs + " ms");
+		assertEquals(1, meterRegistry.get("weather.provider.fallbacks").tag("provider", "weatherapi").tag("reason", "hedge").counter().count());
+	}
+
+	@Test
+	void providerWithinItsP95IsNotHedged() {
+		primary.p95 = Duration.ofMillis(200);
+		primary.delayMs = 20;
+
+		for (int i = 0; i < 5; i++) {
+			assertEquals("openweather", providers.current("Paris").source());
+		}
+		assertEquals(0, backup.calls.get());
+	}
+
+	@Test
+	void failureOfEveryProviderIsReported() {
+		primary.failing = true;
+		backup.failing = true;
+
+		IllegalStateException failure = assertThrows(IllegalStateException.class, () -> providers.current("Paris"));
+		assertTrue(failure.getMessage().contains("Tous les fournisseurs"), failure.getMessage());
+	}
+
+	@Test
+	void latencyP95NeedsEnoughSamples() {
+		LatencyWindow window = new LatencyWindow(100);
+		for (int i = 1; i < 20; i++) {
+			window.record(TimeUnit.MILLISECONDS.toNanos(i));
+		}
+		assertNull(window.p95());
+		for (int i = 20; i <= 100; i++) {
+			window.record(TimeUnit.MILLISECONDS.toNanos(i));
+		}
+		assertEquals(Duration.ofMillis(95), window.p95());
+	}
+
+	private double circuitState(String provider) {
+		return meterRegistry.get("weather.provider.circuit.state").tag("provider", provider).gauge().value();
+	}
+
+	private static final class FakeProvider implements WeatherProvider {
+		private final String name;
+		private final AtomicInteger calls = new AtomicInteger();
+		private volatile boolean failing;
+		private volatile boolean notFound;
+		private volatile long delayMs;
+		private volatile Duration p95;
+
+		FakeProvider(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public CurrentWeather current(String city) {
+			calls.incrementAndGet();
+			try {
+				Thread.sleep(delayMs);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (failing) {
+				throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+			}
+			if (notFound) {
+				throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+			}
+			return new CurrentWeather(name, city, "FR", 48.85, 2.35, 18.5, 17.9, 60, 1015, 10, 3.2, 230,
+					"nuageux", "04d", 0, 0);
+		}
+
+		@Override
+		public CurrentWeather current(double lat, double lon) {
+			return current(lat + "," + lon);
+		}
+
+		@Override
+		public Duration getLatencyP95() {
+			return p95;
+		}
+	}
+}